@@ -1,4 +1,5 @@
 <%@page import="com.dotmarketing.util.Logger"%>
+<%@page import="com.dotcms.content.elasticsearch.business.ContentletSearchCache"%>
 <%@page import="com.dotmarketing.exception.DotSecurityException"%>
 <%@page import="com.google.common.cache.Cache"%>
 <%@page import="org.github.jamm.MemoryMeter"%>
@@ -211,4 +212,34 @@ MemoryMeter meter = new MemoryMeter();
 
             
         </tr>
-</table>
\ No newline at end of file
+</table>
+
+<%ContentletSearchCache searchCache = CacheLocator.getContentletSearchCache();
+if(searchCache.isEnabled()){
+	long searchHits = searchCache.getHits();
+	long searchLookups = searchHits + searchCache.getMisses();
+%>
+	<div style="padding-top:30px;">
+		<table class="listingTable shadowBox" style="width:400px">
+			<tr>
+				<th colspan="2"><%= LanguageUtil.get(pageContext, "Contentlet-Search-Cache") %></th>
+			</tr>
+			<tr>
+				<th><%= LanguageUtil.get(pageContext, "Cache-Hits") %></th>
+				<td align="right"><%= nf.format(searchHits) %></td>
+			</tr>
+			<tr>
+				<th><%= LanguageUtil.get(pageContext, "Cache-Misses") %></th>
+				<td align="right"><%= nf.format(searchCache.getMisses()) %></td>
+			</tr>
+			<tr>
+				<th><%= LanguageUtil.get(pageContext, "Hit-Rate") %></th>
+				<td align="right"><%if(searchLookups > 0){%><%= nf.format(searchHits * 100.0 / searchLookups) %>%<%}else{%>-<%} %></td>
+			</tr>
+			<tr>
+				<th><%= LanguageUtil.get(pageContext, "Cache-Invalidations") %></th>
+				<td align="right"><%= nf.format(searchCache.getInvalidations()) %></td>
+			</tr>
+		</table>
+	</div>
+<%} %>
@@ -77,6 +77,7 @@ function checkReindexationCallback (response) {
 	var lastIndexationProgress = response['lastIndexationProgress'];
 	var currentIndexPath = response['currentIndexPath'];
 	var newIndexPath = response['newIndexPath'];
+	var reindexRecordsPerSecond = response['reindexRecordsPerSecond'];
 	var lastIndexationStartTime = ' ';
 	var lastIndexationEndTime = ' ';
 
@@ -102,6 +103,9 @@ function checkReindexationCallback (response) {
 		stillInReindexation = true;
 		var indexationProgressDiv = document.getElementById("indexationProgressDiv");
 		indexationProgressDiv.innerHTML = "<%= LanguageUtil.get(pageContext,"Reindex-Progress") %>: " + lastIndexationProgress + " / " + contentCountToIndex + " ";
+		if(reindexRecordsPerSecond != undefined){
+			indexationProgressDiv.innerHTML += "(" + reindexRecordsPerSecond + "/s) ";
+		}
 	} else {
 		dojo.query(".indexActionsDiv").style("display","");
 		reindexationInProgressDiv.style.display = "none";
@@ -110,7 +110,10 @@
 			var assetName = host?(!isSystemHost?host.hostName:'<%=LanguageUtil.get(pageContext, "All-Hosts") %>'):folder.path;
 			try{
 			  if(role.id == norm(currentRoleId)) {
-				dojo.byId('permissionsCascadeMsgText').innerHTML = '<%=LanguageUtil.get(pageContext, "Role-Permissions-Currently-Cascading") %>';
+				var msg = '<%=LanguageUtil.get(pageContext, "Role-Permissions-Currently-Cascading") %>';
+				if(task.progress)
+					msg += ' (' + task.progress.processed + ' / ' + task.progress.found + ')';
+				dojo.byId('permissionsCascadeMsgText').innerHTML = msg;
 				dojo.style('permissionsCascadeMsg', { display: '' });
 				cascadingChangesInProgress=true;
 				continueCheck=true;
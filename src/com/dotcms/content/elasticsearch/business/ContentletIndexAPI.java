@@ -9,6 +9,7 @@ import org.elasticsearch.action.bulk.BulkRequestBuilder;
 
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.portlets.contentlet.business.ContentletIndexBatch;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
 
 public interface ContentletIndexAPI {
@@ -62,6 +63,14 @@ public interface ContentletIndexAPI {
 	public void addContentToIndex(final Contentlet content, final boolean deps, boolean indexBeforeCommit, final boolean reindexOnly,
 			final BulkRequestBuilder bulk) throws DotHibernateException;
 
+	/**
+	 * Same as {@link #addContentToIndex(Contentlet, boolean, boolean, boolean, BulkRequestBuilder)}
+	 * taking the data needed to build the document from a batch loaded with
+	 * ContentletFactory.loadIndexBatch. The batch is ignored when deps is true.
+	 */
+	public void addContentToIndex(final Contentlet content, final boolean deps, boolean indexBeforeCommit, final boolean reindexOnly,
+			final BulkRequestBuilder bulk, final ContentletIndexBatch batch) throws DotHibernateException;
+
 	public void removeContentFromIndex(final Contentlet content) throws DotHibernateException;
 
 	public void removeContentFromIndex(final Contentlet content, final boolean onlyLive) throws DotHibernateException;
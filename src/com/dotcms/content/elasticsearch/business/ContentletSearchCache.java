@@ -0,0 +1,68 @@
+package com.dotcms.content.elasticsearch.business;
+
+import java.io.Serializable;
+
+import com.dotmarketing.business.Cachable;
+
+/**
+ * Hits of {@link ESContentletAPIImpl#searchIndex} by query, sort, paging and role set.
+ *
+ * Entries belong to the index generation they were searched in. The generation moves
+ * forward every time {@link ESContentletIndexAPI} writes to the indexes, or the group is
+ * flushed by another node, so a search never returns hits older than the last write.
+ * Only used when ES_SEARCH_RESULT_CACHE is true.
+ */
+public interface ContentletSearchCache extends Cachable {
+
+    public final String GROUP="ContentletSearchCache";
+
+    /**
+     * Identifiers and inodes of the hits of a search plus the total hit count
+     */
+    public static class SearchResults implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        public final long generation;
+        public final long totalResults;
+        public final String[] identifiers;
+        public final String[] inodes;
+
+        public SearchResults(long generation, long totalResults, String[] identifiers, String[] inodes) {
+            this.generation = generation;
+            this.totalResults = totalResults;
+            this.identifiers = identifiers;
+            this.inodes = inodes;
+        }
+    }
+
+    boolean isEnabled();
+
+    /**
+     * @return the current index generation, to be read before searching and passed to
+     * {@link #put(String, SearchResults)} in the results, or -1 when the indexes changed so
+     * recently that elasticsearch may not have made the change searchable yet
+     */
+    long getGeneration();
+
+    /**
+     * @return the results if they were searched in the current generation, null otherwise
+     */
+    SearchResults get(String key);
+
+    /**
+     * Keeps the results unless the indexes changed since their generation was read
+     */
+    void put(String key, SearchResults results);
+
+    /**
+     * Moves to a new generation, called after every write to the indexes
+     */
+    void invalidate();
+
+    long getHits();
+
+    long getMisses();
+
+    long getInvalidations();
+}
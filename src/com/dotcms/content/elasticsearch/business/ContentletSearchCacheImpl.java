@@ -0,0 +1,119 @@
+package com.dotcms.content.elasticsearch.business;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.DotCacheAdministrator;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+public class ContentletSearchCacheImpl implements ContentletSearchCache {
+
+    // lives in the group with the results, when it is gone the group was flushed here or by another node
+    protected static final String GENERATION_KEY = "generation";
+
+    protected final DotCacheAdministrator cache;
+    protected final boolean enabled;
+    protected final long refreshDelay;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long generationStart = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ContentletSearchCacheImpl() {
+        cache = CacheLocator.getCacheAdministrator();
+        enabled = Config.getBooleanProperty("ES_SEARCH_RESULT_CACHE", false);
+        refreshDelay = Config.getIntProperty("ES_SEARCH_RESULT_CACHE_REFRESH_DELAY", 1500);
+    }
+
+    public String getPrimaryGroup() {
+        return GROUP;
+    }
+
+    public String[] getGroups() {
+        return new String[] {GROUP};
+    }
+
+    public void clearCache() {
+        cache.flushGroup(GROUP);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getGeneration() {
+        long current = checkGeneration();
+        return System.currentTimeMillis() - generationStart < refreshDelay ? -1 : current;
+    }
+
+    public SearchResults get(String key) {
+        SearchResults results = null;
+        try {
+            long current = checkGeneration();
+            results = (SearchResults) cache.get(key, GROUP);
+            if (results != null && results.generation != current) {
+                results = null;
+            }
+        } catch (Exception e) {
+            Logger.warn(this, "can't get cache entry", e);
+        }
+        if (results == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return results;
+    }
+
+    public void put(String key, SearchResults results) {
+        if (results.generation < 0 || results.generation != checkGeneration()) {
+            return;
+        }
+        cache.put(key, results, GROUP);
+    }
+
+    public void invalidate() {
+        if (!enabled) {
+            return;
+        }
+        newGeneration();
+        cache.flushGroup(GROUP);
+        cache.put(GENERATION_KEY, generation.get(), GROUP);
+    }
+
+    private long checkGeneration() {
+        Object marker = null;
+        try {
+            marker = cache.get(GENERATION_KEY, GROUP);
+        } catch (Exception e) {
+            Logger.debug(this, e.getMessage(), e);
+        }
+        if (marker == null) {
+            newGeneration();
+            cache.put(GENERATION_KEY, generation.get(), GROUP);
+        }
+        return generation.get();
+    }
+
+    private void newGeneration() {
+        generationStart = System.currentTimeMillis();
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+}
@@ -2,14 +2,20 @@ package com.dotcms.content.elasticsearch.business;
 
 import java.io.Serializable;
 import java.io.StringWriter;
+import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
 import net.sf.hibernate.ObjectNotFoundException;
 
@@ -19,7 +25,10 @@ import org.elasticsearch.action.count.CountRequestBuilder;
 import org.elasticsearch.action.search.SearchPhaseExecutionException;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
@@ -50,6 +59,9 @@ import com.dotmarketing.business.query.ValidationException;
 import com.dotmarketing.cache.FieldsCache;
 import com.dotmarketing.cache.StructureCache;
 import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.db.ResultRow;
+import com.dotmarketing.common.db.RowHandler;
+import com.dotmarketing.common.model.ContentletSearch;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
@@ -59,6 +71,8 @@ import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.factories.InodeFactory;
 import com.dotmarketing.portlets.contentlet.business.ContentletCache;
 import com.dotmarketing.portlets.contentlet.business.ContentletFactory;
+import com.dotmarketing.portlets.contentlet.business.ContentletIndexBatch;
+import com.dotmarketing.portlets.contentlet.business.ContentletSearchHandler;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
 import com.dotmarketing.portlets.files.model.File;
@@ -70,6 +84,7 @@ import com.dotmarketing.portlets.structure.model.Structure;
 import com.dotmarketing.portlets.workflows.business.WorkFlowFactory;
 import com.dotmarketing.portlets.workflows.model.WorkflowTask;
 import com.dotmarketing.util.Config;
+import com.dotmarketing.util.ConvertedFuture;
 import com.dotmarketing.util.InodeUtils;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.NumberUtil;
@@ -79,6 +94,10 @@ import com.dotmarketing.util.UtilMethods;
 import com.liferay.portal.model.User;
 
 public class ESContentFactoryImpl extends ContentletFactory {
+
+	// ids per in clause when loading index batches, oracle allows up to 1000
+	private static final int INDEX_BATCH_IN_SIZE = 500;
+
 	private ContentletCache cc = CacheLocator.getContentletCache();
 	private ESClient client = null;
 	private LanguageAPI langAPI = APILocator.getLanguageAPI();
@@ -776,25 +795,25 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	}
 
     @Override
-    protected List<Contentlet> findAllCurrent ( int offset, int limit ) throws ElasticSearchException {
+    protected List<Contentlet> findAllCurrent ( int offset, int limit ) throws DotDataException {
 
         QueryBuilder builder = QueryBuilders.matchAllQuery();
 
-        SearchResponse response = client.getClient().prepareSearch()
-                .setQuery( builder ).addFields("inode","identifier")
-                .setSize( limit ).setFrom( offset ).execute().actionGet();
-        SearchHits hits = response.getHits();
-        List<Contentlet> cons = new ArrayList<Contentlet>();
-
-        for ( SearchHit hit : hits ) {
-            try {
-                cons.add( find( hit.field("inode").getValue().toString() ) );
-            } catch ( Exception e ) {
-                throw new ElasticSearchException( e.getMessage(), e );
-            }
+        SearchRequestBuilder srb = client.getClient().prepareSearch()
+                .setQuery( builder ).addFields("inode","identifier");
+        final List<String> inodes = new ArrayList<String>();
+        try {
+            // a scan skips the offset without sorting the hits before it
+            scroll( client.getClient(), srb, false, offset, limit, new ContentletSearchHandler() {
+                public boolean handle ( ContentletSearch hit ) {
+                    inodes.add( hit.getInode() );
+                    return true;
+                }
+            } );
+            return findContentlets( inodes );
+        } catch ( DotSecurityException e ) {
+            throw new DotDataException( e.getMessage(), e );
         }
-
-        return cons;
     }
 
 	@Override
@@ -868,7 +887,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
 			sw.append(" +languageid:" + languageId);
 			sw.append(" +deleted:false");
 
-			SearchRequestBuilder request = createRequest(client, sw.toString());
+			SearchRequestBuilder request = createRequest(client, sw.toString(), null);
 
 			IndiciesInfo info=APILocator.getIndiciesAPI().loadIndicies();
 			SearchResponse response = request.setIndices((live ? info.live : info.working))
@@ -999,10 +1018,107 @@ public class ESContentFactoryImpl extends ContentletFactory {
         return result;
 	}
 
+	@Override
+	public ContentletIndexBatch loadIndexBatch(List<String> inodes) throws DotDataException, DotSecurityException {
+	    return loadIndexBatchForContentlets(findContentlets(inodes));
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public ContentletIndexBatch loadIndexBatchForContentlets(List<Contentlet> contentlets) throws DotDataException {
+	    ContentletIndexBatch batch = new ContentletIndexBatch(contentlets);
+
+	    Set<String> idSet = new LinkedHashSet<String>();
+	    List<String> inodes = new ArrayList<String>();
+	    for(Contentlet con : contentlets) {
+	        if(UtilMethods.isSet(con.getIdentifier()))
+	            idSet.add(con.getIdentifier());
+	        inodes.add(con.getInode());
+	    }
+	    List<String> identifiers = new ArrayList<String>(idSet);
+
+	    for(int from=0; from<identifiers.size(); from+=INDEX_BATCH_IN_SIZE) {
+	        List<String> chunk = identifiers.subList(from, Math.min(from+INDEX_BATCH_IN_SIZE, identifiers.size()));
+	        String in = inParams(chunk.size());
+
+	        HibernateUtil hu = new HibernateUtil(Identifier.class);
+	        hu.setQuery("from identifier in class com.dotmarketing.beans.Identifier where id in (" + in + ")");
+	        for(String id : chunk)
+	            hu.setParam(id);
+	        for(Identifier ident : (List<Identifier>) hu.list())
+	            batch.addIdentifier(ident);
+
+	        hu = new HibernateUtil(ContentletVersionInfo.class);
+	        hu.setQuery("from " + ContentletVersionInfo.class.getName() + " where identifier in (" + in + ")");
+	        for(String id : chunk)
+	            hu.setParam(id);
+	        for(ContentletVersionInfo cvi : (List<ContentletVersionInfo>) hu.list())
+	            batch.addContentletVersionInfo(cvi);
+
+	        // same rows as ESMappingAPIImpl.loadRelationshipFields, by identifier
+	        DotConnect dc = new DotConnect();
+	        dc.setSQL("select tree.* from tree where parent in (" + in + ") or child in (" + in + ") order by tree_order");
+	        for(String id : chunk)
+	            dc.addParam(id);
+	        for(String id : chunk)
+	            dc.addParam(id);
+	        Set<String> chunkIds = new HashSet<String>(chunk);
+	        for(Map<String,String> row : (List<Map<String,String>>) dc.loadResults()) {
+	            if(chunkIds.contains(row.get("parent")))
+	                batch.addTree(row.get("parent"), row);
+	            if(chunkIds.contains(row.get("child")) && !row.get("child").equals(row.get("parent")))
+	                batch.addTree(row.get("child"), row);
+	        }
+	        for(String id : chunk)
+	            batch.setTreeLoaded(id);
+	    }
+
+	    for(int from=0; from<inodes.size(); from+=INDEX_BATCH_IN_SIZE) {
+	        List<String> chunk = inodes.subList(from, Math.min(from+INDEX_BATCH_IN_SIZE, inodes.size()));
+
+	        // same rows as ESMappingAPIImpl.loadCategories, by contentlet inode
+	        DotConnect dc = new DotConnect();
+	        dc.setSQL("select tree.child as inode, category.category_velocity_var_name as cat_velocity_var " +
+	                " from category join tree on (tree.parent = category.inode) where tree.child in (" + inParams(chunk.size()) + ")");
+	        for(String inode : chunk)
+	            dc.addParam(inode);
+	        for(Map<String,String> row : (List<Map<String,String>>) dc.loadResults())
+	            batch.addCategory(row.get("inode"), row.get("cat_velocity_var"));
+	        for(String inode : chunk)
+	            batch.setCategoriesLoaded(inode);
+	    }
+
+	    APILocator.getPermissionAPI().addPermissionsToCache(contentlets);
+
+	    return batch;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected List<ContentletVersionInfo> findContentletVersionInfos(List<String> identifiers) throws DotDataException {
+	    List<ContentletVersionInfo> result = new ArrayList<ContentletVersionInfo>();
+	    for(int from=0; from<identifiers.size(); from+=INDEX_BATCH_IN_SIZE) {
+	        List<String> chunk = identifiers.subList(from, Math.min(from+INDEX_BATCH_IN_SIZE, identifiers.size()));
+	        HibernateUtil hu = new HibernateUtil(ContentletVersionInfo.class);
+	        hu.setQuery("from " + ContentletVersionInfo.class.getName() + " where identifier in (" + inParams(chunk.size()) + ")");
+	        for(String id : chunk)
+	            hu.setParam(id);
+	        result.addAll((List<ContentletVersionInfo>) hu.list());
+	    }
+	    return result;
+	}
+
+	private String inParams(int size) {
+	    StringBuilder sb = new StringBuilder(size*2);
+	    for(int i=0; i<size; i++)
+	        sb.append(i==0 ? "?" : ",?");
+	    return sb.toString();
+	}
+
 	protected List<Contentlet> findContentletsByHost(String hostId, int limit, int offset) throws DotDataException {
 		try {
 
-			SearchResponse response = createRequest(client.getClient(), "+conhost:"+hostId).
+			SearchResponse response = createRequest(client.getClient(), "+conhost:"+hostId, null).
 			        setSize(limit).setFrom(offset).addFields("inode","identifier").execute()
 					.actionGet();
 
@@ -1253,7 +1369,12 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	}
 
 	protected long indexCount(String query) {
-	    String qq=findAndReplaceQueryDates(translateQuery(query, null).getQuery());
+	    return indexCount(query, null);
+	}
+
+	@Override
+	protected long indexCount(String query, FilterBuilder filter) {
+	    String qq=compileQuery(query, null).getQuery();
 	    
 	    // we check the query to figure out wich indexes to hit
         String indexToHit;
@@ -1273,12 +1394,12 @@ public class ESContentFactoryImpl extends ContentletFactory {
         Client client=new ESClient().getClient();
         QueryStringQueryBuilder qb = QueryBuilders.queryString(qq);
         CountRequestBuilder crb = client.prepareCount();
-        crb.setQuery(qb);
+        crb.setQuery(filter!=null ? QueryBuilders.filteredQuery(qb, filter) : qb);
         crb.setIndices(indexToHit);
         return crb.execute().actionGet().getCount();
 	}
 	
-	private SearchRequestBuilder createRequest(Client client, String query) {
+	private SearchRequestBuilder createRequest(Client client, String query, FilterBuilder filter) {
 		if(Config.getBooleanProperty("ELASTICSEARCH_USE_FILTERS_FOR_SEARCHING",false)) {
 			/* this is filtered query
 			 * return client.prepareSearch().setQuery(
@@ -1286,9 +1407,13 @@ public class ESContentFactoryImpl extends ContentletFactory {
                         FilterBuilders.queryFilter(
         					QueryBuilders.queryString(query)).cache(true)));*/
 			/* this is a match_all query with a separated filter */
+			FilterBuilder queryFilter=FilterBuilders.queryFilter(QueryBuilders.queryString(query)).cache(true);
 			return client.prepareSearch().setQuery(QueryBuilders.matchAllQuery())
-					.setFilter(FilterBuilders.queryFilter(
-							QueryBuilders.queryString(query)).cache(true));
+					.setFilter(filter!=null ? FilterBuilders.andFilter(filter, queryFilter) : queryFilter);
+		}
+		else if(filter!=null) {
+			// the filter bitsets are cached by elasticsearch and reused across queries
+			return client.prepareSearch().setQuery(QueryBuilders.filteredQuery(QueryBuilders.queryString(query), filter));
 		}
 		else {
 			return client.prepareSearch().setQuery(QueryBuilders.queryString(query));
@@ -1297,57 +1422,21 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	
 	@Override
 	protected SearchHits indexSearch(String query, int limit, int offset, String sortBy) {
-	    String qq=findAndReplaceQueryDates(translateQuery(query, sortBy).getQuery());
-
-	    // we check the query to figure out wich indexes to hit
-	    String indexToHit;
-	    IndiciesInfo info;
-	    try {
-	        info=APILocator.getIndiciesAPI().loadIndicies();
-	    }
-	    catch(DotDataException ee) {
-	        Logger.fatal(this, "Can't get indicies information",ee);
-	        return null;
-	    }
-	    if(query.contains("+live:true") && !query.contains("+deleted:true"))
-	        indexToHit=info.live;
-	    else
-	        indexToHit=info.working;
+	    return indexSearch(query, limit, offset, sortBy, null);
+	}
 
-	    Client client=new ESClient().getClient();
+	@Override
+	protected SearchHits indexSearch(String query, int limit, int offset, String sortBy, FilterBuilder filter) {
 	    SearchResponse resp = null;
         try {
-        	
-        	SearchRequestBuilder srb = createRequest(client,qq);
-        	
-        	srb.setIndices(indexToHit);
-        	srb.addFields("inode","identifier");
-
-            if(limit>0)
-                srb.setSize(limit);
-            if(offset>0)
-                srb.setFrom(offset);
-            
-            if(UtilMethods.isSet(sortBy)) {
-            	if(sortBy.equals("random")) {
-            		srb.addSort(SortBuilders.scriptSort("Math.random()", "number"));
-            	}
-            	else if(!sortBy.startsWith("undefined") && !sortBy.startsWith("undefined_dotraw")) {
-            		String[] sortbyArr=sortBy.split(",");
-	            	for (String sort : sortbyArr) {
-	            		String[] x=sort.trim().split(" ");
-	//            		srb.addSort(SortBuilders.fieldSort(x[0].toLowerCase()).order(x.length>1 && x[1].equalsIgnoreCase("desc") ?
-	//                            SortOrder.DESC : SortOrder.ASC));
-	//            		srb.addSort(SortBuilders.fieldSort(x[0].toLowerCase() + ".org").order(x.length>1 && x[1].equalsIgnoreCase("desc") ?
-	//                          SortOrder.DESC : SortOrder.ASC));
-	            		srb.addSort(SortBuilders.fieldSort(x[0].toLowerCase() + "_dotraw").order(x.length>1 && x[1].equalsIgnoreCase("desc") ?
-	                                SortOrder.DESC : SortOrder.ASC));
-	//            		srb.addSort(x[0].toLowerCase(),x.length>1 && x[1].equalsIgnoreCase("desc") ?
-	//                            SortOrder.DESC : SortOrder.ASC);
-	            		
-					}
-            	}
-            }
+        	SearchRequestBuilder srb;
+        	try {
+        		srb = prepareIndexSearch(query, limit, offset, sortBy, filter);
+        	}
+        	catch(DotDataException ee) {
+        		Logger.fatal(this, "Can't get indicies information",ee);
+        		return null;
+        	}
             try{
             	resp = srb.execute().actionGet();
             }catch (SearchPhaseExecutionException e) {
@@ -1364,6 +1453,153 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	    return resp.getHits();
 	}
 
+	@Override
+	protected Future<SearchHits> indexSearchAsync(String query, int limit, int offset, String sortBy, FilterBuilder filter) throws DotDataException {
+	    SearchRequestBuilder srb = prepareIndexSearch(query, limit, offset, sortBy, filter);
+	    return new ConvertedFuture<SearchResponse, SearchHits>(srb.execute()) {
+	        protected SearchHits convert(SearchResponse resp) {
+	            return resp.getHits();
+	        }
+	        protected SearchHits recover(Throwable cause) {
+	            // same failures as indexSearch
+	            if(cause instanceof SearchPhaseExecutionException && cause.getMessage().contains("dotraw] in order to sort on")) {
+	                return new InternalSearchHits(InternalSearchHits.EMPTY,0,0);
+	            }
+	            Logger.error(ESContentFactoryImpl.class, cause.getMessage(), cause);
+	            throw new RuntimeException(cause);
+	        }
+	    };
+	}
+
+	/**
+	 * Builds the request of a search of inodes and identifiers against the live or the working
+	 * index, depending on the query
+	 */
+	private SearchRequestBuilder prepareIndexSearch(String query, int limit, int offset, String sortBy, FilterBuilder filter) throws DotDataException {
+	    String qq=compileQuery(query, sortBy).getQuery();
+
+	    // we check the query to figure out wich indexes to hit
+	    String indexToHit;
+	    IndiciesInfo info=APILocator.getIndiciesAPI().loadIndicies();
+	    if(query.contains("+live:true") && !query.contains("+deleted:true"))
+	        indexToHit=info.live;
+	    else
+	        indexToHit=info.working;
+
+	    Client client=new ESClient().getClient();
+	    SearchRequestBuilder srb = createRequest(client,qq,filter);
+	    srb.setIndices(indexToHit);
+	    srb.addFields("inode","identifier");
+
+	    if(limit>0)
+	        srb.setSize(limit);
+	    if(offset>0)
+	        srb.setFrom(offset);
+
+	    addSort(srb, sortBy);
+	    return srb;
+	}
+
+	/**
+	 * Adds the sort of the search to the request
+	 * @return false when there is no sort, so the hits can be returned in index order
+	 */
+	private boolean addSort(SearchRequestBuilder srb, String sortBy) {
+	    boolean sorted=false;
+	    if(UtilMethods.isSet(sortBy)) {
+	    	if(sortBy.equals("random")) {
+	    		srb.addSort(SortBuilders.scriptSort("Math.random()", "number"));
+	    		sorted=true;
+	    	}
+	    	else if(!sortBy.startsWith("undefined") && !sortBy.startsWith("undefined_dotraw")) {
+	    		String[] sortbyArr=sortBy.split(",");
+	        	for (String sort : sortbyArr) {
+	        		String[] x=sort.trim().split(" ");
+	//        		srb.addSort(SortBuilders.fieldSort(x[0].toLowerCase()).order(x.length>1 && x[1].equalsIgnoreCase("desc") ?
+	//                        SortOrder.DESC : SortOrder.ASC));
+	//        		srb.addSort(SortBuilders.fieldSort(x[0].toLowerCase() + ".org").order(x.length>1 && x[1].equalsIgnoreCase("desc") ?
+	//                      SortOrder.DESC : SortOrder.ASC));
+	        		srb.addSort(SortBuilders.fieldSort(x[0].toLowerCase() + "_dotraw").order(x.length>1 && x[1].equalsIgnoreCase("desc") ?
+	                            SortOrder.DESC : SortOrder.ASC));
+	//        		srb.addSort(x[0].toLowerCase(),x.length>1 && x[1].equalsIgnoreCase("desc") ?
+	//                        SortOrder.DESC : SortOrder.ASC);
+	        		sorted=true;
+				}
+	    	}
+	    }
+	    return sorted;
+	}
+
+	@Override
+	protected long indexScroll(String query, String sortBy, int offset, int limit, FilterBuilder filter, ContentletSearchHandler handler) throws DotDataException, DotSecurityException {
+	    String qq=compileQuery(query, sortBy).getQuery();
+
+	    // we check the query to figure out wich indexes to hit
+	    String indexToHit;
+	    IndiciesInfo info=APILocator.getIndiciesAPI().loadIndicies();
+	    if(query.contains("+live:true") && !query.contains("+deleted:true"))
+	        indexToHit=info.live;
+	    else
+	        indexToHit=info.working;
+
+	    Client client=new ESClient().getClient();
+	    SearchRequestBuilder srb = createRequest(client,qq,filter);
+	    srb.setIndices(indexToHit);
+	    srb.addFields("inode","identifier");
+	    boolean sorted=addSort(srb, sortBy);
+	    try {
+	        return scroll(client, srb, sorted, offset, limit, handler);
+	    }
+	    catch (SearchPhaseExecutionException e) {
+	        if(e.getMessage().contains("dotraw] in order to sort on")){
+	            return 0;
+	        }else{
+	            throw e;
+	        }
+	    }
+	}
+
+	/**
+	 * Walks the hits of the request with a scroll cursor. The scroll keeps a point in time
+	 * view of the index, so content changed by the handler doesn't move the hits still to come.
+	 * Without a sort it scans the segments instead of sorting the hits, the first response of
+	 * a scan has no hits, only the cursor.
+	 *
+	 * The hits before offset are fetched and skipped here, so an offset costs as much as
+	 * reading that many hits. This version of elasticsearch can't clear a scroll, a cursor
+	 * left behind (limit reached, handler stopped or failed) stays open until its keep alive
+	 * of ES_SCROLL_KEEP_ALIVE seconds expires, so it is kept short.
+	 */
+	private long scroll(Client client, SearchRequestBuilder srb, boolean sorted, int offset, int limit, ContentletSearchHandler handler) throws DotDataException, DotSecurityException {
+	    TimeValue keepAlive=TimeValue.timeValueSeconds(Config.getIntProperty("ES_SCROLL_KEEP_ALIVE", 30));
+	    srb.setScroll(keepAlive).setSize(Config.getIntProperty("ES_SCROLL_BATCH_SIZE", 500));
+	    if(!sorted)
+	        srb.setSearchType(SearchType.SCAN);
+
+	    SearchResponse resp = srb.execute().actionGet();
+	    if(!sorted)
+	        resp = client.prepareSearchScroll(resp.getScrollId()).setScroll(keepAlive).execute().actionGet();
+
+	    long skipped=0;
+	    long handled=0;
+	    while(resp.getHits().getHits().length>0) {
+	        for(SearchHit hit : resp.getHits().getHits()) {
+	            if(skipped<offset) {
+	                skipped++;
+	                continue;
+	            }
+	            ContentletSearch conwrapper=new ContentletSearch();
+	            conwrapper.setIdentifier(hit.field("identifier").getValue().toString());
+	            conwrapper.setInode(hit.field("inode").getValue().toString());
+	            handled++;
+	            if(!handler.handle(conwrapper) || (limit>0 && handled>=limit))
+	                return handled;
+	        }
+	        resp = client.prepareSearchScroll(resp.getScrollId()).setScroll(keepAlive).execute().actionGet();
+	    }
+	    return handled;
+	}
+
 
 	@Override
 	protected void removeUserReferences(String userId) throws DotDataException, DotStateException, ElasticSearchException, DotSecurityException {
@@ -1371,15 +1607,24 @@ public class ESContentFactoryImpl extends ContentletFactory {
         User systemUser = null;
         try {
            systemUser = APILocator.getUserAPI().getSystemUser();
-           dc.setSQL("Select * from contentlet where mod_user = ?");
+           dc.setSQL("Select inode from contentlet where mod_user = ?");
            dc.addParam(userId);
-           List<HashMap<String, String>> contentInodes = dc.loadResults();
+           final List<String> contentInodes = new ArrayList<String>();
+           dc.loadResults(new RowHandler() {
+               public boolean handle(ResultRow row) throws DotDataException {
+                   try {
+                       contentInodes.add(row.getString(1));
+                   } catch (SQLException e) {
+                       throw new DotDataException(e.getMessage(), e);
+                   }
+                   return true;
+               }
+           });
            dc.setSQL("UPDATE contentlet set mod_user = ? where mod_user = ? ");
            dc.addParam(systemUser.getUserId());
            dc.addParam(userId);
            dc.loadResult();
-           for(HashMap<String, String> ident:contentInodes){
-             String inode = ident.get("inode");
+           for(String inode:contentInodes){
              cc.remove(inode);
              Contentlet content = find(inode);
              new ESContentletIndexAPI().addContentToIndex(content);
@@ -1489,6 +1734,8 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	        private static final long serialVersionUID = 1L;
 	        private String query;
 	        private String sortBy;
+	        // set when a structure, field or category of the query couldn't be loaded, not cached
+	        private transient boolean incomplete;
 
 	        /**
 	         * @return the query
@@ -1516,6 +1763,28 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	        }
 	    }
 
+	    /**
+	     * The query as sent to elasticsearch: {@link #translateQuery(String, String)} followed by
+	     * the date rewrites. Cached with the translated queries, which are flushed whenever a
+	     * structure, field or category changes, so a search only pays for the rewrites once.
+	     */
+	    public static TranslatedQuery compileQuery(String query, String sortBy) {
+	        String key = "compiled --- " + query + " --- " + sortBy;
+	        TranslatedQuery result = CacheLocator.getContentletCache().getTranslatedQuery(key);
+	        if(result != null)
+	            return result;
+
+	        TranslatedQuery translated = translateQuery(query, sortBy);
+	        result = new TranslatedQuery();
+	        result.setQuery(findAndReplaceQueryDates(translated.getQuery()));
+	        result.setSortBy(translated.getSortBy());
+
+	        if(!translated.incomplete)
+	            CacheLocator.getContentletCache().addTranslatedQuery(key, result);
+
+	        return result;
+	    }
+
 //	    protected static LRUMap translatedQueryCache = new LRUMap(5000);
 	    public static TranslatedQuery translateQuery(String query, String sortBy) {
 
@@ -1555,6 +1824,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
 
 	                result.setQuery(query);
 	                result.setSortBy(sortBy);
+	                result.incomplete = true;
 
 	                return result;
 	            }
@@ -1571,6 +1841,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	                Logger.error(ESContentFactoryImpl.class, e.getMessage(), e);
 	                result.setQuery(query);
 	                result.setSortBy(sortBy);
+	                result.incomplete = true;
 	                return result;
 	            }
 	            String[] matcher = { "date", "text", "text_area", "integer", "float", "bool" };
@@ -1599,6 +1870,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	                        Logger.error(ESContentFactoryImpl.class, e.getMessage() + " : Error loading category", e);
 	                        result.setQuery(query);
 	                        result.setSortBy(sortBy);
+	                        result.incomplete = true;
 	                        return result;
 	                    }
 	                }
@@ -1725,6 +1997,13 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	    }
 
 
+        // tokens of the clauses of a query, compiled once instead of on every String.matches
+        private static final Pattern FIELD_CLAUSE = Pattern.compile("\\S+\\.\\S+:\\S*");
+        private static final Pattern TIME_CLAUSE = Pattern.compile("\\d+:\\S*");
+        private static final Pattern RANGE_START = Pattern.compile("\\[\\S*");
+        private static final Pattern RANGE_END = Pattern.compile("\\S*\\]");
+        private static final Pattern DATE_CLAUSE = Pattern.compile("\\d{1,2}/\\d{1,2}/\\d{4}");
+
         private static String findAndReplaceQueryDates(String query) {
             query = RegEX.replaceAll(query, " ", "\\s{2,}");
 
@@ -1766,17 +2045,17 @@ public class ESContentFactoryImpl extends ContentletFactory {
             List<String> clauses = new ArrayList<String>();
             for (int pos = 0; pos < tokens.length; ++pos) {
                 token = tokens[pos];
-                if (token.matches("\\S+\\.\\S+:\\S*")) {
+                if (FIELD_CLAUSE.matcher(token).matches()) {
                     clauses.add(token);
-                } else if (token.matches("\\d+:\\S*")) {
+                } else if (TIME_CLAUSE.matcher(token).matches()) {
                     clauses.set(clauses.size() - 1, clauses.get(clauses.size() - 1) + " " + token);
-                } else if (token.matches("\\[\\S*")) {
+                } else if (RANGE_START.matcher(token).matches()) {
                     clauses.set(clauses.size() - 1, clauses.get(clauses.size() - 1) + token);
-                } else if (token.matches("to")) {
+                } else if (token.equals("to")) {
                     clauses.set(clauses.size() - 1, clauses.get(clauses.size() - 1) + " " + token);
-                } else if (token.matches("\\S*\\]")) {
+                } else if (RANGE_END.matcher(token).matches()) {
                     clauses.set(clauses.size() - 1, clauses.get(clauses.size() - 1) + " " + token);
-                } else if (token.matches("\\d{1,2}/\\d{1,2}/\\d{4}")) {
+                } else if (DATE_CLAUSE.matcher(token).matches()) {
                     clauses.set(clauses.size() - 1, clauses.get(clauses.size() - 1) + " " + token);
                 } else {
                     clauses.add(token);
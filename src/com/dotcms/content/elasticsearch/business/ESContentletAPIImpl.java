@@ -11,20 +11,27 @@ import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 
@@ -72,6 +79,8 @@ import com.dotmarketing.portlets.containers.model.Container;
 import com.dotmarketing.portlets.contentlet.business.BinaryFileFilter;
 import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
 import com.dotmarketing.portlets.contentlet.business.ContentletCache;
+import com.dotmarketing.portlets.contentlet.business.ContentletHandler;
+import com.dotmarketing.portlets.contentlet.business.ContentletSearchHandler;
 import com.dotmarketing.portlets.contentlet.business.DotContentletStateException;
 import com.dotmarketing.portlets.contentlet.business.DotContentletValidationException;
 import com.dotmarketing.portlets.contentlet.business.DotLockException;
@@ -105,7 +114,9 @@ import com.dotmarketing.services.PageServices;
 import com.dotmarketing.tag.business.TagAPI;
 import com.dotmarketing.tag.model.Tag;
 import com.dotmarketing.util.AdminLogger;
+import com.dotmarketing.util.Config;
 import com.dotmarketing.util.ConfigUtils;
+import com.dotmarketing.util.ConvertedFuture;
 import com.dotmarketing.util.DateUtil;
 import com.dotmarketing.util.InodeUtils;
 import com.dotmarketing.util.Logger;
@@ -115,6 +126,7 @@ import com.dotmarketing.util.RegExMatch;
 import com.dotmarketing.util.UUIDGenerator;
 import com.dotmarketing.util.UtilMethods;
 import com.dotmarketing.util.WebKeys;
+import com.google.common.util.concurrent.Futures;
 import com.google.gson.Gson;
 import com.liferay.portal.NoSuchUserException;
 import com.liferay.portal.model.User;
@@ -449,11 +461,25 @@ public class ESContentletAPIImpl implements ContentletAPI {
     }
 
     public List<Contentlet> search(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles, int requiredPermission) throws DotDataException,DotSecurityException {
+        PaginatedArrayList <ContentletSearch> list =(PaginatedArrayList)searchIndex(luceneQuery, limit, offset, sortBy, user, respectFrontendRoles);
+        return findContentletsOfHits(list);
+    }
+
+    public Future<List<Contentlet>> searchAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles) throws DotDataException, DotSecurityException {
+        return new ConvertedFuture<List<ContentletSearch>, List<Contentlet>>(searchIndexAsync(luceneQuery, limit, offset, sortBy, user, respectFrontendRoles)) {
+            protected List<Contentlet> convert(List<ContentletSearch> list) throws DotDataException, DotSecurityException {
+                return findContentletsOfHits((PaginatedArrayList<ContentletSearch>) list);
+            }
+        };
+    }
+
+    /**
+     * Loads the contentlets of the hits of a search, in the order of the hits
+     */
+    private PaginatedArrayList<Contentlet> findContentletsOfHits(PaginatedArrayList<ContentletSearch> list) throws DotDataException, DotSecurityException {
         PaginatedArrayList<Contentlet> contents = new PaginatedArrayList<Contentlet>();
         ArrayList<String> inodes = new ArrayList<String>();
 
-
-        PaginatedArrayList <ContentletSearch> list =(PaginatedArrayList)searchIndex(luceneQuery, limit, offset, sortBy, user, respectFrontendRoles);
         contents.setTotalResults(list.getTotalResults());
         for(ContentletSearch conwrap: list){
 
@@ -487,46 +513,56 @@ public class ESContentletAPIImpl implements ContentletAPI {
         PaginatedArrayList <ContentletSearch> list =(PaginatedArrayList)searchIndex(luceneQuery, limit, offset, sortBy, user, respectFrontendRoles);
         contents.setTotalResults(list.getTotalResults());
 
-        List<String> identifierList = new ArrayList<String>();
+        // hit order, once per identifier
+        Set<String> identifiers = new LinkedHashSet<String>();
         for(ContentletSearch conwrap: list){
-            String ident=conwrap.getIdentifier();
-            Identifier ii=APILocator.getIdentifierAPI().find(ident);
-            if(ii!=null && UtilMethods.isSet(ii.getId()))
-                identifierList.add(ident);
+            identifiers.add(conwrap.getIdentifier());
         }
-        String[] identifiers=new String[identifierList.size()];
-        identifiers=identifierList.toArray(identifiers);
 
-        List<Contentlet> contentlets = new ArrayList<Contentlet>();
-        if(anyLanguage){//GIT-816
-        	for(String identifier : identifiers){
-        		for(Language lang : APILocator.getLanguageAPI().getLanguages()){
-                	try{
-                		Contentlet languageContentlet = null;
-                		try{
-                			languageContentlet = findContentletByIdentifier(identifier, false, lang.getId(), user, respectFrontendRoles);
-                		}catch (DotContentletStateException e) {
-                			Logger.debug(this,e.getMessage(),e);
-						}
-                		if(languageContentlet != null && UtilMethods.isSet(languageContentlet.getInode())){
-                			contentlets.add(languageContentlet);
-                			break;
-                		}
-                    }catch(DotContentletStateException se){
-                    	Logger.debug(this, se.getMessage());
-                    }
+        // the version info of every language of every hit in one query, an identifier
+        // without version info doesn't exist anymore
+        Map<String, Map<Long, ContentletVersionInfo>> versions = new HashMap<String, Map<Long, ContentletVersionInfo>>();
+        for(ContentletVersionInfo cvi : conFac.findContentletVersionInfos(new ArrayList<String>(identifiers))) {
+            Map<Long, ContentletVersionInfo> langs = versions.get(cvi.getIdentifier());
+            if(langs == null) {
+                langs = new HashMap<Long, ContentletVersionInfo>();
+                versions.put(cvi.getIdentifier(), langs);
+            }
+            langs.put(cvi.getLang(), cvi);
+        }
+
+        long defaultLanguageId = APILocator.getLanguageAPI().getDefaultLanguage().getId();
+        List<Language> languages = anyLanguage ? APILocator.getLanguageAPI().getLanguages() : null;
+        List<String> inodes = new ArrayList<String>(identifiers.size());
+        for(String identifier : identifiers) {
+            Map<Long, ContentletVersionInfo> langs = versions.get(identifier);
+            if(langs == null)
+                continue;
+            ContentletVersionInfo cvi = null;
+            if(anyLanguage){//GIT-816 first language with a working version
+                for(Language lang : languages){
+                    cvi = langs.get(lang.getId());
+                    if(cvi != null && UtilMethods.isSet(cvi.getWorkingInode()))
+                        break;
+                    cvi = null;
                 }
-        	}
-        }else{
-        	contentlets = findContentletsByIdentifiers(identifiers, false, APILocator.getLanguageAPI().getDefaultLanguage().getId(), user, respectFrontendRoles);
+            }else{
+                cvi = langs.get(defaultLanguageId);
+            }
+            if(cvi != null && UtilMethods.isSet(cvi.getWorkingInode()))
+                inodes.add(cvi.getWorkingInode());
         }
 
+        List<Contentlet> contentlets = findContentlets(inodes);
+        perAPI.addPermissionsToCache(contentlets);
+        contentlets = perAPI.filterCollection(contentlets, PermissionAPI.PERMISSION_READ, respectFrontendRoles, user);
+
         Map<String, Contentlet> map = new HashMap<String, Contentlet>(contentlets.size());
         for (Contentlet contentlet : contentlets) {
             map.put(contentlet.getIdentifier(), contentlet);
         }
         for (String identifier : identifiers) {
-            if(map.get(identifier) != null && !contents.contains(map.get(identifier))){
+            if(map.get(identifier) != null){
                 contents.add(map.get(identifier));
             }
         }
@@ -554,7 +590,53 @@ public class ESContentletAPIImpl implements ContentletAPI {
         buffy.append(")");
     }
 
+    /**
+     * Builds the permissions restriction of a search as a filter instead of query clauses:
+     * the content owned by the user when the owner can read it or readable by any of the roles,
+     * matched against the readroles field. Elasticsearch caches the filter bitset per role set,
+     * so checking permissions costs about the same no matter how many roles the user has.
+     * Content indexed before the readroles field existed is checked with the query clauses
+     * of {@link #addPermissionsToQuery(StringBuffer, User, List, boolean)} until it is reindexed.
+     */
+    protected FilterBuilder permissionsFilter(User user, List<Role> roles, boolean respectFrontendRoles) throws DotSecurityException, DotDataException {
+        List<String> roleIds = new ArrayList<String>(roles.size() + 2);
+        for (Role role : roles) {
+            roleIds.add(role.getId().toLowerCase());
+        }
+        if(respectFrontendRoles) {
+            roleIds.add(APILocator.getRoleAPI().loadCMSAnonymousRole().getId().toLowerCase());
+            if(user != null)
+                roleIds.add(APILocator.getRoleAPI().loadLoggedinSiteRole().getId().toLowerCase());
+        }
+        Collections.sort(roleIds);
+        String roleKey = UtilMethods.join(roleIds, ",");
+
+        List<FilterBuilder> allowed = new ArrayList<FilterBuilder>();
+        if(user != null) {
+            allowed.add(FilterBuilders.andFilter(
+                    FilterBuilders.termFilter("owner", user.getUserId().toLowerCase()),
+                    FilterBuilders.termFilter("ownercanread", "true")));
+        }
+        if(!roleIds.isEmpty()) {
+            allowed.add(FilterBuilders.termsFilter("readroles", roleIds.toArray(new String[roleIds.size()]))
+                    .execution("bool").cache(true).cacheKey("readroles:" + roleKey));
+        }
+
+        StringBuffer legacy = new StringBuffer();
+        addPermissionsToQuery(legacy, user, roles, respectFrontendRoles);
+        allowed.add(FilterBuilders.andFilter(
+                FilterBuilders.missingFilter("readroles"),
+                FilterBuilders.queryFilter(QueryBuilders.queryString(legacy.toString().toLowerCase()))
+                    .cache(true)));
+
+        return FilterBuilders.orFilter(allowed.toArray(new FilterBuilder[allowed.size()]));
+    }
+
     public List <ContentletSearch> searchIndex(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles)throws DotSecurityException, DotDataException {
+        return joinSearch(searchIndexAsync(luceneQuery, limit, offset, sortBy, user, respectFrontendRoles));
+    }
+
+    public Future<List<ContentletSearch>> searchIndexAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles) throws DotSecurityException, DotDataException {
         boolean isAdmin = false;
         List<Role> roles = new ArrayList<Role>();
         if(user == null && !respectFrontendRoles){
@@ -567,11 +649,8 @@ public class ESContentletAPIImpl implements ContentletAPI {
                 isAdmin = true;
             }
         }
-        StringBuffer buffy = new StringBuffer(luceneQuery);
-
-        // Permissions in the query
-        if (!isAdmin)
-            addPermissionsToQuery(buffy, user, roles, respectFrontendRoles);
+        // Permissions in a filter, the query is left untouched
+        FilterBuilder permissions = isAdmin ? null : permissionsFilter(user, roles, respectFrontendRoles);
 
         int originalLimit = limit;
         if(UtilMethods.isSet(sortBy) && sortBy.trim().equalsIgnoreCase("random")){
@@ -580,7 +659,42 @@ public class ESContentletAPIImpl implements ContentletAPI {
         if(limit>MAX_LIMIT || limit <=0){
             limit = MAX_LIMIT;
         }
-        SearchHits lc = conFac.indexSearch(buffy.toString(), limit, offset, sortBy);
+
+        // random sorts can't be cached
+        ContentletSearchCache searchCache = CacheLocator.getContentletSearchCache();
+        String cacheKey = null;
+        long generation = -1;
+        if(searchCache.isEnabled() && !"random".equals(sortBy)) {
+            cacheKey = searchCacheKey(luceneQuery, sortBy, limit, offset, isAdmin, roles, user!=null, respectFrontendRoles);
+            generation = searchCache.getGeneration();
+            ContentletSearchCache.SearchResults cached = searchCache.get(cacheKey);
+            if(cached != null) {
+                PaginatedArrayList <ContentletSearch> list=new PaginatedArrayList<ContentletSearch>();
+                list.setTotalResults(cached.totalResults);
+                for(int i=0;i<cached.identifiers.length;i++) {
+                    ContentletSearch conwrapper= new ContentletSearch();
+                    conwrapper.setIdentifier(cached.identifiers[i]);
+                    conwrapper.setInode(cached.inodes[i]);
+                    list.add(conwrapper);
+                }
+                return Futures.<List<ContentletSearch>>immediateFuture(list);
+            }
+        }
+
+        final String key = cacheKey;
+        final long keyGeneration = generation;
+        return new ConvertedFuture<SearchHits, List<ContentletSearch>>(conFac.indexSearchAsync(luceneQuery, limit, offset, sortBy, permissions)) {
+            protected List<ContentletSearch> convert(SearchHits lc) {
+                return toContentletSearches(lc, key, keyGeneration);
+            }
+        };
+    }
+
+    /**
+     * Identifiers and inodes of the hits of a search, put in the {@link ContentletSearchCache}
+     * when there is a cache key
+     */
+    private PaginatedArrayList<ContentletSearch> toContentletSearches(SearchHits lc, String cacheKey, long generation) {
         PaginatedArrayList <ContentletSearch> list=new PaginatedArrayList<ContentletSearch>();
         list.setTotalResults(lc.getTotalHits());
 
@@ -598,9 +712,143 @@ public class ESContentletAPIImpl implements ContentletAPI {
             }
 
         }
+
+        if(cacheKey != null) {
+            String[] identifiers = new String[list.size()];
+            String[] inodes = new String[list.size()];
+            for(int i=0;i<list.size();i++) {
+                identifiers[i] = list.get(i).getIdentifier();
+                inodes[i] = list.get(i).getInode();
+            }
+            CacheLocator.getContentletSearchCache().put(cacheKey, new ContentletSearchCache.SearchResults(generation, list.getTotalResults(), identifiers, inodes));
+        }
         return list;
     }
 
+    /**
+     * Waits for an asynchronous search, throwing its failure as the synchronous search would
+     */
+    private <T> T joinSearch(Future<T> search) throws DotDataException, DotSecurityException {
+        try {
+            return search.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DotDataException(e.getMessage(), e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof DotDataException)
+                throw (DotDataException) cause;
+            if(cause instanceof DotSecurityException)
+                throw (DotSecurityException) cause;
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if(cause instanceof Error)
+                throw (Error) cause;
+            throw new DotDataException(cause.getMessage(), (Exception) cause);
+        }
+    }
+
+    public long scrollSearchIndex(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletSearchHandler handler) throws DotSecurityException, DotDataException {
+        boolean isAdmin = false;
+        List<Role> roles = new ArrayList<Role>();
+        if(user == null && !respectFrontendRoles){
+            throw new DotSecurityException("You must specify a user if you are not respecting frontend roles");
+        }
+        if(user != null){
+            if (!APILocator.getRoleAPI().doesUserHaveRole(user, APILocator.getRoleAPI().loadCMSAdminRole())) {
+                roles = APILocator.getRoleAPI().loadRolesForUser(user.getUserId());
+            }else{
+                isAdmin = true;
+            }
+        }
+        FilterBuilder permissions = isAdmin ? null : permissionsFilter(user, roles, respectFrontendRoles);
+        if(UtilMethods.isSet(sortBy) && sortBy.trim().equalsIgnoreCase("random")){
+            sortBy="random";
+        }
+        return conFac.indexScroll(luceneQuery, sortBy, offset, limit, permissions, handler);
+    }
+
+    public long scrollSearch(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletHandler handler) throws DotSecurityException, DotDataException {
+        ContentletBatchHandler batches = new ContentletBatchHandler(handler, Config.getIntProperty("ES_SCROLL_BATCH_SIZE", 500));
+        scrollSearchIndex(luceneQuery, sortBy, offset, limit, user, respectFrontendRoles, batches);
+        batches.flush();
+        return batches.handled;
+    }
+
+    /**
+     * Collects the inodes of the scrolled hits and passes their contentlets to the handler
+     * a batch at a time, in the order of the hits
+     */
+    private class ContentletBatchHandler implements ContentletSearchHandler {
+        private final ContentletHandler handler;
+        private final int batchSize;
+        private final List<String> inodes;
+        private long handled = 0;
+
+        ContentletBatchHandler(ContentletHandler handler, int batchSize) {
+            this.handler = handler;
+            this.batchSize = batchSize;
+            this.inodes = new ArrayList<String>(batchSize);
+        }
+
+        public boolean handle(ContentletSearch hit) throws DotDataException, DotSecurityException {
+            inodes.add(hit.getInode());
+            return inodes.size() < batchSize || flush();
+        }
+
+        boolean flush() throws DotDataException, DotSecurityException {
+            if(inodes.isEmpty())
+                return true;
+            List<Contentlet> contentlets = findContentlets(inodes);
+            Map<String, Contentlet> map = new HashMap<String, Contentlet>(contentlets.size());
+            for (Contentlet contentlet : contentlets) {
+                map.put(contentlet.getInode(), contentlet);
+            }
+            try {
+                for (String inode : inodes) {
+                    Contentlet contentlet = map.get(inode);
+                    if(contentlet != null) {
+                        handled++;
+                        if(!handler.handle(contentlet))
+                            return false;
+                    }
+                }
+                return true;
+            }
+            finally {
+                inodes.clear();
+            }
+        }
+    }
+
+    /**
+     * Key of a search in the {@link ContentletSearchCache}: the compiled query and sort,
+     * the paging and the sorted ids of the roles the permissions were checked against
+     */
+    private String searchCacheKey(String luceneQuery, String sortBy, int limit, int offset, boolean isAdmin, List<Role> roles, boolean hasUser, boolean respectFrontendRoles) {
+        ESContentFactoryImpl.TranslatedQuery translated = ESContentFactoryImpl.compileQuery(luceneQuery, sortBy);
+        StringBuilder key = new StringBuilder(translated.getQuery());
+        key.append(" --- ").append(translated.getSortBy())
+           .append(" --- ").append(limit).append(':').append(offset).append(" --- ");
+        if(isAdmin) {
+            key.append("admin");
+        }
+        else {
+            List<String> roleIds = new ArrayList<String>(roles.size());
+            for(Role role : roles) {
+                roleIds.add(role.getId());
+            }
+            Collections.sort(roleIds);
+            for(String roleId : roleIds) {
+                key.append(roleId).append(',');
+            }
+            key.append(respectFrontendRoles ? "frontend" : "").append(hasUser ? ",user" : "");
+        }
+        return key.toString();
+    }
+
     public void publishRelatedHtmlPages(Contentlet contentlet) throws DotStateException, DotDataException{
         if(contentlet.getInode().equals(""))
             throw new DotContentletStateException(CAN_T_CHANGE_STATE_OF_CHECKED_OUT_CONTENT);
@@ -4132,13 +4380,10 @@ public class ESContentletAPIImpl implements ContentletAPI {
                 isAdmin = true;
             }
         }
-        StringBuffer buffy = new StringBuffer(luceneQuery);
-
-        // Permissions in the query
-        if (!isAdmin)
-            addPermissionsToQuery(buffy, user, roles, respectFrontendRoles);
+        // Permissions in a filter, the query is left untouched
+        FilterBuilder permissions = isAdmin ? null : permissionsFilter(user, roles, respectFrontendRoles);
 
-        return conFac.indexCount(buffy.toString());
+        return conFac.indexCount(luceneQuery, permissions);
     }
 
 	@Override
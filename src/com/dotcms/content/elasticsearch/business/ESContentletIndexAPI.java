@@ -26,7 +26,9 @@ import com.dotcms.content.business.DotMappingException;
 import com.dotcms.content.elasticsearch.business.IndiciesAPI.IndiciesInfo;
 import com.dotcms.content.elasticsearch.util.ESClient;
 import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotStateException;
+import com.dotmarketing.business.FactoryLocator;
 import com.dotmarketing.cache.StructureCache;
 import com.dotmarketing.common.db.DotConnect;
 import com.dotmarketing.db.DbConnectionFactory;
@@ -34,6 +36,7 @@ import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotHibernateException;
 import com.dotmarketing.exception.DotSecurityException;
+import com.dotmarketing.portlets.contentlet.business.ContentletIndexBatch;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.portlets.structure.factories.RelationshipFactory;
 import com.dotmarketing.portlets.structure.model.Relationship;
@@ -245,6 +248,8 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
             list.add(newinfo.live);
             optimize(list);
 
+            CacheLocator.getContentletSearchCache().invalidate();
+
 	    } catch (Exception e) {
             throw new ElasticSearchException(e.getMessage(), e);
         }
@@ -275,6 +280,10 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 	}
 
 	public void addContentToIndex(final Contentlet content, final boolean deps, boolean indexBeforeCommit, final boolean reindexOnly, final BulkRequestBuilder bulk) throws DotHibernateException {
+	    addContentToIndex(content,deps,indexBeforeCommit,reindexOnly,bulk,null);
+	}
+
+	public void addContentToIndex(final Contentlet content, final boolean deps, boolean indexBeforeCommit, final boolean reindexOnly, final BulkRequestBuilder bulk, final ContentletIndexBatch batch) throws DotHibernateException {
 
 	    if(content==null || !UtilMethods.isSet(content.getIdentifier())) return;
 
@@ -291,10 +300,16 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
                     if(deps)
                         contentToIndex.addAll(loadDeps(content));
                     
-                    indexContentletList(req, contentToIndex,reindexOnly);
+                    // identifiers, categories, trees and permissions of the whole list in a few queries
+                    ContentletIndexBatch indexBatch = (batch!=null && !deps) ? batch
+                            : FactoryLocator.getContentletFactory().loadIndexBatchForContentlets(contentToIndex);
+
+                    indexContentletList(req, contentToIndex,reindexOnly,indexBatch);
                                         
-                    if(bulk==null && req.numberOfActions()>0)
+                    if(bulk==null && req.numberOfActions()>0) {
                         req.execute().actionGet();
+                        CacheLocator.getContentletSearchCache().invalidate();
+                    }
 
                 } catch (Exception e) {
                     Logger.error(ESContentFactoryImpl.class, e.getMessage(), e);
@@ -312,7 +327,7 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 	    }	    
 	}
 
-	private void indexContentletList(BulkRequestBuilder req, List<Contentlet> contentToIndex, boolean reindexOnly) throws DotStateException, DotDataException, DotSecurityException, DotMappingException {
+	private void indexContentletList(BulkRequestBuilder req, List<Contentlet> contentToIndex, boolean reindexOnly, ContentletIndexBatch batch) throws DotStateException, DotDataException, DotSecurityException, DotMappingException {
 
 		for(Contentlet con : contentToIndex) {
             String id=con.getIdentifier()+"_"+con.getLanguageId();
@@ -320,7 +335,7 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
             Gson gson=new Gson();
             String mapping=null;
             if(con.isWorking()) {
-                mapping=gson.toJson(mappingAPI.toMap(con));
+                mapping=gson.toJson(mappingAPI.toMap(con, batch));
                 
                 if(!reindexOnly)
                     req.add(new IndexRequest(info.working, "content", id)
@@ -332,7 +347,7 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 
             if(con.isLive()) {
                 if(mapping==null)
-                    mapping=gson.toJson(mappingAPI.toMap(con));
+                    mapping=gson.toJson(mappingAPI.toMap(con, batch));
                 
                 if(!reindexOnly)
                     req.add(new IndexRequest(info.live, "content", id)
@@ -410,7 +425,7 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 	        	                    q = "+type:content +" + rel.getRelationTypeValue() + ":" + content.getIdentifier();
 
 	        	                List<Contentlet> related = APILocator.getContentletAPI().search(q, -1, 0, null, APILocator.getUserAPI().getSystemUser(), false);
-	        	                indexContentletList(bulk, related, false);
+	        	                indexContentletList(bulk, related, false, FactoryLocator.getContentletFactory().loadIndexBatchForContentlets(related));
 	        	            }
 
 	        	            bulk.add(client.prepareDelete(info.working, "content", id));
@@ -419,6 +434,7 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 	        	        }
 
 	                    bulk.execute().actionGet();
+	                    CacheLocator.getContentletSearchCache().invalidate();
 
 	        	    }
 	        	    catch(Exception ex) {
@@ -464,6 +480,7 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
               .setIndices(idxsArr)
               .setQuery(QueryBuilders.queryString("+structurename:"+structureName))
               .execute().actionGet();
+	    CacheLocator.getContentletSearchCache().invalidate();
 	}
 
     public void fullReindexAbort() {
@@ -542,6 +559,7 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
             newinfo.live=indexName;
         }
         APILocator.getIndiciesAPI().point(newinfo);
+        CacheLocator.getContentletSearchCache().invalidate();
     }
 
     public void deactivateIndex(String indexName) throws DotDataException, IOException {
@@ -567,6 +585,7 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
             newinfo.reindex_live=null;
         }
         APILocator.getIndiciesAPI().point(newinfo);
+        CacheLocator.getContentletSearchCache().invalidate();
     }
 
 
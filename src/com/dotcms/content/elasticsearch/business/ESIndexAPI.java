@@ -63,6 +63,7 @@ import org.elasticsearch.search.SearchHit;
 
 import com.dotcms.content.elasticsearch.util.ESClient;
 import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotStateException;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.sitesearch.business.SiteSearchAPI;
@@ -290,6 +291,7 @@ public class ESIndexAPI {
 					break;
 				}
 			}
+			CacheLocator.getContentletSearchCache().invalidate();
 
 		} catch (Exception e) {
 			throw new IOException(e.getMessage(),e);
@@ -12,6 +12,7 @@ import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -50,6 +51,7 @@ import com.dotmarketing.exception.DotRuntimeException;
 import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.portlets.categories.model.Category;
 import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
+import com.dotmarketing.portlets.contentlet.business.ContentletIndexBatch;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
 import com.dotmarketing.portlets.fileassets.business.FileAssetAPI;
@@ -262,17 +264,32 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 	 * Jun 7, 2013 - 3:47:26 PM
 	 */
 	public Map<String,Object> toMap(Contentlet con) throws DotMappingException {
+		return toMap(con, null);
+	}
+
+	/**
+	 * Same as {@link #toMap(Contentlet)} taking the identifier, version info, categories and
+	 * relationships from the batch when it has them.
+	 * 
+	 * @param con
+	 * @param batch data loaded by ContentletFactory.loadIndexBatch, can be null
+	 */
+	public Map<String,Object> toMap(Contentlet con, ContentletIndexBatch batch) throws DotMappingException {
 		try {
 		    
 			Map<String,String> m = new HashMap<String,String>();
 			Map<String,Object> mlowered=new HashMap<String,Object>();
-			loadCategories(con, m);
+			loadCategories(con, m, batch);
 			loadFields(con, m);
 			loadPermissions(con, m);
-			loadRelationshipFields(con, m);
-
-			Identifier ident = APILocator.getIdentifierAPI().find(con);
-			ContentletVersionInfo cvi = APILocator.getVersionableAPI().getContentletVersionInfo(ident.getId(), con.getLanguageId());
+			loadRelationshipFields(con, m, batch);
+
+			Identifier ident = batch!=null ? batch.getIdentifier(con.getIdentifier()) : null;
+			if(ident==null)
+			    ident = APILocator.getIdentifierAPI().find(con);
+			ContentletVersionInfo cvi = batch!=null ? batch.getContentletVersionInfo(ident.getId(), con.getLanguageId()) : null;
+			if(cvi==null)
+			    cvi = APILocator.getVersionableAPI().getContentletVersionInfo(ident.getId(), con.getLanguageId());
 			Structure st=StructureCache.getStructureByInode(con.getStructureInode());
 			
 			Folder conFolder=APILocator.getFolderAPI().findFolderByPath(ident.getParentPath(), ident.getHostId(), APILocator.getUserAPI().getSystemUser(), false);
@@ -352,8 +369,12 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 		return toJson(con);
 	}
 
-	@SuppressWarnings("unchecked")
 	protected void loadCategories(Contentlet con, Map<String,String> m) throws DotDataException, DotSecurityException {
+	    loadCategories(con, m, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected void loadCategories(Contentlet con, Map<String,String> m, ContentletIndexBatch batch) throws DotDataException, DotSecurityException {
 	    // first we check if there is a category field in the structure. We don't hit db if not needed
 	    boolean thereiscategory=false;
 	    Structure st=StructureCache.getStructureByInode(con.getStructureInode());
@@ -365,16 +386,19 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 	    String categoriesString="";
 
 	    if(thereiscategory) {
-    	    String categoriesSQL = "select category.category_velocity_var_name as cat_velocity_var "+
-                    " from  category join tree on (tree.parent = category.inode) join contentlet c on (c.inode = tree.child) " +
-                    " where c.inode = ?";
-    	    DotConnect db = new DotConnect();
-            db.setSQL(categoriesSQL);
-            db.addParam(con.getInode());
-            ArrayList<String> categories=new ArrayList<String>();
-    	    List<HashMap<String, String>> categoriesResults = db.loadResults();
-    	    for (HashMap<String, String> crow : categoriesResults)
-    	        categories.add(crow.get("cat_velocity_var"));
+            List<String> categories = batch!=null ? batch.getCategories(con.getInode()) : null;
+            if(categories==null) {
+        	    String categoriesSQL = "select category.category_velocity_var_name as cat_velocity_var "+
+                        " from  category join tree on (tree.parent = category.inode) join contentlet c on (c.inode = tree.child) " +
+                        " where c.inode = ?";
+        	    DotConnect db = new DotConnect();
+                db.setSQL(categoriesSQL);
+                db.addParam(con.getInode());
+                categories=new ArrayList<String>();
+        	    List<HashMap<String, String>> categoriesResults = db.loadResults();
+        	    for (HashMap<String, String> crow : categoriesResults)
+        	        categories.add(crow.get("cat_velocity_var"));
+            }
 
     	    categoriesString=UtilMethods.join(categories, " ").trim();
 
@@ -414,6 +438,8 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
         PermissionAPI permissionAPI = APILocator.getPermissionAPI();
         List<Permission> permissions = permissionAPI.getPermissions(con, false, false, false);
         StringBuilder permissionsSt = new StringBuilder();
+        // role ids holding READ, matched by the permissions filter of the searches
+        Set<String> readRoles = new LinkedHashSet<String>();
         boolean ownerCanRead = false;
         boolean ownerCanWrite = false;
         boolean ownerCanPub = false;
@@ -422,6 +448,9 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
             if (permissionsSt.toString().indexOf(str) < 0) {
                 permissionsSt.append(str);
             }
+            if((permission.getPermission() & PERMISSION_READ) != 0) {
+                readRoles.add(permission.getRoleId());
+            }
             if(APILocator.getRoleAPI().loadCMSOwnerRole().getId().equals(String.valueOf(permission.getRoleId()))){
                 if(permission.getPermission() == PERMISSION_READ){
                     ownerCanRead = true;
@@ -436,6 +465,7 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
             }
         }
         m.put("permissions", permissionsSt.toString());
+        m.put("readroles", UtilMethods.join(new ArrayList<String>(readRoles), " "));
         m.put("ownerCanRead", Boolean.toString(ownerCanRead));
         m.put("ownerCanWrite", Boolean.toString(ownerCanWrite));
         m.put("ownerCanPublish", Boolean.toString(ownerCanPub));
@@ -631,20 +661,30 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 	}
 
 	protected void loadRelationshipFields(Contentlet con, Map<String,String> m) throws DotStateException, DotDataException {
+	    loadRelationshipFields(con, m, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected void loadRelationshipFields(Contentlet con, Map<String,String> m, ContentletIndexBatch batch) throws DotStateException, DotDataException {
 	    List<Relationship> relationships = RelationshipFactory.getAllRelationshipsByStructure(con.getStructure());
 
 	    if(relationships==null || relationships.isEmpty())
 	        // if no relationships then nothing to do here
 	        return;
 
-	    Identifier identifier = APILocator.getIdentifierAPI().find(con);
-
-	    String relatedSQL = "select tree.* from tree where parent = ? or child = ? order by tree_order";
-        DotConnect db = new DotConnect();
-        db.setSQL(relatedSQL);
-        db.addParam(identifier.getInode());
-        db.addParam(identifier.getInode());
-        ArrayList<HashMap<String, String>> relatedContentlets = db.loadResults();
+	    Identifier identifier = batch!=null ? batch.getIdentifier(con.getIdentifier()) : null;
+	    if(identifier==null)
+	        identifier = APILocator.getIdentifierAPI().find(con);
+
+	    List<? extends Map<String, String>> relatedContentlets = batch!=null ? batch.getTree(identifier.getInode()) : null;
+	    if(relatedContentlets==null) {
+    	    String relatedSQL = "select tree.* from tree where parent = ? or child = ? order by tree_order";
+            DotConnect db = new DotConnect();
+            db.setSQL(relatedSQL);
+            db.addParam(identifier.getInode());
+            db.addParam(identifier.getInode());
+            relatedContentlets = db.loadResults();
+	    }
 
         for(Relationship rel : relationships) {
 
@@ -652,7 +692,7 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
             String propName = rel.getRelationTypeValue();
             String propValues = "";
 
-            for(HashMap<String, String> relatedEntry : relatedContentlets) {
+            for(Map<String, String> relatedEntry : relatedContentlets) {
                 String childId = relatedEntry.get("child");
                 String parentId = relatedEntry.get("parent");
                 Long order = Long.parseLong(relatedEntry.get("tree_order"));
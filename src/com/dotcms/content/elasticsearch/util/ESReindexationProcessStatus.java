@@ -9,6 +9,7 @@ import com.dotcms.content.elasticsearch.business.ESContentletIndexAPI;
 import com.dotcms.content.elasticsearch.business.IndiciesAPI.IndiciesInfo;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.reindex.ReindexThread;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
@@ -58,6 +59,14 @@ public class ESReindexationProcessStatus implements Serializable {
         return "["+info.reindex_working+","+info.reindex_live+"]";
     }
     
+    /**
+     * Progress of the {@link ReindexThread} pipeline: records per second, records being
+     * indexed, indexed and failed records, current batch size and bulk request times
+     */
+    public static Map<String, Object> getReindexThroughput() {
+        return ReindexThread.getInstance().getPipelineStats();
+    }
+    
     public synchronized static Map getProcessIndexationMap () throws DotDataException {
         try {
             Map<String, Object> theMap = new Hashtable<String, Object> ();
@@ -69,6 +78,7 @@ public class ESReindexationProcessStatus implements Serializable {
 	            theMap.put("lastIndexationProgress", getLastIndexationProgress());
 	            theMap.put("currentIndexPath", currentIndexPath());
 	            theMap.put("newIndexPath", getNewIndexPath());
+	            theMap.putAll(getReindexThroughput());
             }
             return theMap;
         }
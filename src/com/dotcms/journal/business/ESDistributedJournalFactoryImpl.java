@@ -19,6 +19,8 @@ import com.dotmarketing.common.business.journal.DistributedJournalAPI.DateType;
 import com.dotmarketing.common.business.journal.DistributedJournalFactory;
 import com.dotmarketing.common.business.journal.IndexJournal;
 import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.db.ResultRow;
+import com.dotmarketing.common.db.RowHandler;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
@@ -84,29 +86,40 @@ public class ESDistributedJournalFactoryImpl<T> extends DistributedJournalFactor
     @Override
     protected void addCacheEntry(String key, String group)
             throws DotDataException {
+        List<String> entries = new ArrayList<String>(1);
+        entries.add(key + ":" + group);
+        addCacheEntries(entries);
+    }
+
+    @Override
+    protected void addCacheEntries(List<String> entries)
+            throws DotDataException {
         Connection con = null;
         try {
             if (indexationEnabled) {
                 con = DbConnectionFactory.getConnection();
                 con.setAutoCommit(false);
                 java.sql.Timestamp timestamp = new java.sql.Timestamp(new java.util.Date().getTime());
-                for (String serversId : serversIds) {
-                    if (!serverId.equals(serversId)) {
-                        DotConnect dc = new DotConnect();
-                        dc.setSQL("INSERT INTO dist_process(object_to_index, time_entered, serverid, journal_type)VALUES (?, ?, ?, ?)");
-                        dc.addParam(key + ":" + group);
-                        dc.addParam(timestamp);
-                        dc.addParam(serversId);
-                        dc.addParam(JOURNAL_TYPE_CACHE);
-                        try {
-                            dc.getResult(con);
-                        } catch (Exception e) {
-                            Logger
-                                    .warn(this,
-                                            "Usually not a problem but a cache entry failed to insert in the table.");
-                            Logger.debug(this, e.getMessage(), e);
+                DotConnect dc = new DotConnect();
+                dc.setSQL("INSERT INTO dist_process(object_to_index, time_entered, serverid, journal_type)VALUES (?, ?, ?, ?)");
+                try {
+                    for (String entry : entries) {
+                        for (String serversId : serversIds) {
+                            if (!serverId.equals(serversId)) {
+                                dc.addParam(entry);
+                                dc.addParam(timestamp);
+                                dc.addParam(serversId);
+                                dc.addParam(JOURNAL_TYPE_CACHE);
+                                dc.addBatch(con);
+                            }
                         }
                     }
+                    dc.executeBatch(con);
+                } catch (Exception e) {
+                    Logger
+                            .warn(this,
+                                    "Usually not a problem but a cache entry failed to insert in the table.");
+                    Logger.debug(this, e.getMessage(), e);
                 }
             }
         } catch (SQLException e1) {
@@ -301,7 +314,7 @@ public class ESDistributedJournalFactoryImpl<T> extends DistributedJournalFactor
     @Override
     protected List<String> findCacheEntriesToRemove() throws DotDataException {
         DotConnect dc = new DotConnect();
-        List<String> x = new ArrayList<String>();
+        final List<String> x = new ArrayList<String>();
         Connection con = null;
         try {
             con = DbConnectionFactory.getConnection();
@@ -311,13 +324,19 @@ public class ESDistributedJournalFactoryImpl<T> extends DistributedJournalFactor
             dc.addParam(JOURNAL_TYPE_CACHE);
             dc.addParam(serverId);
 
-            List<Map<String, String>> results = dc.loadResults(con);
-            long id = 0;
-            for (Map<String, String> r : results) {
-                x.add(r.get("object_to_index"));
-                id = new Long(r.get("id"));
-            }
-            deleteCacheEntries(serverId, id, con);
+            final long[] id = new long[1];
+            dc.loadResults(con, new RowHandler() {
+                public boolean handle(ResultRow row) throws DotDataException {
+                    try {
+                        x.add(row.getString(1));
+                        id[0] = row.getLong(2);
+                    } catch (SQLException e) {
+                        throw new DotDataException(e.getMessage(), e);
+                    }
+                    return true;
+                }
+            });
+            deleteCacheEntries(serverId, id[0], con);
         } catch (SQLException e1) {
             throw new DotDataException(e1.getMessage(), e1);
         } finally {
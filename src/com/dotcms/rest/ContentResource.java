@@ -47,6 +47,8 @@ import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.portlets.categories.model.Category;
+import com.dotmarketing.portlets.contentlet.business.ContentletHandler;
+import com.dotmarketing.portlets.contentlet.business.ContentletSearchHandler;
 import com.dotmarketing.portlets.contentlet.business.DotContentletStateException;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.portlets.folders.model.Folder;
@@ -77,6 +79,9 @@ import com.thoughtworks.xstream.io.xml.DomDriver;
 public class ContentResource extends WebResource {
     private static final String RELATIONSHIP_KEY = "__##relationships##__";
 
+    // the cap of the paged content searches, applied to the scrolled ones too
+    private static final int MAX_LIMIT = 100000;
+
     /**
      * performs a call to APILocator.getContentletAPI().searchIndex() with the
      * specified parameters.
@@ -110,12 +115,29 @@ public class ContentResource extends WebResource {
         //Creating an utility response object
         ResourceResponse responseResource = new ResourceResponse( paramsMap );
 
-        List<ContentletSearch> searchIndex = APILocator.getContentletAPI().searchIndex(query, limit, offset, sortBy, initData.getUser(), true);
-        JSONArray array=new JSONArray();
-        for(ContentletSearch cs : searchIndex) {
-            array.put(new JSONObject()
-            .put("inode", cs.getInode())
-            .put("identifier", cs.getIdentifier()));
+        final JSONArray array=new JSONArray();
+        if(isScrollSearch(limit, offset)) {
+            // a page past REST_SCROLL_SEARCH_OFFSET, read from a scroll cursor
+            APILocator.getContentletAPI().scrollSearchIndex(query, sortBy, offset, Math.min(limit, MAX_LIMIT), initData.getUser(), true, new ContentletSearchHandler() {
+                public boolean handle(ContentletSearch cs) throws DotDataException {
+                    try {
+                        array.put(new JSONObject()
+                        .put("inode", cs.getInode())
+                        .put("identifier", cs.getIdentifier()));
+                    } catch (JSONException e) {
+                        throw new DotDataException(e.getMessage(), e);
+                    }
+                    return true;
+                }
+            });
+        }
+        else {
+            List<ContentletSearch> searchIndex = APILocator.getContentletAPI().searchIndex(query, limit, offset, sortBy, initData.getUser(), true);
+            for(ContentletSearch cs : searchIndex) {
+                array.put(new JSONObject()
+                .put("inode", cs.getInode())
+                .put("identifier", cs.getIdentifier()));
+            }
         }
 
         return responseResource.response( array.toString() );
@@ -221,7 +243,19 @@ public class ContentResource extends WebResource {
                 cons.add(APILocator.getContentletAPI().find(inode, user, true));
             } else if(queryPassed = UtilMethods.isSet(query)) {
                 String tmDate=(String)request.getSession().getAttribute("tm_date");
-                cons = ContentUtils.pull(query, offset, limit,orderBy,user,tmDate);
+                if(tmDate==null && isScrollSearch(limit, offset)) {
+                    final List<Contentlet> scrolled = new ArrayList<Contentlet>();
+                    APILocator.getContentletAPI().scrollSearch(query, orderBy, offset, Math.min(limit, MAX_LIMIT), user, true, new ContentletHandler() {
+                        public boolean handle(Contentlet contentlet) {
+                            scrolled.add(contentlet);
+                            return true;
+                        }
+                    });
+                    cons = scrolled;
+                }
+                else {
+                    cons = ContentUtils.pull(query, offset, limit,orderBy,user,tmDate);
+                }
             }
         } catch (Exception e) {
             if(idPassed) {
@@ -249,6 +283,16 @@ public class ContentResource extends WebResource {
     }
 
 
+    /**
+     * Pages starting past REST_SCROLL_SEARCH_OFFSET hits are read from a scroll cursor instead of
+     * making elasticsearch sort offset+limit hits on every shard. The hits before the offset are
+     * still read and skipped here, so a deep page costs as much as reading them. Searches without
+     * a limit keep the MAX_LIMIT cap of the paged search, as the results are built in memory.
+     */
+    private boolean isScrollSearch(int limit, int offset) {
+        return limit>0 && offset>=Config.getIntProperty("REST_SCROLL_SEARCH_OFFSET", 10000);
+    }
+
     private String getXML(List<Contentlet> cons, HttpServletRequest request, HttpServletResponse response, String render) throws DotDataException, IOException {
         XStream xstream = new XStream(new DomDriver());
         xstream.alias("content", Map.class);
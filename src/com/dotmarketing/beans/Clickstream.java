@@ -36,6 +36,10 @@ public class Clickstream implements Serializable {
     private String browserName ;
     private String browserVersion;
     private boolean mobileDevice;
+    // key of the stream in the ClickstreamWriter, 0 while the stream is not recorded
+    private long streamKey;
+    // the last page requested, used to skip reloads of the same page
+    private String lastRequestKey;
 
     
     private int numberOfRequests = 0;
@@ -355,6 +359,20 @@ public class Clickstream implements Serializable {
 	
 	
 	
-}
 
+	public long getStreamKey() {
+		return streamKey;
+	}
+
+	public void setStreamKey(long streamKey) {
+		this.streamKey = streamKey;
+	}
+
+	public String getLastRequestKey() {
+		return lastRequestKey;
+	}
 
+	public void setLastRequestKey(String lastRequestKey) {
+		this.lastRequestKey = lastRequestKey;
+	}
+}
@@ -10,6 +10,7 @@ public abstract class BlockDirectiveCache implements Cachable {
 
 
 	abstract  public void add(String key, String val, int ttl);
+	abstract  public void add(String key, BlockDirectiveCacheObject val);
 
 	abstract public String get(String key, int ttl);
 	abstract public BlockDirectiveCacheObject get(String key);
@@ -16,6 +16,15 @@ public class BlockDirectiveCacheImpl extends BlockDirectiveCache {
 		BlockDirectiveCacheObject cto = new BlockDirectiveCacheObject(value, ttl);
 		cache.put(key, cto, group);
 
+	}
+
+	@Override
+	 public void add(String key, BlockDirectiveCacheObject value) {
+		if(key ==null || value == null){
+			return;
+		}
+		cache.put(key, value, group);
+
 	}
 	private boolean canCache;
 	private DotCacheAdministrator cache;
@@ -7,6 +7,9 @@ public class BlockDirectiveCacheObject implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 		String value;
+		byte[] body;
+		byte[] gzippedBody;
+		String etag;
 		long created = 0;
 		int ttl=0;
 		public int getTtl() {
@@ -25,6 +28,21 @@ public class BlockDirectiveCacheObject implements Serializable {
 
 
 
+		/**
+		 * Entry for a whole rendered page, kept already encoded so a cache hit is a byte copy
+		 * @param body the page encoded with the response charset
+		 * @param gzippedBody the gzipped body
+		 * @param etag strong ETag of the body
+		 * @param ttl
+		 */
+		public BlockDirectiveCacheObject(byte[] body, byte[] gzippedBody, String etag, int ttl){
+			this.ttl = ttl;
+			this.body = body;
+			this.gzippedBody = gzippedBody;
+			this.etag = etag;
+			created = System.currentTimeMillis();
+		}
+
 		public BlockDirectiveCacheObject(){
 			created = System.currentTimeMillis();
 		}
@@ -44,6 +62,18 @@ public class BlockDirectiveCacheObject implements Serializable {
 		public void setValue(String value) {
 			this.value = value;
 		}
+
+		public byte[] getBody() {
+			return body;
+		}
+
+		public byte[] getGzippedBody() {
+			return gzippedBody;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
 		
 		
 		
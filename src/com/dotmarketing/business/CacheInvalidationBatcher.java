@@ -0,0 +1,232 @@
+package com.dotmarketing.business;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Collects the cluster cache invalidations (<code>key:group</code> entries) produced by
+ * the cache administrator and sends them to the other nodes in batches.
+ *
+ * A background thread drains the queue as soon as CACHE_INVALIDATION_BATCH_SIZE entries are
+ * waiting or CACHE_INVALIDATION_BATCH_DELAY milliseconds after the first entry of a batch
+ * arrived, whichever comes first. Within a batch duplicated entries are dropped, keys of a
+ * group that is flushed in the same batch are dropped and a group with more than
+ * CACHE_INVALIDATION_GROUP_FLUSH_THRESHOLD keys (half the batch size by default) is sent as
+ * a single group flush.
+ */
+public class CacheInvalidationBatcher {
+
+	public static final String FLUSH_KEY = "0";
+
+	/**
+	 * Delivers a coalesced batch of <code>key:group</code> entries to the cluster
+	 */
+	public interface Sender {
+		public void send(List<String> entries) throws Exception;
+	}
+
+	private final LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+	private final Sender sender;
+	private final int batchSize;
+	private final long batchDelay;
+	private final int groupFlushThreshold;
+	private volatile boolean running = true;
+	private final Thread flusher;
+
+	private final AtomicLong queued = new AtomicLong();
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong batchesSent = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong groupsCollapsed = new AtomicLong();
+	private final AtomicLong received = new AtomicLong();
+	private final AtomicLong batchesReceived = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	public CacheInvalidationBatcher(Sender sender) {
+		this.sender = sender;
+		this.batchSize = Math.max(1, Config.getIntProperty("CACHE_INVALIDATION_BATCH_SIZE", 500));
+		this.batchDelay = Math.max(0, Config.getIntProperty("CACHE_INVALIDATION_BATCH_DELAY", 50));
+		// a batch holds batchSize entries at most, so a higher threshold never collapses a group
+		this.groupFlushThreshold = Math.min(Config.getIntProperty("CACHE_INVALIDATION_GROUP_FLUSH_THRESHOLD", batchSize / 2), batchSize - 1);
+		this.flusher = new Thread(new Runnable() {
+			public void run() {
+				flushLoop();
+			}
+		}, "CacheInvalidationBatcher");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	/**
+	 * Queues the invalidation of a key for the rest of the cluster
+	 */
+	public void invalidate(String key, String group) {
+		if (!running) {
+			return;
+		}
+		queued.incrementAndGet();
+		queue.offer(key + ":" + group);
+	}
+
+	/**
+	 * Queues the flush of a whole group for the rest of the cluster
+	 */
+	public void flushGroup(String group) {
+		invalidate(FLUSH_KEY, group);
+	}
+
+	/**
+	 * Records the invalidations received from another node
+	 */
+	public void received(int entries) {
+		batchesReceived.incrementAndGet();
+		received.addAndGet(entries);
+	}
+
+	private void flushLoop() {
+		while (running || !queue.isEmpty()) {
+			try {
+				String first = queue.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					continue;
+				}
+				List<String> batch = new ArrayList<String>();
+				batch.add(first);
+				long deadline = System.currentTimeMillis() + batchDelay;
+				while (batch.size() < batchSize) {
+					long wait = deadline - System.currentTimeMillis();
+					String next = (wait > 0) ? queue.poll(wait, TimeUnit.MILLISECONDS) : queue.poll();
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				send(batch);
+			} catch (InterruptedException e) {
+				running = false;
+			} catch (Throwable t) {
+				Logger.error(CacheInvalidationBatcher.class, "Unable to send cache invalidations to cluster : " + t.getMessage(), t);
+			}
+		}
+	}
+
+	private void send(List<String> batch) {
+		List<String> entries = coalesce(batch);
+		coalesced.addAndGet(batch.size() - entries.size());
+		try {
+			sender.send(entries);
+			sent.addAndGet(entries.size());
+			batchesSent.incrementAndGet();
+		} catch (Exception e) {
+			failed.addAndGet(entries.size());
+			Logger.error(CacheInvalidationBatcher.class, "Unable to send invalidation to cluster : " + e.getMessage(), e);
+		}
+	}
+
+	List<String> coalesce(List<String> batch) {
+		Map<String, Set<String>> keysByGroup = new LinkedHashMap<String, Set<String>>();
+		for (String entry : batch) {
+			int i = entry.lastIndexOf(":");
+			String key = entry.substring(0, i);
+			String group = entry.substring(i + 1);
+			if (FLUSH_KEY.equals(key) && DotCacheAdministrator.ROOT_GOUP.equals(group)) {
+				// a full flush makes every other entry in the batch redundant
+				List<String> flushAll = new ArrayList<String>();
+				flushAll.add(entry);
+				return flushAll;
+			}
+			Set<String> keys = keysByGroup.get(group);
+			if (keys == null) {
+				keys = new LinkedHashSet<String>();
+				keysByGroup.put(group, keys);
+			}
+			keys.add(key);
+		}
+
+		List<String> entries = new ArrayList<String>();
+		for (Map.Entry<String, Set<String>> e : keysByGroup.entrySet()) {
+			Set<String> keys = e.getValue();
+			if (keys.contains(FLUSH_KEY) || (groupFlushThreshold > 0 && keys.size() > groupFlushThreshold)) {
+				if (!keys.contains(FLUSH_KEY)) {
+					groupsCollapsed.incrementAndGet();
+				}
+				entries.add(FLUSH_KEY + ":" + e.getKey());
+			} else {
+				for (String key : keys) {
+					entries.add(key + ":" + e.getKey());
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Sends whatever is still queued and stops the background thread
+	 */
+	public void shutdown() {
+		running = false;
+		flusher.interrupt();
+		List<String> rest = new ArrayList<String>();
+		queue.drainTo(rest);
+		if (!rest.isEmpty()) {
+			send(rest);
+		}
+	}
+
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new LinkedHashMap<String, Long>();
+		stats.put("queued", queued.get());
+		stats.put("pending", (long) queue.size());
+		stats.put("sent", sent.get());
+		stats.put("batchesSent", batchesSent.get());
+		stats.put("coalesced", coalesced.get());
+		stats.put("groupsCollapsed", groupsCollapsed.get());
+		stats.put("received", received.get());
+		stats.put("batchesReceived", batchesReceived.get());
+		stats.put("failed", failed.get());
+		return stats;
+	}
+
+	public long getQueued() {
+		return queued.get();
+	}
+
+	public long getSent() {
+		return sent.get();
+	}
+
+	public long getBatchesSent() {
+		return batchesSent.get();
+	}
+
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	public long getGroupsCollapsed() {
+		return groupsCollapsed.get();
+	}
+
+	public long getReceived() {
+		return received.get();
+	}
+
+	public long getBatchesReceived() {
+		return batchesReceived.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+}
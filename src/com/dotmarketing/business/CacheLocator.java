@@ -3,9 +3,13 @@ package com.dotmarketing.business;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.jgroups.JChannel;
 
+import com.dotcms.content.elasticsearch.business.ContentletSearchCache;
+import com.dotcms.content.elasticsearch.business.ContentletSearchCacheImpl;
 import com.dotcms.content.elasticsearch.business.IndiciesCache;
 import com.dotcms.content.elasticsearch.business.IndiciesCacheImpl;
 import com.dotcms.publisher.assets.business.PushedAssetsCache;
@@ -66,17 +70,77 @@ import com.dotmarketing.viewtools.navigation.NavToolCacheImpl;
 
 public class CacheLocator extends Locator<CacheIndex>{
 
+    /**
+     * Told about the entries of a cache group removed or flushed, on this server or by another
+     * server of the cluster, so what is kept outside of the cache administrator can follow them.
+     */
+    public interface CacheGroupListener {
+        /**
+         * @param key as given to the cache administrator, lowercased when it comes from the cluster
+         */
+        void removed(String key);
+        void flushed();
+    }
+
+    private static final Map<String, List<CacheGroupListener>> groupListeners = new ConcurrentHashMap<String, List<CacheGroupListener>>();
+
+    public static void addCacheGroupListener(String group, CacheGroupListener listener) {
+        synchronized (groupListeners) {
+            List<CacheGroupListener> listeners = groupListeners.get(group.toLowerCase());
+            if(listeners == null) {
+                listeners = new CopyOnWriteArrayList<CacheGroupListener>();
+                groupListeners.put(group.toLowerCase(), listeners);
+            }
+            listeners.add(listener);
+        }
+    }
+
     private static class CommitListenerCacheWrapper implements DotCacheAdministrator {
         DotCacheAdministrator dotcache;
         public CommitListenerCacheWrapper(DotCacheAdministrator dotcache) { this.dotcache=dotcache; }
         public Set<String> getKeys(String group) { return dotcache.getKeys(group); }
-        public void flushAll() { dotcache.flushAll(); }
-        public void flushGroup(String group) { dotcache.flushGroup(group); }
-        public void flushAlLocalOnlyl() { dotcache.flushAlLocalOnlyl(); }
-        public void flushGroupLocalOnly(String group) { dotcache.flushGroupLocalOnly(group); }
+        public void flushAll() { dotcache.flushAll(); flushed(null); }
+        public void flushGroup(String group) { dotcache.flushGroup(group); flushed(group); }
+        public void flushAlLocalOnlyl() { dotcache.flushAlLocalOnlyl(); flushed(null); }
+        public void flushGroupLocalOnly(String group) { dotcache.flushGroupLocalOnly(group); flushed(group); }
         public Object get(String key, String group) throws DotCacheException { return dotcache.get(key, group); }
-        public void remove(String key, String group) { dotcache.remove(key,group); }
-        public void removeLocalOnly(String key, String group) { dotcache.removeLocalOnly(key, group); }
+        public void remove(String key, String group) { dotcache.remove(key,group); removed(key, group, true); }
+        public void removeLocalOnly(String key, String group) { dotcache.removeLocalOnly(key, group); removed(key, group, false); }
+        private void flushed(String group) {
+            if(group == null) {
+                for(List<CacheGroupListener> listeners : groupListeners.values())
+                    for(CacheGroupListener listener : listeners)
+                        listener.flushed();
+            }
+            else if(groupListeners.containsKey(group.toLowerCase())) {
+                for(CacheGroupListener listener : groupListeners.get(group.toLowerCase()))
+                    listener.flushed();
+            }
+        }
+        /**
+         * @param inTransaction false when it can't be in a transaction, as the cluster invalidations that arrive without a session
+         */
+        private void removed(final String key, String group, boolean inTransaction) {
+            if(key == null || group == null || !groupListeners.containsKey(group.toLowerCase()))
+                return;
+            final List<CacheGroupListener> listeners = groupListeners.get(group.toLowerCase());
+            Runnable removal = new Runnable() {
+                public void run() {
+                    for(CacheGroupListener listener : listeners)
+                        listener.removed(key);
+                }
+            };
+            removal.run();
+            if(!inTransaction)
+                return;
+            try {
+                // like the entry, removed again once the transaction commits
+                if(!HibernateUtil.getSession().connection().getAutoCommit())
+                    HibernateUtil.addCommitListener("cachegrouplistener:" + group + ":" + key, removal);
+            } catch (Exception e) {
+                Logger.warn(CacheLocator.class, e.getMessage(), e);
+            }
+        }
         public void shutdown() { dotcache.shutdown(); }
         public JChannel getJGroupsChannel() { return dotcache.getJGroupsChannel(); }
         public List<Map<String, Object>> getCacheStatsList() { return dotcache.getCacheStatsList(); }
@@ -229,6 +293,10 @@ public class CacheLocator extends Locator<CacheIndex>{
 	    return (IndiciesCache)getInstance(CacheIndex.Indicies);
 	}
 
+	public static ContentletSearchCache getContentletSearchCache() {
+	    return (ContentletSearchCache)getInstance(CacheIndex.ContentletSearch);
+	}
+
 	public static NavToolCache getNavToolCache() {
 	    return (NavToolCache)getInstance(CacheIndex.NavTool);
 	}
@@ -320,6 +388,7 @@ enum CacheIndex
 	HostVariables("Host Variables"),
 	Block_Directive("Block Directive"),
 	Indicies("Indicies"),
+	ContentletSearch("Contentlet Search"),
 	NavTool("Navigation Tool"),
 	PublishingEndPoint("PublishingEndPoint Cache"),
 	PushedAssets("PushedAssets Cache");
@@ -354,6 +423,7 @@ enum CacheIndex
       	case WorkflowCache : return new WorkflowCacheImpl();
       	case VirtualLinkCache : return new VirtualLinkCacheImpl();
       	case Indicies: return new IndiciesCacheImpl();
+      	case ContentletSearch: return new ContentletSearchCacheImpl();
       	case NavTool: return new NavToolCacheImpl();
       	case PublishingEndPoint: return new PublishingEndPointCacheImpl();
       	case PushedAssets: return new PushedAssetsCacheImpl();
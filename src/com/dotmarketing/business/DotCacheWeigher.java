@@ -0,0 +1,104 @@
+package com.dotmarketing.business;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.dotmarketing.util.Config;
+import com.google.common.cache.Weigher;
+
+/**
+ * Estimates the heap footprint, in bytes, of the objects stored in a cache region
+ * that is bounded by <code>cache.&lt;region&gt;.maxweight</code> instead of
+ * <code>cache.&lt;region&gt;.size</code>.
+ *
+ * Weighers are resolved by the class of the cached value. A weigher registered for a
+ * class is also used for its subclasses and implementations, so e.g. registering one for
+ * {@link java.util.List} covers every list put in cache. Objects with no registered
+ * weigher weigh <code>cache.weigher.default.bytes</code> (1024 by default).
+ */
+public class DotCacheWeigher implements Weigher<String, Object> {
+
+	private static final int OBJECT_OVERHEAD = 16;
+	private static final int REFERENCE_SIZE = 8;
+
+	private static final Map<Class<?>, Weigher<String, Object>> registered = new ConcurrentHashMap<Class<?>, Weigher<String, Object>>();
+	private static final Map<Class<?>, Weigher<String, Object>> resolved = new ConcurrentHashMap<Class<?>, Weigher<String, Object>>();
+
+	static {
+		register(String.class, new Weigher<String, Object>() {
+			public int weigh(String key, Object value) {
+				return OBJECT_OVERHEAD * 2 + ((String) value).length() * 2;
+			}
+		});
+		register(byte[].class, new Weigher<String, Object>() {
+			public int weigh(String key, Object value) {
+				return OBJECT_OVERHEAD + ((byte[]) value).length;
+			}
+		});
+		register(Collection.class, new Weigher<String, Object>() {
+			public int weigh(String key, Object value) {
+				return OBJECT_OVERHEAD + ((Collection<?>) value).size() * (REFERENCE_SIZE + defaultWeight());
+			}
+		});
+		register(Map.class, new Weigher<String, Object>() {
+			public int weigh(String key, Object value) {
+				return OBJECT_OVERHEAD + ((Map<?, ?>) value).size() * (REFERENCE_SIZE * 4 + defaultWeight());
+			}
+		});
+	}
+
+	/**
+	 * Registers the weigher used for values of the given type (and its subtypes)
+	 * @param type
+	 * @param weigher
+	 */
+	public static void register(Class<?> type, Weigher<String, Object> weigher) {
+		registered.put(type, weigher);
+		resolved.clear();
+	}
+
+	public int weigh(String key, Object value) {
+		int weight = (key == null) ? 0 : OBJECT_OVERHEAD * 2 + key.length() * 2;
+		if (value == null) {
+			return weight;
+		}
+		Weigher<String, Object> w = resolve(value.getClass());
+		long total = weight + ((w == null) ? defaultWeight() : Math.max(0, w.weigh(key, value)));
+		return (int) Math.min(Integer.MAX_VALUE, total);
+	}
+
+	private static int defaultWeight() {
+		return Config.getIntProperty("cache.weigher.default.bytes", 1024);
+	}
+
+	private static Weigher<String, Object> resolve(Class<?> clazz) {
+		Weigher<String, Object> w = resolved.get(clazz);
+		if (w != null) {
+			return w;
+		}
+		w = lookup(clazz);
+		if (w != null) {
+			resolved.put(clazz, w);
+		}
+		return w;
+	}
+
+	private static Weigher<String, Object> lookup(Class<?> clazz) {
+		if (clazz == null) {
+			return null;
+		}
+		Weigher<String, Object> w = registered.get(clazz);
+		if (w != null) {
+			return w;
+		}
+		for (Class<?> i : clazz.getInterfaces()) {
+			w = lookup(i);
+			if (w != null) {
+				return w;
+			}
+		}
+		return lookup(clazz.getSuperclass());
+	}
+
+}
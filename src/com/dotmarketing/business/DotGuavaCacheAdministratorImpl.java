@@ -3,8 +3,9 @@
  */
 package com.dotmarketing.business;
 
-import java.sql.SQLException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
@@ -15,8 +16,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
-import org.jboss.cache.Fqn;
 import org.jgroups.Address;
 import org.jgroups.ChannelClosedException;
 import org.jgroups.ChannelNotConnectedException;
@@ -25,11 +29,13 @@ import org.jgroups.Message;
 import org.jgroups.ReceiverAdapter;
 import org.jgroups.View;
 
-import com.dotmarketing.cache.H2CacheLoader;
+import com.dotmarketing.business.cluster.mbeans.CacheInvalidation;
+import com.dotmarketing.cache.DiskCache;
+import com.dotmarketing.cache.H2DiskCache;
+import com.dotmarketing.cache.MappedDiskCache;
 import com.dotmarketing.common.business.journal.DistributedJournalAPI;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
-import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.menubuilders.RefreshMenus;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
@@ -54,12 +60,14 @@ import edu.emory.mathcs.backport.java.util.Collections;
 public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements DotCacheAdministrator {
 
 	private DistributedJournalAPI journalAPI;
-	private Map<String, Cache<String, Object>> groups = new HashMap<String, Cache<String, Object>>();
+	private final ConcurrentHashMap<String, Cache<String, Object>> groups = new ConcurrentHashMap<String, Cache<String, Object>>();
+	private final ConcurrentHashMap<String, String> regionNames = new ConcurrentHashMap<String, String>();
 	private JChannel channel;
 	private boolean useJgroups = false;
 	private ConcurrentHashMap<String, Boolean> cacheToDisk = new ConcurrentHashMap<String, Boolean>();
-	private HashSet<String> availableCaches = new HashSet<String>();
-	private H2CacheLoader diskCache = null;
+	private Set<String> availableCaches = java.util.Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private DiskCache diskCache = null;
+	private CacheInvalidationBatcher invalidations = null;
 	
 	static final String LIVE_CACHE_PREFIX = "livecache";
 	static final String WORKING_CACHE_PREFIX = "workingcache";
@@ -76,30 +84,10 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		if(group ==null || diskCache==null){
 			return false;
 		}
-		group = group.toLowerCase();
+		group = regionName(group);
 		Boolean ret = cacheToDisk.get(group);
 		if(ret == null) {
-			if(Config.containsProperty("cache." + group + ".disk")){
-				ret = Config.getBooleanProperty("cache." + group + ".disk", false);
-			}
-			else if(group.startsWith(LIVE_CACHE_PREFIX) && Config.containsProperty("cache." + LIVE_CACHE_PREFIX + ".disk")){
-				ret = Config.getBooleanProperty("cache."+LIVE_CACHE_PREFIX+".disk", false);
-			}
-			else if(group.startsWith(WORKING_CACHE_PREFIX) && Config.containsProperty("cache." + WORKING_CACHE_PREFIX + ".disk")){
-				ret = Config.getBooleanProperty("cache." + WORKING_CACHE_PREFIX + ".disk", false);
-			}
-			/*
-			else if (group.startsWith("velocitymenucache")) {
-				ret = false;
-			}
-		
-			else if (group.startsWith("velocitycache")) {
-				 ret = false;
-			}
-			*/
-			else{
-				ret = Config.getBooleanProperty("cache.default.disk", false);
-			}
+			ret = Config.getBooleanProperty(regionProperty(group, "disk"), false);
 			cacheToDisk.put(group, ret);
 		}
 
@@ -109,6 +97,65 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 	
 	
 	
+	/**
+	 * Returns the lower cased name of a cache region. Group names come from a small,
+	 * fixed set of constants so the lower casing is done once per name and remembered.
+	 */
+	private String regionName(String group) {
+		String name = regionNames.get(group);
+		if (name == null) {
+			name = group.toLowerCase();
+			regionNames.putIfAbsent(group, name);
+		}
+		return name;
+	}
+
+	/**
+	 * Keys are matched ignoring case. Most keys are built lower cased already, and the keys
+	 * sent to the cluster always are, so a key is only copied when it has an upper case char.
+	 */
+	private static String normalizeKey(String key) {
+		for (int i = 0; i < key.length(); i++) {
+			char c = key.charAt(i);
+			if (Character.toLowerCase(c) != c) {
+				return key.toLowerCase();
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Resolves the config property that applies to a cache region, falling back from
+	 * cache.&lt;region&gt;.&lt;property&gt; to the livecache/workingcache prefix and finally to
+	 * cache.default.&lt;property&gt;
+	 */
+	private String regionProperty(String cacheName, String property) {
+		String key = "cache." + cacheName + "." + property;
+		if (Config.containsProperty(key)) {
+			return key;
+		}
+		if (cacheName.startsWith(LIVE_CACHE_PREFIX) && Config.containsProperty("cache." + LIVE_CACHE_PREFIX + "." + property)) {
+			return "cache." + LIVE_CACHE_PREFIX + "." + property;
+		}
+		if (cacheName.startsWith(WORKING_CACHE_PREFIX) && Config.containsProperty("cache." + WORKING_CACHE_PREFIX + "." + property)) {
+			return "cache." + WORKING_CACHE_PREFIX + "." + property;
+		}
+		return "cache." + DEFAULT_CACHE + "." + property;
+	}
+
+	private long getLongProperty(String key, long defaultVal) {
+		String value = Config.getStringProperty(key, null);
+		if (!UtilMethods.isSet(value)) {
+			return defaultVal;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			Logger.warn(this.getClass(), "Invalid value for " + key + " : " + value);
+			return defaultVal;
+		}
+	}
+
 	public DotGuavaCacheAdministratorImpl() {
 		journalAPI = APILocator.getDistributedJournalAPI();
 
@@ -132,6 +179,10 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 					availableCaches.add(cacheName.toLowerCase());	
 					Logger.info(this.getClass(), "***\t Cache Config Memory : " +  cacheName + ": " + inMemory  );
 				}
+				if(key.endsWith(".maxweight")){
+					availableCaches.add(cacheName.toLowerCase());
+					Logger.info(this.getClass(), "***\t Cache Config Weight : " +  cacheName + ": " + Config.getStringProperty(key, null) + " bytes");
+				}
 				if(key.endsWith(".disk")){
 					boolean useDisk = Config.getBooleanProperty(key, false);
 					if(useDisk){
@@ -144,7 +195,11 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		}
 		if(initDiskCache){
 			try{
-				diskCache = H2CacheLoader.getInstance();
+				if ("mapped".equalsIgnoreCase(Config.getStringProperty("CACHE_DISK_IMPLEMENTATION", "h2"))) {
+					diskCache = MappedDiskCache.getInstance();
+				} else {
+					diskCache = new H2DiskCache();
+				}
 			}
 			catch(Exception e){
 				Logger.error(this.getClass(), "***\t Unable to start disk cache: " + e.getMessage(), e);
@@ -205,6 +260,53 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 			}
 		}
 
+		if (useJgroups || Config.getBooleanProperty("CACHE_CLUSTER_THROUGH_DB", false)) {
+			invalidations = new CacheInvalidationBatcher(new ClusterSender());
+			try {
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				server.registerMBean(new CacheInvalidation(invalidations), new ObjectName("org.dotcms:type=CacheInvalidation"));
+			} catch (Exception e) {
+				Logger.debug(DotGuavaCacheAdministratorImpl.class, "Unable to register CacheInvalidation MBean: " + e.getMessage(), e);
+			}
+		}
+
+	}
+
+	/**
+	 * Sends the coalesced invalidations either through the dist_journal table or
+	 * as a single JGroups message per batch
+	 */
+	private class ClusterSender implements CacheInvalidationBatcher.Sender {
+
+		public void send(List<String> entries) throws Exception {
+			if (Config.getBooleanProperty("CACHE_CLUSTER_THROUGH_DB", false)) {
+				try {
+					journalAPI.addCacheEntries(entries);
+				} finally {
+					DbConnectionFactory.closeConnection();
+				}
+			} else if (useJgroups) {
+				Object payload = (entries.size() == 1) ? entries.get(0) : new ArrayList<String>(entries);
+				channel.send(new Message(null, null, (java.io.Serializable) payload));
+			}
+		}
+	}
+
+	private void sendInvalidation(String key, String group) {
+		if (invalidations != null) {
+			invalidations.invalidate(key, group);
+		}
+	}
+
+	/**
+	 * Returns the counters of the cluster invalidations sent and received by this node,
+	 * empty when the node is not clustered
+	 */
+	public Map<String, Long> getInvalidationStats() {
+		if (invalidations == null) {
+			return new HashMap<String, Long>();
+		}
+		return invalidations.getStats();
 	}
 
 	/*
@@ -214,20 +316,7 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 	 */
 	public void flushAll() {
 		flushAlLocalOnlyl();
-		try {
-			if (Config.getBooleanProperty("CACHE_CLUSTER_THROUGH_DB", false)) {
-				journalAPI.addCacheEntry("0", ROOT_GOUP);
-			} else if (useJgroups) {
-				Message msg = new Message(null, null, "0:" + ROOT_GOUP);
-				try {
-					channel.send(msg);
-				} catch (Exception e) {
-					Logger.error(DotGuavaCacheAdministratorImpl.class, "Unable to send invalidation to cluster : " + e.getMessage(), e);
-				}
-			}
-		} catch (DotDataException e) {
-			Logger.error(this, "Unable to add journal entry for cluster", e);
-		}
+		sendInvalidation(CacheInvalidationBatcher.FLUSH_KEY, ROOT_GOUP);
 	}
 
 	/*
@@ -243,26 +332,10 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		if(group ==null ){
 			return ;
 		}
-		group = group.toLowerCase();
-		
-		groups.remove(group);
+		group = regionName(group);
 		
 		flushGroupLocalOnly(group);
-
-		try {
-			if (Config.getBooleanProperty("CACHE_CLUSTER_THROUGH_DB", false)) {
-				journalAPI.addCacheEntry("0", group);
-			} else if (useJgroups) {
-				Message msg = new Message(null, null, "0:" + group);
-				try {
-					channel.send(msg);
-				} catch (Exception e) {
-					Logger.error(DotGuavaCacheAdministratorImpl.class, "Unable to send invalidation to cluster : " + e.getMessage(), e);
-				}
-			}
-		} catch (DotDataException e) {
-			Logger.error(this, "Unable to add journal entry for cluster", e);
-		}
+		sendInvalidation(CacheInvalidationBatcher.FLUSH_KEY, group);
 	}
 
 	/*
@@ -274,12 +347,12 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		
 		Set<String> myGroups = new HashSet<String>();
 
+		// regions are flushed in place, never swapped, so concurrent readers always see a live cache
 		myGroups.addAll(groups.keySet());
-		groups = new HashMap<String, Cache<String,Object>>();
 		if(diskCache != null){
 			try {
-				myGroups.addAll(H2CacheLoader.getGroups());
-			} catch (SQLException e) {
+				myGroups.addAll(diskCache.getGroups());
+			} catch (Exception e) {
 				Logger.error(DotGuavaCacheAdministratorImpl.class,e.getMessage(),e);
 			}
 		}
@@ -290,7 +363,7 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		if(diskCache != null){
 			diskCache.resetCannotCacheCache();
 		}
-		cacheToDisk = new ConcurrentHashMap<String, Boolean>();
+		cacheToDisk.clear();
 		
 	}
 
@@ -299,14 +372,14 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		if(group ==null ){
 			return ;
 		}
-		group = group.toLowerCase();
+		group = regionName(group);
 		
 		Cache cache = getCache(group);
 		
 		
 		if(isDiskCache(group)){
 			try {
-				diskCache.remove(new Fqn(group));
+				diskCache.removeGroup(group);
 			} catch (Exception e) {
 				Logger.debug(DotGuavaCacheAdministratorImpl.class,e.getMessage(),e);
 			}
@@ -329,8 +402,10 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		if(key == null || group == null){
 			return null;
 		}
-		key = key.toLowerCase();
-		group = group.toLowerCase();
+		return getMemoryNormalized(normalizeKey(key), regionName(group));
+	}
+
+	private Object getMemoryNormalized(String key, String group) {
 		Cache cache = getCache(group);
 		Object j = null;
 		try {
@@ -345,19 +420,17 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		if(key == null || group == null){
 			return null;
 		}
-		
-		key = key.toLowerCase();
-		group = group.toLowerCase();
+		return getDiskNormalized(normalizeKey(key), regionName(group));
+	}
+
+	private Object getDiskNormalized(String key, String group) {
 		Object j = null;
 		if(isDiskCache(group)){
 			try {
-				Map m=diskCache.get(new Fqn(group, key));
-				if(m!=null){
-					j = m.get(key);
-					if(j != null){
-						Cache cache = getCache(group);
-						cache.put(key, j);
-					}
+				j = diskCache.get(group, key);
+				if(j != null){
+					Cache cache = getCache(group);
+					cache.put(key, j);
 				}
 			} catch (Exception e) {
 				Logger.debug(DotGuavaCacheAdministratorImpl.class,e.getMessage(),e);
@@ -373,12 +446,12 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		if(key == null || group == null){
 			return null;
 		}
-		key = key.toLowerCase();
-		group = group.toLowerCase();
+		key = normalizeKey(key);
+		group = regionName(group);
 
-		Object j = getMemory( key,  group);
+		Object j = getMemoryNormalized( key,  group);
 		if(j==null){
-			j= getDisk( key,  group);
+			j= getDiskNormalized( key,  group);
 		}
 
 		return j;
@@ -395,17 +468,15 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		if(key == null || group == null){
 			return;
 		}
-		key = key.toLowerCase();
-		group = group.toLowerCase();
-		
-		
+		key = normalizeKey(key);
+		group = regionName(group);
 		
 		Cache cache = getCache(group);
 		cache.put(key, content);
 		
 		if(isDiskCache(group)){
 			try {
-				diskCache.put(new Fqn(group, key), key, content);
+				diskCache.put(group, key, content);
 			} catch (Exception e) {
 				Logger.debug(DotGuavaCacheAdministratorImpl.class,e.getMessage(),e);
 			}
@@ -422,55 +493,45 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		if(key == null || group == null){
 			return;
 		}
-		Runnable cacheRemoveRunnable=new Runnable() {
-	         public void run() {
+		final String k = normalizeKey(key);
+		final String g = regionName(group);
+		removeLocalNormalized(k, g);
 
-				String k = key.toLowerCase();
-				String g = group.toLowerCase();
-				removeLocalOnly(k, g);
-		
-				try {
-					if (Config.getBooleanProperty("CACHE_CLUSTER_THROUGH_DB", false)) {
-						journalAPI.addCacheEntry(k, g);
-					} else if (useJgroups) {
-						Message msg = new Message(null, null, k + ":" + g);
-						try {
-							channel.send(msg);
-						} catch (Exception e) {
-							Logger.error(DotGuavaCacheAdministratorImpl.class, "Unable to send invalidation to cluster : " + e.getMessage(), e);
-						}
-					}
-				} catch (DotDataException e) {
-					Logger.error(this, "Unable to add journal entry for cluster", e);
-				}
+		Runnable clusterRemoveRunnable=new Runnable() {
+	         public void run() {
+	        	 sendInvalidation(k, g);
 	         }
 		};
 		try {
-			if(!DbConnectionFactory.getConnection().getAutoCommit()){
-				HibernateUtil.addCommitListener(cacheRemoveRunnable);
+			if(invalidations != null && !DbConnectionFactory.getConnection().getAutoCommit()){
+				// other nodes are told once per key, after the transaction commits
+				HibernateUtil.addCommitListener("cacheinvalidation:" + g + ":" + k, clusterRemoveRunnable);
+				return;
 			}
 		} catch (Exception e) {
 			Logger.error(DotGuavaCacheAdministratorImpl.class,e.getMessage(),e);
 		}
-		cacheRemoveRunnable.run();
+		clusterRemoveRunnable.run();
 	}
 
 	public void removeLocalOnly(final String key, final String group) {
 		if(key == null || group == null){
 			return;
 		}
+		removeLocalNormalized(normalizeKey(key), regionName(group));
+	}
+
+	private void removeLocalNormalized(final String k, final String g) {
 		Runnable cacheRemoveRunnable=new Runnable() {
 	         public void run() {
-				String k = key.toLowerCase();
-				String g = group.toLowerCase();
 				Cache<String, Object>  cache = getCache(g);
 				cache.invalidate(k);
 				if(isDiskCache(g)){
 					try {
-						if(!UtilMethods.isSet(key)){
-							Logger.error(this.getClass(), "Empty key passed in, clearing group " + group + " by mistake");
+						if(!UtilMethods.isSet(k)){
+							Logger.error(this.getClass(), "Empty key passed in, clearing group " + g + " by mistake");
 						}
-						diskCache.remove(new Fqn(g, k), k.toLowerCase());
+						diskCache.remove(g, k);
 					} catch (Exception e) {
 						Logger.error(DotGuavaCacheAdministratorImpl.class,e.getMessage(),e);
 					}
@@ -479,7 +540,7 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		};
 		try {
 			if(!DbConnectionFactory.getConnection().getAutoCommit()){
-				HibernateUtil.addCommitListener(cacheRemoveRunnable);
+				HibernateUtil.addCommitListener("cacheremove:" + g + ":" + k, cacheRemoveRunnable);
 			}
 		} catch (Exception e) {
 			Logger.error(DotGuavaCacheAdministratorImpl.class,e.getMessage(),e);
@@ -493,7 +554,7 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		}
 		Set<String> keys=new HashSet<String>();
 		
-		group = group.toLowerCase();
+		group = regionName(group);
 		Cache<String, Object> cache = getCache(group);
 		Map<String, Object> m = cache.asMap();
 		
@@ -506,7 +567,7 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		        keys.addAll(diskCache.getKeys(group));
 		    }
 		    catch(Exception ex) {
-		        Logger.error(this, "can't get h2 cache keys on group "+group,ex);
+		        Logger.error(this, "can't get disk cache keys on group "+group,ex);
 		    }
 		}
 			
@@ -525,10 +586,10 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		
 		if(diskCache != null){
 			try {
-				for(String s : H2CacheLoader.getGroups()){
+				for(String s : diskCache.getGroups()){
 					myGroups.add(s.toLowerCase());
 				}
-			} catch (SQLException e) {
+			} catch (Exception e) {
 				Logger.error(DotGuavaCacheAdministratorImpl.class, e.getMessage(), e);
 			}
 		}
@@ -558,24 +619,16 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 			m.put("disk", -1);
 			if(diskCache != null){
 				if(isDiskCache(group)){
-					m.put("disk", H2CacheLoader.getGroupCount(group.toString()));
+					m.put("disk", diskCache.getGroupCount(group));
 				}
 			}
 			
 			
-			int configured = isDefault  
-				? Config.getIntProperty("cache."+DEFAULT_CACHE+".size" ) 
-    				: (Config.getIntProperty("cache." +region + ".size", -1 ) != -1) 
-    					? Config.getIntProperty("cache." +region + ".size" ) 
-    						: (region.startsWith(WORKING_CACHE_PREFIX) && Config.getIntProperty("cache."+WORKING_CACHE_PREFIX+".size", -1 ) != -1) 
-    							? Config.getIntProperty("cache."+WORKING_CACHE_PREFIX+".size" )
-   									: (region.startsWith(LIVE_CACHE_PREFIX) && Config.getIntProperty("cache."+LIVE_CACHE_PREFIX+".size", -1 ) != -1) 
-   										? Config.getIntProperty("cache."+LIVE_CACHE_PREFIX+".size" )
-   												: Config.getIntProperty("cache."+DEFAULT_CACHE+".size" );
-			
-			
-			
+			String sizeRegion = isDefault ? DEFAULT_CACHE : region;
+			int configured = Config.getIntProperty(regionProperty(sizeRegion, "size"), Config.getIntProperty("cache."+DEFAULT_CACHE+".size", 100));
    			m.put("configuredSize", configured);
+   			m.put("maxWeight", getLongProperty(regionProperty(sizeRegion, "maxweight"), -1));
+   			m.put("expireAfterAccess", getLongProperty(regionProperty(sizeRegion, "expireafteraccess"), -1));
 			
 			list.add(m);
 			
@@ -631,8 +684,11 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 	}
 
 	public void shutdown() {
+		if(invalidations != null){
+			invalidations.shutdown();
+		}
 		if(diskCache != null){
-			diskCache.destroy();
+			diskCache.shutdown();
 		}
 	}
 
@@ -652,9 +708,20 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 			return;
 		}
 
-		if (v.toString().equals("TESTINGCLUSTER")) {
+		if (v instanceof Collection) {
+			Collection<?> entries = (Collection<?>) v;
+			if (invalidations != null) {
+				invalidations.received(entries.size());
+			}
+			for (Object entry : entries) {
+				invalidateCacheFromCluster(entry.toString());
+			}
+		} else if (v.toString().equals("TESTINGCLUSTER")) {
 			Logger.info(this, "Received Message Ping " + new Date());
 		} else {
+			if (invalidations != null) {
+				invalidations.received(1);
+			}
 			invalidateCacheFromCluster(v.toString());
 		}
 	}
@@ -694,13 +761,10 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 			String key = k.substring(0, i);
 			String group = k.substring(i + 1, k.length());
 			
-			key = key.toLowerCase();
-			group = group.toLowerCase();
-			if (groups != null) {
-				
-				if (groups.containsKey(group)) {
-					Logger.debug(this, "Cluster Eviction of Key : " + key + " With Group : " + group + " from cache");
-				}
+			key = normalizeKey(key);
+			group = regionName(group);
+			if (groups.containsKey(group)) {
+				Logger.debug(this, "Cluster Eviction of Key : " + key + " With Group : " + group + " from cache");
 			}
 			if (key.contains("dynamic")) {
 				if (group.equals(menuGroup)) {
@@ -733,12 +797,16 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 		if (cacheName == null) {
 			throw new DotStateException("Null cache region passed in");
 		}
-		cacheName = cacheName.toLowerCase();
 		Cache<String, Object> cache = groups.get(cacheName);
+		if (cache != null) {
+			return cache;
+		}
+		cacheName = regionName(cacheName);
+		cache = groups.get(cacheName);
 
 		// init cache if it does not exist
 		if (cache == null) {
-			synchronized (cacheName) {
+			synchronized (groups) {
 				cache = groups.get(cacheName);
 				if (cache == null) {
 					
@@ -747,55 +815,28 @@ public class DotGuavaCacheAdministratorImpl extends ReceiverAdapter implements D
 
 						
 					if (separateCache) {
-						int size = -1;
-						boolean toDisk = false;
-						if (cacheName.startsWith(LIVE_CACHE_PREFIX)) {
-							size = Config.getIntProperty("cache." + cacheName + ".size", -1);
-							if(size <0){
-								size = Config.getIntProperty("cache."+LIVE_CACHE_PREFIX+".size", -1);
-							}
-							if(Config.containsProperty("cache." + cacheName + ".disk")){
-								toDisk = Config.getBooleanProperty("cache." + cacheName + ".disk", false);
-							}
-							else{
-								toDisk = Config.getBooleanProperty("cache."+LIVE_CACHE_PREFIX+".disk", false);
-							}
-						} 
-						else if (cacheName.startsWith(WORKING_CACHE_PREFIX)) {
-							size = Config.getIntProperty("cache." + cacheName + ".size", -1);
-							if(size <0){
-								size = Config.getIntProperty("cache."+WORKING_CACHE_PREFIX+".size", -1);
-							}
-							if(Config.containsProperty("cache." + cacheName + ".disk")){
-								toDisk = Config.getBooleanProperty("cache." + cacheName + ".disk", false);
-							}
-							else{
-								toDisk = Config.getBooleanProperty("cache."+WORKING_CACHE_PREFIX+".disk", false);
-							}
-						} 
-						else {
-							size = Config.getIntProperty("cache." + cacheName + ".size", -1);
-							if(Config.containsProperty("cache." + cacheName + ".disk")){
-								toDisk = Config.getBooleanProperty("cache." + cacheName + ".disk", false);
-							}
-							else{
-								toDisk = Config.getBooleanProperty("cache."+DEFAULT_CACHE+".disk", false);
-							}
-						}
-						
+						int size = Config.getIntProperty(regionProperty(cacheName, "size"), -1);
 						if (size == -1) {
 							size = Config.getIntProperty("cache."+DEFAULT_CACHE+".size", 100);
 						}
+						boolean toDisk = Config.getBooleanProperty(regionProperty(cacheName, "disk"), false);
+						long maxWeight = getLongProperty(regionProperty(cacheName, "maxweight"), -1);
+						long expireAfterAccess = getLongProperty(regionProperty(cacheName, "expireafteraccess"), -1);
 
-						Logger.info(this.getClass(), "***\t Building Cache : " + cacheName + ", size:" + size + ", toDisk:" + toDisk + ",Concurrency:" + Config.getIntProperty("cache.concurrencylevel", 32));
+						Logger.info(this.getClass(), "***\t Building Cache : " + cacheName + ", size:" + size + ", maxWeight:" + maxWeight + ", expireAfterAccess:" + expireAfterAccess + ", toDisk:" + toDisk + ",Concurrency:" + Config.getIntProperty("cache.concurrencylevel", 32));
 						CacheBuilder<Object, Object> cb  = CacheBuilder
 								.newBuilder()
-								.maximumSize(size)
 								.concurrencyLevel(Config.getIntProperty("cache.concurrencylevel", 32));
-								
+						if (expireAfterAccess > 0) {
+							cb.expireAfterAccess(expireAfterAccess, TimeUnit.SECONDS);
+						}
 
-						
-						cache = cb.build();
+						// guava records CacheStats for every cache, they show up in the cache stats screen
+						if (maxWeight > 0) {
+							cache = cb.maximumWeight(maxWeight).weigher(new DotCacheWeigher()).build();
+						} else {
+							cache = cb.maximumSize(size).build();
+						}
 						groups.put(cacheName, cache);
 
 					} else {
@@ -82,6 +82,16 @@ public interface IdentifierAPI {
 	 */
 	public Identifier find(Host host, String uri) throws DotDataException, DotStateException;
 
+	/**
+	 * Tells, from cache only, if the uri followed by suffix is known to have no identifier
+	 * in the host. Used to answer requests for missing URIs without building cache keys.
+	 * @param hostId
+	 * @param uri
+	 * @param suffix appended to uri, can be null
+	 * @return false if it has an identifier or it is not known
+	 */
+	public boolean isURIMissing(String hostId, String uri, String suffix);
+
 
 	/**
 	 * Will take a host and uri and return its identifier from cache or null if not found
@@ -97,6 +97,10 @@ public class IdentifierAPIImpl implements IdentifierAPI {
 		return ifac.findByURI(host, uri);
 	}
 
+	public boolean isURIMissing(String hostId, String uri, String suffix) {
+		return ifac.isURIMissing(hostId, uri, suffix);
+	}
+
 	public Identifier loadFromCache(Host host, String uri) throws DotDataException, DotStateException {
 		return ifac.loadByURIFromCache(host, uri);
 	}
@@ -1,5 +1,7 @@
 package com.dotmarketing.business;
 
+import java.util.List;
+
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.beans.VersionInfo;
@@ -19,6 +21,20 @@ public abstract class IdentifierCache implements Cachable {
 
 	abstract protected void removeFromCacheByURI(String URI, String hostId);
 
+	abstract protected boolean isURIIndexLoaded(String hostId);
+
+	abstract protected boolean startLoadingURIIndex(String hostId);
+
+	abstract protected void loadURIIndex(String hostId, List<Identifier> identifiers);
+
+	abstract protected void cancelLoadingURIIndex(String hostId);
+
+	abstract protected long getURIIndexVersion(String hostId);
+
+	abstract protected void addToURIIndex(String hostId, String URI, Identifier id, long version);
+
+	abstract protected boolean isURIMissing(String hostId, String URI, String suffix);
+
 	abstract public void removeFromCacheByVersionable(Versionable versionable);
 
 	abstract public void removeFromCacheByIdentifier(String inode);
@@ -24,9 +24,28 @@ public class IdentifierCacheImpl extends IdentifierCache {
 
 	DotCacheAdministrator cache = null;
 
+	// identifiers by URI, the URI keys of the group are still removed to tell the cluster
+	private final IdentifierURIIndex uriIndex = new IdentifierURIIndex();
+
 	protected IdentifierCacheImpl() {
 
 		cache = CacheLocator.getCacheAdministrator();
+		CacheLocator.addCacheGroupListener(getPrimaryGroup(), new CacheLocator.CacheGroupListener() {
+			public void removed(String key) {
+				if(key.length() < getPrimaryGroup().length() || !key.regionMatches(true, 0, getPrimaryGroup(), 0, getPrimaryGroup().length()))
+					return;
+				String rest = key.substring(getPrimaryGroup().length());
+				// hostId + "-" + URI or the identifier
+				int separator = rest.indexOf("-/");
+				if(separator > 0)
+					uriIndex.remove(rest.substring(0, separator), rest.substring(separator + 1));
+				else
+					uriIndex.removeById(rest);
+			}
+			public void flushed() {
+				uriIndex.clear();
+			}
+		});
 	}
 
 	@Override
@@ -45,11 +64,7 @@ public class IdentifierCacheImpl extends IdentifierCache {
 		if (id == null || ! InodeUtils.isSet(id.getInode())) {
 			return;
 		}
-		// Obtain the key for the new entrance
-		String key = id.getHostId() + "-" + id.getURI();
-
-		// Add the new entry to the cache
-		cache.put(getPrimaryGroup() + key, id, getPrimaryGroup());
+		// Add the new entry to the cache, by URI they are in the uriIndex
 		cache.put(getPrimaryGroup() + id.getInode(), id, getPrimaryGroup());
 		
 	}
@@ -73,14 +88,40 @@ public class IdentifierCacheImpl extends IdentifierCache {
 	 */
 	protected Identifier getIdentifier( String URI, String hostId) {
 
-		Identifier value = null;
-		try {
-			value = (Identifier) cache.get(getPrimaryGroup() + hostId + "-" + URI, getPrimaryGroup());
-		} catch (DotCacheException e) {
-			Logger.debug(IdentifierCacheImpl.class, "Cache Entry not found", e);
+		Object value = uriIndex.get(hostId, URI, null);
+		if(value == IdentifierURIIndex.TOMBSTONE) {
+			// what the database gives for a URI without identifier
+			return new Identifier();
 		}
+		return (Identifier) value;
+	}
 
-		return value;
+	protected boolean isURIIndexLoaded(String hostId) {
+		return uriIndex.isLoaded(hostId);
+	}
+
+	protected boolean startLoadingURIIndex(String hostId) {
+		return uriIndex.startLoading(hostId);
+	}
+
+	protected void loadURIIndex(String hostId, List<Identifier> identifiers) {
+		uriIndex.load(hostId, identifiers);
+	}
+
+	protected void cancelLoadingURIIndex(String hostId) {
+		uriIndex.stopLoading(hostId);
+	}
+
+	protected long getURIIndexVersion(String hostId) {
+		return uriIndex.getVersion(hostId);
+	}
+
+	protected void addToURIIndex(String hostId, String URI, Identifier id, long version) {
+		uriIndex.put(hostId, URI, id, version);
+	}
+
+	protected boolean isURIMissing(String hostId, String URI, String suffix) {
+		return uriIndex.get(hostId, URI, suffix) == IdentifierURIIndex.TOMBSTONE;
 	}
 
 
@@ -149,10 +190,11 @@ public class IdentifierCacheImpl extends IdentifierCache {
 
 
 	protected void removeFromCacheByURI(String hostId,String URI) {
-		Identifier id = getIdentifier(hostId,URI);
+		Identifier id = getIdentifier(URI,hostId);
 		String key = hostId + "-" + URI;
 		cache.remove(getPrimaryGroup() + key, getPrimaryGroup());
-		removeFromCacheByIdentifier(id);
+		if(id != null && InodeUtils.isSet(id.getId()))
+			removeFromCacheByIdentifier(id);
 
 	}
 
@@ -68,6 +68,14 @@ public abstract class IdentifierFactory {
 	 * @param uri
 	 */
 	abstract protected Identifier loadByURIFromCache(Host host, String uri);
+
+	/**
+	 * looks in cache only, true if uri followed by suffix (can be null) is known to have no identifier
+	 * @param hostId
+	 * @param uri
+	 * @param suffix
+	 */
+	abstract protected boolean isURIMissing(String hostId, String uri, String suffix);
 	/**
 	 * looks in db only, returns null if not found
 	 * @param identifier
@@ -137,7 +137,15 @@ public class IdentifierFactoryImpl extends IdentifierFactory {
 		if (identifier != null) {
 			return identifier;
 		}
+		if (!ic.isURIIndexLoaded(hostId)) {
+			loadURIIndex(hostId);
+			identifier = ic.getIdentifier(uri, hostId);
+			if (identifier != null) {
+				return identifier;
+			}
+		}
 
+		long version = ic.getURIIndexVersion(hostId);
 		HibernateUtil dh = new HibernateUtil(Identifier.class);
 		String parentPath = uri.substring(0, uri.lastIndexOf("/") + 1);
 		String assetName = uri.substring(uri.lastIndexOf("/") + 1);
@@ -149,8 +157,35 @@ public class IdentifierFactoryImpl extends IdentifierFactory {
 		identifier = (Identifier) dh.load();
 
 		ic.addIdentifierToCache(identifier);
+		ic.addToURIIndex(hostId, uri, identifier, version);
 		return identifier;
 	}
+
+	/**
+	 * Loads at once the identifiers of the host a request can ask for: folders, pages,
+	 * files, links and file assets. Others, as the rest of the contents, are added as
+	 * they are found by URI. If another thread is loading the host it doesn't wait.
+	 */
+	private void loadURIIndex(String hostId) {
+		if (hostId == null || !ic.startLoadingURIIndex(hostId)) {
+			return;
+		}
+		try {
+			DotConnect dc = new DotConnect();
+			dc.setSQL("select i.* from identifier i where i.host_inode = ? and (i.asset_type in ('folder','htmlpage','file_asset','links') "
+					+ "or (i.asset_type = 'contentlet' and exists (select c.identifier from contentlet c, structure s "
+					+ "where c.identifier = i.id and c.structure_inode = s.inode and s.structuretype = " + Structure.STRUCTURE_TYPE_FILEASSET + ")))");
+			dc.addParam(hostId);
+			ic.loadURIIndex(hostId, convertDotConnectMapToPOJO(dc.loadResults()));
+		} catch (Exception e) {
+			ic.cancelLoadingURIIndex(hostId);
+			Logger.warn(this, "Unable to load the identifiers of host " + hostId + " by URI: " + e.getMessage(), e);
+		}
+	}
+
+	protected boolean isURIMissing(String hostId, String uri, String suffix) {
+		return ic.isURIMissing(hostId, uri, suffix);
+	}
 	
 	protected List<Identifier> findByParentPath(String hostId, String parent_path) throws DotHibernateException {
 	    if(!parent_path.endsWith("/"))
@@ -291,8 +326,10 @@ public class IdentifierFactoryImpl extends IdentifierFactory {
 		identifier.setHostId(host.getIdentifier());
 		identifier.setParentPath(parentId.getPath());
 
-		if(uuid!=null)
+		if(uuid!=null) {
 			HibernateUtil.saveWithPrimaryKey(identifier, uuid);
+			ic.removeFromCacheByURI(identifier.getHostId(), identifier.getURI());
+		}
 		else
 			saveIdentifier(identifier);
 
@@ -360,6 +397,7 @@ public class IdentifierFactoryImpl extends IdentifierFactory {
 
         if ( uuid != null ) {
             HibernateUtil.saveWithPrimaryKey( identifier, uuid );
+            ic.removeFromCacheByURI( identifier.getHostId(), identifier.getURI() );
         } else {
             saveIdentifier( identifier );
         }
@@ -418,6 +456,8 @@ public class IdentifierFactoryImpl extends IdentifierFactory {
 	protected Identifier saveIdentifier(Identifier identifier) throws DotDataException {
 		try {
 			HibernateUtil.saveOrUpdate(identifier);
+			// the URI could be known as missing
+			ic.removeFromCacheByURI(identifier.getHostId(), identifier.getURI());
 		} catch (DotHibernateException e) {
 			Logger.error(IdentifierFactoryImpl.class, "saveIdentifier failed:" + e, e);
 			throw new DotDataException(e.toString());
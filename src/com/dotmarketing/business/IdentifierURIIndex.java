@@ -0,0 +1,376 @@
+package com.dotmarketing.business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.InodeUtils;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Identifiers of each host by URI, kept in a compressed trie per host together with
+ * the URIs known to have no identifier (tombstones). Lookups walk the characters of
+ * the URI, so they don't build keys. URIs are matched ignoring case, like the keys of
+ * the cache administrator.
+ *
+ * The tries are never modified: a change builds a new path from the root to the entry,
+ * sharing everything else, and replaces the root of the host. Readers don't lock.
+ *
+ * The removals made while a host is being loaded are kept and left out of the loaded
+ * identifiers, so the writes of other hosts or of the cluster don't throw a load away.
+ */
+class IdentifierURIIndex {
+
+	/**
+	 * Value of the URIs known to have no identifier
+	 */
+	static final Object TOMBSTONE = new Object();
+
+	private static final Node[] NO_CHILDREN = new Node[0];
+
+	private static final class Node {
+		// lowercased characters from the parent to this node
+		final char[] label;
+		// sorted by the first character of their label
+		final Node[] children;
+		// an Identifier, TOMBSTONE or null
+		final Object value;
+
+		Node(char[] label, Node[] children, Object value) {
+			this.label = label;
+			this.children = children;
+			this.value = value;
+		}
+	}
+
+	// removals made while a host is loaded, changed holding the lock of the index
+	private static final class LoadChanges {
+		final Set<String> uris = new HashSet<String>();
+		final Set<String> ids = new HashSet<String>();
+		boolean cleared;
+	}
+
+	private static final class HostIndex {
+		final Node root;
+		final int tombstones;
+
+		HostIndex(Node root, int tombstones) {
+			this.root = root;
+			this.tombstones = tombstones;
+		}
+	}
+
+	private final Map<String, HostIndex> hosts = new ConcurrentHashMap<String, HostIndex>();
+	// identifier -> {host, uri} of the identifiers in the tries
+	private final Map<String, String[]> uris = new ConcurrentHashMap<String, String[]>();
+	private final ConcurrentHashMap<String, LoadChanges> loading = new ConcurrentHashMap<String, LoadChanges>();
+	// changes of each host since startup, a put started before a change of its host is dropped
+	private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<String, AtomicLong>();
+
+	long getVersion(String hostId) {
+		return version(hostId.toLowerCase()).get();
+	}
+
+	private AtomicLong version(String host) {
+		AtomicLong version = versions.get(host);
+		if(version == null) {
+			AtomicLong created = new AtomicLong();
+			version = versions.putIfAbsent(host, created);
+			if(version == null)
+				version = created;
+		}
+		return version;
+	}
+
+	boolean isLoaded(String hostId) {
+		return hostId != null && hosts.containsKey(hostId.toLowerCase());
+	}
+
+	/**
+	 * Marks the host as being loaded
+	 * @return false if another thread is loading it already
+	 */
+	boolean startLoading(String hostId) {
+		return loading.putIfAbsent(hostId.toLowerCase(), new LoadChanges()) == null;
+	}
+
+	void stopLoading(String hostId) {
+		loading.remove(hostId.toLowerCase());
+	}
+
+	/**
+	 * Sets the identifiers of the host read since {@link #startLoading(String)}, but the ones
+	 * removed meanwhile, they may have been read before the change
+	 */
+	synchronized void load(String hostId, List<Identifier> identifiers) {
+		String host = hostId.toLowerCase();
+		try {
+			LoadChanges changes = loading.get(host);
+			if(changes == null || changes.cleared) {
+				Logger.debug(this, "identifiers flushed while loading the URIs of host " + hostId + ", not keeping them");
+				return;
+			}
+			TreeMap<String, Identifier> sorted = new TreeMap<String, Identifier>();
+			for(Identifier identifier : identifiers) {
+				if(!InodeUtils.isSet(identifier.getId()))
+					continue;
+				String key = identifier.getURI().toLowerCase();
+				if(!changes.uris.contains(key) && !changes.ids.contains(identifier.getId().toLowerCase()))
+					sorted.put(key, identifier);
+			}
+			char[][] keys = new char[sorted.size()][];
+			Object[] values = new Object[sorted.size()];
+			int i = 0;
+			for(Map.Entry<String, Identifier> entry : sorted.entrySet()) {
+				keys[i] = entry.getKey().toCharArray();
+				values[i] = entry.getValue();
+				uris.put(entry.getValue().getId().toLowerCase(), new String[] {host, entry.getKey()});
+				i++;
+			}
+			hosts.put(host, new HostIndex(build(keys, values, 0, keys.length, 0, new char[0]), 0));
+		}
+		finally {
+			loading.remove(host);
+		}
+	}
+
+	/**
+	 * @return the identifier of uri followed by suffix (that can be null), TOMBSTONE if it is
+	 * known not to have one or null if it is not known
+	 */
+	Object get(String hostId, String uri, String suffix) {
+		if(hostId == null || uri == null)
+			return null;
+		HostIndex index = hosts.get(hostId.toLowerCase());
+		if(index == null)
+			return null;
+		int length = uri.length() + (suffix != null ? suffix.length() : 0);
+		Node node = index.root;
+		int i = 0;
+		while(i < length) {
+			Node child = child(node, Character.toLowerCase(charAt(uri, suffix, i)));
+			if(child == null || length - i < child.label.length)
+				return null;
+			for(int j = 0; j < child.label.length; j++) {
+				if(Character.toLowerCase(charAt(uri, suffix, i + j)) != child.label[j])
+					return null;
+			}
+			i += child.label.length;
+			node = child;
+		}
+		return node.value;
+	}
+
+	/**
+	 * Adds the identifier of the URI to its host, a tombstone if it is not set. Nothing is
+	 * added if the host is not loaded or something changed in the host since version was read.
+	 */
+	synchronized void put(String hostId, String uri, Identifier identifier, long version) {
+		if(hostId == null || uri == null)
+			return;
+		String host = hostId.toLowerCase();
+		if(version != version(host).get())
+			return;
+		HostIndex index = hosts.get(host);
+		if(index == null)
+			return;
+		boolean found = identifier != null && InodeUtils.isSet(identifier.getId());
+		if(!found && index.tombstones >= Config.getIntProperty("IDENTIFIER_URI_TOMBSTONES_PER_HOST", 10000))
+			return;
+		String key = uri.toLowerCase();
+		Object old = get(hostId, uri, null);
+		int tombstones = index.tombstones + (found ? 0 : 1) - (old == TOMBSTONE ? 1 : 0);
+		hosts.put(host, new HostIndex(put(index.root, key.toCharArray(), 0, found ? identifier : TOMBSTONE), tombstones));
+		if(found)
+			uris.put(identifier.getId().toLowerCase(), new String[] {host, key});
+	}
+
+	/**
+	 * Forgets the URI, whatever it had
+	 */
+	synchronized void remove(String hostId, String uri) {
+		if(hostId == null || uri == null)
+			return;
+		String host = hostId.toLowerCase();
+		version(host).incrementAndGet();
+		LoadChanges changes = loading.get(host);
+		if(changes != null)
+			changes.uris.add(uri.toLowerCase());
+		HostIndex index = hosts.get(host);
+		if(index == null)
+			return;
+		char[] key = uri.toLowerCase().toCharArray();
+		Object old = get(hostId, uri, null);
+		if(old == null)
+			return;
+		hosts.put(host, new HostIndex(remove(index.root, key, 0), index.tombstones - (old == TOMBSTONE ? 1 : 0)));
+		if(old instanceof Identifier)
+			uris.remove(((Identifier) old).getId().toLowerCase());
+	}
+
+	/**
+	 * Forgets the URI of the identifier
+	 */
+	synchronized void removeById(String identifier) {
+		if(identifier == null)
+			return;
+		// the host is not known, it may be any of the ones being loaded
+		for(LoadChanges changes : loading.values())
+			changes.ids.add(identifier.toLowerCase());
+		String[] uri = uris.get(identifier.toLowerCase());
+		if(uri != null)
+			remove(uri[0], uri[1]);
+	}
+
+	synchronized void clear() {
+		for(AtomicLong version : versions.values())
+			version.incrementAndGet();
+		for(LoadChanges changes : loading.values())
+			changes.cleared = true;
+		hosts.clear();
+		uris.clear();
+	}
+
+	private static char charAt(String uri, String suffix, int i) {
+		return i < uri.length() ? uri.charAt(i) : suffix.charAt(i - uri.length());
+	}
+
+	/**
+	 * @return the index of the child starting with c, or (-(insertion point) - 1)
+	 */
+	private static int indexOf(Node[] children, char c) {
+		int low = 0, high = children.length - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			char m = children[mid].label[0];
+			if(m < c)
+				low = mid + 1;
+			else if(m > c)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
+	}
+
+	private static Node child(Node node, char c) {
+		int i = indexOf(node.children, c);
+		return i >= 0 ? node.children[i] : null;
+	}
+
+	/**
+	 * Builds the node of the sorted keys in [from, to), that share their first depth characters
+	 */
+	private static Node build(char[][] keys, Object[] values, int from, int to, int depth, char[] label) {
+		Object value = null;
+		if(from < to && keys[from].length == depth) {
+			value = values[from];
+			from++;
+		}
+		List<Node> children = new ArrayList<Node>();
+		int i = from;
+		while(i < to) {
+			char c = keys[i][depth];
+			int j = i + 1;
+			while(j < to && keys[j][depth] == c)
+				j++;
+			// the keys are sorted, what the first and the last share is shared by all
+			char[] first = keys[i], last = keys[j - 1];
+			int end = depth + 1;
+			while(end < first.length && end < last.length && first[end] == last[end])
+				end++;
+			children.add(build(keys, values, i, j, end, Arrays.copyOfRange(first, depth, end)));
+			i = j;
+		}
+		return new Node(label, children.isEmpty() ? NO_CHILDREN : children.toArray(new Node[children.size()]), value);
+	}
+
+	private static Node put(Node node, char[] key, int i, Object value) {
+		if(i == key.length)
+			return new Node(node.label, node.children, value);
+		int index = indexOf(node.children, key[i]);
+		if(index < 0) {
+			Node leaf = new Node(Arrays.copyOfRange(key, i, key.length), NO_CHILDREN, value);
+			return new Node(node.label, insert(node.children, -index - 1, leaf), node.value);
+		}
+		Node child = node.children[index];
+		int common = 0;
+		while(common < child.label.length && i + common < key.length && child.label[common] == key[i + common])
+			common++;
+		Node changed;
+		if(common == child.label.length) {
+			changed = put(child, key, i + common, value);
+		}
+		else {
+			// the key leaves the label half way, split it
+			Node tail = new Node(Arrays.copyOfRange(child.label, common, child.label.length), child.children, child.value);
+			Node split = new Node(Arrays.copyOfRange(child.label, 0, common), new Node[] {tail}, null);
+			changed = put(split, key, i + common, value);
+		}
+		return new Node(node.label, replace(node.children, index, changed), node.value);
+	}
+
+	private static Node remove(Node node, char[] key, int i) {
+		if(i == key.length)
+			return node.value == null ? node : new Node(node.label, node.children, null);
+		int index = indexOf(node.children, key[i]);
+		if(index < 0)
+			return node;
+		Node child = node.children[index];
+		if(key.length - i < child.label.length)
+			return node;
+		for(int j = 0; j < child.label.length; j++)
+			if(child.label[j] != key[i + j])
+				return node;
+		Node changed = remove(child, key, i + child.label.length);
+		if(changed == child)
+			return node;
+		Node[] children;
+		if(changed.value == null && changed.children.length == 0) {
+			children = delete(node.children, index);
+		}
+		else if(changed.value == null && changed.children.length == 1) {
+			// keep it compressed, join the node with its only child
+			Node only = changed.children[0];
+			char[] label = Arrays.copyOf(changed.label, changed.label.length + only.label.length);
+			System.arraycopy(only.label, 0, label, changed.label.length, only.label.length);
+			children = replace(node.children, index, new Node(label, only.children, only.value));
+		}
+		else {
+			children = replace(node.children, index, changed);
+		}
+		return new Node(node.label, children, node.value);
+	}
+
+	private static Node[] insert(Node[] children, int index, Node child) {
+		Node[] copy = new Node[children.length + 1];
+		System.arraycopy(children, 0, copy, 0, index);
+		copy[index] = child;
+		System.arraycopy(children, index, copy, index + 1, children.length - index);
+		return copy;
+	}
+
+	private static Node[] replace(Node[] children, int index, Node child) {
+		Node[] copy = children.clone();
+		copy[index] = child;
+		return copy;
+	}
+
+	private static Node[] delete(Node[] children, int index) {
+		if(children.length == 1)
+			return NO_CHILDREN;
+		Node[] copy = new Node[children.length - 1];
+		System.arraycopy(children, 0, copy, 0, index);
+		System.arraycopy(children, index + 1, copy, index, children.length - index - 1);
+		return copy;
+	}
+
+}
@@ -263,6 +263,37 @@ public interface PermissionAPI {
      */
     void addPermissionsToCache ( Permissionable permissionable ) throws DotDataException;
 
+    /**
+     * Adds the permissions of all the given permissionables to cache loading them in bulk,
+     * used to warm the cache before working on a batch of assets (e.g. when indexing).
+     *
+     * @param permissionables
+     * @throws DotDataException
+     */
+    void addPermissionsToCache ( List<? extends Permissionable> permissionables ) throws DotDataException;
+
+	/**
+	 * Returns a key for the roles of the user, the same for every user with the same roles.
+	 * Permission checks that don't depend on the owner of the asset give the same result for
+	 * users with the same key, so they can be shared between them.
+	 *
+	 * @param user
+	 * @return
+	 * @throws DotDataException
+	 */
+	String getRoleSetKey(User user) throws DotDataException;
+
+	/**
+	 * Returns the permissions of the permissionable as they are in cache, loading them if needed.
+	 * The same list is returned until the permissions change or are flushed, so a result derived
+	 * from them can be kept while this list is the same instance. The list must not be modified.
+	 *
+	 * @param permissionable
+	 * @return the cached list, null if it couldn't be cached
+	 * @throws DotDataException
+	 */
+	List<Permission> getCachedPermissions(Permissionable permissionable) throws DotDataException;
+
 	/**
 	 * Retrieves the list of permission that could be inherited from the given parent permissionable,
 	 * @param permissionable
@@ -666,6 +697,16 @@ public interface PermissionAPI {
 	 */
 	void cascadePermissionUnder(Permissionable permissionable, Role role) throws DotDataException;
 
+	/**
+	 * Returns the progress of a running {@link #cascadePermissionUnder(Permissionable, Role)}: under the "processed" key
+	 * the number of children updated so far and under "found" the number of children found to update so far.
+	 *
+	 * @param permissionableId
+	 * @param roleId
+	 * @return null if no cascade is running for the role and permissionable
+	 */
+	Map<String, Integer> getCascadePermissionsProgress(String permissionableId, String roleId);
+
 	/**
 	 * Removes the given permissionable permission references forcing the api to recalculate the reference
 	 * @param perm
@@ -1,6 +1,7 @@
 package com.dotmarketing.business;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -16,6 +17,8 @@ import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Inode;
 import com.dotmarketing.beans.Permission;
 import com.dotmarketing.beans.WebAsset;
+import com.dotmarketing.business.PermissionCache.PermissionMasks;
+import com.dotmarketing.business.RoleCache.UserRoleSet;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotRuntimeException;
 import com.dotmarketing.exception.DotSecurityException;
@@ -307,49 +310,66 @@ public class PermissionBitAPIImpl implements PermissionAPI {
                 && ((Structure)permissionable).getStructureType()==Structure.STRUCTURE_TYPE_FILEASSET)
             return true;
 
-		Role adminRole;
 		Role anonRole;
 		Role frontEndUserRole;
 		Role cmsOwnerRole;
+		UserRoleSet roleSet = null;
 		try {
-			adminRole = APILocator.getRoleAPI().loadCMSAdminRole();
 			anonRole = APILocator.getRoleAPI().loadCMSAnonymousRole();
 			frontEndUserRole = APILocator.getRoleAPI().loadLoggedinSiteRole();
 			cmsOwnerRole = APILocator.getRoleAPI().loadCMSOwnerRole();
+			if(user != null)
+				roleSet = loadRoleSetForUser(user);
 		} catch (DotDataException e1) {
 			Logger.error(this, e1.getMessage(), e1);
 			throw new DotRuntimeException(e1.getMessage(), e1);
 		}
 
-		if(user != null && APILocator.getRoleAPI().doesUserHaveRole(user, adminRole))
+		if(roleSet != null && roleSet.isAdmin())
 			return true;
 
-		List<RelatedPermissionableGroup> permissionDependencies = permissionable.permissionDependencies(permissionType);
-
-
+		// the masks remember the cached list read before the permissions, so they are compiled again once it's replaced
+		PermissionCache permissionCache = CacheLocator.getPermissionCache();
+		List<Permission> cached = permissionCache.getPermissionsFromCache(permissionable.getPermissionId());
 		List<Permission> perms =  getPermissions(permissionable, true);
-
-		for(Permission p : perms){
-			if(p.matchesPermission(permissionType)){
-				if(respectFrontendRoles){
-					// if we are anonymous
-					if(p.getRoleId().equals(anonRole.getId())){
-						return true;
-						//if logged in site user has permission
-					}else if(user != null && p.getRoleId().equals(frontEndUserRole.getId())){
-						return true;
+		PermissionMasks masks = permissionCache.getMasksFromCache(permissionable.getPermissionId());
+		if(masks == null || !masks.isCompiledFrom(cached)) {
+			masks = PermissionMasks.compile(cached, perms);
+			if(masks != null && cached != null)
+				permissionCache.addToMasksCache(permissionable.getPermissionId(), masks);
+		}
+
+		if(masks != null) {
+			if(respectFrontendRoles){
+				// if we are anonymous or a logged in site user has permission
+				if(masks.matches(anonRole.getId(), permissionType)
+						|| (user != null && masks.matches(frontEndUserRole.getId(), permissionType))){
+					return true;
+				}
+			}
+			// if owner and owner has required permission return true
+			if(user != null && masks.matches(cmsOwnerRole.getId(), permissionType)
+					&& isOwnerWithRelatedPermissions(permissionable, permissionType, user)){
+				return true;
+			}
+		}
+		else {
+			for(Permission p : perms){
+				if(p.matchesPermission(permissionType)){
+					if(respectFrontendRoles){
+						// if we are anonymous
+						if(p.getRoleId().equals(anonRole.getId())){
+							return true;
+							//if logged in site user has permission
+						}else if(user != null && p.getRoleId().equals(frontEndUserRole.getId())){
+							return true;
+						}
 					}
-				} 
-				// if owner and owner has required permission return true
-				try {
+					// if owner and owner has required permission return true
 					if(p.getRoleId().equals(cmsOwnerRole.getId()) && user != null &&
-							permissionable.getOwner() != null && permissionable.getOwner().equals(user.getUserId()) &&
-							checkRelatedPermissions(permissionDependencies, user)){
+							isOwnerWithRelatedPermissions(permissionable, permissionType, user)){
 						return true;
 					}
-				} catch (DotDataException e1) {
-					Logger.error(this, e1.getMessage(), e1);
-					throw new DotRuntimeException(e1.getMessage(), e1);
 				}
 			}
 		}
@@ -360,77 +380,44 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 			return false;
 		} 
 
-		List<Role> roles;
+		// form widgets are readable by the roles with permissions over the form
+		Object formId = permissionable instanceof Contentlet ? ((Contentlet) permissionable).getMap().get("formId") : null;
+		if(formId != null && UtilMethods.isSet(formId.toString())){
+			List<Role> formRoles = getRoles(formId.toString(), PermissionAPI.PERMISSION_READ + PermissionAPI.PERMISSION_EDIT + PermissionAPI.PERMISSION_PUBLISH, "", 0, 10, true);
+			if(formRoles.size() > 0){
+				return true;
+			}
+		}
+
+		if(!respectFrontendRoles && roleSet.isFrontEndOnly()) {
+			return false; // The user roles are ALL frontEnd roles AND respectFrontEndRoles is false, so return false
+		}
+
+		if(masks != null){
+			return masks.matches(roleSet, permissionType);
+		}
+		return doRolesHavePermission(Arrays.asList(roleSet.getRoleIds()), perms, permissionType);
+	}
+
+	/**
+	 * @return if the user is the owner of the permissionable and has the permissions the
+	 * permissionable depends on
+	 */
+	private boolean isOwnerWithRelatedPermissions(Permissionable permissionable, int permissionType, User user) {
 		try {
-			roles = APILocator.getRoleAPI().loadRolesForUser(user.getUserId());
+			return permissionable.getOwner() != null && permissionable.getOwner().equals(user.getUserId()) &&
+					checkRelatedPermissions(permissionable.permissionDependencies(permissionType), user);
 		} catch (DotDataException e1) {
 			Logger.error(this, e1.getMessage(), e1);
 			throw new DotRuntimeException(e1.getMessage(), e1);
 		}
-		List<String> userRoleIds= new ArrayList<String>();
-		for (Role role : roles) {
-			try{
-				String roleID = role.getId();
-				userRoleIds.add(roleID);
-				if(roleID.equals(adminRole.getId())){
-					// if CMS Admin return true
-					return true;
-				}
-			}catch (Exception e) {
-				Logger.error(this, "Roleid should be a long : ",e);
-			}
-		}
-		String inode ="";
-        List<String> ids= new ArrayList<String>();
-        String s = permissionable.toString();
-        
-        if(s.contains("formId=")){
-                String[] st = s.split(",");
-                for(String str : st){
-                        str = str.trim();
-                        if(str.contains("formId=")){
-                                inode = str.substring(7);
-                        }
-                }
-        }
-        
-        if(inode != ""){
-                PermissionAPI pAPI;
-                pAPI = APILocator.getPermissionAPI();
-                List<Role> role = pAPI.getRoles(inode, PermissionAPI.PERMISSION_READ + PermissionAPI.PERMISSION_EDIT + PermissionAPI.PERMISSION_PUBLISH, "", 0, 10, true);
-                if(role.size() > 0){
-                        int i = 0;
-                        for (Role r : role) {
-                                ids.add(r.getId());
-                                i++;
-                        }
-                }
-        }
-        if(ids.size() > 0){
-                for(String sId : ids){
-                        userRoleIds.contains(sId);
-                        return true;
-                }
-        }
-        
-        if(!respectFrontendRoles) {
-			List<String> frontEndRoles = new ArrayList<String>(3);
-	
-			try {
-				frontEndRoles.add(APILocator.getRoleAPI().loadCMSAnonymousRole().getId());
-				frontEndRoles.add(APILocator.getRoleAPI().loadLoggedinSiteRole().getId());
-				frontEndRoles.add(APILocator.getRoleAPI().loadRoleByKey("anonymous").getId());
-			} catch (DotDataException e1) {
-				Logger.error(this, e1.getMessage(), e1);
-				throw new DotRuntimeException(e1.getMessage(), e1);
-			}
-			
-			if(frontEndRoles.containsAll(userRoleIds)) {
-				return false; // The user roles are ALL frontEnd roles AND respectFrontEndRoles is false, so return false
-			}
-		}
-        
-		return doRolesHavePermission(userRoleIds,getPermissions(permissionable, true),permissionType);
+	}
+
+	/**
+	 * The roles of the user, implicit ones included, compiled once until they change
+	 */
+	private UserRoleSet loadRoleSetForUser(User user) throws DotDataException {
+		return FactoryLocator.getRoleFactory().loadRoleSetForUser(user.getUserId());
 	}
 
 	/* (non-Javadoc)
@@ -576,6 +563,24 @@ public class PermissionBitAPIImpl implements PermissionAPI {
         permissionFactory.addPermissionsToCache( permissionable );
     }
 
+    public void addPermissionsToCache ( List<? extends Permissionable> permissionables ) throws DotDataException {
+        permissionFactory.addPermissionsToCache( permissionables );
+    }
+
+	public String getRoleSetKey(User user) throws DotDataException {
+		return loadRoleSetForUser(user).getId();
+	}
+
+	public List<Permission> getCachedPermissions(Permissionable permissionable) throws DotDataException {
+		PermissionCache permissionCache = CacheLocator.getPermissionCache();
+		List<Permission> permissions = permissionCache.getPermissionsFromCache(permissionable.getPermissionId());
+		if(permissions == null) {
+			permissionFactory.addPermissionsToCache(permissionable);
+			permissions = permissionCache.getPermissionsFromCache(permissionable.getPermissionId());
+		}
+		return permissions;
+	}
+
 	/**
 	 * @param Permission to save
 	 * Saves passed in permission
@@ -1079,19 +1084,17 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 			return permissionables;
 		}
 
-		Permissionable permissionable;
-		int i = 0;
+		//Loads the permissions of the whole list in a few queries instead of one per permissionable
+		permissionFactory.addPermissionsToCache(permissionables);
 
-		while (i < permissionables.size()) {
-			permissionable = permissionables.get(i);
-			if(!doesUserHavePermission(permissionable, requiredTypePermission, user, respectFrontendRoles)){
-				permissionables.remove(i);
-			} else {
-				++i;
+		List<P> filtered = new ArrayList<P>(permissionables.size());
+		for(P permissionable : permissionables) {
+			if(doesUserHavePermission(permissionable, requiredTypePermission, user, respectFrontendRoles)){
+				filtered.add(permissionable);
 			}
 		}
 
-		return permissionables;
+		return filtered;
 	}
 
 	public <P extends Permissionable> List<P> filterCollectionByDBPermissionReference(List<P> inputList, int requiredTypePermission,boolean respectFrontendRoles, User user) throws DotDataException, DotSecurityException {
@@ -1162,6 +1165,10 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 		permissionFactory.cascadePermissionUnder(permissionable, role);
 	}
 
+	public Map<String, Integer> getCascadePermissionsProgress(String permissionableId, String roleId) {
+		return permissionFactory.getCascadePermissionsProgress(permissionableId, roleId);
+	}
+
 	public void resetPermissionReferences(Permissionable perm) throws DotDataException {
 		permissionFactory.resetPermissionReferences(perm);
 
@@ -1,14 +1,19 @@
 package com.dotmarketing.business;
 
 import java.lang.reflect.Field;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 
@@ -36,6 +41,7 @@ import com.dotmarketing.portlets.categories.model.Category;
 import com.dotmarketing.portlets.containers.business.ContainerAPI;
 import com.dotmarketing.portlets.containers.model.Container;
 import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
+import com.dotmarketing.portlets.contentlet.business.ContentletHandler;
 import com.dotmarketing.portlets.contentlet.business.HostAPI;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.portlets.fileassets.business.FileAsset;
@@ -50,6 +56,7 @@ import com.dotmarketing.portlets.links.model.Link;
 import com.dotmarketing.portlets.structure.model.Structure;
 import com.dotmarketing.portlets.templates.business.TemplateAPI;
 import com.dotmarketing.portlets.templates.model.Template;
+import com.dotmarketing.util.Config;
 import com.dotmarketing.util.InodeUtils;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
@@ -81,6 +88,39 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 	 * 2. The permisionable id
 	 */
 
+	/*
+	 * Maximum number of ids in the in clauses used to load permissions in bulk
+	 */
+	private static final int BULK_LOAD_SIZE = 500;
+
+	/*
+	 * Number of children a permission cascade updates per transaction
+	 */
+	private static final int CASCADE_CHUNK_SIZE = Config.getIntProperty("PERMISSION_CASCADE_CHUNK_SIZE", 500);
+
+	/*
+	 * Versions of the permissions and permission references, striped by permissionable id. The version
+	 * of a permissionable changes every time it is removed from the cache and again when the transaction
+	 * that changed it commits. A load only puts its result in the cache if the version didn't change while
+	 * it was loading, so a load that read the old references can't cache them once they changed, and a
+	 * cascade removing many permissionables only holds back the loads that share a stripe with them
+	 */
+	private static final int REFERENCE_VERSION_STRIPES = 1024;
+
+	private final AtomicLongArray referenceVersions = new AtomicLongArray(REFERENCE_VERSION_STRIPES);
+
+	private final Runnable referenceVersionsIncrement = new Runnable() {
+		public void run() {
+			for(int i = 0; i < REFERENCE_VERSION_STRIPES; i++)
+				referenceVersions.incrementAndGet(i);
+		}
+	};
+
+	/*
+	 * Progress of the running cascades, permissionable id + role id -> children processed and found
+	 */
+	private static final Map<String, AtomicInteger[]> cascadeProgress = new ConcurrentHashMap<String, AtomicInteger[]>();
+
 	private final String loadPermissionSQL =
 		" select {permission.*} from permission where inode_id = ? "+
         " union all "+
@@ -1170,11 +1210,283 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
         //Checking individual permissions
         List<Permission> bitPermissionsList = permissionCache.getPermissionsFromCache( permissionable.getPermissionId() );
         if ( bitPermissionsList == null ) {//Already in cache
+            long version = referenceVersion( permissionable.getPermissionId() );
             bitPermissionsList = loadPermissions( permissionable );
-            permissionCache.addToPermissionCache( permissionable.getPermissionId(), bitPermissionsList );
+            addToPermissionCache( permissionable.getPermissionId(), bitPermissionsList, version );
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void addPermissionsToCache ( List<? extends Permissionable> permissionables ) throws DotDataException {
+
+        Map<String, Permissionable> assets = new LinkedHashMap<String, Permissionable>();
+        for ( Permissionable permissionable : permissionables ) {
+            if ( permissionable != null && UtilMethods.isSet( permissionable.getPermissionId() )
+                    && !assets.containsKey( permissionable.getPermissionId() )
+                    && permissionCache.getPermissionsFromCache( permissionable.getPermissionId() ) == null ) {
+                assets.put( permissionable.getPermissionId(), permissionable );
+            }
+        }
+        if ( assets.isEmpty() ) {
+            return;
+        }
+        Map<String, Long> versions = new HashMap<String, Long>();
+        for ( String id : assets.keySet() ) {
+            versions.put( id, referenceVersion( id ) );
+        }
+
+        List<Permissionable> unreferenced = new ArrayList<Permissionable>();
+        List<String> ids = new ArrayList<String>( assets.keySet() );
+        for ( int from = 0; from < ids.size(); from += BULK_LOAD_SIZE ) {
+            List<String> chunk = ids.subList( from, Math.min( from + BULK_LOAD_SIZE, ids.size() ) );
+
+            //Permission references of the assets, asset id -> (reference id, permission type)
+            DotConnect dc = new DotConnect();
+            dc.setSQL( "select asset_id, reference_id, permission_type from permission_reference where asset_id in (" + inClause( chunk.size() ) + ")" );
+            for ( String id : chunk ) {
+                dc.addParam( id );
+            }
+            List<Map<String, Object>> references = dc.loadObjectResults();
+
+            Set<String> inodeIds = new LinkedHashSet<String>( chunk );
+            for ( Map<String, Object> reference : references ) {
+                inodeIds.add( (String) reference.get( "reference_id" ) );
+            }
+
+            Map<String, List<Permission>> byInode = new HashMap<String, List<Permission>>();
+            List<String> inodes = new ArrayList<String>( inodeIds );
+            for ( int i = 0; i < inodes.size(); i += BULK_LOAD_SIZE ) {
+                List<String> inodeChunk = inodes.subList( i, Math.min( i + BULK_LOAD_SIZE, inodes.size() ) );
+                HibernateUtil persistenceService = new HibernateUtil( Permission.class );
+                persistenceService.setSQLQuery( "select {permission.*} from permission where inode_id in (" + inClause( inodeChunk.size() ) + ")" );
+                for ( String id : inodeChunk ) {
+                    persistenceService.setParam( id );
+                }
+                for ( Permission p : (List<Permission>) persistenceService.list() ) {
+                    p.setBitPermission( true );
+                    List<Permission> list = byInode.get( p.getInode() );
+                    if ( list == null ) {
+                        list = new ArrayList<Permission>();
+                        byInode.put( p.getInode(), list );
+                    }
+                    list.add( p );
+                }
+            }
+
+            //Same result as loadPermissionSQL, the individual permissions followed by the referenced ones
+            Map<String, List<Permission>> byAsset = new HashMap<String, List<Permission>>();
+            for ( String id : chunk ) {
+                List<Permission> individual = byInode.get( id );
+                byAsset.put( id, individual == null ? new ArrayList<Permission>() : new ArrayList<Permission>( individual ) );
+            }
+            for ( Map<String, Object> reference : references ) {
+                List<Permission> referenced = byInode.get( reference.get( "reference_id" ) );
+                if ( referenced == null ) {
+                    continue;
+                }
+                List<Permission> list = byAsset.get( reference.get( "asset_id" ) );
+                for ( Permission p : referenced ) {
+                    if ( p.getType().equals( reference.get( "permission_type" ) ) ) {
+                        list.add( p );
+                    }
+                }
+            }
+
+            for ( Map.Entry<String, List<Permission>> entry : byAsset.entrySet() ) {
+                if ( !entry.getValue().isEmpty() ) {
+                    addToPermissionCache( entry.getKey(), entry.getValue(), versions.get( entry.getKey() ) );
+                } else {
+                    //Without permissions the reference to the asset it inherits from has to be created
+                    unreferenced.add( assets.get( entry.getKey() ) );
+                }
+            }
+        }
+
+        if ( !unreferenced.isEmpty() ) {
+            addPermissionReferences( unreferenced, versions );
         }
     }
 
+    /**
+     * Bulk version of the inheritance resolution done by {@link #loadPermissions(Permissionable)} for assets
+     * without permissions: finds the parent each asset inherits from, stores all the permission references in a
+     * single transaction and caches the inherited permissions. Siblings resolve their parent only once.
+     * Only the assets whose reference was stored are cached, the rest are left to the single load.
+     */
+    private void addPermissionReferences ( List<Permissionable> permissionables, Map<String, Long> versions ) throws DotDataException {
+
+        //parent id + type -> [reference, inherited permissions], shared by the siblings
+        Map<String, Object[]> resolved = new HashMap<String, Object[]>();
+        Map<Permissionable, Object[]> references = new LinkedHashMap<Permissionable, Object[]>();
+        Host systemHost = null;
+        for ( Permissionable permissionable : permissionables ) {
+            String type = getPermissionReferenceType( permissionable );
+            Permissionable parentPermissionable = permissionable.getParentPermissionable();
+            String key = (parentPermissionable != null ? parentPermissionable.getPermissionId() : null) + "|" + type;
+            Object[] reference = resolved.get( key );
+            if ( reference == null ) {
+                Permissionable newReference = null;
+                List<Permission> inheritedPermissions = new ArrayList<Permission>();
+                while ( parentPermissionable != null ) {
+                    newReference = parentPermissionable;
+                    inheritedPermissions = getInheritablePermissions( parentPermissionable, type );
+                    if ( inheritedPermissions.size() > 0 ) {
+                        break;
+                    }
+                    parentPermissionable = parentPermissionable.getParentPermissionable();
+                }
+                if ( newReference == null ) {
+                    if ( systemHost == null ) {
+                        systemHost = APILocator.getHostAPI().findSystemHost();
+                    }
+                    newReference = systemHost;
+                }
+                reference = new Object[] { newReference.getPermissionId(), type, inheritedPermissions };
+                resolved.put( key, reference );
+            }
+            references.put( permissionable, reference );
+        }
+
+        List<String> ids = new ArrayList<String>();
+        for ( Permissionable permissionable : references.keySet() ) {
+            ids.add( permissionable.getPermissionId() );
+        }
+
+        //Assets whose reference row was stored
+        List<Permissionable> stored = new ArrayList<Permissionable>();
+        boolean localTransaction = false;
+        try {
+            localTransaction = HibernateUtil.startLocalTransactionIfNeeded();
+
+            //Only assets that exist get a reference
+            Set<String> existing = new HashSet<String>();
+            for ( int from = 0; from < ids.size(); from += BULK_LOAD_SIZE ) {
+                List<String> chunk = ids.subList( from, Math.min( from + BULK_LOAD_SIZE, ids.size() ) );
+                DotConnect dc = new DotConnect();
+                dc.setSQL( "select inode as id from inode where inode in (" + inClause( chunk.size() ) + ")" );
+                for ( String id : chunk ) {
+                    dc.addParam( id );
+                }
+                for ( Map<String, Object> row : dc.loadObjectResults() ) {
+                    existing.add( (String) row.get( "id" ) );
+                }
+                dc.setSQL( "select id from identifier where id in (" + inClause( chunk.size() ) + ")" );
+                for ( String id : chunk ) {
+                    dc.addParam( id );
+                }
+                for ( Map<String, Object> row : dc.loadObjectResults() ) {
+                    existing.add( (String) row.get( "id" ) );
+                }
+
+                dc.setSQL( "delete from permission_reference where asset_id in (" + inClause( chunk.size() ) + ")" );
+                for ( String id : chunk ) {
+                    dc.addParam( id );
+                }
+                dc.loadResult();
+            }
+
+            List<Permissionable> inserted = new ArrayList<Permissionable>();
+            DotConnect dc = new DotConnect();
+            dc.setSQL( insertPermissionReferenceSQL );
+            for ( Map.Entry<Permissionable, Object[]> entry : references.entrySet() ) {
+                if ( existing.contains( entry.getKey().getPermissionId() ) ) {
+                    dc.addParam( entry.getKey().getPermissionId() );
+                    dc.addParam( entry.getValue()[0] );
+                    dc.addParam( entry.getValue()[1] );
+                    dc.addBatch();
+                    inserted.add( entry.getKey() );
+                }
+            }
+            int[] counts = dc.executeBatch();
+            for ( int i = 0; i < counts.length && i < inserted.size(); i++ ) {
+                if ( counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO ) {
+                    stored.add( inserted.get( i ) );
+                }
+            }
+
+            if ( localTransaction ) {
+                HibernateUtil.commitTransaction();
+            }
+        } catch ( Exception exception ) {
+            Logger.warn( this.getClass(), "Failed to insert " + ids.size() + " Permission Refs. Usually not a problem, they will be loaded one by one" );
+            Logger.debug( this.getClass(), "Failed to insert Permission Refs. : " + exception.toString(), exception );
+            if ( localTransaction ) {
+                HibernateUtil.rollbackTransaction();
+            }
+            return;
+        }
+
+        for ( Permissionable permissionable : stored ) {
+            List<Permission> inheritedPermissions = (List<Permission>) references.get( permissionable )[2];
+            addToPermissionCache( permissionable.getPermissionId(), new ArrayList<Permission>( inheritedPermissions ), versions.get( permissionable.getPermissionId() ) );
+        }
+    }
+
+    private String inClause ( int size ) {
+        StringBuilder sb = new StringBuilder( size * 2 );
+        for ( int i = 0; i < size; i++ ) {
+            sb.append( i == 0 ? "?" : ",?" );
+        }
+        return sb.toString();
+    }
+
+	private int referenceVersionStripe(String permissionableId) {
+		return (permissionableId.hashCode() & 0x7fffffff) % REFERENCE_VERSION_STRIPES;
+	}
+
+	private long referenceVersion(String permissionableId) {
+		return referenceVersions.get(referenceVersionStripe(permissionableId));
+	}
+
+	/*
+	 * Changes the reference version of the permissionable now and again when the current transaction commits
+	 */
+	private void referencesChanged(String permissionableId) {
+		final int stripe = referenceVersionStripe(permissionableId);
+		referenceVersions.incrementAndGet(stripe);
+		try {
+			HibernateUtil.addCommitListener("permissionreferenceversion:" + stripe, new Runnable() {
+				public void run() {
+					referenceVersions.incrementAndGet(stripe);
+				}
+			});
+		} catch (DotHibernateException e) {
+			Logger.warn(this, "Unable to register the permission reference version change on commit: " + e.getMessage(), e);
+		}
+	}
+
+	/*
+	 * Changes every reference version now and again when the current transaction commits
+	 */
+	private void allReferencesChanged() {
+		referenceVersionsIncrement.run();
+		try {
+			HibernateUtil.addCommitListener("permissionreferenceversion", referenceVersionsIncrement);
+		} catch (DotHibernateException e) {
+			Logger.warn(this, "Unable to register the permission reference version change on commit: " + e.getMessage(), e);
+		}
+	}
+
+	private void removeFromPermissionCache(String permissionableId) {
+		referencesChanged(permissionableId);
+		permissionCache.remove(permissionableId);
+	}
+
+	private void clearPermissionCache() {
+		allReferencesChanged();
+		permissionCache.clearCache();
+	}
+
+	/*
+	 * Caches the permissions loaded when the reference version was the given one, unless they changed since
+	 */
+	private void addToPermissionCache(String permissionableId, List<Permission> permissions, long version) {
+		if(referenceVersion(permissionableId) == version) {
+			permissionCache.addToPermissionCache(permissionableId, permissions);
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see com.dotmarketing.business.PermissionFactory#getPermissions(com.dotmarketing.beans.Inode)
 	 */
@@ -1192,8 +1504,9 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 				//Checking individual permissions
 				bitPermissionsList = permissionCache.getPermissionsFromCache(permissionable.getPermissionId());
 				if(bitPermissionsList == null) {
+					long version = referenceVersion(permissionable.getPermissionId());
 					bitPermissionsList = loadPermissions(permissionable);
-					permissionCache.addToPermissionCache(permissionable.getPermissionId(), bitPermissionsList);
+					addToPermissionCache(permissionable.getPermissionId(), bitPermissionsList, version);
 				}
 			}
 		}
@@ -1229,8 +1542,9 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 					bitPermissionsList = permissionCache.getPermissionsFromCache(permissionable.getPermissionId());
 				//Checking individual permissions
 				if(bitPermissionsList == null) {
+					long version = referenceVersion(permissionable.getPermissionId());
 					bitPermissionsList = loadPermissions(permissionable);
-					permissionCache.addToPermissionCache(permissionable.getPermissionId(), bitPermissionsList);
+					addToPermissionCache(permissionable.getPermissionId(), bitPermissionsList, version);
 				}
 			}
 		}
@@ -1271,7 +1585,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		if(includeInheritablePermissions){
 			 removePermissionsReference(permissionable);
 		 }
-		permissionCache.remove(permissionable.getPermissionId());
+		removeFromPermissionCache(permissionable.getPermissionId());
 
 	}
 
@@ -1677,10 +1991,10 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 			for(Map<String, Object> idToClear: idsToClear) {
 				String inode = (String)(idToClear.get("inode") != null?idToClear.get("inode"):idToClear.get("asset_id"));
 				if(inode==null) inode=(String)idToClear.get("id");
-				permissionCache.remove(inode);
+				removeFromPermissionCache(inode);
 			}
 		} else {
-			permissionCache.clearCache();
+			clearPermissionCache();
 		}
 
 	}
@@ -1755,9 +2069,9 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 
 		if(toClear.size() < MAX_IDS_CLEAR)
 			for(Map<String, String> entry : toClear)
-				permissionCache.remove(entry.get("asset_id"));
+				removeFromPermissionCache(entry.get("asset_id"));
 	    else
-			permissionCache.clearCache();
+			clearPermissionCache();
 	}
 
 	/*
@@ -1777,10 +2091,10 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 
 		if(permissionReferences.size() < MAX_IDS_CLEAR) {
 			for(PermissionReference reference : permissionReferences) {
-				permissionCache.remove(reference.getAssetId());
+				removeFromPermissionCache(reference.getAssetId());
 			}
 		} else {
-			permissionCache.clearCache();
+			clearPermissionCache();
 		}
 
 	}
@@ -1902,7 +2216,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		if(clearReferencesCache)
 			clearReferencesCache(permissionable);
 
-		permissionCache.remove(permissionable.getPermissionId());
+		removeFromPermissionCache(permissionable.getPermissionId());
 
 		if(permissionable instanceof Structure) {
 			ContentletAPI contAPI = APILocator.getContentletAPI();
@@ -1917,7 +2231,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		        ContentletAPI contAPI = APILocator.getContentletAPI();
 	            contAPI.refresh(((Host)permissionable).getStructure());
 	            //http://jira.dotmarketing.net/browse/DOTCMS-5768
-	            permissionCache.clearCache();
+	            clearPermissionCache();
 		    }
 		    else {
 		        // https://github.com/dotCMS/dotCMS/issues/2229
@@ -1955,7 +2269,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 			}
 		}
 
-		permissionCache.remove(permissionable.getPermissionId());
+		removeFromPermissionCache(permissionable.getPermissionId());
 
 		if(permissionable instanceof Structure) {
 			ContentletAPI contAPI = APILocator.getContentletAPI();
@@ -2140,6 +2454,9 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 
 		Map<Permissionable, List<Permission>> result = new HashMap<Permissionable, List<Permission>>();
 
+		//Loads the permissions missing from the cache in a few queries instead of one per permissionable
+		addPermissionsToCache(permissionables);
+
 		for(Permissionable p : permissionables) {
 			List<Permission> permission = getPermissions(p, bitPermission);
 			result.put(p, permission);
@@ -2159,7 +2476,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 			db.setSQL("delete from permission where roleid='"+roleId+"'");
 			db.loadResult();
 
-			permissionCache.clearCache();
+			clearPermissionCache();
 		} catch (DotDataException e) {
 			Logger.error(this, e.getMessage(), e);
 			throw new DataAccessException (e.getMessage(), e);
@@ -2375,7 +2692,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 					{
 						HibernateUtil.delete(pToDel);
 						Logger.debug(this.getClass(), String.format("deletePermission: %s deleted successful!", p.toString()));
-						permissionCache.remove(pToDel.getInode());
+						removeFromPermissionCache(pToDel.getInode());
 					}
 					else
 					{
@@ -2430,50 +2747,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		if(bitPermissionsList.size() == 0) {
 			synchronized(permissionable.getPermissionId().intern()) {
 				//Need to determine who this asset should inherit from
-				String type = permissionable.getClass().getCanonicalName();
-				if(permissionable instanceof Host ||
-						(permissionable instanceof Contentlet &&
-								((Contentlet)permissionable).getStructure() != null &&
-								((Contentlet)permissionable).getStructure().getVelocityVarName() != null &&
-								((Contentlet)permissionable).getStructure().getVelocityVarName().equals("Host"))){
-					type = Host.class.getCanonicalName();
-				}else if(permissionable instanceof FileAsset ||
-				        (permissionable instanceof Contentlet &&
-				         ((Contentlet)permissionable).getStructure().getStructureType()==Structure.STRUCTURE_TYPE_FILEASSET)){
-				    type = File.class.getCanonicalName();
-				}else if(permissionable instanceof Event){
-					type = Contentlet.class.getCanonicalName();
-				}else if(permissionable instanceof Identifier){
-					Permissionable perm = InodeFactory.getInode(permissionable.getPermissionId(), Inode.class);
-					Logger.error(this, "PermissionBitFactoryImpl :  loadPermissions Method : was passed an identifier. This is a problem. We will get inode as a fallback but this should be reported");
-					if(perm!=null){
-						if(perm instanceof HTMLPage){
-							type = HTMLPage.class.getCanonicalName();
-						}else if(perm instanceof Container){
-							type = Container.class.getCanonicalName();
-						}else if(perm instanceof File){
-							type = File.class.getCanonicalName();
-						}else if(perm instanceof Folder){
-							type = Folder.class.getCanonicalName();
-						}else if(perm instanceof Link){
-							type = Link.class.getCanonicalName();
-						}else if(perm instanceof Template){
-							type = Template.class.getCanonicalName();
-						}else if(perm instanceof Structure){
-							type = Structure.class.getCanonicalName();
-						}else if(perm instanceof Contentlet || perm instanceof Event){
-							type = Contentlet.class.getCanonicalName();
-						}
-					}
-				}
-
-				if(permissionable instanceof Template && UtilMethods.isSet(((Template) permissionable).isDrawed()) && ((Template) permissionable).isDrawed()) {
-					 type = Template.TEMPLATE_LAYOUTS_CANONICAL_NAME;
-				}
-				
-				if(permissionable instanceof NavResult) {
-				    type = ((NavResult)permissionable).getEnclosingPermissionClassName();
-				}
+				String type = getPermissionReferenceType(permissionable);
 
 				Permissionable parentPermissionable = permissionable.getParentPermissionable();
 				Permissionable newReference = null;
@@ -2545,6 +2819,58 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 
 	}
 
+	/**
+	 * Returns the permission type an asset inherits its permissions as, the type stored
+	 * along with its permission reference
+	 */
+	private String getPermissionReferenceType(Permissionable permissionable) {
+		String type = permissionable.getClass().getCanonicalName();
+		if(permissionable instanceof Host ||
+				(permissionable instanceof Contentlet &&
+						((Contentlet)permissionable).getStructure() != null &&
+						((Contentlet)permissionable).getStructure().getVelocityVarName() != null &&
+						((Contentlet)permissionable).getStructure().getVelocityVarName().equals("Host"))){
+			type = Host.class.getCanonicalName();
+		}else if(permissionable instanceof FileAsset ||
+		        (permissionable instanceof Contentlet &&
+		         ((Contentlet)permissionable).getStructure().getStructureType()==Structure.STRUCTURE_TYPE_FILEASSET)){
+		    type = File.class.getCanonicalName();
+		}else if(permissionable instanceof Event){
+			type = Contentlet.class.getCanonicalName();
+		}else if(permissionable instanceof Identifier){
+			Permissionable perm = InodeFactory.getInode(permissionable.getPermissionId(), Inode.class);
+			Logger.error(this, "PermissionBitFactoryImpl :  loadPermissions Method : was passed an identifier. This is a problem. We will get inode as a fallback but this should be reported");
+			if(perm!=null){
+				if(perm instanceof HTMLPage){
+					type = HTMLPage.class.getCanonicalName();
+				}else if(perm instanceof Container){
+					type = Container.class.getCanonicalName();
+				}else if(perm instanceof File){
+					type = File.class.getCanonicalName();
+				}else if(perm instanceof Folder){
+					type = Folder.class.getCanonicalName();
+				}else if(perm instanceof Link){
+					type = Link.class.getCanonicalName();
+				}else if(perm instanceof Template){
+					type = Template.class.getCanonicalName();
+				}else if(perm instanceof Structure){
+					type = Structure.class.getCanonicalName();
+				}else if(perm instanceof Contentlet || perm instanceof Event){
+					type = Contentlet.class.getCanonicalName();
+				}
+			}
+		}
+
+		if(permissionable instanceof Template && UtilMethods.isSet(((Template) permissionable).isDrawed()) && ((Template) permissionable).isDrawed()) {
+			 type = Template.TEMPLATE_LAYOUTS_CANONICAL_NAME;
+		}
+		
+		if(permissionable instanceof NavResult) {
+		    type = ((NavResult)permissionable).getEnclosingPermissionClassName();
+		}
+		return type;
+	}
+
 	private List<Permission> filterOnlyNonInheritablePermissions(List<Permission> permissions, String permissionableId) {
 		List<Permission> filteredList = new ArrayList<Permission>();
 		for(Permission p: permissions) {
@@ -2940,10 +3266,10 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 				for(Map<String, String> idToClear: idsToClear) {
 				    String ii=idToClear.get("inode");
 				    if(ii==null) ii=idToClear.get("id");
-					permissionCache.remove(ii);
+					removeFromPermissionCache(ii);
 				}
 			} else {
-				permissionCache.clearCache();
+				clearPermissionCache();
 			}
 
 			if(isHost) {
@@ -2991,38 +3317,48 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 
 		List<Permission> allPermissions = filterOnlyInheritablePermissions(loadPermissions(permissionable), permissionable.getPermissionId());
 
-		if(isHost && permissionable.getPermissionId().equals(systemHost.getPermissionId())) {
-			List<Host> allHosts;
-			try {
-				allHosts = hostAPI.findAll(systemUser, false);
-			} catch (DotSecurityException e) {
-				Logger.error(PermissionBitFactoryImpl.class, e.getMessage(), e);
-				throw new DotRuntimeException(e.getMessage(), e);
-			}
-			for(Host host : allHosts) {
-				if(!host.isSystemHost()) {
-
-					if(filterOnlyIndividualPermissions(loadPermissions(host), host.getPermissionId()).size() > 0) {
-						Permission inheritablePermission = filterInheritablePermission(allPermissions, permissionable
-								.getPermissionId(), Host.class.getCanonicalName(), role.getId());
-						int permission = 0;
-						if (inheritablePermission != null) {
-							permission = inheritablePermission.getPermission();
+		CascadeChunks chunks = new CascadeChunks(permissionable.getPermissionId(), role.getId());
+		try {
+			if(isHost && permissionable.getPermissionId().equals(systemHost.getPermissionId())) {
+				List<Host> allHosts;
+				try {
+					allHosts = hostAPI.findAll(systemUser, false);
+				} catch (DotSecurityException e) {
+					Logger.error(PermissionBitFactoryImpl.class, e.getMessage(), e);
+					throw new DotRuntimeException(e.getMessage(), e);
+				}
+				for(Host host : allHosts) {
+					if(!host.isSystemHost()) {
+
+						if(filterOnlyIndividualPermissions(loadPermissions(host), host.getPermissionId()).size() > 0) {
+							Permission inheritablePermission = filterInheritablePermission(allPermissions, permissionable
+									.getPermissionId(), Host.class.getCanonicalName(), role.getId());
+							int permission = 0;
+							if (inheritablePermission != null) {
+								permission = inheritablePermission.getPermission();
+							}
+							savePermission(new Permission(host.getPermissionId(), role.getId(), permission, true), host);
 						}
-						savePermission(new Permission(host.getPermissionId(), role.getId(), permission, true), host);
+						cascadePermissionUnder(host, role, permissionable, allPermissions, chunks);
 					}
-					cascadePermissionUnder(host, role, permissionable, allPermissions);
 				}
+			} else if(isHost || isFolder) {
+				cascadePermissionUnder(permissionable, role, permissionable, allPermissions, chunks);
 			}
-		} else if(isHost || isFolder) {
-			cascadePermissionUnder(permissionable, role, permissionable, allPermissions);
+			chunks.done();
+		} catch(DotDataException e) {
+			chunks.failed();
+			throw e;
+		} catch(RuntimeException e) {
+			chunks.failed();
+			throw e;
 		}
 		Logger.info(this, "Ending cascade role permissions for permissionable " + permissionable.getPermissionId() + " for role " + role.getId());
 
 	}
 
 	@SuppressWarnings("unchecked")
-	private void cascadePermissionUnder(Permissionable permissionable, Role role, Permissionable permissionsPermissionable, List<Permission> allPermissions) throws DotDataException {
+	private void cascadePermissionUnder(Permissionable permissionable, Role role, Permissionable permissionsPermissionable, List<Permission> allPermissions, CascadeChunks chunks) throws DotDataException {
 
 		boolean isHost = permissionable instanceof Host ||
 			(permissionable instanceof Contentlet && ((Contentlet)permissionable).getStructure().getVelocityVarName().equals("Host"));
@@ -3068,6 +3404,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 			dc.setSQL(selectChildrenTemplateWithIndividualPermissionsSQL);
 			dc.addParam(host.getPermissionId());
 			List<Map<String, String>> idsToUpdate = dc.loadResults();
+			chunks.found(idsToUpdate.size());
 			TemplateAPI templateAPI = APILocator.getTemplateAPI();
 			int permission = 0;
 			if (inheritablePermission != null) {
@@ -3083,6 +3420,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 					throw new DotRuntimeException(e.getMessage(), e);
 				}
 				savePermission(new Permission(id, role.getId(), permission, true), childPermissionable);
+				chunks.saved();
 			}
 
 			//Containers
@@ -3107,6 +3445,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 			dc.setSQL(selectChildrenContainerWithIndividualPermissionsSQL);
 			dc.addParam(host.getPermissionId());
 			idsToUpdate = dc.loadResults();
+			chunks.found(idsToUpdate.size());
 			ContainerAPI containerAPI = APILocator.getContainerAPI();
 			permission = 0;
 			if (inheritablePermission != null) {
@@ -3122,6 +3461,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 					throw new DotRuntimeException(e.getMessage(), e);
 				}
 				savePermission(new Permission(id, role.getId(), permission, true), childPermissionable);
+				chunks.saved();
 			}
 
 		}
@@ -3151,6 +3491,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		dc.addParam(isHost ? "%" : folderPath + "%");
 		dc.addParam(isHost ? " " : folderPath + "");
 		List<Map<String, String>> idsToUpdate = dc.loadResults();
+		chunks.found(idsToUpdate.size());
 		FolderAPI folderAPI = APILocator.getFolderAPI();
 		int permission = 0;
 		if (inheritablePermission != null) {
@@ -3165,6 +3506,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 			} catch (DotSecurityException e) {
 				Logger.error(this.getClass(), "Should not be getting a Permission Error with system user", e);
 			}
+			chunks.saved();
 
 		}
 
@@ -3193,6 +3535,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		dc.addParam(host.getPermissionId());
 		dc.addParam(isHost ? "%" : folderPath + "%");
 		idsToUpdate = dc.loadResults();
+		chunks.found(idsToUpdate.size());
 		HTMLPageAPI pageAPI = APILocator.getHTMLPageAPI();
 		permission = 0;
 		if (inheritablePermission != null) {
@@ -3208,6 +3551,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 				throw new DotRuntimeException(e.getMessage(), e);
 			}
 			savePermission(new Permission(id, role.getId(), permission, true), childPermissionable);
+			chunks.saved();
 		}
 
 		// File
@@ -3235,6 +3579,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		dc.addParam(host.getPermissionId());
 		dc.addParam(isHost ? "%" : folderPath + "%");
 		idsToUpdate = dc.loadResults();
+		chunks.found(idsToUpdate.size());
 		FileAPI fileAPI = APILocator.getFileAPI();
 		permission = 0;
 		if (inheritablePermission != null) {
@@ -3250,6 +3595,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 				throw new DotRuntimeException(e.getMessage(), e);
 			}
 			savePermission(new Permission(id, role.getId(), permission, true), childPermissionable);
+			chunks.saved();
 		}
 
 		// Links
@@ -3277,6 +3623,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		dc.addParam(host.getPermissionId());
 		dc.addParam(isHost ? "%" : folderPath + "%");
 		idsToUpdate = dc.loadResults();
+		chunks.found(idsToUpdate.size());
 		MenuLinkAPI linkAPI = APILocator.getMenuLinkAPI();
 		permission = 0;
 		if (inheritablePermission != null) {
@@ -3292,6 +3639,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 				throw new DotRuntimeException(e.getMessage(), e);
 			}
 			savePermission(new Permission(id, role.getId(), permission, true), childPermissionable);
+			chunks.saved();
 		}
 
 		// Contentlets
@@ -3319,6 +3667,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		dc.addParam(host.getPermissionId());
 		dc.addParam(isHost ? "%" : folderPath + "%");
 		idsToUpdate = dc.loadResults();
+		chunks.found(idsToUpdate.size());
 		ContentletAPI contentAPI = APILocator.getContentletAPI();
 		permission = 0;
 		if (inheritablePermission != null) {
@@ -3338,6 +3687,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 				Logger.error(PermissionBitFactoryImpl.class, e.getMessage(), e);
 				throw new DotRuntimeException(e.getMessage(), e);
 			}
+			chunks.saved();
 		}
 
 		// Structures
@@ -3367,6 +3717,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		dc.addParam(host.getPermissionId());
 		dc.addParam(host.getPermissionId());
 		idsToUpdate = dc.loadResults();
+		chunks.found(idsToUpdate.size());
 		permission = 0;
 		if (inheritablePermission != null) {
 			permission = inheritablePermission.getPermission();
@@ -3379,42 +3730,105 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 			//http://jira.dotmarketing.net/browse/DOTCMS-6090
 			//If a structure we need to save permissions inheritable by children content
 			savePermission(new Permission(Contentlet.class.getCanonicalName(), id, role.getId(), permission, true),childPermissionable);
+			chunks.saved();
 		}
 
 	}
 
+	@Override
+	Map<String, Integer> getCascadePermissionsProgress(String permissionableId, String roleId) {
+		AtomicInteger[] progress = cascadeProgress.get(permissionableId + ":" + roleId);
+		if(progress == null)
+			return null;
+		Map<String, Integer> map = new HashMap<String, Integer>();
+		map.put("processed", progress[0].get());
+		map.put("found", progress[1].get());
+		return map;
+	}
+
+	/*
+	 * Commits the children updated by a cascade every CASCADE_CHUNK_SIZE children, so a cascade over a big
+	 * tree doesn't hold its locks on the permission tables until it ends, and keeps track of its progress.
+	 * Chunks are only committed when the cascade started the transaction, inside the transaction of the caller
+	 * everything is committed by the caller. Running again a cascade that failed or was interrupted only
+	 * saves the children the committed chunks didn't get to, the ones already updated don't change.
+	 */
+	private class CascadeChunks {
+
+		private final String key;
+		private final boolean localTransaction;
+		private final AtomicInteger[] progress = new AtomicInteger[] { new AtomicInteger(), new AtomicInteger() };
+		private int pending = 0;
+
+		CascadeChunks(String permissionableId, String roleId) throws DotDataException {
+			key = permissionableId + ":" + roleId;
+			localTransaction = HibernateUtil.startLocalTransactionIfNeeded();
+			cascadeProgress.put(key, progress);
+		}
+
+		void found(int children) {
+			progress[1].addAndGet(children);
+		}
+
+		void saved() throws DotDataException {
+			int processed = progress[0].incrementAndGet();
+			if(localTransaction && ++pending >= CASCADE_CHUNK_SIZE) {
+				HibernateUtil.commitTransaction();
+				HibernateUtil.startTransaction();
+				pending = 0;
+				Logger.info(PermissionBitFactoryImpl.class, "Cascade role permissions for " + key + ": " + processed + " of " + progress[1].get() + " children updated");
+			}
+		}
+
+		void done() throws DotDataException {
+			cascadeProgress.remove(key);
+			if(localTransaction)
+				HibernateUtil.commitTransaction();
+		}
+
+		void failed() throws DotDataException {
+			cascadeProgress.remove(key);
+			if(localTransaction)
+				HibernateUtil.rollbackTransaction();
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	void resetChildrenPermissionReferences(Structure structure) throws DotDataException {
 	    ContentletAPI contAPI = APILocator.getContentletAPI();
-	    ContentletIndexAPI indexAPI=new ESContentletIndexAPI();
+	    final ContentletIndexAPI indexAPI=new ESContentletIndexAPI();
 
 	    DotConnect dc = new DotConnect();
 		dc.setSQL(deleteContentReferencesByStructureSQL);
 		dc.addParam(structure.getPermissionId());
 		dc.loadResult();
 
+		// scrolling keeps the hits stable while they are reindexed and doesn't re-sort
+		// the whole structure for every page
 		final int limit=500;
-		int offset=0;
-		List<Contentlet> contentlets;
-		do {
-			String query="structurename:"+structure.getVelocityVarName();
-			try {
-			    contentlets=contAPI.search(query, limit, offset, "identifier", APILocator.getUserAPI().getSystemUser(), false);
-            } catch (DotSecurityException e) {
-                throw new RuntimeException(e);
-            }
-
-			BulkRequestBuilder bulk=new ESClient().getClient().prepareBulk();
-			for(Contentlet cont : contentlets) {
-			    permissionCache.remove(cont.getPermissionId());
-			    indexAPI.addContentToIndex(cont, false, true, true, bulk);
-			}
-			if(bulk.numberOfActions()>0)
-			    bulk.execute().actionGet();
-
-			offset=offset+limit;
-		} while(contentlets.size()>0);
+		final BulkRequestBuilder[] bulk=new BulkRequestBuilder[] {new ESClient().getClient().prepareBulk()};
+		String query="structurename:"+structure.getVelocityVarName();
+		try {
+		    contAPI.scrollSearch(query, null, 0, 0, APILocator.getUserAPI().getSystemUser(), false, new ContentletHandler() {
+		        public boolean handle(Contentlet cont) throws DotDataException {
+		            removeFromPermissionCache(cont.getPermissionId());
+		            indexAPI.addContentToIndex(cont, false, true, true, bulk[0]);
+		            if(bulk[0].numberOfActions()>=limit) {
+		                bulk[0].execute().actionGet();
+		                bulk[0]=new ESClient().getClient().prepareBulk();
+		            }
+		            return true;
+		        }
+		    });
+		} catch (DotSecurityException e) {
+		    throw new RuntimeException(e);
+		}
+		if(bulk[0].numberOfActions()>0) {
+		    bulk[0].execute().actionGet();
+		}
+		// once for the whole structure, it is a cluster wide group flush
+		CacheLocator.getContentletSearchCache().invalidate();
 	}
 
 	@Override
@@ -3425,7 +3839,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		dc.addParam(permissionable.getPermissionId());
 		dc.loadResult();
 
-		permissionCache.remove(permissionable.getPermissionId());
+		removeFromPermissionCache(permissionable.getPermissionId());
 	}
 
 	@Override
@@ -3433,7 +3847,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		DotConnect dc = new DotConnect();
 		dc.setSQL(this.deleteAllPermissionReferencesSQL);
 		dc.loadResult();
-		permissionCache.clearCache();
+		clearPermissionCache();
 
 		// at least we need to regenerate for template and structure
 		HibernateUtil hu=new HibernateUtil(Template.class);
@@ -1,8 +1,16 @@
 package com.dotmarketing.business;
 
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.collections.map.LRUMap;
 
 import com.dotmarketing.beans.Permission;
+import com.dotmarketing.business.RoleCache.UserRoleSet;
+import com.dotmarketing.util.Config;
 
 //This interface should have default package access
 public abstract class PermissionCache implements Cachable{
@@ -12,8 +20,82 @@ public abstract class PermissionCache implements Cachable{
 
 	abstract protected List<Permission> getPermissionsFromCache(String key);
 
+	abstract protected PermissionMasks addToMasksCache(String key, PermissionMasks masks);
+
+	abstract protected PermissionMasks getMasksFromCache(String key);
+
 	abstract public void clearCache();
 
 	abstract protected void remove(String key);
 
+	/**
+	 * The bit permissions of a permissionable compiled into the mask of every role, and the masks
+	 * of the role sets most recently checked against them, so checking a user doesn't scan the permissions
+	 */
+	protected static class PermissionMasks implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private static final int MAX_ROLE_SETS = Config.getIntProperty("PERMISSION_ROLE_SET_MASKS_PER_ASSET", 100);
+		private final transient List<Permission> cached;
+		private final Map<String, Integer> roleMasks;
+		// role set id -> mask, the least recently checked sets are dropped past MAX_ROLE_SETS
+		@SuppressWarnings("unchecked")
+		private final Map<String, Integer> roleSetMasks = Collections.synchronizedMap(new LRUMap(MAX_ROLE_SETS));
+
+		private PermissionMasks(List<Permission> cached, Map<String, Integer> roleMasks) {
+			this.cached = cached;
+			this.roleMasks = roleMasks;
+		}
+
+		/**
+		 * @param cached the cached permissions list the permissions come from
+		 * @param permissions
+		 * @return null if some permission is not a bit permission
+		 */
+		protected static PermissionMasks compile(List<Permission> cached, List<Permission> permissions) {
+			Map<String, Integer> roleMasks = new HashMap<String, Integer>();
+			for (Permission p : permissions) {
+				if(!p.isBitPermission())
+					return null;
+				Integer mask = roleMasks.get(p.getRoleId());
+				roleMasks.put(p.getRoleId(), mask == null ? p.getPermission() : mask | p.getPermission());
+			}
+			return new PermissionMasks(cached, roleMasks);
+		}
+
+		/**
+		 * The cached permissions may be replaced without removing the masks
+		 * @return if these are the masks of the given cached permissions list
+		 */
+		protected boolean isCompiledFrom(List<Permission> cached) {
+			return cached != null && this.cached == cached;
+		}
+
+		protected boolean matches(String roleId, int permissionType) {
+			Integer mask = roleMasks.get(roleId);
+			return mask != null && (mask & permissionType) > 0;
+		}
+
+		protected boolean matches(UserRoleSet roles, int permissionType) {
+			Integer mask = roleSetMasks.get(roles.getId());
+			if(mask == null) {
+				int m = 0;
+				if(roleMasks.size() < roles.getRoleIds().length) {
+					for (Map.Entry<String, Integer> entry : roleMasks.entrySet()) {
+						if(roles.contains(entry.getKey()))
+							m |= entry.getValue();
+					}
+				} else {
+					for (String roleId : roles.getRoleIds()) {
+						Integer roleMask = roleMasks.get(roleId);
+						if(roleMask != null)
+							m |= roleMask;
+					}
+				}
+				mask = m;
+				roleSetMasks.put(roles.getId(), mask);
+			}
+			return (mask & permissionType) > 0;
+		}
+	}
+
 }
\ No newline at end of file
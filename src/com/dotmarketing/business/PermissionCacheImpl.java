@@ -23,9 +23,10 @@ public class PermissionCacheImpl extends PermissionCache {
 	
 	private String primaryGroup = "PermissionCache";
 	private String secondaryGroup = "ParentPermissionableCache";
+	private String masksGroup = "PermissionMasksCache";
 
 	// region's name for the cache
-    private String[] groupNames = {primaryGroup, secondaryGroup};
+    private String[] groupNames = {primaryGroup, secondaryGroup, masksGroup};
 
 	protected PermissionCacheImpl() {
         cache = CacheLocator.getCacheAdministrator();
@@ -57,6 +58,21 @@ public class PermissionCacheImpl extends PermissionCache {
         return perms;
     }
 
+    protected PermissionMasks addToMasksCache(String key, PermissionMasks masks) {
+        cache.put(masksGroup + key, masks, masksGroup);
+        return masks;
+    }
+
+    protected PermissionMasks getMasksFromCache(String key) {
+        PermissionMasks masks = null;
+        try{
+            masks = (PermissionMasks) cache.get(masksGroup + key, masksGroup);
+        }catch (DotCacheException e) {
+            Logger.debug(this,"Cache Entry not found", e);
+        }
+        return masks;
+    }
+
     /* (non-Javadoc)
 	 * @see com.dotmarketing.business.PermissionCache#clearCache()
 	 */
@@ -64,12 +80,18 @@ public class PermissionCacheImpl extends PermissionCache {
         // clear the cache
         cache.flushGroup(primaryGroup);
         cache.flushGroup(secondaryGroup);
+        cache.flushGroup(masksGroup);
     }
 
     /* (non-Javadoc)
 	 * @see com.dotmarketing.business.PermissionCache#remove(java.lang.String)
 	 */
     protected void remove(String key){
+    	try{
+	        cache.remove(masksGroup + key,masksGroup);
+    	}catch (Exception e) {
+			Logger.debug(this,e.getMessage(), e);
+		} 
     	key = primaryGroup + key;
     	try{
 	        cache.remove(key,primaryGroup);
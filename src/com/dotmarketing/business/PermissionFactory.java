@@ -127,6 +127,16 @@ public abstract class PermissionFactory {
      */
     abstract void addPermissionsToCache ( Permissionable permissionable ) throws DotDataException;
 
+    /**
+     * Loads the individual and referenced permissions of the given permissionables with a
+     * fixed number of queries and adds them to cache. Permissionables already in cache or
+     * without permissions are left to the single permissionable load.
+     *
+     * @param permissionables
+     * @throws DotDataException
+     */
+    abstract void addPermissionsToCache ( List<? extends Permissionable> permissionables ) throws DotDataException;
+
     /**
 	 * This method returns a list permission of all the permissionables passed as parameter,
 	 * it returns the compressed bit version of permissions, this method returns either the 
@@ -298,6 +308,14 @@ public abstract class PermissionFactory {
 	 */
 	abstract void cascadePermissionUnder(Permissionable permissionable, Role role) throws DotDataException;
 
+	/**
+	 * 
+	 * @param permissionableId
+	 * @param roleId
+	 * @return the children processed and found so far by the running cascade, null if it is not running
+	 */
+	abstract Map<String, Integer> getCascadePermissionsProgress(String permissionableId, String roleId);
+
 	/**
 	 * Removes the given permissionable permission references forcing the api to recalculate the reference
 	 * @param perm
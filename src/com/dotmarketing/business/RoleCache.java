@@ -1,6 +1,17 @@
 package com.dotmarketing.business;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.dotmarketing.util.UtilMethods;
 
 public abstract class RoleCache implements Cachable{
 
@@ -24,6 +35,27 @@ public abstract class RoleCache implements Cachable{
 
 	abstract protected List<UserRoleCacheHelper> getRoleIdsForUser(String userId);
 
+	/**
+	 * The compiled roles of the user are dropped with the rest of the user's roles
+	 * @param roleSet
+	 * @param userId
+	 * @return
+	 */
+	abstract protected UserRoleSet addRoleSetForUser(UserRoleSet roleSet, String userId);
+
+	abstract protected UserRoleSet getRoleSetForUser(String userId);
+
+	/**
+	 * The closure is local to each server, it is removed from all of them
+	 * @param closure
+	 * @return
+	 */
+	abstract protected RoleClosure addRoleClosure(RoleClosure closure);
+
+	abstract protected RoleClosure getRoleClosure();
+
+	abstract protected void removeRoleClosure();
+
 	abstract protected List<String> getLayoutsForRole(String roleId);
 
 	abstract protected List<Role> getRootRoles();
@@ -67,4 +99,209 @@ public abstract class RoleCache implements Cachable{
 			return inherited;
 		}
 	}
+
+	/**
+	 * The effective roles of a user, implicit ones included, compiled for permission checks.
+	 * The id is the same for every user with the same roles, so checks can be cached per role set.
+	 */
+	protected static class UserRoleSet implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final String id;
+		private final String[] roleIds;
+		private final Set<String> roleIdSet;
+		// the roles given to the user and the closures the set was built from
+		private final String[] assignedRoleIds;
+		private final String[][] closures;
+		private final boolean admin;
+		private final boolean frontEndOnly;
+
+		protected UserRoleSet(RoleClosure closure, Collection<String> assignedRoleIds, String adminRoleId, Collection<String> frontEndRoleIds){
+			TreeSet<String> assigned = new TreeSet<String>(assignedRoleIds);
+			this.assignedRoleIds = assigned.toArray(new String[assigned.size()]);
+			this.closures = new String[this.assignedRoleIds.length][];
+			String[] all = RoleClosure.NONE;
+			for(int i = 0; i < this.assignedRoleIds.length; i++) {
+				closures[i] = closure.get(this.assignedRoleIds[i]);
+				all = RoleClosure.union(all, closures[i] != null ? closures[i] : new String[] {this.assignedRoleIds[i]});
+			}
+			this.roleIds = all;
+			this.roleIdSet = new HashSet<String>(Arrays.asList(all));
+			this.id = UtilMethods.join(this.roleIds, ",");
+			this.admin = roleIdSet.contains(adminRoleId);
+			this.frontEndOnly = frontEndRoleIds.containsAll(roleIdSet);
+		}
+
+		/**
+		 * @return the sorted role ids joined
+		 */
+		protected String getId() {
+			return id;
+		}
+		/**
+		 * @return the sorted role ids, the array may be shared with other sets and must not be changed
+		 */
+		protected String[] getRoleIds() {
+			return roleIds;
+		}
+		/**
+		 * @return the sorted ids of the roles given to the user
+		 */
+		protected String[] getAssignedRoleIds() {
+			return assignedRoleIds;
+		}
+		protected boolean contains(String roleId) {
+			return roleIdSet.contains(roleId);
+		}
+		/**
+		 * @return if one of the roles is the CMS Administrator
+		 */
+		protected boolean isAdmin() {
+			return admin;
+		}
+		/**
+		 * @return if the user has front end roles only, or no roles at all
+		 */
+		protected boolean isFrontEndOnly() {
+			return frontEndOnly;
+		}
+		/**
+		 * @return false if the roles below one of the roles of the user changed in closure
+		 */
+		protected boolean isValid(RoleClosure closure) {
+			for(int i = 0; i < assignedRoleIds.length; i++) {
+				if(closure.get(assignedRoleIds[i]) != closures[i])
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Each role with the roles below it in the tree, as sorted arrays that are never changed.
+	 * A change to the tree makes a new closure, sharing the arrays of the roles it doesn't move.
+	 */
+	protected static class RoleClosure implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private static final String[] NONE = new String[0];
+		// role id -> parent id, null for the root roles
+		private final Map<String, String> parents;
+		// role id -> sorted ids of the role and all the roles below it
+		private final Map<String, String[]> closures;
+
+		/**
+		 * @param parents the parent of each role, null for the root roles
+		 */
+		protected RoleClosure(Map<String, String> parents) {
+			this.parents = parents;
+			this.closures = new HashMap<String, String[]>();
+			Map<String, List<String>> children = new HashMap<String, List<String>>();
+			for(Map.Entry<String, String> entry : parents.entrySet()) {
+				if(entry.getValue() == null)
+					continue;
+				List<String> list = children.get(entry.getValue());
+				if(list == null) {
+					list = new ArrayList<String>();
+					children.put(entry.getValue(), list);
+				}
+				list.add(entry.getKey());
+			}
+			for(String roleId : parents.keySet())
+				build(roleId, children, new HashSet<String>());
+		}
+
+		private RoleClosure(Map<String, String> parents, Map<String, String[]> closures) {
+			this.parents = parents;
+			this.closures = closures;
+		}
+
+		/**
+		 * @return the sorted ids of the role and the roles below it, null if the role is not known
+		 */
+		protected String[] get(String roleId) {
+			return closures.get(roleId);
+		}
+
+		/**
+		 * @return a closure where the role, new or not, is below parentId (null or the role itself for a root role)
+		 */
+		protected RoleClosure withParent(String roleId, String parentId) {
+			if(roleId.equals(parentId))
+				parentId = null;
+			Map<String, String> parents = new HashMap<String, String>(this.parents);
+			Map<String, String[]> closures = new HashMap<String, String[]>(this.closures);
+			String[] below = closures.get(roleId);
+			if(below == null) {
+				below = new String[] {roleId};
+				closures.put(roleId, below);
+			}
+			String oldParentId = parents.put(roleId, parentId);
+			for(String ancestor : ancestors(this.parents, oldParentId)) {
+				String[] closure = closures.get(ancestor);
+				if(closure != null)
+					closures.put(ancestor, minus(closure, below));
+			}
+			for(String ancestor : ancestors(parents, parentId))
+				closures.put(ancestor, union(closures.containsKey(ancestor) ? closures.get(ancestor) : new String[] {ancestor}, below));
+			return new RoleClosure(parents, closures);
+		}
+
+		private String[] build(String roleId, Map<String, List<String>> children, Set<String> visiting) {
+			String[] closure = closures.get(roleId);
+			if(closure != null)
+				return closure;
+			if(!visiting.add(roleId))
+				return new String[] {roleId};
+			TreeSet<String> below = new TreeSet<String>();
+			below.add(roleId);
+			List<String> list = children.get(roleId);
+			if(list != null) {
+				for(String child : list)
+					below.addAll(Arrays.asList(build(child, children, visiting)));
+			}
+			visiting.remove(roleId);
+			closure = below.toArray(new String[below.size()]);
+			closures.put(roleId, closure);
+			return closure;
+		}
+
+		private static List<String> ancestors(Map<String, String> parents, String parentId) {
+			List<String> ancestors = new ArrayList<String>();
+			while(parentId != null && !ancestors.contains(parentId)) {
+				ancestors.add(parentId);
+				parentId = parents.get(parentId);
+			}
+			return ancestors;
+		}
+
+		/**
+		 * @return the sorted ids in a or b, a or b themselves if one has all of them
+		 */
+		private static String[] union(String[] a, String[] b) {
+			List<String> merged = new ArrayList<String>(a.length + b.length);
+			int i = 0, j = 0;
+			while(i < a.length || j < b.length) {
+				int c = i == a.length ? 1 : j == b.length ? -1 : a[i].compareTo(b[j]);
+				if(c <= 0)
+					merged.add(a[i++]);
+				else
+					merged.add(b[j++]);
+				if(c == 0)
+					j++;
+			}
+			if(merged.size() == a.length)
+				return a;
+			if(merged.size() == b.length)
+				return b;
+			return merged.toArray(new String[merged.size()]);
+		}
+
+		private static String[] minus(String[] a, String[] b) {
+			List<String> left = new ArrayList<String>(a.length);
+			for(String roleId : a) {
+				if(Arrays.binarySearch(b, roleId) < 0)
+					left.add(roleId);
+			}
+			return left.toArray(new String[left.size()]);
+		}
+	}
 }
@@ -16,14 +16,20 @@ public class RoleCacheImpl extends RoleCache {
 
 	private String userGroup = "dotCMSUserRoleCache";
 
+	private String userRoleSetGroup = "dotCMSUserRoleSetCache";
+
+	private String roleClosureGroup = "dotCMSRoleClosureCache";
+
 	private String layoutGroup = "dotCMSLayoutCache";
 	
 	private String rootRolesGroup = "dotCMSRootRolesCache";
 	
 	private final String rootRoleKey = "ROOT";
 
+	private final String roleClosureKey = "CLOSURE";
+
 	// region's name for the cache
-	private String[] groupNames = {primaryGroup,userGroup,layoutGroup, rootRolesGroup};
+	private String[] groupNames = {primaryGroup,userGroup,layoutGroup, rootRolesGroup, userRoleSetGroup, roleClosureGroup};
 
 	public RoleCacheImpl() {
 		cache = CacheLocator.getCacheAdministrator();
@@ -93,9 +99,11 @@ public class RoleCacheImpl extends RoleCache {
 		// clear the cache
 		cache.flushGroup(primaryGroup);
 		cache.flushGroup(userGroup);
+		cache.flushGroup(userRoleSetGroup);
 		cache.flushGroup(keyGroup);
 		cache.flushGroup(layoutGroup);
 		cache.flushGroup(rootRolesGroup);
+		cache.flushGroup(roleClosureGroup);
 	}
 
 	/* (non-Javadoc)
@@ -105,6 +113,7 @@ public class RoleCacheImpl extends RoleCache {
 		try{
 			cache.remove(primaryGroup + key,primaryGroup);
 			cache.remove(userGroup + key,userGroup);
+			cache.remove(userRoleSetGroup + key,userRoleSetGroup);
 			cache.remove(keyGroup + key,keyGroup);
 			cache.flushGroup(rootRolesGroup);
 		}catch (Exception e) {
@@ -122,6 +131,9 @@ public class RoleCacheImpl extends RoleCache {
 	protected void clearRoleCache() {
 		cache.flushGroup(primaryGroup);
 		cache.flushGroup(keyGroup);
+		// the implicit roles of the users may have changed
+		cache.flushGroup(userRoleSetGroup);
+		cache.flushGroup(roleClosureGroup);
 	}
 
 	@Override
@@ -132,6 +144,7 @@ public class RoleCacheImpl extends RoleCache {
 	@Override
 	protected void clearUserRoleCache() {
 		cache.flushGroup(userGroup);
+		cache.flushGroup(userRoleSetGroup);
 	}
 
 	@Override
@@ -158,6 +171,49 @@ public class RoleCacheImpl extends RoleCache {
 		return l;
 	}
 
+	@Override
+	protected UserRoleSet getRoleSetForUser(String userId) {
+		UserRoleSet roleSet = null;
+		try {
+			roleSet = (UserRoleSet)cache.get(userRoleSetGroup + userId, userRoleSetGroup);
+		} catch (DotCacheException e) {
+			Logger.debug(this, "Cache not find role set for user in cache", e);
+		}
+		return roleSet;
+	}
+
+	@Override
+	protected UserRoleSet addRoleSetForUser(UserRoleSet roleSet, String userId) {
+		cache.put(userRoleSetGroup + userId, roleSet, userRoleSetGroup);
+		return roleSet;
+	}
+
+	@Override
+	protected RoleClosure getRoleClosure() {
+		RoleClosure closure = null;
+		try {
+			closure = (RoleClosure)cache.get(roleClosureKey, roleClosureGroup);
+		} catch (DotCacheException e) {
+			Logger.debug(this, "Cache not find role closure in cache", e);
+		}
+		return closure;
+	}
+
+	@Override
+	protected RoleClosure addRoleClosure(RoleClosure closure) {
+		cache.put(roleClosureKey, closure, roleClosureGroup);
+		return closure;
+	}
+
+	@Override
+	protected void removeRoleClosure() {
+		try{
+			cache.remove(roleClosureKey, roleClosureGroup);
+		}catch (Exception e) {
+			Logger.debug(this, "Cache not able to be removed", e);
+		}
+	}
+
 	@Override
 	protected List<String> addLayoutsToRole(List<String> layouts, String roleId) {
 		String key = layoutGroup + roleId;
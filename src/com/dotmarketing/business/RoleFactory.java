@@ -5,6 +5,7 @@ package com.dotmarketing.business;
 
 import java.util.List;
 
+import com.dotmarketing.business.RoleCache.UserRoleSet;
 import com.dotmarketing.exception.DotDataException;
 import com.liferay.portal.model.User;
 
@@ -61,6 +62,14 @@ public abstract class RoleFactory {
 	 * @throws DotDataException 
 	 */
 	protected abstract boolean doesUserHaveRole(User user, Role role) throws DotDataException;
+
+	/**
+	 * The roles of the user, implicit ones included, compiled once until they change
+	 * @param userId
+	 * @return
+	 * @throws DotDataException
+	 */
+	protected abstract UserRoleSet loadRoleSetForUser(String userId) throws DotDataException;
 	
 	protected abstract List<String> findUserIdsForRole(Role role,boolean includeInherited) throws DotDataException;
 	
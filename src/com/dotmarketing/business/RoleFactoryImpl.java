@@ -6,20 +6,23 @@ package com.dotmarketing.business;
 import java.lang.reflect.InvocationTargetException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
-import java.util.Set;
 
 import org.apache.commons.beanutils.BeanUtils;
 
+import com.dotmarketing.business.RoleCache.RoleClosure;
 import com.dotmarketing.business.RoleCache.UserRoleCacheHelper;
+import com.dotmarketing.business.RoleCache.UserRoleSet;
 import com.dotmarketing.common.db.DotConnect;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotHibernateException;
 import com.dotmarketing.util.AdminLogger;
 import com.dotmarketing.util.InodeUtils;
 import com.dotmarketing.util.Logger;
@@ -96,55 +99,13 @@ public class RoleFactoryImpl extends RoleFactory {
 	protected List<Role> loadRolesForUser(String userId, boolean includeImplicitRoles) throws DotDataException {
 		try {
 			List<Role> roles = new ArrayList<Role>();
-			List<UserRoleCacheHelper> helpers = rc.getRoleIdsForUser(userId);
-			if(helpers != null){
-				for (UserRoleCacheHelper h : helpers) {
-					if(includeImplicitRoles || !h.isInherited()){
-						Role r = getRoleById(h.getRoleId());
-						if(r != null){
-							roles.add(r);
-						}
-					}
-				}
-			}else{
-				helpers = new ArrayList<RoleCache.UserRoleCacheHelper>();
-				LinkedList<Role> rolesToProcess = new LinkedList<Role>();
-				Set<String> rids = new HashSet<String>();
-				DotConnect dc = new DotConnect();
-				dc.setSQL("select distinct role_id from users_cms_roles where users_cms_roles.user_id  = ?");
-				dc.addParam(userId);
-				List<Map<String,Object>> rows = dc.loadObjectResults();
-				for (Map<String, Object> map : rows) {
-					Role r = null;
-					try{
-						r = getRoleById(map.get("role_id").toString());
-					}catch (Exception e) {
-						Logger.error(this, e.getMessage() + " While loading the user with id " + userId == null? "not passed in":userId + " Unable to load role with roleid " + map.get("role_id").toString() == null? "null":map.get("role_id").toString(), e);
-					}
-					rids.add(r.getId());
-					rolesToProcess.add(r);
-				}
-
-				if(APILocator.getUserAPI().getAnonymousUser().getUserId().equals(userId)
-						&& !rolesToProcess.contains(APILocator.getRoleAPI().loadCMSAnonymousRole())){
-					rolesToProcess.add(APILocator.getRoleAPI().loadCMSAnonymousRole());
-				}
-				while(!rolesToProcess.isEmpty()) {
-					Role r = rolesToProcess.poll();
-					if(r ==null) continue;
-					UserRoleCacheHelper h = new UserRoleCacheHelper(r.getId(),rids.contains(r.getId())?false:true);
-					helpers.add(h);
-					if(includeImplicitRoles || rids.contains(r.getId())){
-						roles.add(r);
-					}
-					if(r.getRoleChildren() != null && includeImplicitRoles)
-						for(String roleId: r.getRoleChildren()) {
-							rolesToProcess.add(getRoleById(roleId));
-						}
+			String[] roleIds = includeImplicitRoles ? loadRoleSetForUser(userId).getRoleIds() : loadAssignedRoleIds(userId);
+			for (String roleId : roleIds) {
+				Role r = getRoleById(roleId);
+				if(r != null){
+					roles.add(r);
 				}
-				rc.addRoleListForUser(helpers, userId);
 			}
-
 			return roles;
 		} catch (Exception e) {
 			Logger.error(this,e.getMessage() + " Unable to load the user roles for user " + userId == null? "not passed in":userId, e);
@@ -152,6 +113,98 @@ public class RoleFactoryImpl extends RoleFactory {
 		}
 	}
 
+	@Override
+	protected UserRoleSet loadRoleSetForUser(String userId) throws DotDataException {
+		RoleClosure closure = loadRoleClosure();
+		UserRoleSet roleSet = rc.getRoleSetForUser(userId);
+		if(roleSet != null && roleSet.isValid(closure)){
+			return roleSet;
+		}
+		RoleAPI roleAPI = APILocator.getRoleAPI();
+		List<String> roleIds = new ArrayList<String>(Arrays.asList(loadAssignedRoleIds(userId)));
+		if(APILocator.getUserAPI().getAnonymousUser().getUserId().equals(userId)){
+			roleIds.add(roleAPI.loadCMSAnonymousRole().getId());
+		}
+		List<String> frontEndRoles = new ArrayList<String>(3);
+		frontEndRoles.add(roleAPI.loadCMSAnonymousRole().getId());
+		frontEndRoles.add(roleAPI.loadLoggedinSiteRole().getId());
+		frontEndRoles.add(roleAPI.loadRoleByKey("anonymous").getId());
+		return rc.addRoleSetForUser(new UserRoleSet(closure, roleIds, roleAPI.loadCMSAdminRole().getId(), frontEndRoles), userId);
+	}
+
+	/**
+	 * The ids of the roles given to the user in users_cms_roles
+	 */
+	private String[] loadAssignedRoleIds(String userId) throws DotDataException {
+		List<UserRoleCacheHelper> helpers = rc.getRoleIdsForUser(userId);
+		if(helpers == null){
+			helpers = new ArrayList<UserRoleCacheHelper>();
+			DotConnect dc = new DotConnect();
+			dc.setSQL("select distinct role_id from users_cms_roles where users_cms_roles.user_id  = ?");
+			dc.addParam(userId);
+			List<Map<String,Object>> rows = dc.loadObjectResults();
+			for (Map<String, Object> map : rows) {
+				helpers.add(new UserRoleCacheHelper(map.get("role_id").toString(), false));
+			}
+			rc.addRoleListForUser(helpers, userId);
+		}
+		List<String> roleIds = new ArrayList<String>(helpers.size());
+		for (UserRoleCacheHelper h : helpers) {
+			if(!h.isInherited()){
+				roleIds.add(h.getRoleId());
+			}
+		}
+		return roleIds.toArray(new String[roleIds.size()]);
+	}
+
+	/**
+	 * The roles below each role, loaded with a single query when they are not in cache
+	 */
+	private RoleClosure loadRoleClosure() throws DotDataException {
+		RoleClosure closure = rc.getRoleClosure();
+		if(closure == null){
+			synchronized (RoleClosure.class) {
+				closure = rc.getRoleClosure();
+				if(closure == null){
+					DotConnect dc = new DotConnect();
+					dc.setSQL("select id, parent from cms_role");
+					List<Map<String,Object>> rows = dc.loadObjectResults();
+					Map<String, String> parents = new HashMap<String, String>(rows.size() * 4 / 3 + 1);
+					for (Map<String, Object> map : rows) {
+						String id = map.get("id").toString();
+						Object parent = map.get("parent");
+						parents.put(id, parent == null || parent.toString().equals(id) ? null : parent.toString());
+					}
+					closure = rc.addRoleClosure(new RoleClosure(parents));
+				}
+			}
+		}
+		return closure;
+	}
+
+	/**
+	 * Once the transaction commits, moves the role below its parent in the closure.
+	 * The other servers drop their closure, as puts are local, and load it again.
+	 */
+	private void updateRoleClosure(final String roleId, final String parentId) {
+		try {
+			HibernateUtil.addCommitListener("roleclosure:" + roleId, new Runnable() {
+				public void run() {
+					synchronized (RoleClosure.class) {
+						RoleClosure closure = rc.getRoleClosure();
+						rc.removeRoleClosure();
+						if(closure != null){
+							rc.addRoleClosure(closure.withParent(roleId, parentId));
+						}
+					}
+				}
+			});
+		} catch (DotHibernateException e) {
+			Logger.warn(this, e.getMessage(), e);
+			rc.removeRoleClosure();
+		}
+	}
+
 
 	@Override
 	protected List<Role> getRolesByName(String filter, int start, int limit) throws DotDataException {
@@ -253,10 +306,12 @@ public class RoleFactoryImpl extends RoleFactory {
 		HibernateUtil hu = new HibernateUtil(Role.class);
 
 		Role r = null;
+		String oldParent = null;
 		if(InodeUtils.isSet(role.getId())) {
 			hu.setQuery("from com.dotmarketing.business.Role where id = ?");
 			hu.setParam(role.getId());
 			r = (Role)hu.load();
+			oldParent = r.getParent();
 			rc.remove(r.getId());
 			if(UtilMethods.isSet(r.getParent())) {
 				rc.remove(r.getParent());
@@ -337,6 +392,9 @@ public class RoleFactoryImpl extends RoleFactory {
 		if(r.getParent().equals(r.getId())){
 			rc.clearRootRoleCache();
 		}
+		if(!r.getParent().equals(oldParent)){
+			updateRoleClosure(r.getId(), r.getParent());
+		}
 		rc.add(r);
 		HibernateUtil.evict(r);
 		AdminLogger.log(RoleFactoryImpl.class, "save", "Role saved Id :"+r.getId());
@@ -347,6 +405,7 @@ public class RoleFactoryImpl extends RoleFactory {
 	@Override
 	protected void delete(Role role) throws DotDataException {
 
+		List<String> userIds = findUserIdsForRole(role);
 		DotConnect dc = new DotConnect();
 		dc.setSQL("delete from users_cms_roles where role_id = ?");
 		dc.addParam(role.getId());
@@ -362,6 +421,11 @@ public class RoleFactoryImpl extends RoleFactory {
 		}
 
 		rc.clearRoleCache();
+		if(userIds != null){
+			for (String userId : userIds) {
+				rc.remove(userId);
+			}
+		}
 
 		AdminLogger.log(RoleFactoryImpl.class, "delete", "Role deleted Id :"+r.getId());
 
@@ -545,29 +609,12 @@ public class RoleFactoryImpl extends RoleFactory {
 			return false;
 		}
 
-		List<UserRoleCacheHelper> helpers = rc.getRoleIdsForUser(user.getUserId());
-		List<String> roleIds = null;
-		if(helpers != null){
-			for (UserRoleCacheHelper helper : helpers) {
-				if(roleIds == null){
-					roleIds = new ArrayList<String>();
-				}
-				roleIds.add(helper.getRoleId());
-			}
-		}
-		if(roleIds == null){
-			List<Role> roles = new ArrayList<Role>();
-		    roles=loadRolesForUser(user.getUserId(),true);
-		    roleIds= new ArrayList<String>();
-		    for (Role r : roles) {
-				roleIds.add(r.getId());
-			}
-		}
-		if(roleIds != null && roleIds.contains(role.getId())){
+		UserRoleSet roleSet = loadRoleSetForUser(user.getUserId());
+		if(roleSet.contains(role.getId())){
 			return true;
 		}else{
 			Logger.debug(this,"User ("+user.getUserId()+") does not have the role ("+role.getId()+")");
-			Logger.debug(this, "User ("+user.getUserId()+") has roles: "+ roleIds ==null?"null":roleIds.toString());
+			Logger.debug(this, "User ("+user.getUserId()+") has roles: "+ roleSet.getId());
 			return false;
 		}
 	}
@@ -790,6 +837,7 @@ public class RoleFactoryImpl extends RoleFactory {
 		dc.loadResult();
 
 		rc.remove(user.getUserId());
+		updateRoleClosure(roleUUID, parent.getId());
 
 		return loadRoleByKey(user.getUserId());
 
@@ -645,6 +645,9 @@ public class RoleAjax {
 			if(role == null)
 				continue;
 			taskMap.put("role", role.toMap());
+			Map<String, Integer> progress = APILocator.getPermissionAPI().getCascadePermissionsProgress(permissionableId, roleId);
+			if(progress != null)
+				taskMap.put("progress", progress);
 			scheduled.add(taskMap);
 		}
 		return scheduled;
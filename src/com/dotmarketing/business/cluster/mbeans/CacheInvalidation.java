@@ -0,0 +1,45 @@
+package com.dotmarketing.business.cluster.mbeans;
+
+import com.dotmarketing.business.CacheInvalidationBatcher;
+
+public class CacheInvalidation implements CacheInvalidationMBean {
+
+	private final CacheInvalidationBatcher batcher;
+
+	public CacheInvalidation(CacheInvalidationBatcher batcher) {
+		this.batcher = batcher;
+	}
+
+	public long getQueued() {
+		return batcher.getQueued();
+	}
+
+	public long getSent() {
+		return batcher.getSent();
+	}
+
+	public long getBatchesSent() {
+		return batcher.getBatchesSent();
+	}
+
+	public long getCoalesced() {
+		return batcher.getCoalesced();
+	}
+
+	public long getGroupsCollapsed() {
+		return batcher.getGroupsCollapsed();
+	}
+
+	public long getReceived() {
+		return batcher.getReceived();
+	}
+
+	public long getBatchesReceived() {
+		return batcher.getBatchesReceived();
+	}
+
+	public long getFailed() {
+		return batcher.getFailed();
+	}
+
+}
@@ -0,0 +1,13 @@
+package com.dotmarketing.business.cluster.mbeans;
+
+public interface CacheInvalidationMBean {
+	public abstract long getQueued();
+	public abstract long getSent();
+	public abstract long getBatchesSent();
+	public abstract long getCoalesced();
+	public abstract long getGroupsCollapsed();
+	public abstract long getReceived();
+	public abstract long getBatchesReceived();
+	public abstract long getFailed();
+
+}
@@ -0,0 +1,45 @@
+package com.dotmarketing.business.mbeans;
+
+import com.dotmarketing.loggers.ClickstreamWriter;
+
+public class ClickstreamInfo implements ClickstreamInfoMBean {
+	private ClickstreamWriter writer;
+
+	public ClickstreamInfo(ClickstreamWriter writer) {
+		super();
+		this.writer = writer;
+	}
+
+	public long getQueued() {
+		return writer.getQueued();
+	}
+
+	public long getDropped() {
+		return writer.getDropped();
+	}
+
+	public long getWritten() {
+		return writer.getWritten();
+	}
+
+	public long getFailed() {
+		return writer.getFailed();
+	}
+
+	public long getOrphans() {
+		return writer.getOrphans();
+	}
+
+	public long getBuffered() {
+		return writer.getBuffered();
+	}
+
+	public int getBufferSize() {
+		return writer.getBufferSize();
+	}
+
+	public int getOpenStreams() {
+		return writer.getOpenStreams();
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.dotmarketing.business.mbeans;
+
+public interface ClickstreamInfoMBean {
+
+	public abstract long getQueued();
+
+	public abstract long getDropped();
+
+	public abstract long getWritten();
+
+	public abstract long getFailed();
+
+	public abstract long getOrphans();
+
+	public abstract long getBuffered();
+
+	public abstract int getBufferSize();
+
+	public abstract int getOpenStreams();
+}
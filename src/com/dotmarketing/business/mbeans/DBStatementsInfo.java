@@ -0,0 +1,56 @@
+package com.dotmarketing.business.mbeans;
+
+import com.dotmarketing.common.db.QueryStats;
+import com.dotmarketing.common.db.StatementCache;
+
+public class DBStatementsInfo implements DBStatementsInfoMBean {
+	private QueryStats stats;
+	private StatementCache cache;
+
+	public DBStatementsInfo(QueryStats stats, StatementCache cache) {
+		super();
+		this.stats = stats;
+		this.cache = cache;
+	}
+
+	public long getStatementCacheHits() {
+		return cache.getHits();
+	}
+
+	public long getStatementCacheMisses() {
+		return cache.getMisses();
+	}
+
+	public long getStatementCacheEvictions() {
+		return cache.getEvictions();
+	}
+
+	public long getReleasedConnections() {
+		return cache.getReleasedConnections();
+	}
+
+	public int getCachedConnections() {
+		return cache.getConnections();
+	}
+
+	public int getCachedStatements() {
+		return cache.getStatements();
+	}
+
+	public int getMaxStatementsPerConnection() {
+		return cache.getMaxStatements();
+	}
+
+	public int getTrackedQueries() {
+		return stats.getQueries();
+	}
+
+	public String printQueryStats(int top) {
+		return stats.print(top);
+	}
+
+	public void resetQueryStats() {
+		stats.reset();
+	}
+
+}
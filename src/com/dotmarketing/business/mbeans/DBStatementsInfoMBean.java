@@ -0,0 +1,29 @@
+package com.dotmarketing.business.mbeans;
+
+public interface DBStatementsInfoMBean {
+
+	public abstract long getStatementCacheHits();
+
+	public abstract long getStatementCacheMisses();
+
+	public abstract long getStatementCacheEvictions();
+
+	public abstract long getReleasedConnections();
+
+	public abstract int getCachedConnections();
+
+	public abstract int getCachedStatements();
+
+	public abstract int getMaxStatementsPerConnection();
+
+	public abstract int getTrackedQueries();
+
+	/**
+	 * Execution time histograms of the statements that took the most total time
+	 * @param top how many statements to print
+	 * @return
+	 */
+	public abstract String printQueryStats(int top);
+
+	public abstract void resetQueryStats();
+}
@@ -0,0 +1,41 @@
+package com.dotmarketing.business.mbeans;
+
+import com.dotmarketing.velocity.PageCacheCoordinator;
+
+public class PageCacheInfo implements PageCacheInfoMBean {
+	private PageCacheCoordinator coordinator;
+
+	public PageCacheInfo(PageCacheCoordinator coordinator) {
+		super();
+		this.coordinator = coordinator;
+	}
+
+	public long getHits() {
+		return coordinator.getHits();
+	}
+
+	public long getMisses() {
+		return coordinator.getMisses();
+	}
+
+	public long getRenders() {
+		return coordinator.getRenders();
+	}
+
+	public long getCoalescedWaits() {
+		return coordinator.getCoalescedWaits();
+	}
+
+	public long getStaleHits() {
+		return coordinator.getStaleHits();
+	}
+
+	public long getWaitTimeouts() {
+		return coordinator.getWaitTimeouts();
+	}
+
+	public int getRendersInFlight() {
+		return coordinator.getRendersInFlight();
+	}
+
+}
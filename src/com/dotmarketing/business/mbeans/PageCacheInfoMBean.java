@@ -0,0 +1,18 @@
+package com.dotmarketing.business.mbeans;
+
+public interface PageCacheInfoMBean {
+
+	public abstract long getHits();
+
+	public abstract long getMisses();
+
+	public abstract long getRenders();
+
+	public abstract long getCoalescedWaits();
+
+	public abstract long getStaleHits();
+
+	public abstract long getWaitTimeouts();
+
+	public abstract int getRendersInFlight();
+}
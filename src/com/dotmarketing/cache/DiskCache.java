@@ -0,0 +1,41 @@
+package com.dotmarketing.cache;
+
+import java.util.Set;
+
+/**
+ * Second level cache used by the cache administrator for the regions configured with
+ * <code>cache.&lt;group&gt;.disk=true</code>. Group and key names are passed in lower case.
+ */
+public interface DiskCache {
+
+	/**
+	 * Returns the object stored for the key or null if it is not on disk
+	 */
+	public Object get(String group, String key) throws Exception;
+
+	public void put(String group, String key, Object value) throws Exception;
+
+	public void remove(String group, String key) throws Exception;
+
+	/**
+	 * Removes every entry of the group
+	 */
+	public void removeGroup(String group) throws Exception;
+
+	public Set<String> getKeys(String group) throws Exception;
+
+	/**
+	 * Returns the groups that have entries on disk
+	 */
+	public Set<String> getGroups() throws Exception;
+
+	public long getGroupCount(String group);
+
+	/**
+	 * Forgets the objects that failed to serialize so they are tried again
+	 */
+	public void resetCannotCacheCache();
+
+	public void shutdown();
+
+}
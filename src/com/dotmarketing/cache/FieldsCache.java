@@ -125,12 +125,14 @@ public class FieldsCache {
         cache.remove(getPrimaryGroup() + st.getVelocityVarName(), getPrimaryGroup());
         cache.remove(getPrimaryGroup() + st.getVelocityVarName(), getPrimaryGroup());
         StructureCache.clearURLMasterPattern();
+        CacheLocator.getContentletCache().clearTranslatedQueries();
     }
 
 	public static void clearCache(){
 		DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
 	    cache.flushGroup(getPrimaryGroup());
 	    StructureCache.clearURLMasterPattern();
+	    CacheLocator.getContentletCache().clearTranslatedQueries();
 	}
     
 	public static String[] getGroups() {
@@ -172,6 +174,7 @@ public class FieldsCache {
         String id = field.getInode();
         cache.remove(getPrimaryGroup() + id,getPrimaryGroup());
         removeFieldVariables(field);
+        CacheLocator.getContentletCache().clearTranslatedQueries();
     } 
     
 	public static List<FieldVariable> getFieldVariables(Field field) {
@@ -0,0 +1,57 @@
+package com.dotmarketing.cache;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.cache.Fqn;
+
+/**
+ * {@link DiskCache} backed by the embedded H2 databases of the {@link H2CacheLoader}.
+ * Used unless CACHE_DISK_IMPLEMENTATION=mapped
+ */
+public class H2DiskCache implements DiskCache {
+
+	private final H2CacheLoader loader;
+
+	public H2DiskCache() throws Exception {
+		loader = H2CacheLoader.getInstance();
+	}
+
+	public Object get(String group, String key) throws Exception {
+		Map m = loader.get(new Fqn(group, key));
+		return (m == null) ? null : m.get(key);
+	}
+
+	public void put(String group, String key, Object value) throws Exception {
+		loader.put(new Fqn(group, key), key, value);
+	}
+
+	public void remove(String group, String key) throws Exception {
+		loader.remove(new Fqn(group, key), key);
+	}
+
+	public void removeGroup(String group) throws Exception {
+		loader.remove(new Fqn(group));
+	}
+
+	public Set<String> getKeys(String group) throws Exception {
+		return loader.getKeys(group);
+	}
+
+	public Set<String> getGroups() throws Exception {
+		return H2CacheLoader.getGroups();
+	}
+
+	public long getGroupCount(String group) {
+		return Long.parseLong(H2CacheLoader.getGroupCount(group));
+	}
+
+	public void resetCannotCacheCache() {
+		loader.resetCannotCacheCache();
+	}
+
+	public void shutdown() {
+		loader.destroy();
+	}
+
+}
@@ -14,6 +14,7 @@ import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotCacheAdministrator;
 import com.dotmarketing.business.DotCacheException;
 import com.dotmarketing.business.DotStateException;
+import com.dotmarketing.business.IdentifierAPI;
 import com.dotmarketing.business.Treeable;
 import com.dotmarketing.business.Versionable;
 import com.dotmarketing.exception.DotDataException;
@@ -40,6 +41,9 @@ import com.liferay.portal.model.User;
  *
  */
 public class LiveCache {
+
+    // page extension and the index page suffixes built from it
+    private static String[] indexSuffixes = new String[3];
     
     /**
      * This method adds the given asset uri to the cache using the 
@@ -152,6 +156,14 @@ public class LiveCache {
      * @throws DotStateException 
      */
 	public static String getPathFromCache(String URI, String hostId) throws DotStateException, DotDataException, DotSecurityException{
+		// a URI known to have no asset, nor index page under it, is answered without building any key
+		String[] index = getIndexSuffixes();
+		IdentifierAPI identifierAPI = APILocator.getIdentifierAPI();
+		if(index[0] != null && (URI.endsWith("/") ? identifierAPI.isURIMissing(hostId, URI, index[1])
+				: identifierAPI.isURIMissing(hostId, URI, null) && identifierAPI.isURIMissing(hostId, URI, index[2]))) {
+			return null;
+		}
+
 		DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
 		String _uri = null;
 		try{
@@ -251,6 +263,16 @@ public class LiveCache {
 		}
 	}
 	
+	private static String[] getIndexSuffixes() {
+		String ext = Config.getStringProperty("VELOCITY_PAGE_EXTENSION");
+		String[] suffixes = indexSuffixes;
+		if(ext != null && !ext.equals(suffixes[0])) {
+			suffixes = new String[] {ext, "index." + ext, "/index." + ext};
+			indexSuffixes = suffixes;
+		}
+		return suffixes;
+	}
+
 	public static void clearCache(String hostId){
 		DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
 	    //clear the cache
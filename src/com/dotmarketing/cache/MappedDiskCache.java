@@ -0,0 +1,724 @@
+package com.dotmarketing.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.collections.map.LRUMap;
+
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.ConfigUtils;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.RegEX;
+import com.dotmarketing.velocity.ResourceWrapper;
+import com.liferay.util.FileUtil;
+
+/**
+ * {@link DiskCache} that appends serialized entries to memory-mapped segment files under
+ * <code>dotsecure/mapped_cache</code> and finds them through an open addressing hash index
+ * kept in a direct (off-heap) buffer.
+ *
+ * <ul>
+ * <li>Each record holds the group, the key, the serialized value, a CRC of the value and the
+ * generation of the group when it was written. Flushing a group just bumps its generation, so
+ * older records are ignored on read and dropped the next time the index is rebuilt.</li>
+ * <li>Segments are CACHE_DISK_SEGMENT_SIZE MB each, up to 2 GB. When CACHE_DISK_MAX_SEGMENTS are in use the
+ * oldest one is dropped with all its entries.</li>
+ * <li>On startup the segments are replayed to rebuild the index, so nodes come up warm. Set
+ * CACHE_DISK_SHOULD_DELETE=true on clustered nodes to start with an empty disk cache instead.</li>
+ * </ul>
+ * Used when CACHE_DISK_IMPLEMENTATION=mapped
+ */
+public class MappedDiskCache implements DiskCache {
+
+	private static final int RECORD_MAGIC = 0xD07CA5E1;
+	private static final byte FLAG_PUT = 0;
+	private static final byte FLAG_REMOVE = 1;
+
+	// record header: magic, flags, group length, key length, value length, generation, value crc
+	private static final int MAGIC_OFFSET = 0;
+	private static final int FLAGS_OFFSET = 4;
+	private static final int GROUP_LENGTH_OFFSET = 5;
+	private static final int KEY_LENGTH_OFFSET = 9;
+	private static final int VALUE_LENGTH_OFFSET = 13;
+	private static final int GENERATION_OFFSET = 17;
+	private static final int CRC_OFFSET = 25;
+	private static final int HEADER_SIZE = 33;
+
+	// index slot: key hash (0 = empty), segment id (-1 = deleted), record offset
+	private static final int SLOT_SIZE = 16;
+
+	private static final String SEGMENT_SUFFIX = ".seg";
+	private static final String GENERATIONS_FILE = "generations.properties";
+
+	private static volatile MappedDiskCache instance;
+
+	private final File dir;
+	private final int segmentSize;
+	private final int maxSegments;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final TreeMap<Integer, Segment> segments = new TreeMap<Integer, Segment>();
+	private final ConcurrentHashMap<String, Long> generations = new ConcurrentHashMap<String, Long>();
+	private Map cannotCacheCache = Collections.synchronizedMap(new LRUMap(1000));
+
+	private final String templateExtension = Config.getStringProperty("VELOCITY_TEMPLATE_EXTENSION");
+	private final String containerExtension = Config.getStringProperty("VELOCITY_CONTAINER_EXTENSION");
+	private final String fieldExtension = Config.getStringProperty("VELOCITY_FIELD_EXTENSION");
+
+	private Segment current;
+	private ByteBuffer index;
+	private int capacity;
+	private int used;
+	private int live;
+
+	private static class Segment {
+		final int id;
+		final File file;
+		final RandomAccessFile raf;
+		final MappedByteBuffer buffer;
+		int position;
+
+		Segment(int id, File file, int size) throws IOException {
+			this.id = id;
+			this.file = file;
+			this.raf = new RandomAccessFile(file, "rw");
+			if (raf.length() < size) {
+				raf.setLength(size);
+			}
+			this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+
+		void close() {
+			try {
+				buffer.force();
+				raf.close();
+			} catch (IOException e) {
+				Logger.warn(MappedDiskCache.class, "Unable to close cache segment " + file + " : " + e.getMessage());
+			}
+			unmap(buffer);
+		}
+	}
+
+	public static MappedDiskCache getInstance() throws Exception {
+		if (instance == null) {
+			synchronized (MappedDiskCache.class) {
+				if (instance == null) {
+					instance = new MappedDiskCache();
+				}
+			}
+		}
+		return instance;
+	}
+
+	private MappedDiskCache() throws IOException {
+		dir = new File(ConfigUtils.getDynamicContentPath() + File.separator + "mapped_cache");
+		// computed in long, a size of 2048 MB or more doesn't fit in an int offset
+		segmentSize = (int) Math.min(Integer.MAX_VALUE, Math.max(1, Config.getIntProperty("CACHE_DISK_SEGMENT_SIZE", 64)) * 1024L * 1024L);
+		maxSegments = Math.max(2, Config.getIntProperty("CACHE_DISK_MAX_SEGMENTS", 16));
+
+		if (Config.getBooleanProperty("DIST_INDEXATION_ENABLED", false) && Config.getBooleanProperty("CACHE_DISK_SHOULD_DELETE", false)) {
+			Logger.info(this, "Deleting the disk cache, CACHE_DISK_SHOULD_DELETE is set");
+			FileUtil.deltree(dir, false);
+		}
+		dir.mkdirs();
+
+		int initial = 1;
+		while (initial < Config.getIntProperty("CACHE_DISK_INDEX_CAPACITY", 65536)) {
+			initial <<= 1;
+		}
+		capacity = initial;
+		index = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+
+		Logger.info(this, "Starting Disk Cache in " + dir.getAbsolutePath());
+		loadGenerations();
+		replay();
+		Logger.info(this, "Disk Cache Started, " + live + " entries in " + segments.size() + " segments");
+	}
+
+	public Object get(String group, String key) throws Exception {
+		if (!canSerialize(group, key)) {
+			return null;
+		}
+		byte[] g = toBytes(group);
+		byte[] k = toBytes(key);
+		long h = hash(g, k);
+		byte[] data;
+		long crc;
+		lock.readLock().lock();
+		try {
+			int slot = findSlot(h, g, k);
+			if (slot < 0) {
+				return null;
+			}
+			int pos = slot * SLOT_SIZE;
+			ByteBuffer b = segments.get(index.getInt(pos + 8)).buffer;
+			int offset = index.getInt(pos + 12);
+			if (b.getLong(offset + GENERATION_OFFSET) != generation(group)) {
+				// the group was flushed after this entry was written
+				return null;
+			}
+			data = new byte[b.getInt(offset + VALUE_LENGTH_OFFSET)];
+			crc = b.getLong(offset + CRC_OFFSET);
+			ByteBuffer d = b.duplicate();
+			d.position(offset + HEADER_SIZE + g.length + k.length);
+			d.get(data);
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		if (crc(data) != crc) {
+			Logger.debug(this, "Corrupted disk cache entry " + group + "/" + key);
+			remove(group, key);
+			return null;
+		}
+		try {
+			return deserialize(data);
+		} catch (Throwable e) {
+			Logger.debug(this, "Unable to unserialize object " + group + "/" + key, e);
+			remove(group, key);
+			cannotCacheCache.put(group + "/" + key, group + "/" + key);
+			return null;
+		}
+	}
+
+	public void put(String group, String key, Object value) throws Exception {
+		if (value == null || !canSerialize(group, key) || !canSerialize(group, key, value)) {
+			return;
+		}
+		String id = group + "/" + key;
+		if (cannotCacheCache.get(id) != null) {
+			return;
+		}
+		byte[] data;
+		try {
+			data = serialize(value);
+		} catch (Throwable e) {
+			Logger.debug(this, "Unable to serialize object " + id, e);
+			cannotCacheCache.put(id, id);
+			remove(group, key);
+			return;
+		}
+		byte[] g = toBytes(group);
+		byte[] k = toBytes(key);
+		if (HEADER_SIZE + g.length + k.length + data.length > segmentSize) {
+			cannotCacheCache.put(id, id);
+			remove(group, key);
+			return;
+		}
+		long h = hash(g, k);
+		long crc = crc(data);
+
+		lock.writeLock().lock();
+		try {
+			generations.putIfAbsent(group, 0L);
+			int offset = append(FLAG_PUT, g, k, data, generation(group), crc);
+			indexPut(h, g, k, current.id, offset);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(String group, String key) throws Exception {
+		byte[] g = toBytes(group);
+		byte[] k = toBytes(key);
+		long h = hash(g, k);
+		lock.writeLock().lock();
+		try {
+			int slot = findSlot(h, g, k);
+			if (slot >= 0) {
+				removeSlot(slot);
+				// the tombstone keeps the entry from coming back when the segments are replayed
+				append(FLAG_REMOVE, g, k, new byte[0], generation(group), 0);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void removeGroup(String group) throws Exception {
+		lock.writeLock().lock();
+		try {
+			generations.put(group, generation(group) + 1);
+			saveGenerations();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public Set<String> getKeys(String group) throws Exception {
+		Set<String> keys = new HashSet<String>();
+		byte[] g = toBytes(group);
+		long gen = generation(group);
+		lock.readLock().lock();
+		try {
+			for (int slot = 0; slot < capacity; slot++) {
+				int pos = slot * SLOT_SIZE;
+				if (index.getLong(pos) == 0 || index.getInt(pos + 8) < 0) {
+					continue;
+				}
+				ByteBuffer b = segments.get(index.getInt(pos + 8)).buffer;
+				int offset = index.getInt(pos + 12);
+				if (b.getLong(offset + GENERATION_OFFSET) == gen && bytesEqual(b, offset + HEADER_SIZE, g)) {
+					byte[] k = new byte[b.getInt(offset + KEY_LENGTH_OFFSET)];
+					ByteBuffer d = b.duplicate();
+					d.position(offset + HEADER_SIZE + g.length);
+					d.get(k);
+					keys.add(new String(k, "UTF-8"));
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return keys;
+	}
+
+	public Set<String> getGroups() {
+		return new HashSet<String>(generations.keySet());
+	}
+
+	public long getGroupCount(String group) {
+		try {
+			return getKeys(group).size();
+		} catch (Exception e) {
+			Logger.debug(this, e.getMessage(), e);
+			return 0;
+		}
+	}
+
+	public void resetCannotCacheCache() {
+		cannotCacheCache = Collections.synchronizedMap(new LRUMap(1000));
+	}
+
+	public void shutdown() {
+		lock.writeLock().lock();
+		try {
+			saveGenerations();
+			for (Segment s : segments.values()) {
+				s.close();
+			}
+			segments.clear();
+			current = null;
+			live = 0;
+			used = 0;
+			index = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		synchronized (MappedDiskCache.class) {
+			instance = null;
+		}
+	}
+
+	/**
+	 * Releases the mapping of a closed segment now instead of whenever the buffer gets garbage
+	 * collected, so dropped segments don't hold on to address space and deleted files.
+	 * The buffer must not be read afterwards, callers hold the write lock
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			// up to Java 8 the buffer exposes its cleaner
+			Method cleaner = buffer.getClass().getMethod("cleaner");
+			cleaner.setAccessible(true);
+			Object c = cleaner.invoke(buffer);
+			if (c != null) {
+				c.getClass().getMethod("clean").invoke(c);
+			}
+		} catch (Exception e) {
+			try {
+				// from Java 9 the cleaner is not accessible, Unsafe cleans the buffer instead
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+			} catch (Exception e2) {
+				Logger.debug(MappedDiskCache.class, "Unable to unmap cache segment, it is released when collected : " + e2.getMessage());
+			}
+		}
+	}
+
+	private long generation(String group) {
+		Long gen = generations.get(group);
+		return (gen == null) ? 0 : gen;
+	}
+
+	/**
+	 * Writes a record at the end of the current segment and returns its offset.
+	 * Caller must hold the write lock
+	 */
+	private int append(byte flags, byte[] g, byte[] k, byte[] data, long gen, long crc) throws IOException {
+		int length = HEADER_SIZE + g.length + k.length + data.length;
+		if (current == null || (long) current.position + length > segmentSize) {
+			roll();
+		}
+		int offset = current.position;
+		ByteBuffer d = current.buffer.duplicate();
+		d.position(offset + FLAGS_OFFSET);
+		d.put(flags);
+		d.putInt(g.length);
+		d.putInt(k.length);
+		d.putInt(data.length);
+		d.putLong(gen);
+		d.putLong(crc);
+		d.put(g);
+		d.put(k);
+		d.put(data);
+		// the magic goes last so a half written record is never replayed
+		current.buffer.putInt(offset + MAGIC_OFFSET, RECORD_MAGIC);
+		current.position += length;
+		return offset;
+	}
+
+	private void roll() throws IOException {
+		int id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+		while (segments.size() >= maxSegments) {
+			dropSegment(segments.firstKey());
+		}
+		current = new Segment(id, new File(dir, id + SEGMENT_SUFFIX), segmentSize);
+		segments.put(id, current);
+	}
+
+	private void dropSegment(int id) {
+		for (int slot = 0; slot < capacity; slot++) {
+			int pos = slot * SLOT_SIZE;
+			if (index.getLong(pos) != 0 && index.getInt(pos + 8) == id) {
+				removeSlot(slot);
+			}
+		}
+		Segment s = segments.remove(id);
+		s.close();
+		if (!s.file.delete()) {
+			Logger.warn(this, "Unable to delete cache segment " + s.file);
+		}
+	}
+
+	private int findSlot(long h, byte[] g, byte[] k) {
+		int mask = capacity - 1;
+		int slot = (int) (h ^ (h >>> 32)) & mask;
+		for (int probes = 0; probes < capacity; probes++) {
+			int pos = slot * SLOT_SIZE;
+			long slotHash = index.getLong(pos);
+			if (slotHash == 0) {
+				return -1;
+			}
+			if (slotHash == h) {
+				int seg = index.getInt(pos + 8);
+				if (seg >= 0 && matches(segments.get(seg).buffer, index.getInt(pos + 12), g, k)) {
+					return slot;
+				}
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void indexPut(long h, byte[] g, byte[] k, int seg, int offset) {
+		int existing = findSlot(h, g, k);
+		if (existing >= 0) {
+			index.putInt(existing * SLOT_SIZE + 8, seg);
+			index.putInt(existing * SLOT_SIZE + 12, offset);
+			return;
+		}
+		if ((used + 1) * 4 > capacity * 3) {
+			rehash(live * 8 > capacity * 3 ? capacity * 2 : capacity);
+		}
+		insert(h, seg, offset);
+	}
+
+	private void insert(long h, int seg, int offset) {
+		int mask = capacity - 1;
+		int slot = (int) (h ^ (h >>> 32)) & mask;
+		while (true) {
+			int pos = slot * SLOT_SIZE;
+			long slotHash = index.getLong(pos);
+			if (slotHash == 0 || index.getInt(pos + 8) < 0) {
+				if (slotHash == 0) {
+					used++;
+				}
+				index.putLong(pos, h);
+				index.putInt(pos + 8, seg);
+				index.putInt(pos + 12, offset);
+				live++;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private void removeSlot(int slot) {
+		index.putInt(slot * SLOT_SIZE + 8, -1);
+		live--;
+	}
+
+	/**
+	 * Rebuilds the index dropping deleted slots and entries of flushed groups
+	 */
+	private void rehash(int newCapacity) {
+		ByteBuffer old = index;
+		int oldCapacity = capacity;
+		index = ByteBuffer.allocateDirect(newCapacity * SLOT_SIZE);
+		capacity = newCapacity;
+		used = 0;
+		live = 0;
+		for (int slot = 0; slot < oldCapacity; slot++) {
+			int pos = slot * SLOT_SIZE;
+			long h = old.getLong(pos);
+			int seg = old.getInt(pos + 8);
+			if (h == 0 || seg < 0) {
+				continue;
+			}
+			int offset = old.getInt(pos + 12);
+			ByteBuffer b = segments.get(seg).buffer;
+			if (b.getLong(offset + GENERATION_OFFSET) != generation(readGroup(b, offset))) {
+				continue;
+			}
+			insert(h, seg, offset);
+		}
+	}
+
+	private void replay() throws IOException {
+		File[] files = dir.listFiles(new FilenameFilter() {
+			public boolean accept(File d, String name) {
+				return name.endsWith(SEGMENT_SUFFIX);
+			}
+		});
+		TreeMap<Integer, File> ordered = new TreeMap<Integer, File>();
+		for (File f : files) {
+			try {
+				ordered.put(Integer.parseInt(f.getName().substring(0, f.getName().length() - SEGMENT_SUFFIX.length())), f);
+			} catch (NumberFormatException e) {
+				Logger.warn(this, "Ignoring unknown file in disk cache " + f);
+			}
+		}
+		for (Map.Entry<Integer, File> e : ordered.entrySet()) {
+			if (e.getValue().length() != segmentSize) {
+				// written with a different CACHE_DISK_SEGMENT_SIZE
+				e.getValue().delete();
+				continue;
+			}
+			Segment s = new Segment(e.getKey(), e.getValue(), segmentSize);
+			segments.put(s.id, s);
+			ByteBuffer b = s.buffer;
+			int offset = 0;
+			while ((long) offset + HEADER_SIZE <= segmentSize && b.getInt(offset + MAGIC_OFFSET) == RECORD_MAGIC) {
+				int gl = b.getInt(offset + GROUP_LENGTH_OFFSET);
+				int kl = b.getInt(offset + KEY_LENGTH_OFFSET);
+				int vl = b.getInt(offset + VALUE_LENGTH_OFFSET);
+				int length = HEADER_SIZE + gl + kl + vl;
+				if (gl < 0 || kl < 0 || vl < 0 || (long) offset + gl + kl + vl + HEADER_SIZE > segmentSize) {
+					break;
+				}
+				String group = readGroup(b, offset);
+				byte[] g = toBytes(group);
+				byte[] k = new byte[kl];
+				ByteBuffer d = b.duplicate();
+				d.position(offset + HEADER_SIZE + gl);
+				d.get(k);
+				long h = hash(g, k);
+				if (b.get(offset + FLAGS_OFFSET) == FLAG_REMOVE) {
+					int slot = findSlot(h, g, k);
+					if (slot >= 0) {
+						removeSlot(slot);
+					}
+				} else if (b.getLong(offset + GENERATION_OFFSET) == generation(group)) {
+					generations.putIfAbsent(group, 0L);
+					indexPut(h, g, k, s.id, offset);
+				}
+				offset += length;
+			}
+			s.position = offset;
+			current = s;
+		}
+	}
+
+	private void loadGenerations() {
+		File f = new File(dir, GENERATIONS_FILE);
+		if (!f.exists()) {
+			return;
+		}
+		Properties p = new Properties();
+		InputStream in = null;
+		try {
+			in = new FileInputStream(f);
+			p.load(in);
+			for (String group : p.stringPropertyNames()) {
+				generations.put(group, Long.parseLong(p.getProperty(group)));
+			}
+		} catch (Exception e) {
+			Logger.warn(this, "Unable to read disk cache generations, starting empty : " + e.getMessage());
+			generations.clear();
+			FileUtil.deltree(dir, false);
+			dir.mkdirs();
+		} finally {
+			try {
+				if (in != null) {
+					in.close();
+				}
+			} catch (IOException e) {
+				Logger.debug(this, e.getMessage(), e);
+			}
+		}
+	}
+
+	private void saveGenerations() {
+		Properties p = new Properties();
+		for (Map.Entry<String, Long> e : generations.entrySet()) {
+			p.setProperty(e.getKey(), e.getValue().toString());
+		}
+		File tmp = new File(dir, GENERATIONS_FILE + ".tmp");
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(tmp);
+			p.store(out, null);
+			out.close();
+			out = null;
+			File f = new File(dir, GENERATIONS_FILE);
+			f.delete();
+			if (!tmp.renameTo(f)) {
+				Logger.warn(this, "Unable to save disk cache generations to " + f);
+			}
+		} catch (IOException e) {
+			Logger.warn(this, "Unable to save disk cache generations : " + e.getMessage());
+		} finally {
+			try {
+				if (out != null) {
+					out.close();
+				}
+			} catch (IOException e) {
+				Logger.debug(this, e.getMessage(), e);
+			}
+		}
+	}
+
+	private String readGroup(ByteBuffer b, int offset) {
+		byte[] g = new byte[b.getInt(offset + GROUP_LENGTH_OFFSET)];
+		ByteBuffer d = b.duplicate();
+		d.position(offset + HEADER_SIZE);
+		d.get(g);
+		try {
+			return new String(g, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private boolean matches(ByteBuffer b, int offset, byte[] g, byte[] k) {
+		if (b.getInt(offset + GROUP_LENGTH_OFFSET) != g.length || b.getInt(offset + KEY_LENGTH_OFFSET) != k.length) {
+			return false;
+		}
+		return bytesEqual(b, offset + HEADER_SIZE, g) && bytesEqual(b, offset + HEADER_SIZE + g.length, k);
+	}
+
+	private boolean bytesEqual(ByteBuffer b, int offset, byte[] bytes) {
+		for (int i = 0; i < bytes.length; i++) {
+			if (b.get(offset + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long hash(byte[] g, byte[] k) {
+		long h = 0xcbf29ce484222325L;
+		for (byte x : g) {
+			h = (h ^ x) * 0x100000001b3L;
+		}
+		h = (h ^ '/') * 0x100000001b3L;
+		for (byte x : k) {
+			h = (h ^ x) * 0x100000001b3L;
+		}
+		return (h == 0) ? 1 : h;
+	}
+
+	private static long crc(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		return crc.getValue();
+	}
+
+	private static byte[] toBytes(String s) {
+		try {
+			return s.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private byte[] serialize(Object value) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		OutputStream bout = Config.getBooleanProperty("USE_CACHE_COMPRESSION", false)
+				? new DeflaterOutputStream(os)
+				: new BufferedOutputStream(os, 8192);
+		ObjectOutputStream output = new ObjectOutputStream(bout);
+		output.writeObject(value);
+		output.close();
+		return os.toByteArray();
+	}
+
+	private Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+		InputStream is = new ByteArrayInputStream(data);
+		InputStream bin = Config.getBooleanProperty("USE_CACHE_COMPRESSION", false)
+				? new InflaterInputStream(is)
+				: new BufferedInputStream(is, 8192);
+		ObjectInputStream input = new ObjectInputStream(bin);
+		try {
+			return input.readObject();
+		} finally {
+			input.close();
+		}
+	}
+
+	private boolean canSerialize(String group, String key) {
+		if (group.startsWith("velocitymenucache")) {
+			return false;
+		}
+		if (group.startsWith("velocitycache")) {
+			if (!(key.contains("live") || key.contains("working"))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean canSerialize(String group, String key, Object value) {
+		if (Config.getBooleanProperty("SKIP_MACRO_CACHE", true) && "velocitycache".equals(group) && value instanceof ResourceWrapper) {
+			if (endsWith(key, containerExtension) || endsWith(key, templateExtension) || endsWith(key, fieldExtension)) {
+				ResourceWrapper w = (ResourceWrapper) value;
+				return !RegEX.contains(w.getResource().getData().toString(), "\\[#macro\\]");
+			}
+		}
+		return true;
+	}
+
+	private boolean endsWith(String key, String extension) {
+		return extension != null && key.endsWith(extension);
+	}
+
+}
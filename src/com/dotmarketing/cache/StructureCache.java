@@ -167,6 +167,7 @@ public class StructureCache {
         cache.remove(getPrimaryGroup() + inode,getPrimaryGroup());
         cache.remove(getPrimaryGroup() + structureName,getPrimaryGroup());
         clearURLMasterPattern();
+        CacheLocator.getContentletCache().clearTranslatedQueries();
     }
 
     public static String getURLMasterPattern() throws DotCacheException {
@@ -191,6 +192,7 @@ public class StructureCache {
 		DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
 	    //clear the cache
 	    cache.flushGroup(getPrimaryGroup());
+	    CacheLocator.getContentletCache().clearTranslatedQueries();
 	}
 	public static String[] getGroups() {
     	String[] groups = {getPrimaryGroup()};
@@ -30,6 +30,14 @@ public interface DistributedJournalAPI<T> {
 	 * @throws DotDataException
 	 */
 	public void addCacheEntry(String key, String group) throws DotDataException; 
+
+	/**
+	 * Will add the cache entries for all servers other then himself in the process table,
+	 * writing them in a single batch
+	 * @param entries key:group entries
+	 * @throws DotDataException
+	 */
+	public void addCacheEntries(List<String> entries) throws DotDataException;
 	
 	/**
 	 * Will return only the reindex entries for the specific server the code is executed on
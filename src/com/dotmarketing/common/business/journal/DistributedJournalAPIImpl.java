@@ -35,6 +35,10 @@ public class DistributedJournalAPIImpl<T> implements DistributedJournalAPI<T> {
 		distFac.addCacheEntry(key, group);
 	}
 
+	public void addCacheEntries(List<String> entries) throws DotDataException {
+		distFac.addCacheEntries(entries);
+	}
+
 	/* (non-Javadoc)
 	 * @see com.dotmarketing.business.DistributedJournalAPI#findCacheEntriesToRemove()
 	 */
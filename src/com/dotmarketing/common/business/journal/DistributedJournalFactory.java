@@ -45,6 +45,13 @@ public abstract class DistributedJournalFactory<T> {
 	 * @throws DotDataException
 	 */
 	protected abstract void addCacheEntry(String key, String group) throws DotDataException; 
+
+	/**
+	 * Will add the key:group cache entries for all servers other then himself, in one batch
+	 * @param entries
+	 * @throws DotDataException
+	 */
+	protected abstract void addCacheEntries(List<String> entries) throws DotDataException;
 	
 	/**
 	 * Will return only the reindex entries for the specific server the code is executed on
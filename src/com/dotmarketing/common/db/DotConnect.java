@@ -14,8 +14,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-
-import org.apache.commons.collections.map.LRUMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.caucho.quercus.lib.db.Oracle;
 import com.dotmarketing.db.DbConnectionFactory;
@@ -33,8 +33,6 @@ import com.dotmarketing.util.Logger;
  */
 public class DotConnect {
     
-	private static Map<Connection, Map<String, PreparedStatement>> stmts = new LRUMap(200);
-	
 	ArrayList<Object> paramList;
 
     ArrayList<Object> results;
@@ -51,8 +49,32 @@ public class DotConnect {
 
     int startRow = 0;
     
+    int fetchSize = -1;
+    
     boolean forceQuery=false;
 
+    List<Object[]> batch;
+
+    int batchSize = -1;
+
+    int[] batchCounts;
+
+    int batchCountSize;
+
+    int batchStatements;
+
+    /**
+     * Most parameters sent in a single multi row insert, postgres takes up to 32767
+     */
+    private static final int MAX_MULTI_ROW_PARAMS = 30000;
+
+    /**
+     * insert into ... values (...) with a single row of values, function calls like
+     * nextval('seq') are allowed in the row
+     */
+    private static final Pattern MULTI_ROW_INSERT = Pattern.compile("^(\\s*insert\\s+into\\s+.+?(?:\\s|\\))values\\s*)(\\((?:[^()]|\\([^()]*\\))*\\))\\s*;?\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
     public DotConnect() {
         Logger.debug(this, "------------ DotConnect() --------------------");
     }
@@ -255,23 +277,27 @@ public class DotConnect {
     }
 
     public void setSQL(String x) {
+        if (batch != null && !batch.isEmpty()) {
+            Logger.warn(this, "Discarding " + batch.size() + " batched parameter sets not executed for: " + SQL);
+        }
         cursor = 0;
         gotResult = false;
         paramList = new ArrayList<Object>();
         SQL = x;
         startRow = 0;
         maxRows = -1;
+        fetchSize = -1;
+        batch = null;
+        batchCounts = null;
+        batchCountSize = 0;
+        batchStatements = 0;
         
         Logger.debug(this, "setSQL: " + x);
     }
     
     public void setSQL(String x, int limit) {
         if(DbConnectionFactory.isMsSql()){
-        	x = x.trim();
-            if(x.startsWith("select distinct"))
-                setSQL(x.replaceFirst("select distinct", "select distinct top "+limit+" "));
-            else
-                setSQL(x.replaceFirst("select", "select top "+limit+" "));
+            setSQL(topSQL(x, limit));
         }
         else if(DbConnectionFactory.isOracle()) {
             setSQL("select * from ("+x+") where rownum<="+limit);
@@ -281,6 +307,14 @@ public class DotConnect {
         }
     }
 
+    private static String topSQL(String x, int limit) {
+        x = x.trim();
+        if(x.startsWith("select distinct"))
+            return x.replaceFirst("select distinct", "select distinct top "+limit+" ");
+        else
+            return x.replaceFirst("select", "select top "+limit+" ");
+    }
+
     public String getSQL() {
         return SQL;
     }
@@ -352,6 +386,298 @@ public class DotConnect {
         return (results != null) ? results : new ArrayList();
     }
     
+    /**
+     * Sets how many rows {@link #loadResults(RowHandler)} reads from the database at a time.
+     * Defaults to DB_CURSOR_FETCH_SIZE.
+     * 
+     * @param fetchSize
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Streams the rows of the query to the handler as they are read instead of loading
+     * them all in memory. See {@link #loadResults(Connection, RowHandler)}.
+     * 
+     * @param handler
+     * @return number of rows handled
+     * @throws DotDataException
+     */
+    public int loadResults(RowHandler handler) throws DotDataException {
+        return loadResults(DbConnectionFactory.getConnection(), handler);
+    }
+
+    /**
+     * Streams the rows of the query to the handler as they are read instead of loading
+     * them all in memory. Rows are fetched from the database in blocks of
+     * {@link #setFetchSize(int)} rows and the column metadata is resolved once.
+     * 
+     * When a start row or max rows are set the query is paged by the database (limit and
+     * offset, rownum on Oracle and top on MSSQL) instead of skipping the rows here, so the
+     * SQL has to be a plain select. MSSQL still skips the first rows here when a start row
+     * is set.
+     * 
+     * On Postgres the rows are only fetched in blocks inside a transaction so when the
+     * connection is in auto commit mode it is turned off while the rows are read. MySQL
+     * only honors the fetch size when the connection url has useCursorFetch=true.
+     * 
+     * The results are not kept so {@link #loadResults()} and {@link #getString(String)}
+     * don't see them.
+     * 
+     * @param conn
+     * @param handler
+     * @return number of rows handled
+     * @throws DotDataException
+     */
+    public int loadResults(Connection conn, RowHandler handler) throws DotDataException {
+        String sql = pagedSQL();
+        int skip = sql.equals(SQL) ? startRow : 0;
+        // the oracle paged query adds the rownum column at the end
+        int hiddenColumns = DbConnectionFactory.isOracle() && startRow > 0 ? 1 : 0;
+        if("true".equals(System.getProperty("hibernate.show_sql"))){
+            Logger.info(this.getClass(), sql + " params:" + paramList);
+        }
+
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        boolean restoreAutoCommit = false;
+        int count = 0;
+        try {
+            if (DbConnectionFactory.isPostgres() && conn.getAutoCommit()) {
+                conn.setAutoCommit(false);
+                restoreAutoCommit = true;
+            }
+            statement = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize > 0 ? fetchSize : Config.getIntProperty("DB_CURSOR_FETCH_SIZE", 500));
+            for (int i = 0; i < paramList.size(); i++) {
+                statement.setObject(i + 1, paramList.get(i));
+            }
+            long before = System.nanoTime();
+            rs = statement.executeQuery();
+            QueryStats.getInstance().record(sql, System.nanoTime() - before);
+            ResultRow row = new ResultRow(rs, rs.getMetaData().getColumnCount() - hiddenColumns);
+            for (int i = 0; i < skip && rs.next(); i++);
+            while ((maxRows <= 0 || count < maxRows) && rs.next()) {
+                row.next();
+                count++;
+                if (!handler.handle(row)) {
+                    break;
+                }
+            }
+        } catch (SQLException e) {
+            throw new DotDataException(e.getMessage(), e);
+        } finally {
+            try { if (rs != null) rs.close(); } catch (Exception e) { }
+            try { if (statement != null) statement.close(); } catch (Exception e) { }
+            if (restoreAutoCommit) {
+                try {
+                    conn.commit();
+                    conn.setAutoCommit(true);
+                } catch (Exception e) {
+                    Logger.error(this, e.getMessage(), e);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the SQL with the start row and max rows applied by the database or the SQL
+     * itself when they are not set or can't be applied
+     */
+    private String pagedSQL() {
+        if (startRow <= 0 && maxRows <= 0) {
+            return SQL;
+        }
+        if (DbConnectionFactory.isMsSql()) {
+            return startRow <= 0 ? topSQL(SQL, maxRows) : SQL;
+        } else if (DbConnectionFactory.isOracle()) {
+            if (startRow <= 0) {
+                return "select * from (" + SQL + ") where rownum<=" + maxRows;
+            }
+            return "select * from (select paged_.*, rownum rownum_ from (" + SQL + ") paged_"
+                    + (maxRows > 0 ? " where rownum<=" + (startRow + maxRows) : "") + ") where rownum_>" + startRow;
+        } else if (DbConnectionFactory.isMySql()) {
+            // mysql has no offset without a limit, this is the largest one it takes
+            return SQL + " limit " + startRow + "," + (maxRows > 0 ? Integer.toString(maxRows) : "18446744073709551615");
+        } else {
+            return SQL + (maxRows > 0 ? " limit " + maxRows : "") + (startRow > 0 ? " offset " + startRow : "");
+        }
+    }
+
+    /**
+     * Sets how many parameter sets {@link #addBatch()} keeps before sending them to the
+     * database. Defaults to DB_BATCH_SIZE.
+     * 
+     * @param batchSize
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize > 0 ? batchSize : Config.getIntProperty("DB_BATCH_SIZE", 500);
+    }
+
+    /**
+     * Adds the parameters added since the last call to the batch of the current SQL and
+     * starts a new parameter set. See {@link #addBatch(Connection)}.
+     * 
+     * @throws DotDataException
+     */
+    public void addBatch() throws DotDataException {
+        addBatch(DbConnectionFactory.getConnection());
+    }
+
+    /**
+     * Adds the parameters added since the last call to the batch of the current SQL and
+     * starts a new parameter set. Every {@link #getBatchSize()} parameter sets the batch is
+     * sent to the database on the given connection, {@link #executeBatch(Connection)} sends
+     * the rest. The statements run in the transaction of the connection, nothing is
+     * committed here.
+     * 
+     * On Postgres and MySQL a plain insert ... values (?, ...) is sent as a single insert
+     * with one row of values per parameter set, other statements and databases use a
+     * JDBC batch.
+     * 
+     * @param conn
+     * @throws DotDataException
+     */
+    public void addBatch(Connection conn) throws DotDataException {
+        if (batch == null) {
+            batch = new ArrayList<Object[]>();
+        }
+        batch.add(paramList.toArray());
+        paramList = new ArrayList<Object>();
+        if (batch.size() >= getBatchSize()) {
+            flushBatch(conn);
+        }
+    }
+
+    /**
+     * Sends the pending batch, see {@link #executeBatch(Connection)}
+     * 
+     * @return update counts of every parameter set added since the SQL was set
+     * @throws DotDataException
+     */
+    public int[] executeBatch() throws DotDataException {
+        return executeBatch(DbConnectionFactory.getConnection());
+    }
+
+    /**
+     * Sends the parameter sets still pending to the database.
+     * 
+     * @param conn
+     * @return update counts of every parameter set added since the SQL was set, in order.
+     *         {@link Statement#SUCCESS_NO_INFO} when the database doesn't tell the count
+     *         of each row.
+     * @throws DotDataException
+     */
+    public int[] executeBatch(Connection conn) throws DotDataException {
+        flushBatch(conn);
+        int[] counts = new int[batchCountSize];
+        if (batchCounts != null) {
+            System.arraycopy(batchCounts, 0, counts, 0, batchCountSize);
+        }
+        batchCounts = null;
+        batchCountSize = 0;
+        return counts;
+    }
+
+    /**
+     * @return statements sent to the database for the batch of the current SQL
+     */
+    public int getBatchStatements() {
+        return batchStatements;
+    }
+
+    private void flushBatch(Connection conn) throws DotDataException {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        PreparedStatement statement = null;
+        try {
+            Matcher insert = (DbConnectionFactory.isPostgres() || DbConnectionFactory.isMySql()) ? MULTI_ROW_INSERT.matcher(SQL) : null;
+            if (insert != null && insert.matches() && sameParamCount(insert.group(2))) {
+                int paramsPerRow = batch.get(0).length;
+                int rowsPerStatement = Math.max(1, MAX_MULTI_ROW_PARAMS / Math.max(1, paramsPerRow));
+                for (int from = 0; from < batch.size(); from += rowsPerStatement) {
+                    List<Object[]> rows = batch.subList(from, Math.min(from + rowsPerStatement, batch.size()));
+                    StringBuilder sql = new StringBuilder(insert.group(1));
+                    for (int i = 0; i < rows.size(); i++) {
+                        sql.append(i == 0 ? "" : ",").append(insert.group(2));
+                    }
+                    statement = conn.prepareStatement(sql.toString());
+                    int index = 1;
+                    for (Object[] row : rows) {
+                        for (Object param : row) {
+                            statement.setObject(index++, param);
+                        }
+                    }
+                    int count = statement.executeUpdate();
+                    statement.close();
+                    statement = null;
+                    batchStatements++;
+                    for (int i = 0; i < rows.size(); i++) {
+                        addBatchCount(count == rows.size() ? 1 : Statement.SUCCESS_NO_INFO);
+                    }
+                }
+            } else {
+                statement = conn.prepareStatement(SQL);
+                for (Object[] row : batch) {
+                    for (int i = 0; i < row.length; i++) {
+                        statement.setObject(i + 1, row[i]);
+                    }
+                    statement.addBatch();
+                }
+                int[] counts = statement.executeBatch();
+                batchStatements++;
+                for (int count : counts) {
+                    addBatchCount(count);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DotDataException(e.getMessage() + " SQL: " + SQL, e);
+        } finally {
+            try { if (statement != null) statement.close(); } catch (Exception e) { }
+            batch.clear();
+        }
+    }
+
+    /**
+     * True when every parameter set fills the placeholders of the values row
+     */
+    private boolean sameParamCount(String values) {
+        int placeholders = 0;
+        for (int i = 0; i < values.length(); i++) {
+            if (values.charAt(i) == '?') {
+                placeholders++;
+            }
+        }
+        for (Object[] row : batch) {
+            if (row.length != placeholders) {
+                return false;
+            }
+        }
+        return placeholders > 0;
+    }
+
+    private void addBatchCount(int count) {
+        if (batchCounts == null) {
+            batchCounts = new int[Math.max(16, batch.size())];
+        } else if (batchCountSize == batchCounts.length) {
+            int[] grown = new int[batchCounts.length * 2];
+            System.arraycopy(batchCounts, 0, grown, 0, batchCountSize);
+            batchCounts = grown;
+        }
+        batchCounts[batchCountSize++] = count;
+    }
+
     /**
      * Returns the results.
      * @deprecated - loadResults as it doesn't swallow the excpetion. 
@@ -517,32 +843,9 @@ public class DotConnect {
 	        long afterPreparation = 0;
 	        if(SQL.contains("?")){
 	        	if (cachePreparedStatement) {
-	        		Map<String,PreparedStatement> m = null;
-		        	Connection rconn = conn.getMetaData().getConnection();
-		        	m = stmts.get(rconn);
-		        	if(m!=null){
-		        		if (starter.toLowerCase().trim().indexOf("call")!=-1) {
-		        		   statement = (CallableStatement)m.get(SQL);
-		        		}else{
-		        			statement = m.get(SQL);
-		        		}
-		        	}else{
-		        		m = new HashMap<String, PreparedStatement>();
-		        		synchronized (stmts) {
-		        			stmts.put(rconn, m);
-		        		}
-		        	}
-		        	if(statement == null){
-		        		beforePreparation = System.nanoTime();
-		        		if (starter.toLowerCase().trim().indexOf("call")!=-1) {
-		        		  statement = (CallableStatement)conn.prepareCall(SQL);
-		        		}else{
-		        		  statement = rconn.prepareStatement(SQL);
-		        		}
-		        		m.put(SQL, statement);
-		        		afterPreparation = System.nanoTime();
-		        	}
-		        	
+	        		beforePreparation = System.nanoTime();
+	        		statement = StatementCache.getInstance().prepare(conn, SQL, starter.toLowerCase().trim().indexOf("call")!=-1);
+	        		afterPreparation = System.nanoTime();
 	        	} else {
 	        		beforePreparation = System.nanoTime();
 	        		if (starter.toLowerCase().trim().indexOf("call")!=-1) {
@@ -597,22 +900,15 @@ public class DotConnect {
 	        }
 
 			long after = System.nanoTime();
-			if((float)((after - before) / 1000000F) > 1000F) {
-				Logger.debug(this, "Somewhat slow query, " +
+			QueryStats.getInstance().record(SQL, after - before);
+			if(QueryStats.getInstance().isSlow(after - before)) {
+				Logger.warn(this, "Slow query, " +
 						"total time: " + ((float)(after - before) / 1000000F) +
 						"ms, query preparation time: " + ((float)(afterPreparation - beforePreparation) / 1000000F) + 
 						"ms, query execution time: " + ((float)(afterQueryExecution - beforeQueryExecution) / 1000000F) + 
 						"ms, metadata time: " + ((float)(afterMetadata - beforeMetadata) / 1000000F) + 
 						"ms, SQL: " + SQL + ", parameters: " + paramList.toString());
 			}
-				if((float)((after - before) / 1000000F) > 3000F) {
-					Logger.warn(this, "Somewhat slow query, " +
-							"total time: " + ((float)(after - before) / 1000000F) +
-							"ms, query preparation time: " + ((float)(afterPreparation - beforePreparation) / 1000000F) + 
-							"ms, query execution time: " + ((float)(afterQueryExecution - beforeQueryExecution) / 1000000F) + 
-							"ms, metadata time: " + ((float)(afterMetadata - beforeMetadata) / 1000000F) + 
-							"ms, SQL: " + SQL + ", parameters: " + paramList.toString());
-			}
 			
 	        if (rs != null) {
 	            //move to the starter row
@@ -673,6 +969,13 @@ public class DotConnect {
 	                i++;
 	            }
 	        }
+        } catch (SQLException e) {
+        	if (cachePreparedStatement && statement != null) {
+        		// a statement that failed may be unusable, prepare it again next time
+        		StatementCache.getInstance().remove(conn, SQL);
+        		statement = null;
+        	}
+        	throw e;
         } finally {
         	try { if (rs != null) rs.close(); } catch (Exception e) { }
         	try { if (stmt != null) stmt.close(); } catch (Exception e) { }
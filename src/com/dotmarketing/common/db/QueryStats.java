@@ -0,0 +1,228 @@
+package com.dotmarketing.common.db;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.collections.map.LRUMap;
+
+import com.dotmarketing.business.mbeans.DBStatementsInfo;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Execution time histograms of the statements run by {@link DotConnect}, by SQL.
+ * String and number literals are replaced by ?, in lists and multi-row values by a single
+ * one, so the statements that inline their values are counted together.
+ *
+ * Up to DB_QUERY_STATS_MAX_QUERIES different statements are tracked, the ones seen after
+ * that are added up under {@link #OTHER_QUERIES}. Statements slower than
+ * DB_SLOW_QUERY_MILLIS are also logged as warnings. The normalized SQL of the last
+ * DB_QUERY_STATS_NORMALIZED_SQL statements run is kept so they are not normalized again. The histograms and the
+ * {@link StatementCache} counters are published as the org.dotcms:type=DBStatements MBean.
+ */
+public class QueryStats {
+
+	private static final QueryStats instance = new QueryStats();
+
+	public static final String OTHER_QUERIES = "[other queries]";
+
+	/**
+	 * Upper bounds in milliseconds of the histogram buckets, the last bucket takes the rest
+	 */
+	public static final long[] BUCKETS = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+
+	// in (?, ?, ...)
+	private static final Pattern PARAMETER_LIST = Pattern.compile("(?i)\\bin ?\\(\\?(, \\?)*\\)");
+	// values (?, ?), (?, ?), ... of the multi-row inserts
+	private static final Pattern PARAMETER_ROWS = Pattern.compile("\\(([^()]*(?:\\([^()]*\\)[^()]*)*)\\)(?:, \\(\\1\\))+");
+
+	// statements longer than this are normalized every time instead of kept
+	private static final int MAX_NORMALIZED_SQL_LENGTH = 4096;
+
+	private final ConcurrentHashMap<String, Timing> timings = new ConcurrentHashMap<String, Timing>();
+	// raw sql -> normalized sql
+	private final Map<String, String> normalized;
+	private final int maxQueries;
+	private final long slowQueryMillis;
+
+	private QueryStats() {
+		maxQueries = Math.max(1, Config.getIntProperty("DB_QUERY_STATS_MAX_QUERIES", 1000));
+		slowQueryMillis = Config.getIntProperty("DB_SLOW_QUERY_MILLIS", 3000);
+		normalized = Collections.synchronizedMap(new LRUMap(Math.max(1, Config.getIntProperty("DB_QUERY_STATS_NORMALIZED_SQL", 5000))));
+
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(new DBStatementsInfo(this, StatementCache.getInstance()), new ObjectName("org.dotcms:type=DBStatements"));
+		} catch (Exception e) {
+			Logger.debug(QueryStats.class, "Unable to register DBStatements MBean: " + e.getMessage(), e);
+		}
+	}
+
+	public static QueryStats getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Adds an execution of the SQL
+	 * @param sql
+	 * @param nanos execution time
+	 */
+	public void record(String sql, long nanos) {
+		String n = normalized.get(sql);
+		if (n == null) {
+			n = normalize(sql);
+			if (sql.length() <= MAX_NORMALIZED_SQL_LENGTH) {
+				normalized.put(sql, n);
+			}
+		}
+		sql = n;
+		Timing timing = timings.get(sql);
+		if (timing == null) {
+			String key = timings.size() < maxQueries ? sql : OTHER_QUERIES;
+			timing = new Timing();
+			Timing existing = timings.putIfAbsent(key, timing);
+			if (existing != null) {
+				timing = existing;
+			}
+		}
+		timing.add(nanos);
+	}
+
+	/**
+	 * @return the sql with its literals replaced by ?, in lists and repeated value rows by a
+	 * single one and the white space collapsed
+	 */
+	static String normalize(String sql) {
+		int length = sql.length();
+		StringBuilder sb = new StringBuilder(length);
+		boolean parameters = false;
+		for (int i = 0; i < length; i++) {
+			char c = sql.charAt(i);
+			char last = sb.length() > 0 ? sb.charAt(sb.length() - 1) : ' ';
+			if (c == '\'') {
+				// up to the closing quote, '' is an escaped quote
+				i++;
+				while (i < length) {
+					if (sql.charAt(i) == '\'') {
+						if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				sb.append('?');
+				parameters = true;
+			} else if (Character.isDigit(c) && !Character.isLetterOrDigit(last) && last != '_' && last != '.') {
+				while (i + 1 < length && (Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.')) {
+					i++;
+				}
+				sb.append('?');
+				parameters = true;
+			} else if (Character.isWhitespace(c)) {
+				if (last != ' ' && last != ',') {
+					sb.append(' ');
+				}
+			} else if (c == ',') {
+				// always ", " so that lists compare equal
+				if (last == ' ') {
+					sb.setLength(sb.length() - 1);
+				}
+				sb.append(", ");
+			} else {
+				sb.append(c);
+				parameters |= c == '?';
+			}
+		}
+		String normalized = sb.toString().trim();
+		if (!parameters) {
+			return normalized;
+		}
+		normalized = PARAMETER_LIST.matcher(normalized).replaceAll("in (?)");
+		return PARAMETER_ROWS.matcher(normalized).replaceAll("($1)");
+	}
+
+	/**
+	 * @param nanos execution time
+	 * @return true if it should be logged as a slow query
+	 */
+	public boolean isSlow(long nanos) {
+		return slowQueryMillis > 0 && nanos / 1000000 >= slowQueryMillis;
+	}
+
+	public void reset() {
+		timings.clear();
+	}
+
+	public int getQueries() {
+		return timings.size();
+	}
+
+	/**
+	 * Statements that took the most total time, one per line: executions, total, average and
+	 * max milliseconds, the count of executions per bucket and the SQL
+	 * @param top how many statements to print
+	 * @return
+	 */
+	public String print(int top) {
+		List<Map.Entry<String, Timing>> entries = new ArrayList<Map.Entry<String, Timing>>(timings.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Timing>>() {
+			public int compare(Map.Entry<String, Timing> o1, Map.Entry<String, Timing> o2) {
+				long t1 = o1.getValue().total.get();
+				long t2 = o2.getValue().total.get();
+				return t1 < t2 ? 1 : (t1 == t2 ? 0 : -1);
+			}
+		});
+
+		StringBuilder sb = new StringBuilder("count\ttotal ms\tavg ms\tmax ms");
+		for (long bound : BUCKETS) {
+			sb.append("\t<").append(bound).append("ms");
+		}
+		sb.append("\t>=").append(BUCKETS[BUCKETS.length - 1]).append("ms\tsql\n");
+		for (int i = 0; i < entries.size() && i < top; i++) {
+			Timing timing = entries.get(i).getValue();
+			long count = timing.count.get();
+			sb.append(count).append('\t').append(timing.total.get() / 1000000).append('\t')
+					.append(count > 0 ? timing.total.get() / count / 1000000 : 0).append('\t')
+					.append(timing.max.get() / 1000000);
+			for (int j = 0; j < timing.buckets.length(); j++) {
+				sb.append('\t').append(timing.buckets.get(j));
+			}
+			sb.append('\t').append(entries.get(i).getKey().replaceAll("\\s+", " ")).append('\n');
+		}
+		return sb.toString();
+	}
+
+	private static class Timing {
+		final AtomicLong count = new AtomicLong();
+		final AtomicLong total = new AtomicLong();
+		final AtomicLong max = new AtomicLong();
+		final AtomicLongArray buckets = new AtomicLongArray(BUCKETS.length + 1);
+
+		void add(long nanos) {
+			count.incrementAndGet();
+			total.addAndGet(nanos);
+			long m;
+			while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos));
+			long millis = nanos / 1000000;
+			int bucket = 0;
+			while (bucket < BUCKETS.length && millis >= BUCKETS[bucket]) {
+				bucket++;
+			}
+			buckets.incrementAndGet(bucket);
+		}
+	}
+
+}
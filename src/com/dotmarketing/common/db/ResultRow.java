@@ -0,0 +1,167 @@
+package com.dotmarketing.common.db;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Current row of a query streamed by {@link DotConnect#loadResults(RowHandler)}.
+ *
+ * The column labels are read from the metadata once per query. Columns can be read by
+ * index (1 based, the fastest) or by label (case insensitive). The row is a view over the
+ * open cursor so it must not be kept once the handler returns, use {@link #toMap()} to
+ * copy the values.
+ */
+public class ResultRow {
+
+	private final ResultSet rs;
+	private final String[] labels;
+	private final Map<String, Integer> indexes;
+	private int rowNumber = -1;
+
+	ResultRow(ResultSet rs, int columnCount) throws SQLException {
+		this.rs = rs;
+		ResultSetMetaData rsmd = rs.getMetaData();
+		labels = new String[columnCount];
+		indexes = new HashMap<String, Integer>();
+		for (int i = 1; i <= columnCount; i++) {
+			labels[i - 1] = (rsmd.getColumnLabel(i) + "").toLowerCase();
+			if (!indexes.containsKey(labels[i - 1])) {
+				indexes.put(labels[i - 1], i);
+			}
+		}
+	}
+
+	void next() {
+		rowNumber++;
+	}
+
+	/**
+	 * @return position of the row among the rows handled, starting at 0
+	 */
+	public int getRowNumber() {
+		return rowNumber;
+	}
+
+	public int getColumnCount() {
+		return labels.length;
+	}
+
+	/**
+	 * @param index 1 based column index
+	 * @return lower case label of the column
+	 */
+	public String getColumnLabel(int index) {
+		return labels[index - 1];
+	}
+
+	/**
+	 * @param label column label, case insensitive
+	 * @return 1 based index of the column
+	 * @throws SQLException if there is no such column
+	 */
+	public int getColumnIndex(String label) throws SQLException {
+		Integer index = indexes.get(label.toLowerCase());
+		if (index == null) {
+			throw new SQLException("Column " + label + " not found");
+		}
+		return index;
+	}
+
+	public String getString(int index) throws SQLException {
+		return rs.getString(index);
+	}
+
+	public String getString(String label) throws SQLException {
+		return getString(getColumnIndex(label));
+	}
+
+	/**
+	 * Returns the value of the column converting clobs to strings and oracle timestamps to
+	 * dates as {@link DotConnect#loadObjectResults()} does
+	 * @param index 1 based column index
+	 * @return
+	 * @throws SQLException
+	 */
+	public Object getObject(int index) throws SQLException {
+		Object value = rs.getObject(index);
+		if (value instanceof java.sql.Clob) {
+			return rs.getString(index);
+		} else if (value instanceof oracle.sql.TIMESTAMP) {
+			return new Date(((oracle.sql.TIMESTAMP) value).timestampValue().getTime());
+		}
+		return value;
+	}
+
+	public Object getObject(String label) throws SQLException {
+		return getObject(getColumnIndex(label));
+	}
+
+	/**
+	 * @return the value as a long, 0 if it is null
+	 */
+	public long getLong(int index) throws SQLException {
+		return rs.getLong(index);
+	}
+
+	public long getLong(String label) throws SQLException {
+		return getLong(getColumnIndex(label));
+	}
+
+	/**
+	 * @return the value as an int, 0 if it is null
+	 */
+	public int getInt(int index) throws SQLException {
+		return rs.getInt(index);
+	}
+
+	public int getInt(String label) throws SQLException {
+		return getInt(getColumnIndex(label));
+	}
+
+	/**
+	 * Copies the row into a map like the ones returned by {@link DotConnect#loadResults()}
+	 * @return
+	 */
+	public HashMap<String, String> toMap() {
+		HashMap<String, String> vars = new HashMap<String, String>();
+		for (int i = 1; i <= labels.length; i++) {
+			String value = null;
+			try {
+				value = rs.getString(i);
+			} catch (SQLException e) {
+				Logger.error(this, "This is usually caused by bad data in the db Setting RS column value to empty: " + e.getMessage(), e);
+			}
+			vars.put(labels[i - 1], (value == null || value.equals("null")) ? "" : value);
+		}
+		vars.put("rownumber", Integer.toString(rowNumber));
+		vars.put("oddoreven", Integer.toString(rowNumber % 2));
+		return vars;
+	}
+
+	/**
+	 * Copies the row into a map like the ones returned by {@link DotConnect#loadObjectResults()}
+	 * @return
+	 */
+	public HashMap<String, Object> toObjectMap() {
+		HashMap<String, Object> objvars = new HashMap<String, Object>();
+		for (int i = 1; i <= labels.length; i++) {
+			Object value = null;
+			try {
+				value = getObject(i);
+			} catch (SQLException e) {
+				Logger.error(this, "This is usually caused by bad data in the db Setting RS column value to empty: " + e.getMessage(), e);
+			}
+			objvars.put(labels[i - 1], value);
+		}
+		objvars.put("rownumber", rowNumber);
+		objvars.put("oddoreven", rowNumber % 2);
+		return objvars;
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.dotmarketing.common.db;
+
+import com.dotmarketing.exception.DotDataException;
+
+/**
+ * Callback used by {@link DotConnect#loadResults(RowHandler)} to process the rows of a
+ * query one at a time while they are read from the database, instead of building the
+ * whole result list in memory.
+ */
+public interface RowHandler {
+
+	/**
+	 * Handles the current row. The row is only valid during this call.
+	 * @param row current row
+	 * @return false to stop reading rows
+	 * @throws DotDataException
+	 */
+	public boolean handle(ResultRow row) throws DotDataException;
+
+}
@@ -0,0 +1,212 @@
+package com.dotmarketing.common.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Prepared statements kept by {@link DotConnect} when CACHE_PREPARED_STATEMENTS is on.
+ *
+ * Statements are prepared on the physical connection behind the pooled one so they can be
+ * reused every time the pool hands that connection out. Each physical connection keeps at
+ * most CACHE_PREPARED_STATEMENTS_SIZE statements, the least recently used one is closed
+ * when a new one is added. The statements of connections the pool has closed are released
+ * when a new physical connection shows up and at least every minute.
+ */
+public class StatementCache {
+
+	private static final StatementCache instance = new StatementCache();
+
+	private static final long PURGE_INTERVAL = 60 * 1000;
+
+	private final Map<Connection, Statements> connections = new HashMap<Connection, Statements>();
+	private final int maxStatements;
+	private volatile long lastPurge = System.currentTimeMillis();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong releasedConnections = new AtomicLong();
+
+	private StatementCache() {
+		maxStatements = Math.max(1, Config.getIntProperty("CACHE_PREPARED_STATEMENTS_SIZE", 100));
+	}
+
+	public static StatementCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the cached statement for the SQL on the physical connection of conn, preparing
+	 * and caching it if needed. The statement must not be closed by the caller.
+	 * @param conn
+	 * @param sql
+	 * @param call true to prepare a stored procedure call
+	 * @return
+	 * @throws SQLException
+	 */
+	public PreparedStatement prepare(Connection conn, String sql, boolean call) throws SQLException {
+		Connection physical = conn.getMetaData().getConnection();
+		Statements statements;
+		boolean purge = false;
+		synchronized (connections) {
+			statements = connections.get(physical);
+			if (statements == null) {
+				statements = new Statements();
+				connections.put(physical, statements);
+				purge = true;
+			}
+		}
+		if (purge || System.currentTimeMillis() - lastPurge > PURGE_INTERVAL) {
+			purge();
+		}
+
+		PreparedStatement statement;
+		synchronized (statements) {
+			statement = statements.get(sql);
+		}
+		if (statement != null) {
+			hits.incrementAndGet();
+			return statement;
+		}
+		misses.incrementAndGet();
+		statement = call ? physical.prepareCall(sql) : physical.prepareStatement(sql);
+		synchronized (statements) {
+			PreparedStatement old = statements.put(sql, statement);
+			if (old != null && old != statement) {
+				close(old);
+			}
+		}
+		return statement;
+	}
+
+	/**
+	 * Closes and forgets a cached statement that failed, so the next call prepares it again
+	 * @param conn
+	 * @param sql
+	 */
+	public void remove(Connection conn, String sql) {
+		try {
+			Connection physical = conn.getMetaData().getConnection();
+			Statements statements;
+			synchronized (connections) {
+				statements = connections.get(physical);
+			}
+			if (statements != null) {
+				PreparedStatement statement;
+				synchronized (statements) {
+					statement = statements.remove(sql);
+				}
+				if (statement != null) {
+					close(statement);
+				}
+			}
+		} catch (SQLException e) {
+			Logger.debug(StatementCache.class, e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Releases the statements of the physical connections that are closed
+	 */
+	public void purge() {
+		lastPurge = System.currentTimeMillis();
+		synchronized (connections) {
+			Iterator<Map.Entry<Connection, Statements>> it = connections.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<Connection, Statements> entry = it.next();
+				boolean closed;
+				try {
+					closed = entry.getKey().isClosed();
+				} catch (SQLException e) {
+					closed = true;
+				}
+				if (closed) {
+					it.remove();
+					releasedConnections.incrementAndGet();
+					// the driver closed them with the connection, this just drops them
+					synchronized (entry.getValue()) {
+						entry.getValue().clear();
+					}
+				}
+			}
+		}
+	}
+
+	private void close(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (Exception e) {
+			Logger.debug(StatementCache.class, e.getMessage(), e);
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	public long getReleasedConnections() {
+		return releasedConnections.get();
+	}
+
+	public int getConnections() {
+		synchronized (connections) {
+			return connections.size();
+		}
+	}
+
+	public int getStatements() {
+		int count = 0;
+		synchronized (connections) {
+			for (Statements statements : connections.values()) {
+				synchronized (statements) {
+					count += statements.size();
+				}
+			}
+		}
+		return count;
+	}
+
+	public int getMaxStatements() {
+		return maxStatements;
+	}
+
+	/**
+	 * Statements of a physical connection in least recently used order
+	 */
+	private class Statements extends LinkedHashMap<String, PreparedStatement> {
+
+		private static final long serialVersionUID = 1L;
+
+		Statements() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+			if (size() > maxStatements) {
+				evictions.incrementAndGet();
+				close(eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,496 @@
+package com.dotmarketing.common.reindex;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+
+import com.dotcms.content.elasticsearch.business.ContentletIndexAPI;
+import com.dotcms.content.elasticsearch.util.ESClient;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.FactoryLocator;
+import com.dotmarketing.common.business.journal.IndexJournal;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.db.ResultRow;
+import com.dotmarketing.common.db.RowHandler;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
+import com.dotmarketing.portlets.contentlet.business.ContentletIndexBatch;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+
+/**
+ * Indexes the dist_reindex_journal records fetched by the {@link ReindexThread}.
+ *
+ * Records go through these stages, each one with its own threads:
+ * <ol>
+ * <li>load: the working and live versions of every record are loaded from db, the whole
+ * batch at once with ContentletFactory.loadIndexBatch (REINDEX_THREAD_LOAD_THREADS)</li>
+ * <li>mapping: the contentlets are mapped to json and added to a bulk request
+ * (REINDEX_THREAD_MAPPING_THREADS)</li>
+ * <li>bulk: the bulk request is sent to elasticsearch with at most
+ * REINDEX_THREAD_MAX_BULK_IN_FLIGHT requests waiting for a response</li>
+ * <li>ack: the records are handed back to the {@link ReindexThread} to be deleted from the
+ * journal</li>
+ * </ol>
+ *
+ * The ReindexThread stops fetching while REINDEX_THREAD_MAX_PENDING records are in the
+ * pipeline. The number of records per batch goes from REINDEX_THREAD_MIN_BATCH_SIZE to
+ * REINDEX_THREAD_MAX_BATCH_SIZE: it grows while the bulk requests take less than half of
+ * REINDEX_THREAD_BULK_TARGET_TIME milliseconds and halves when they take longer.
+ */
+public class ReindexPipeline {
+
+	/**
+	 * Receives the journal records that are done, indexed or not
+	 */
+	public interface Acknowledger {
+		public void ack(List<IndexJournal<String>> records);
+	}
+
+	private static class LoadedRecord {
+		final IndexJournal<String> record;
+		final List<Contentlet> contentlets;
+
+		LoadedRecord(IndexJournal<String> record, List<Contentlet> contentlets) {
+			this.record = record;
+			this.contentlets = contentlets;
+		}
+	}
+
+	private static final long RATE_WINDOW = 10000;
+
+	// identifiers per in clause, oracle allows up to 1000
+	private static final int IN_CLAUSE_SIZE = 500;
+
+	private final ContentletIndexAPI indexAPI = APILocator.getContentletIndexAPI();
+	private final Acknowledger acknowledger;
+	private final ThreadPoolExecutor loaders;
+	private final ThreadPoolExecutor mappers;
+	private final Semaphore bulkPermits;
+	private final int maxPending;
+	private final int minBatchSize;
+	private final int maxBatchSize;
+	private final long bulkTargetTime;
+	private volatile int batchSize;
+	private volatile int sleepPerRecord = 0;
+
+	private final AtomicInteger pending = new AtomicInteger();
+	private final AtomicInteger bulksInFlight = new AtomicInteger();
+	private final AtomicLong submitted = new AtomicLong();
+	private final AtomicLong indexed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong bulks = new AtomicLong();
+	private final AtomicLong bulkTime = new AtomicLong();
+	// set by every bulk, the search cache is flushed once the pipeline runs dry
+	private final AtomicBoolean searchCacheDirty = new AtomicBoolean();
+
+	private long windowStart = System.currentTimeMillis();
+	private long windowCount = 0;
+	private long rate = 0;
+
+	public ReindexPipeline(Acknowledger acknowledger) {
+		this.acknowledger = acknowledger;
+		int processors = Runtime.getRuntime().availableProcessors();
+		this.loaders = newPool("ReindexLoader", Config.getIntProperty("REINDEX_THREAD_LOAD_THREADS", 2));
+		this.mappers = newPool("ReindexMapper", Config.getIntProperty("REINDEX_THREAD_MAPPING_THREADS", processors));
+		this.bulkPermits = new Semaphore(Math.max(1, Config.getIntProperty("REINDEX_THREAD_MAX_BULK_IN_FLIGHT", 4)));
+		this.maxPending = Math.max(1, Config.getIntProperty("REINDEX_THREAD_MAX_PENDING", 5000));
+		this.minBatchSize = Math.max(1, Config.getIntProperty("REINDEX_THREAD_MIN_BATCH_SIZE", 10));
+		this.maxBatchSize = Math.max(minBatchSize, Config.getIntProperty("REINDEX_THREAD_MAX_BATCH_SIZE", 500));
+		this.bulkTargetTime = Math.max(1, Config.getIntProperty("REINDEX_THREAD_BULK_TARGET_TIME", 1000));
+		this.batchSize = Math.max(minBatchSize, Math.min(maxBatchSize, 50));
+	}
+
+	private ThreadPoolExecutor newPool(final String name, int threads) {
+		threads = Math.max(1, threads);
+		final AtomicInteger count = new AtomicInteger();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * @return true if there is room in the pipeline for another batch
+	 */
+	public boolean hasCapacity() {
+		return pending.get() < maxPending;
+	}
+
+	/**
+	 * @return true if no record is in the pipeline
+	 */
+	public boolean isIdle() {
+		return pending.get() == 0;
+	}
+
+	/**
+	 * @return the number of records the next fetched batch should have
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setSleepPerRecord(int sleepPerRecord) {
+		this.sleepPerRecord = sleepPerRecord;
+	}
+
+	/**
+	 * Queues a batch of journal records to be indexed
+	 * @param records
+	 */
+	public void submit(final List<IndexJournal<String>> records) {
+		if (records.isEmpty()) {
+			return;
+		}
+		pending.addAndGet(records.size());
+		submitted.addAndGet(records.size());
+		loaders.execute(new Runnable() {
+			public void run() {
+				load(records);
+			}
+		});
+	}
+
+	private void load(List<IndexJournal<String>> records) {
+		final List<LoadedRecord> loaded = new ArrayList<LoadedRecord>(records.size());
+		List<IndexJournal<String>> failedRecords = new ArrayList<IndexJournal<String>>();
+		ContentletIndexBatch batch = null;
+		try {
+			Map<String, List<String>> inodes = null;
+			Map<String, Contentlet> contentlets = new HashMap<String, Contentlet>();
+			try {
+				// versions, contentlets, identifiers, categories, trees and permissions of the whole batch
+				inodes = loadInodes(records);
+				List<String> all = new ArrayList<String>();
+				for (List<String> list : inodes.values()) {
+					all.addAll(list);
+				}
+				batch = FactoryLocator.getContentletFactory().loadIndexBatch(all);
+				for (Contentlet con : batch.getContentlets()) {
+					contentlets.put(con.getInode(), con);
+				}
+			} catch (Exception e) {
+				Logger.warn(ReindexPipeline.class, "Unable to load the batch at once, loading records one by one: " + e.getMessage(), e);
+				inodes = null;
+				batch = null;
+			}
+
+			for (IndexJournal<String> record : records) {
+				try {
+					List<Contentlet> list = (inodes != null) ? fromBatch(inodes.get(record.getIdentToIndex()), contentlets) : null;
+					loaded.add(new LoadedRecord(record, list != null ? list : loadContentlets(record)));
+				} catch (Exception e) {
+					Logger.error(ReindexPipeline.class, "Unable to load " + record.getIdentToIndex() + " to index it", e);
+					failedRecords.add(record);
+				}
+			}
+		} finally {
+			closeSession();
+		}
+		if (!failedRecords.isEmpty()) {
+			done(failedRecords, false);
+		}
+		if (!loaded.isEmpty()) {
+			final ContentletIndexBatch indexBatch = batch;
+			mappers.execute(new Runnable() {
+				public void run() {
+					map(loaded, indexBatch);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Working and live inodes of the identifiers of the records, by identifier
+	 */
+	private Map<String, List<String>> loadInodes(List<IndexJournal<String>> records) throws DotDataException {
+		Set<String> identSet = new LinkedHashSet<String>();
+		for (IndexJournal<String> record : records) {
+			identSet.add(record.getIdentToIndex());
+		}
+		List<String> identifiers = new ArrayList<String>(identSet);
+		final Map<String, List<String>> inodes = new HashMap<String, List<String>>();
+		for (String ident : identifiers) {
+			inodes.put(ident, new ArrayList<String>());
+		}
+		for (int from = 0; from < identifiers.size(); from += IN_CLAUSE_SIZE) {
+			List<String> chunk = identifiers.subList(from, Math.min(from + IN_CLAUSE_SIZE, identifiers.size()));
+			StringBuilder sql = new StringBuilder("select identifier,working_inode,live_inode from contentlet_version_info where identifier in (");
+			for (int i = 0; i < chunk.size(); i++) {
+				sql.append(i == 0 ? "?" : ",?");
+			}
+			DotConnect dc = new DotConnect();
+			dc.setSQL(sql.append(")").toString());
+			for (String ident : chunk) {
+				dc.addParam(ident);
+			}
+			dc.loadResults(new RowHandler() {
+				public boolean handle(ResultRow row) throws DotDataException {
+					try {
+						addInodes(inodes.get(row.getString(1)), row.getString(2), row.getString(3));
+					} catch (SQLException e) {
+						throw new DotDataException(e.getMessage(), e);
+					}
+					return true;
+				}
+			});
+		}
+		return inodes;
+	}
+
+	private void addInodes(List<String> inodes, Map<String, String> m) {
+		addInodes(inodes, m.get("working_inode"), m.get("live_inode"));
+	}
+
+	private void addInodes(List<String> inodes, String workingInode, String liveInode) {
+		inodes.add(workingInode);
+		if (UtilMethods.isSet(liveInode) && !workingInode.equals(liveInode)) {
+			inodes.add(liveInode);
+		}
+	}
+
+	/**
+	 * Contentlets of the inodes taken from the batch or null if any of them is missing
+	 */
+	private List<Contentlet> fromBatch(List<String> inodes, Map<String, Contentlet> contentlets) {
+		List<Contentlet> list = new ArrayList<Contentlet>(inodes.size());
+		for (String inode : inodes) {
+			Contentlet con = contentlets.get(inode);
+			if (con == null) {
+				return null;
+			}
+			list.add(con);
+		}
+		return list;
+	}
+
+	private List<Contentlet> loadContentlets(IndexJournal<String> record) throws DotDataException, DotSecurityException {
+		Logger.debug(this, "Indexing document " + record.getIdentToIndex());
+		String sql = "select working_inode,live_inode from contentlet_version_info where identifier=?";
+
+		DotConnect dc = new DotConnect();
+		dc.setSQL(sql);
+		dc.addParam(record.getIdentToIndex());
+		List<Map<String, String>> ret = dc.loadResults();
+		List<String> inodes = new ArrayList<String>();
+		for (Map<String, String> m : ret) {
+			addInodes(inodes, m);
+		}
+
+		List<Contentlet> contentlets = new ArrayList<Contentlet>(inodes.size());
+		for (String inode : inodes) {
+			contentlets.add(FactoryLocator.getContentletFactory().convertFatContentletToContentlet(
+					(com.dotmarketing.portlets.contentlet.business.Contentlet)
+						HibernateUtil.load(com.dotmarketing.portlets.contentlet.business.Contentlet.class, inode)));
+		}
+		return contentlets;
+	}
+
+	private void map(List<LoadedRecord> loaded, ContentletIndexBatch batch) {
+		System.setProperty("IN_FULL_REINDEX", "true");
+		final List<IndexJournal<String>> records = new ArrayList<IndexJournal<String>>(loaded.size());
+		List<IndexJournal<String>> failedRecords = new ArrayList<IndexJournal<String>>();
+		BulkRequestBuilder bulk = null;
+		try {
+			Client client = new ESClient().getClient();
+			bulk = client.prepareBulk();
+			boolean reindexOnly = indexAPI.isInFullReindex();
+			for (LoadedRecord lr : loaded) {
+				try {
+					for (Contentlet con : lr.contentlets) {
+						if (lr.record.isDelete() && lr.record.getIdentToIndex().equals(con.getIdentifier()))
+							// we delete contentlets from the identifier pointed on index journal record
+							// its dependencies are reindexed in order to update its relationships fields
+							indexAPI.removeContentFromIndex(con);
+						else
+							indexAPI.addContentToIndex(con, false, true, reindexOnly, bulk, batch);
+					}
+					records.add(lr.record);
+				} catch (Exception e) {
+					Logger.error(ReindexPipeline.class, "Unable to index " + lr.record.getIdentToIndex(), e);
+					failedRecords.add(lr.record);
+				}
+				if (sleepPerRecord > 0) {
+					try {
+						Thread.sleep(sleepPerRecord);
+					} catch (InterruptedException e) {
+						Logger.debug(this, e.getMessage(), e);
+					}
+				}
+			}
+		} catch (Exception e) {
+			Logger.error(ReindexPipeline.class, "Unable to index records", e);
+			bulk = null;
+			for (LoadedRecord lr : loaded) {
+				if (!failedRecords.contains(lr.record)) {
+					failedRecords.add(lr.record);
+				}
+			}
+			records.clear();
+		} finally {
+			closeSession();
+		}
+
+		if (!failedRecords.isEmpty()) {
+			done(failedRecords, false);
+		}
+		if (!records.isEmpty()) {
+			send(bulk, records);
+		}
+	}
+
+	private void send(BulkRequestBuilder bulk, final List<IndexJournal<String>> records) {
+		if (bulk == null || bulk.numberOfActions() == 0) {
+			done(records, true);
+			return;
+		}
+		// blocks the mapping thread while too many requests are waiting for elasticsearch
+		bulkPermits.acquireUninterruptibly();
+		bulksInFlight.incrementAndGet();
+		final long start = System.currentTimeMillis();
+		try {
+			bulk.execute(new ActionListener<BulkResponse>() {
+				public void onResponse(BulkResponse resp) {
+					bulkDone(System.currentTimeMillis() - start, records.size());
+					if (resp.hasFailures())
+						Logger.warn(ReindexPipeline.class, resp.buildFailureMessage());
+					done(records, true);
+				}
+
+				public void onFailure(Throwable ex) {
+					bulkDone(System.currentTimeMillis() - start, records.size());
+					Logger.error(ReindexPipeline.class, "Error indexing records", ex);
+					done(records, false);
+				}
+			});
+		} catch (RuntimeException e) {
+			bulkDone(System.currentTimeMillis() - start, 0);
+			Logger.error(ReindexPipeline.class, "Error indexing records", e);
+			done(records, false);
+		}
+	}
+
+	private void bulkDone(long took, int records) {
+		searchCacheDirty.set(true);
+		bulksInFlight.decrementAndGet();
+		bulkPermits.release();
+		bulks.incrementAndGet();
+		bulkTime.addAndGet(took);
+
+		// a batch that was not full tells little about how long a full one takes
+		if (records < batchSize / 2) {
+			return;
+		}
+		if (took > bulkTargetTime) {
+			batchSize = Math.max(minBatchSize, batchSize / 2);
+		} else if (took < bulkTargetTime / 2) {
+			batchSize = Math.min(maxBatchSize, batchSize + batchSize / 2 + 1);
+		}
+	}
+
+	private void done(List<IndexJournal<String>> records, boolean ok) {
+		if (ok) {
+			indexed.addAndGet(records.size());
+		} else {
+			failed.addAndGet(records.size());
+		}
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			windowCount += records.size();
+			if (now - windowStart >= RATE_WINDOW) {
+				rate = windowCount * 1000 / (now - windowStart);
+				windowStart = now;
+				windowCount = 0;
+			}
+		}
+		// failed records are acknowledged too, as the single threaded indexer did,
+		// otherwise they would stay assigned to this server forever
+		acknowledger.ack(records);
+		// a full reindex keeps the pipeline busy, so this flushes the cached searches
+		// (a cluster wide group flush) once at the end rather than after every bulk
+		if (pending.addAndGet(-records.size()) == 0 && searchCacheDirty.compareAndSet(true, false)) {
+			CacheLocator.getContentletSearchCache().invalidate();
+		}
+	}
+
+	private void closeSession() {
+		try {
+			HibernateUtil.closeSession();
+		} catch (Exception e) {
+			Logger.error(this, e.getMessage(), e);
+		} finally {
+			try {
+				DbConnectionFactory.closeConnection();
+			} catch (Exception e) {
+				Logger.debug(this, "Unable to close connection : " + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * @return records per second acknowledged in the last 10 seconds
+	 */
+	public synchronized long getRate() {
+		long elapsed = System.currentTimeMillis() - windowStart;
+		if (elapsed >= RATE_WINDOW) {
+			// nothing was acknowledged for a while
+			return windowCount * 1000 / elapsed;
+		}
+		return rate;
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<String, Object>();
+		long b = bulks.get();
+		stats.put("reindexRecordsPerSecond", getRate());
+		stats.put("reindexRecordsInFlight", pending.get());
+		stats.put("reindexRecordsIndexed", indexed.get());
+		stats.put("reindexRecordsFailed", failed.get());
+		stats.put("reindexBatchSize", batchSize);
+		stats.put("reindexBulksInFlight", bulksInFlight.get());
+		stats.put("reindexBulkAvgTime", (b == 0) ? 0 : bulkTime.get() / b);
+		stats.put("reindexLoadQueue", loaders.getQueue().size());
+		stats.put("reindexMappingQueue", mappers.getQueue().size());
+		return stats;
+	}
+
+	public long getSubmitted() {
+		return submitted.get();
+	}
+
+	public void shutdown() {
+		loaders.shutdown();
+		mappers.shutdown();
+	}
+
+}
@@ -8,34 +8,28 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
-import org.elasticsearch.action.ActionListener;
-import org.elasticsearch.action.bulk.BulkRequestBuilder;
-import org.elasticsearch.action.bulk.BulkResponse;
-import org.elasticsearch.client.Client;
-
 import com.dotcms.content.elasticsearch.business.ContentletIndexAPI;
-import com.dotcms.content.elasticsearch.util.ESClient;
 import com.dotcms.content.elasticsearch.util.ESReindexationProcessStatus;
 import com.dotmarketing.business.APILocator;
-import com.dotmarketing.business.FactoryLocator;
 import com.dotmarketing.common.business.journal.DistributedJournalAPI;
 import com.dotmarketing.common.business.journal.IndexJournal;
-import com.dotmarketing.common.db.DotConnect;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotHibernateException;
-import com.dotmarketing.exception.DotSecurityException;
-import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
-import com.dotmarketing.util.UtilMethods;
 
 public class ReindexThread extends Thread {
 
 	private static final ContentletIndexAPI indexAPI = APILocator.getContentletIndexAPI();
     private final LinkedList<IndexJournal<String>> remoteQ = new LinkedList<IndexJournal<String>>();
     private final LinkedList<IndexJournal<String>> remoteDelQ = new LinkedList<IndexJournal<String>>();
+    private final ReindexPipeline pipeline = new ReindexPipeline(new ReindexPipeline.Acknowledger() {
+        public void ack(List<IndexJournal<String>> records) {
+            addRecordsToDelete(records);
+        }
+    });
 	private final DistributedJournalAPI<String> jAPI = APILocator.getDistributedJournalAPI();
 
 	private static ReindexThread instance;
@@ -57,6 +51,31 @@ public class ReindexThread extends Thread {
 	        remoteDelQ.addAll(records);
 	    }
 	}
+
+	private void deleteIndexedRecords() {
+	    synchronized(remoteDelQ) {
+	        while(!remoteDelQ.isEmpty()) {
+	            try {
+	                List<IndexJournal<String>> toDelete=remoteDelQ;
+	                if(toDelete.size()>=200) {
+	                    toDelete=remoteDelQ.subList(0, 200);
+	                }
+	                jAPI.deleteReindexEntryForServer(toDelete);
+	                if(toDelete.size()==remoteDelQ.size()) {
+	                    remoteDelQ.clear();
+	                } else {
+	                    final int n=toDelete.size();
+	                    for(int i=0;i<n;i++)
+	                        remoteDelQ.removeFirst();
+	                }
+	            }
+	            catch(Exception ex) {
+	                Logger.warn(ReindexThread.class,"can't dele dist_reindex records. Will try again later", ex);
+	                break;
+	            }
+	        }
+	    }
+	}
 	
 	private void startProcessing(int sleep, int delay) {
 		this.sleep = sleep;
@@ -88,10 +107,13 @@ public class ReindexThread extends Thread {
 			if (work) {
 			    boolean wait=true;
 				try {
-					if(remoteQ.size()==0)
-					    fillRemoteQ();
-					
-					if(remoteQ.size()==0 && ESReindexationProcessStatus.inFullReindexation() && jAPI.recordsLeftToIndexForServer()==0) {
+				    deleteIndexedRecords();
+
+				    List<IndexJournal<String>> batch=new ArrayList<IndexJournal<String>>();
+				    if(pipeline.hasCapacity())
+				        batch=fetchBatch(pipeline.getBatchSize());
+
+					if(batch.isEmpty() && pipeline.isIdle() && remoteDelQ.isEmpty() && ESReindexationProcessStatus.inFullReindexation() && jAPI.recordsLeftToIndexForServer()==0) {
 					    Connection conn=DbConnectionFactory.getDataSource().getConnection();
 					    try{
 					        conn.setAutoCommit(false);
@@ -132,64 +154,15 @@ public class ReindexThread extends Thread {
 					    }
 					}    
 					
-					if(!remoteDelQ.isEmpty()) {
-					    synchronized(remoteDelQ) {
-				            try {
-				                List<IndexJournal<String>> toDelete=remoteDelQ;
-				                if(toDelete.size()>=200) {
-				                    toDelete=remoteDelQ.subList(0, 200);
-				                }
-				                jAPI.deleteReindexEntryForServer(toDelete);
-				                if(toDelete.size()==remoteDelQ.size()) {
-				                    remoteDelQ.clear();
-				                } else {
-				                    final int n=toDelete.size();
-				                    for(int i=0;i<n;i++)
-				                        remoteDelQ.removeFirst();
-				                }
-				            }
-				            catch(Exception ex) {
-				                Logger.warn(ReindexThread.class,"can't dele dist_reindex records. Will try again later", ex);
-				            }
-				        }
+					if(!batch.isEmpty()) {
+					    wait=false;
+					    pipeline.submit(batch);
 					}
-					else if(!remoteQ.isEmpty()) {
+					else if(!pipeline.isIdle()) {
+					    // records are still being indexed, come back to delete them
+					    // and to fetch more as soon as there is room in the pipeline
 					    wait=false;
-					    Client client=new ESClient().getClient();
-						BulkRequestBuilder bulk=client.prepareBulk();
-						final ArrayList<IndexJournal<String>> recordsToDelete=new ArrayList<IndexJournal<String>>();
-						while(!remoteQ.isEmpty()) {
-    					    IndexJournal<String> idx = remoteQ.removeFirst();
-    				        writeDocumentToIndex(bulk,idx);
-    				        recordsToDelete.add(idx);
-    				        if(reindexSleepDuringIndex){
-	    				        try {
-	    							Thread.sleep(delay);
-	    						} catch (InterruptedException e) {
-	    							Logger.error(this, e.getMessage(), e);
-	    						}
-    				        }
-						}
-						HibernateUtil.closeSession();
-				        if(bulk.numberOfActions()>0) {
-				            bulk.execute(new ActionListener<BulkResponse>() {
-				                void deleteRecords() {
-				                    addRecordsToDelete(recordsToDelete);
-				                }
-                                public void onResponse(BulkResponse resp) {
-                                    deleteRecords();
-                                    if(resp.hasFailures())
-                                        Logger.warn(this, resp.buildFailureMessage());
-                                }
-                                public void onFailure(Throwable ex) {
-                                    Logger.error(ReindexThread.class,"Error indexing records", ex);
-                                    deleteRecords();
-                                }
-                            });
-				        }
-				        else if(recordsToDelete.size()>0) {
-				            addRecordsToDelete(recordsToDelete);
-				        }
+					    Thread.sleep(sleep);
 					}
 					
 				} catch (Exception ex) {
@@ -350,6 +323,22 @@ public class ReindexThread extends Thread {
 		return instance;
 	}
 
+	/**
+	 * Takes up to size records from the journal, fetching as many times as needed
+	 */
+	private List<IndexJournal<String>> fetchBatch(int size) throws DotDataException {
+	    while(remoteQ.size()<size) {
+	        int before=remoteQ.size();
+	        fillRemoteQ();
+	        if(remoteQ.size()==before)
+	            break;
+	    }
+	    List<IndexJournal<String>> batch=new ArrayList<IndexJournal<String>>(Math.min(size, remoteQ.size()));
+	    while(!remoteQ.isEmpty() && batch.size()<size)
+	        batch.add(remoteQ.removeFirst());
+	    return batch;
+	}
+
 	private void fillRemoteQ() throws DotDataException {
 	    try {
 	        HibernateUtil.startTransaction();
@@ -364,44 +353,6 @@ public class ReindexThread extends Thread {
 	    }
 	}
 
-	@SuppressWarnings("unchecked")
-	private void writeDocumentToIndex(BulkRequestBuilder bulk, IndexJournal<String> idx) throws DotDataException, DotSecurityException {
-	    Logger.debug(this, "Indexing document "+idx.getIdentToIndex());
-	    System.setProperty("IN_FULL_REINDEX", "true");
-//	    String sql = "select distinct inode from contentlet join contentlet_version_info " +
-//                " on (inode=live_inode or inode=working_inode) and contentlet.identifier=?";
-	    
-	    String sql = "select working_inode,live_inode from contentlet_version_info where identifier=?";
-	    
-        DotConnect dc = new DotConnect();
-        dc.setSQL(sql);
-        dc.addParam(idx.getIdentToIndex());
-        List<Map<String,String>> ret = dc.loadResults();
-        List<String> inodes = new ArrayList<String>(); 
-        for(Map<String,String> m : ret) {
-        	String workingInode = m.get("working_inode");
-        	String liveInode = m.get("live_inode");
-        	inodes.add(workingInode);
-        	if(UtilMethods.isSet(liveInode) && !workingInode.equals(liveInode)){
-        		inodes.add(liveInode);
-        	}
-        }
-        
-        for(String inode : inodes) {
-        				
-            Contentlet con = FactoryLocator.getContentletFactory().convertFatContentletToContentlet(
-                    (com.dotmarketing.portlets.contentlet.business.Contentlet)
-                        HibernateUtil.load(com.dotmarketing.portlets.contentlet.business.Contentlet.class, inode));
-            
-            if(idx.isDelete() && idx.getIdentToIndex().equals(con.getIdentifier()))
-                // we delete contentlets from the identifier pointed on index journal record
-                // its dependencies are reindexed in order to update its relationships fields
-                indexAPI.removeContentFromIndex(con);
-            else
-                indexAPI.addContentToIndex(con,false,true,indexAPI.isInFullReindex(),bulk);
-        }
-	}
-	
 	int threadsPausing = 0;
 
 	public synchronized void pause() {
@@ -443,6 +394,7 @@ public class ReindexThread extends Thread {
 	 */
 	public void setReindexSleepDuringIndex(boolean reindexSleepDuringIndex) {
 		this.reindexSleepDuringIndex = reindexSleepDuringIndex;
+		pipeline.setSleepPerRecord(reindexSleepDuringIndex ? reindexSleepDuringIndexTime : 0);
 	}
 
 	/**
@@ -457,5 +409,13 @@ public class ReindexThread extends Thread {
 	 */
 	public void setReindexSleepDuringIndexTime(int reindexSleepDuringIndexTime) {
 		this.reindexSleepDuringIndexTime = reindexSleepDuringIndexTime;
+		pipeline.setSleepPerRecord(reindexSleepDuringIndex ? reindexSleepDuringIndexTime : 0);
+	}
+
+	/**
+	 * @return progress and throughput of the indexing pipeline
+	 */
+	public Map<String, Object> getPipelineStats() {
+		return pipeline.getStats();
 	}
 }
@@ -21,7 +21,7 @@ import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotHibernateException;
 import com.dotmarketing.listeners.ClickstreamListener;
-import com.dotmarketing.loggers.DatabaseClickstreamLogger;
+import com.dotmarketing.loggers.ClickstreamWriter;
 import com.dotmarketing.util.BotChecker;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.CookieUtil;
@@ -37,6 +37,12 @@ public class ClickstreamFactory {
 	 * Adds a new request to the stream of clicks. The HttpServletRequest is
 	 * converted to a ClickstreamRequest object and added to the clickstream.
 	 *
+	 * The clickstream in session only keeps the requests made before it has
+	 * MIN_CLICKSTREAM_REQUESTS_TO_SAVE requests, then it is handed to the
+	 * {@link ClickstreamWriter} and the following requests go straight to it.
+	 * The identifier of the page is looked up by the writer when the request
+	 * doesn't tell it.
+	 *
 	 * @param request
 	 *            The serlvet request to be added to the clickstream
 	 * @throws DotDataException
@@ -63,14 +69,11 @@ public class ClickstreamFactory {
 		if (!UtilMethods.isSet(associatedIdentifier)) {
 			associatedIdentifier = (String) request.getAttribute(WebKeys.CLICKSTREAM_IDENTIFIER_OVERRIDE);
 		}
-		if (!UtilMethods.isSet(associatedIdentifier)) {
-			associatedIdentifier = APILocator.getIdentifierAPI().find(host, pointer ).getInode();
-		}
 
 		if (UtilMethods.isSet(associatedIdentifier)) {
 			clickstream.setLastPageId(associatedIdentifier);
-			clickstream.setLastRequest(new Date());
 		}
+		clickstream.setLastRequest(new Date());
 
 		if (clickstream.getHostname() == null) {
 			clickstream.setHostname(request.getRemoteHost());
@@ -79,32 +82,6 @@ public class ClickstreamFactory {
 			clickstream.setRemoteAddress(request.getRemoteAddr());
 		}
 
-		// if this is the first request in the click stream
-		if (clickstream.getClickstreamRequests().size() == Config.getIntProperty("MIN_CLICKSTREAM_REQUESTS_TO_SAVE", 2)) {
-			// setup initial referrer
-			if (request.getHeader("Referer") != null) {
-				clickstream.setInitialReferrer(request.getHeader("Referer"));
-			} else {
-				clickstream.setInitialReferrer("");
-			}
-
-			if (request.getHeader("User-Agent") != null) {
-				clickstream.setUserAgent(request.getHeader("User-Agent"));
-			} else {
-				clickstream.setUserAgent("");
-			}
-			BrowserSniffer bs = new BrowserSniffer(request.getHeader("User-Agent"));
-			session.setAttribute("browserSniffer", bs);
-			clickstream.setBrowserName(bs.getBrowserName());
-			clickstream.setOperatingSystem(bs.getOS());
-			clickstream.setBrowserVersion(bs.getBrowserVersion());
-			clickstream.setMobileDevice(bs.isMobile());
-			clickstream.setBot(BotChecker.isBot(request));
-			clickstream.setFirstPageId(associatedIdentifier);
-			clickstream.setHostId(host.getIdentifier());
-
-		}
-
 		// Set the cookie id to the long lived cookie
 		if (!UtilMethods.isSet(clickstream.getCookieId())) {
 
@@ -135,14 +112,52 @@ public class ClickstreamFactory {
 
 
 		// prevent dupe entries into the clickstream table - just retun if the user is on the same page
-		if(clickstream.getClickstreamRequests() != null &&clickstream.getClickstreamRequests().size()>0){
-			ClickstreamRequest last = clickstream.getClickstreamRequests().get(clickstream.getClickstreamRequests().size()-1);
-			if(last != null && cr.getAssociatedIdentifier().equals( last.getAssociatedIdentifier())){
-				return clickstream;
-			}
+		String requestKey = UtilMethods.isSet(associatedIdentifier) ? associatedIdentifier : host.getIdentifier() + ":" + pointer;
+		if (requestKey.equals(clickstream.getLastRequestKey())) {
+			return clickstream;
+		}
+		clickstream.setLastRequestKey(requestKey);
+
+		if (clickstream.getStreamKey() > 0) {
+			ClickstreamWriter.getInstance().addRequest(clickstream.getStreamKey(), cr);
+			return clickstream;
 		}
 
 		clickstream.addClickstreamRequest(cr);
+		// the stream has enough requests to be saved
+		if (clickstream.getClickstreamRequests().size() >= Config.getIntProperty("MIN_CLICKSTREAM_REQUESTS_TO_SAVE", 2)) {
+			// setup initial referrer
+			if (request.getHeader("Referer") != null) {
+				clickstream.setInitialReferrer(request.getHeader("Referer"));
+			} else {
+				clickstream.setInitialReferrer("");
+			}
+
+			if (request.getHeader("User-Agent") != null) {
+				clickstream.setUserAgent(request.getHeader("User-Agent"));
+			} else {
+				clickstream.setUserAgent("");
+			}
+			BrowserSniffer bs = new BrowserSniffer(request.getHeader("User-Agent"));
+			session.setAttribute("browserSniffer", bs);
+			clickstream.setBrowserName(bs.getBrowserName());
+			clickstream.setOperatingSystem(bs.getOS());
+			clickstream.setBrowserVersion(bs.getBrowserVersion());
+			clickstream.setMobileDevice(bs.isMobile());
+			clickstream.setBot(BotChecker.isBot(request));
+			clickstream.setFirstPageId(clickstream.getClickstreamRequests().get(0).getAssociatedIdentifier());
+			clickstream.setHostId(host.getIdentifier());
+
+			ClickstreamWriter writer = ClickstreamWriter.getInstance();
+			if (writer.startStream(clickstream, clickstream.getClickstreamRequests())) {
+				for (Clickstream404 clickstream404 : clickstream.getClickstream404s()) {
+					writer.add404(clickstream404);
+				}
+			}
+			// dropped if the writer buffer is full, the stream starts again later
+			clickstream.getClickstreamRequests().clear();
+			clickstream.getClickstream404s().clear();
+		}
 		return clickstream;
 
 
@@ -150,21 +165,17 @@ public class ClickstreamFactory {
 	}
 
 	/**
-	 * This method forces a clickstream save
+	 * This method queues the final state of the clickstream to be saved by the
+	 * {@link ClickstreamWriter}. Streams with fewer than MIN_CLICKSTREAM_REQUESTS_TO_SAVE
+	 * requests were never recorded and are not saved.
 	 *
 	 * @param stream
 	 */
 	public static void flushClickStream(Clickstream stream) {
 		if(Config.getBooleanProperty("ENABLE_CLICKSTREAM_TRACKING", false)){
-			
-			int minToLog = Config.getIntProperty("MIN_CLICKSTREAM_REQUESTS_TO_SAVE", 2);
-			
-			DatabaseClickstreamLogger dblogger = new DatabaseClickstreamLogger();
 			try {
-				if (stream != null 
-						&& stream.getClickstreamRequests() != null 
-						&& stream.getClickstreamRequests().size() >= minToLog) {
-					dblogger.log(stream);
+				if (stream != null && stream.getStreamKey() > 0) {
+					ClickstreamWriter.getInstance().endStream(stream);
 				}
 			} catch (Exception e) {
 				Logger.error(ClickstreamListener.class, e.getMessage(), e);
@@ -287,7 +298,11 @@ public class ClickstreamFactory {
 				clickstream404.setUserId(user.getUserId());
 			}
 			clickstream404.setTimestamp(clickstream.getLastRequest());
-			clickstream.addClickstream404(clickstream404);
+			if (clickstream.getStreamKey() > 0) {
+				ClickstreamWriter.getInstance().add404(clickstream404);
+			} else {
+				clickstream.addClickstream404(clickstream404);
+			}
 		}
 
 	}
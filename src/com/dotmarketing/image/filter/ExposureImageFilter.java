@@ -10,27 +10,15 @@ import javax.imageio.ImageIO;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.jhlabs.image.ExposureFilter;
 
-public class ExposureImageFilter extends ImageFilter {
+public class ExposureImageFilter extends ImageFilter implements InMemoryImageFilter {
 
 	public String[] getAcceptedParameters() {
 		return new String[] { "expx (double)  between 0 and 5.0" };
 	}
 
 	public File runFilter(File file,  Map<String, String[]> parameters) {
-
-		double exp = parameters.get(getPrefix() + "exp") != null ? Double.parseDouble(parameters.get(getPrefix()
-				+ "exp")[0]) : 0.0;
-		float f = new Double(exp).floatValue();
-
-		
-		
 		File resultFile = getResultsFile(file, parameters);
 
-
-
-		ExposureFilter ef = new ExposureFilter();
-		ef.setExposure(f);
-
 		if (!overwrite(resultFile, parameters)) {
 			return resultFile;
 		}
@@ -38,7 +26,7 @@ public class ExposureImageFilter extends ImageFilter {
 		try {
 			BufferedImage src = ImageIO.read(file);
 
-			BufferedImage dst = ef.filter(src, null);
+			BufferedImage dst = filterImage(src, parameters);
 			ImageIO.write(dst, "png", resultFile);
 		} catch (IOException e) {
 			Logger.error(this.getClass(), e.getMessage());
@@ -47,4 +35,15 @@ public class ExposureImageFilter extends ImageFilter {
 		return resultFile;
 	}
 
+	public BufferedImage filterImage(BufferedImage src, Map<String, String[]> parameters) {
+		double exp = parameters.get(getPrefix() + "exp") != null ? Double.parseDouble(parameters.get(getPrefix()
+				+ "exp")[0]) : 0.0;
+		float f = new Double(exp).floatValue();
+
+		ExposureFilter ef = new ExposureFilter();
+		ef.setExposure(f);
+
+		return ef.filter(src, null);
+	}
+
 }
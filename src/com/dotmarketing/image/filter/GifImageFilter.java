@@ -18,13 +18,18 @@ import javax.imageio.stream.ImageOutputStream;
 
 import com.dotmarketing.util.Logger;
 
-public class GifImageFilter extends ImageFilter {
+public class GifImageFilter extends ImageFilter implements ImageWriterFilter {
 	public String[] getAcceptedParameters(){
 		return  new String[] {
 				"q (int) specifies quality",
 
 		};
 	}
+
+	public String getFileExtension() {
+		return "gif";
+	}
+
 	public File runFilter(File file,   Map<String, String[]> parameters) {
 
 		File resultFile = getResultsFile(file, parameters, "gif");
@@ -36,24 +41,7 @@ public class GifImageFilter extends ImageFilter {
 		resultFile.delete();
 
 		try {
-			Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("gif");
-			ImageWriter writer = iter.next();
-			ImageWriteParam iwp = writer.getDefaultWriteParam();
-
-			BufferedImage src = ImageIO.read(file);
-			BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
-			Graphics2D graphics = dst.createGraphics();  
-
-			graphics.setPaint ( new Color ( 255, 255, 255 ) );
-
-			graphics.fillRect(0, 0, src.getWidth(), src.getHeight());
-			graphics.drawImage(src, 0, 0, src.getWidth(), src.getHeight(),null);
-			ImageOutputStream ios = ImageIO.createImageOutputStream(resultFile);
-			writer.setOutput(ios);
-			writer.write(null,new IIOImage(dst,null,null),iwp);
-			ios.flush();
-			writer.dispose();
-			ios.close();
+			writeImage(ImageIO.read(file), parameters, resultFile);
 			//writer.setOutput(output);
 
 		//	IIOImage image = new IIOImage(src, null, null);
@@ -75,4 +63,24 @@ public class GifImageFilter extends ImageFilter {
 	}
 	
 
+	public void writeImage(BufferedImage src, Map<String, String[]> parameters, File resultFile) throws IOException {
+		Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("gif");
+		ImageWriter writer = iter.next();
+		ImageWriteParam iwp = writer.getDefaultWriteParam();
+
+		BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
+		Graphics2D graphics = dst.createGraphics();
+
+		graphics.setPaint ( new Color ( 255, 255, 255 ) );
+
+		graphics.fillRect(0, 0, src.getWidth(), src.getHeight());
+		graphics.drawImage(src, 0, 0, src.getWidth(), src.getHeight(),null);
+		ImageOutputStream ios = ImageIO.createImageOutputStream(resultFile);
+		writer.setOutput(ios);
+		writer.write(null,new IIOImage(dst,null,null),iwp);
+		ios.flush();
+		writer.dispose();
+		ios.close();
+	}
+
 }
@@ -10,16 +10,14 @@ import javax.imageio.ImageIO;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.jhlabs.image.GrayscaleFilter;
 
-public class GrayscaleImageFilter extends ImageFilter {
+public class GrayscaleImageFilter extends ImageFilter implements InMemoryImageFilter {
 
 	public String[] getAcceptedParameters() {
 		return new String[] { "none" };
 	}
 
 	public File runFilter(File file,  Map<String, String[]> parameters) {
-
 		File resultFile = getResultsFile(file, parameters);
-		GrayscaleFilter filter = new GrayscaleFilter();
 
 		if (!overwrite(resultFile, parameters)) {
 			return resultFile;
@@ -28,7 +26,7 @@ public class GrayscaleImageFilter extends ImageFilter {
 		try {
 			BufferedImage src = ImageIO.read(file);
 
-			BufferedImage dst = filter.filter(src, null);
+			BufferedImage dst = filterImage(src, parameters);
 			ImageIO.write(dst, "png", resultFile);
 		} catch (IOException e) {
 			Logger.error(this.getClass(), e.getMessage());
@@ -37,4 +35,9 @@ public class GrayscaleImageFilter extends ImageFilter {
 		return resultFile;
 	}
 
+	public BufferedImage filterImage(BufferedImage src, Map<String, String[]> parameters) {
+		GrayscaleFilter filter = new GrayscaleFilter();
+		return filter.filter(src, null);
+	}
+
 }
@@ -0,0 +1,67 @@
+package com.dotmarketing.image.filter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.collections.map.LRUMap;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Resolves the filter names used in the "filter=" parameter (e.g. Resize, Crop, Jpeg) to
+ * the com.dotmarketing.image.filter.&lt;name&gt;ImageFilter instances. The filters keep no
+ * state between calls, so each class is instantiated once and reused by every request.
+ */
+public class ImageFilterRegistry {
+
+	private static final String PACKAGE = "com.dotmarketing.image.filter.";
+
+	private static final Map<String, ImageFilter> filters = new ConcurrentHashMap<String, ImageFilter>();
+
+	// names that have no filter, bounded as they come from the request
+	@SuppressWarnings("unchecked")
+	private static final Map<String, Boolean> missing = Collections.synchronizedMap(new LRUMap(1000));
+
+	/**
+	 * Registers a filter under the given name, replacing the default one if any
+	 * @param name
+	 * @param filter
+	 */
+	public static void register(String name, ImageFilter filter) {
+		filters.put(name, filter);
+		missing.remove(name);
+	}
+
+	/**
+	 * Returns the filter for the given name or null if there is no such filter
+	 * @param name
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static ImageFilter getFilter(String name) {
+		ImageFilter filter = filters.get(name);
+		if (filter != null || missing.containsKey(name)) {
+			return filter;
+		}
+		String clazz = PACKAGE + name + "ImageFilter";
+		try {
+			Class<ImageFilter> iFilter = (Class<ImageFilter>) Class.forName(clazz);
+			filter = iFilter.newInstance();
+			filters.put(name, filter);
+		} catch (ClassNotFoundException e) {
+			Logger.debug(ImageFilterRegistry.class, "Unable to instanciate : " + clazz);
+		} catch (InstantiationException e) {
+			Logger.debug(ImageFilterRegistry.class, "InstantiationException : " + clazz);
+		} catch (IllegalAccessException e) {
+			Logger.debug(ImageFilterRegistry.class, "IllegalAccessException : " + clazz);
+		} catch (ClassCastException e) {
+			Logger.debug(ImageFilterRegistry.class, "Not an image filter : " + clazz);
+		}
+		if (filter == null) {
+			missing.put(name, Boolean.TRUE);
+		}
+		return filter;
+	}
+
+}
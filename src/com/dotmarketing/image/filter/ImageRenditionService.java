@@ -0,0 +1,210 @@
+package com.dotmarketing.image.filter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import com.dotmarketing.business.DotStateException;
+import com.dotmarketing.exception.DotRuntimeException;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Generates the renditions of an image for a chain of filters.
+ *
+ * When every filter of the chain is an {@link InMemoryImageFilter} (the last one can also be
+ * an {@link ImageWriterFilter}) the source is decoded once, every filter works on the decoded
+ * image and only the final rendition is written to disk. Other chains run filter by filter
+ * as {@link ImageFilter#runFilter} always did.
+ *
+ * Concurrent requests for the same rendition wait for the one generating it, and renditions
+ * are generated by at most IMAGE_RENDITION_THREADS threads with up to
+ * IMAGE_RENDITION_QUEUE_SIZE waiting jobs. Generated files are tracked by an
+ * {@link ImageRenditionStore} that removes the least recently used ones.
+ */
+public class ImageRenditionService {
+
+	private static final ImageRenditionService instance = new ImageRenditionService();
+
+	private final ConcurrentHashMap<String, FutureTask<File>> inFlight = new ConcurrentHashMap<String, FutureTask<File>>();
+	private final ThreadPoolExecutor pool;
+	private final ImageRenditionStore store = new ImageRenditionStore();
+
+	private ImageRenditionService() {
+		int threads = Config.getIntProperty("IMAGE_RENDITION_THREADS", Runtime.getRuntime().availableProcessors());
+		int queueSize = Config.getIntProperty("IMAGE_RENDITION_QUEUE_SIZE", 200);
+		final AtomicInteger count = new AtomicInteger();
+		pool = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(Math.max(1, queueSize)), new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "ImageRendition-" + count.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		pool.allowCoreThreadTimeOut(true);
+	}
+
+	public static ImageRenditionService getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the rendition of the file for the given chain of filter names, generating it if
+	 * needed. Unknown filters are skipped.
+	 * @param file source image
+	 * @param filterNames filter names as in the "filter=" parameter
+	 * @param parameters request parameters
+	 * @return the rendition, or the file itself when there is nothing to do
+	 * @throws Exception
+	 */
+	public File getRendition(final File file, String[] filterNames, final Map<String, String[]> parameters) throws Exception {
+		final List<ImageFilter> chain = new ArrayList<ImageFilter>();
+		for (String name : filterNames) {
+			ImageFilter filter = ImageFilterRegistry.getFilter(name);
+			if (filter != null) {
+				chain.add(filter);
+			}
+		}
+		if (chain.isEmpty()) {
+			return file;
+		}
+
+		final ImageFilter last = chain.get(chain.size() - 1);
+		final boolean inMemory = canRunInMemory(chain);
+		String ext = (last instanceof ImageWriterFilter) ? ((ImageWriterFilter) last).getFileExtension() : ImageFilter.FILE_EXT;
+		// the unique file name of the last filter covers the whole chain and its parameters
+		final File rendition;
+		try {
+			rendition = last.getResultsFile(file, parameters, ext);
+		} catch (DotRuntimeException e) {
+			Logger.debug(ImageRenditionService.class, "Unable to name the rendition of " + file.getName() + ", running the filters one by one", e);
+			return runChain(file, chain, parameters);
+		}
+
+		if (inMemory && !last.overwrite(rendition, parameters)) {
+			store.touch(rendition);
+			return rendition;
+		}
+
+		final String key = rendition.getPath();
+		FutureTask<File> task = new FutureTask<File>(new Callable<File>() {
+			public File call() throws Exception {
+				try {
+					return inMemory ? render(file, chain, parameters, rendition) : runChain(file, chain, parameters);
+				} finally {
+					inFlight.remove(key);
+				}
+			}
+		});
+		FutureTask<File> running = inFlight.putIfAbsent(key, task);
+		if (running == null) {
+			running = task;
+			try {
+				pool.execute(task);
+			} catch (RejectedExecutionException e) {
+				inFlight.remove(key, task);
+				throw new DotStateException("Too many image renditions waiting, unable to generate " + key);
+			}
+		}
+
+		try {
+			return running.get(Config.getIntProperty("IMAGE_RENDITION_WAIT", 60000), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			throw new DotStateException("Timed out waiting for image rendition " + key);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw (cause instanceof Exception) ? (Exception) cause : e;
+		}
+	}
+
+	private boolean canRunInMemory(List<ImageFilter> chain) {
+		Set<String> names = new HashSet<String>();
+		for (int i = 0; i < chain.size(); i++) {
+			ImageFilter filter = chain.get(i);
+			boolean lastWriter = (i == chain.size() - 1) && filter instanceof ImageWriterFilter;
+			if (!(filter instanceof InMemoryImageFilter) && !lastWriter) {
+				return false;
+			}
+			// the unique file name stops at the first filter with the name of the last one
+			if (!names.add(filter.getFilterName())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private File render(File file, List<ImageFilter> chain, Map<String, String[]> parameters, File rendition) throws IOException {
+		BufferedImage image = ImageIO.read(file);
+		if (image == null) {
+			throw new IOException("Unable to read image " + file.getName());
+		}
+		BufferedImage src = image;
+		ImageFilter last = chain.get(chain.size() - 1);
+		for (ImageFilter filter : chain) {
+			if (filter instanceof InMemoryImageFilter) {
+				image = ((InMemoryImageFilter) filter).filterImage(image, parameters);
+			}
+		}
+		if (image == src && !(last instanceof ImageWriterFilter)) {
+			return file;
+		}
+
+		// write to a temp file first so nobody serves a half written rendition
+		File tmp = new File(rendition.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+		if (last instanceof ImageWriterFilter) {
+			((ImageWriterFilter) last).writeImage(image, parameters, tmp);
+		} else {
+			ImageIO.write(image, ImageFilter.FILE_EXT, tmp);
+		}
+		rendition.delete();
+		if (!tmp.renameTo(rendition)) {
+			tmp.delete();
+			throw new IOException("Unable to write rendition " + rendition.getPath());
+		}
+		store.add(rendition);
+		return rendition;
+	}
+
+	private File runChain(File file, List<ImageFilter> chain, Map<String, String[]> parameters) {
+		for (ImageFilter filter : chain) {
+			try {
+				file = filter.runFilter(file, parameters);
+			} catch (Exception e) {
+				Logger.error(ImageRenditionService.class, "Exception in " + filter.getClass().getName() + " :" + e.getMessage());
+			}
+		}
+		return file;
+	}
+
+	public int getActiveRenditions() {
+		return pool.getActiveCount();
+	}
+
+	public int getQueuedRenditions() {
+		return pool.getQueue().size();
+	}
+
+	public ImageRenditionStore getStore() {
+		return store;
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.dotmarketing.image.filter;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Keeps track of the rendition files generated by the {@link ImageRenditionService} in
+ * least recently used order. When the renditions take more than
+ * IMAGE_RENDITION_STORE_MAX_SIZE megabytes (0 for no limit) the least recently used ones
+ * are deleted from disk, they are generated again the next time they are requested.
+ */
+public class ImageRenditionStore {
+
+	private final LinkedHashMap<String, Long> renditions = new LinkedHashMap<String, Long>(256, 0.75f, true);
+	private final long maxSize;
+	private long size = 0;
+	private long evictions = 0;
+
+	public ImageRenditionStore() {
+		this.maxSize = Config.getIntProperty("IMAGE_RENDITION_STORE_MAX_SIZE", 1024) * 1024L * 1024L;
+	}
+
+	/**
+	 * Marks the rendition as the most recently used, adding it to the store if it was
+	 * generated before this store knew about it
+	 * @param rendition
+	 */
+	public void touch(File rendition) {
+		synchronized (renditions) {
+			if (renditions.get(rendition.getPath()) != null) {
+				return;
+			}
+		}
+		add(rendition);
+	}
+
+	/**
+	 * Adds a rendition to the store evicting the least recently used renditions if needed
+	 * @param rendition
+	 */
+	public void add(File rendition) {
+		long length = rendition.length();
+		synchronized (renditions) {
+			Long old = renditions.put(rendition.getPath(), length);
+			size += length - (old == null ? 0 : old);
+			if (maxSize <= 0) {
+				return;
+			}
+			Iterator<Map.Entry<String, Long>> it = renditions.entrySet().iterator();
+			while (size > maxSize && it.hasNext()) {
+				Map.Entry<String, Long> eldest = it.next();
+				if (eldest.getKey().equals(rendition.getPath())) {
+					continue;
+				}
+				it.remove();
+				size -= eldest.getValue();
+				evictions++;
+				if (!new File(eldest.getKey()).delete()) {
+					Logger.debug(ImageRenditionStore.class, "Unable to delete evicted rendition " + eldest.getKey());
+				}
+			}
+		}
+	}
+
+	public int getCount() {
+		synchronized (renditions) {
+			return renditions.size();
+		}
+	}
+
+	public long getSize() {
+		synchronized (renditions) {
+			return size;
+		}
+	}
+
+	public long getEvictions() {
+		synchronized (renditions) {
+			return evictions;
+		}
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.dotmarketing.image.filter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A filter that sets the format of the rendition, like jpeg or gif. In a chain of
+ * {@link InMemoryImageFilter}s it can only be the last one.
+ */
+public interface ImageWriterFilter extends ImageFilterIf {
+
+	public String getFileExtension();
+
+	public void writeImage(BufferedImage src, Map<String, String[]> parameters, File resultFile) throws IOException;
+
+}
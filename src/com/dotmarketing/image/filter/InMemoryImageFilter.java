@@ -0,0 +1,19 @@
+package com.dotmarketing.image.filter;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+
+/**
+ * A filter that can work on an already decoded image, so a chain of these filters
+ * decodes the source image once and encodes the rendition once
+ * (see {@link ImageRenditionService}).
+ */
+public interface InMemoryImageFilter extends ImageFilterIf {
+
+	/**
+	 * Applies the filter to the image. Returns the same image if the parameters
+	 * do not change it.
+	 */
+	public BufferedImage filterImage(BufferedImage src, Map<String, String[]> parameters);
+
+}
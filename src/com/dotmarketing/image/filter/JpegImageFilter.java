@@ -18,20 +18,19 @@ import javax.imageio.stream.ImageOutputStream;
 
 import com.dotmarketing.util.Logger;
 
-public class JpegImageFilter extends ImageFilter {
+public class JpegImageFilter extends ImageFilter implements ImageWriterFilter {
 	public String[] getAcceptedParameters(){
 		return  new String[] {
 				"q (int) specifies quality",
 
 		};
 	}
-	public File runFilter(File file,   Map<String, String[]> parameters) {
-		int quality = parameters.get(getPrefix() +"q") != null?Integer.parseInt(parameters.get(getPrefix() +"q")[0]):85;
 
-		
-		Double q = new Double(quality);
-		q = q/100;
-		
+	public String getFileExtension() {
+		return "jpg";
+	}
+
+	public File runFilter(File file,   Map<String, String[]> parameters) {
 		File resultFile = getResultsFile(file, parameters, "jpg");
 
 		if(!overwrite(resultFile,parameters)){
@@ -41,25 +40,7 @@ public class JpegImageFilter extends ImageFilter {
 		resultFile.delete();
 
 		try {
-			Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("jpeg");
-			ImageWriter writer = iter.next();
-			ImageWriteParam iwp = writer.getDefaultWriteParam();
-			iwp.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-			iwp.setCompressionQuality(q.floatValue());   
-			BufferedImage src = ImageIO.read(file);
-			BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-			Graphics2D graphics = dst.createGraphics();  
-
-			graphics.setPaint ( new Color ( 255, 255, 255 ) );
-
-			graphics.fillRect(0, 0, src.getWidth(), src.getHeight());
-			graphics.drawImage(src, 0, 0, src.getWidth(), src.getHeight(),null);
-			ImageOutputStream ios = ImageIO.createImageOutputStream(resultFile);
-			writer.setOutput(ios);
-			writer.write(null,new IIOImage(dst,null,null),iwp);
-			ios.flush();
-			writer.dispose();
-			ios.close();
+			writeImage(ImageIO.read(file), parameters, resultFile);
 			//writer.setOutput(output);
 
 		//	IIOImage image = new IIOImage(src, null, null);
@@ -81,4 +62,30 @@ public class JpegImageFilter extends ImageFilter {
 	}
 	
 
+	public void writeImage(BufferedImage src, Map<String, String[]> parameters, File resultFile) throws IOException {
+		int quality = parameters.get(getPrefix() +"q") != null?Integer.parseInt(parameters.get(getPrefix() +"q")[0]):85;
+
+		Double q = new Double(quality);
+		q = q/100;
+
+		Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("jpeg");
+		ImageWriter writer = iter.next();
+		ImageWriteParam iwp = writer.getDefaultWriteParam();
+		iwp.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		iwp.setCompressionQuality(q.floatValue());
+		BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D graphics = dst.createGraphics();
+
+		graphics.setPaint ( new Color ( 255, 255, 255 ) );
+
+		graphics.fillRect(0, 0, src.getWidth(), src.getHeight());
+		graphics.drawImage(src, 0, 0, src.getWidth(), src.getHeight(),null);
+		ImageOutputStream ios = ImageIO.createImageOutputStream(resultFile);
+		writer.setOutput(ios);
+		writer.write(null,new IIOImage(dst,null,null),iwp);
+		ios.flush();
+		writer.dispose();
+		ios.close();
+	}
+
 }
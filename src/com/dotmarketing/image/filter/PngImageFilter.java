@@ -18,13 +18,18 @@ import javax.imageio.stream.ImageOutputStream;
 
 import com.dotmarketing.util.Logger;
 
-public class PngImageFilter extends ImageFilter {
+public class PngImageFilter extends ImageFilter implements ImageWriterFilter {
 	public String[] getAcceptedParameters(){
 		return  new String[] {
 				
 
 		};
 	}
+
+	public String getFileExtension() {
+		return "png";
+	}
+
 	public File runFilter(File file,   Map<String, String[]> parameters) {
 
 		File resultFile = getResultsFile(file, parameters);
@@ -35,21 +40,7 @@ public class PngImageFilter extends ImageFilter {
 		
 		resultFile.delete();
 		try{
-			BufferedImage src = ImageIO.read(file);
-			Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("png");
-			ImageWriter writer = iter.next();
-			ImageWriteParam iwp = writer.getDefaultWriteParam();
-			BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
-			Graphics2D graphics = dst.createGraphics();  
-
-			//graphics.fillRect(0, 0, src.getWidth(), src.getHeight());
-			graphics.drawImage(src, 0, 0, src.getWidth(), src.getHeight(),null);
-			ImageOutputStream ios = ImageIO.createImageOutputStream(resultFile);
-			writer.setOutput(ios);
-			writer.write(null,new IIOImage(dst,null,null),iwp);
-			ios.flush();
-			writer.dispose();
-			ios.close();
+			writeImage(ImageIO.read(file), parameters, resultFile);
 		} catch (FileNotFoundException e) {
 			Logger.error(this.getClass(), e.getMessage());
 		} catch (IOException e) {
@@ -64,4 +55,21 @@ public class PngImageFilter extends ImageFilter {
 	}
 	
 
+	public void writeImage(BufferedImage src, Map<String, String[]> parameters, File resultFile) throws IOException {
+		Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("png");
+		ImageWriter writer = iter.next();
+		ImageWriteParam iwp = writer.getDefaultWriteParam();
+		BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
+		Graphics2D graphics = dst.createGraphics();
+
+		//graphics.fillRect(0, 0, src.getWidth(), src.getHeight());
+		graphics.drawImage(src, 0, 0, src.getWidth(), src.getHeight(),null);
+		ImageOutputStream ios = ImageIO.createImageOutputStream(resultFile);
+		writer.setOutput(ios);
+		writer.write(null,new IIOImage(dst,null,null),iwp);
+		ios.flush();
+		writer.dispose();
+		ios.close();
+	}
+
 }
@@ -14,7 +14,7 @@ import com.dotmarketing.jhlabs.image.ScaleFilter;
 import com.dotmarketing.util.ImageResizeUtils;
 import com.dotmarketing.util.Logger;
 
-public class ResizeImageFilter extends ImageFilter {
+public class ResizeImageFilter extends ImageFilter implements InMemoryImageFilter {
 	public String[] getAcceptedParameters(){
 		return  new String[] {
 				"w (int) specifies width",
@@ -22,9 +22,6 @@ public class ResizeImageFilter extends ImageFilter {
 		};
 	}
 	public File runFilter(File file,    Map<String, String[]> parameters) {
-		int w = parameters.get(getPrefix() +"w") != null?Integer.parseInt(parameters.get(getPrefix() +"w")[0]):0;
-		int h = parameters.get(getPrefix() +"h") != null?Integer.parseInt(parameters.get(getPrefix() +"h")[0]):0;
-		
 		File resultFile = getResultsFile(file, parameters);
 
 		
@@ -39,28 +36,10 @@ public class ResizeImageFilter extends ImageFilter {
 		try {
 			
 			BufferedImage src = ImageIO.read(file);
-			if(w ==0 && h ==0){
+			BufferedImage dst = filterImage(src, parameters);
+			if(dst == src){
 				return file;
 			}
-			if(w ==0 && h >0){
-				w = h * src.getWidth() / src.getHeight();
-			}
-			if(w >0 && h ==0){
-				h =w * src.getHeight() / src.getWidth();
-			}
-			
-			
-			
-			
-			
-			
-			
-			ScaleFilter filter = new ScaleFilter(w,h);
-
-			BufferedImage dst = new BufferedImage(w, h,
-					BufferedImage.TYPE_INT_ARGB);
-
-			 dst = filter.filter(src, dst);
 			ImageIO.write(dst, "png", resultFile);
 			return resultFile;
 			
@@ -85,4 +64,25 @@ public class ResizeImageFilter extends ImageFilter {
 	
 	
 
+	public BufferedImage filterImage(BufferedImage src, Map<String, String[]> parameters) {
+		int w = parameters.get(getPrefix() +"w") != null?Integer.parseInt(parameters.get(getPrefix() +"w")[0]):0;
+		int h = parameters.get(getPrefix() +"h") != null?Integer.parseInt(parameters.get(getPrefix() +"h")[0]):0;
+		if(w ==0 && h ==0){
+			return src;
+		}
+		if(w ==0 && h >0){
+			w = h * src.getWidth() / src.getHeight();
+		}
+		if(w >0 && h ==0){
+			h =w * src.getHeight() / src.getWidth();
+		}
+
+		ScaleFilter filter = new ScaleFilter(w,h);
+
+		BufferedImage dst = new BufferedImage(w, h,
+				BufferedImage.TYPE_INT_ARGB);
+
+		return filter.filter(src, dst);
+	}
+
 }
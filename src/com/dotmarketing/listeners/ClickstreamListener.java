@@ -14,6 +14,7 @@ import com.dotmarketing.beans.Clickstream;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotHibernateException;
 import com.dotmarketing.factories.ClickstreamFactory;
+import com.dotmarketing.loggers.ClickstreamWriter;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
 
@@ -40,6 +41,10 @@ public class ClickstreamListener implements ServletContextListener, HttpSessionL
     }
 
     public void contextDestroyed(ServletContextEvent sce) {
+    	if(Config.getBooleanProperty("ENABLE_CLICKSTREAM_TRACKING", false)){
+    		// write what is still in the buffer
+    		ClickstreamWriter.getInstance().shutdown();
+    	}
     }
 
     public void sessionCreated(HttpSessionEvent hse) {
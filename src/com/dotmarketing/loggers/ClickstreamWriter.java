@@ -0,0 +1,512 @@
+package com.dotmarketing.loggers;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.dotmarketing.beans.Clickstream;
+import com.dotmarketing.beans.Clickstream404;
+import com.dotmarketing.beans.ClickstreamRequest;
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.mbeans.ClickstreamInfo;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.factories.ClickstreamFactory;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.DNSUtil;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+
+/**
+ * Writes the clickstreams to the database in background.
+ *
+ * Request threads only add small events to a lock free ring buffer of
+ * CLICKSTREAM_BUFFER_SIZE events and never wait: when the buffer is full the event is
+ * dropped and counted. A single writer thread takes the events every
+ * CLICKSTREAM_SAVE_INTERVAL seconds (or as soon as the buffer is half full), inserts the
+ * clickstream row when a stream starts, the clickstream_request rows with JDBC batches
+ * and updates the clickstream row when the session ends.
+ */
+public class ClickstreamWriter {
+
+	private static final int START = 1;
+	private static final int REQUEST = 2;
+	private static final int END = 3;
+	private static final int NOT_FOUND = 4;
+
+	private static class Event {
+		final int type;
+		final long key;
+		final Clickstream stream;
+		final List<ClickstreamRequest> requests;
+		final ClickstreamRequest request;
+		final Clickstream404 notFound;
+
+		Event(int type, long key, Clickstream stream, List<ClickstreamRequest> requests, ClickstreamRequest request, Clickstream404 notFound) {
+			this.type = type;
+			this.key = key;
+			this.stream = stream;
+			this.requests = requests;
+			this.request = request;
+			this.notFound = notFound;
+		}
+	}
+
+	/**
+	 * What the writer needs to know about a stream between its start and its end
+	 */
+	private static class StreamState {
+		final long clickstreamId;
+		String lastPageId;
+
+		StreamState(long clickstreamId, String lastPageId) {
+			this.clickstreamId = clickstreamId;
+			this.lastPageId = lastPageId;
+		}
+	}
+
+	private static final ClickstreamWriter instance = new ClickstreamWriter();
+
+	// multiple producers, single consumer ring: producers claim a slot moving the tail
+	// and then publish the event in it, the writer takes the events in order from the head
+	private final AtomicReferenceArray<Event> ring;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head = 0;
+
+	private final AtomicLong streamKeys = new AtomicLong();
+	private final Map<Long, StreamState> streams = new ConcurrentHashMap<Long, StreamState>();
+
+	private final AtomicLong queued = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong orphans = new AtomicLong();
+
+	private final int batchSize;
+	private final long interval;
+	private final Thread thread;
+	private volatile boolean running = true;
+
+	private ClickstreamWriter() {
+		int size = 1;
+		while (size < Config.getIntProperty("CLICKSTREAM_BUFFER_SIZE", 8192)) {
+			size <<= 1;
+		}
+		ring = new AtomicReferenceArray<Event>(size);
+		mask = size - 1;
+		batchSize = Math.max(1, Config.getIntProperty("CLICKSTREAM_WRITER_BATCH_SIZE", 500));
+		interval = TimeUnit.SECONDS.toNanos(Math.max(1, Config.getIntProperty("CLICKSTREAM_SAVE_INTERVAL", 5)));
+
+		thread = new Thread(new Runnable() {
+			public void run() {
+				runWriter();
+			}
+		}, "ClickstreamWriter");
+		thread.setDaemon(true);
+		thread.start();
+
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(new ClickstreamInfo(this), new ObjectName("org.dotcms:type=Clickstream"));
+		} catch (Exception e) {
+			Logger.debug(ClickstreamWriter.class, "Unable to register Clickstream MBean: " + e.getMessage(), e);
+		}
+	}
+
+	public static ClickstreamWriter getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Starts recording a clickstream. The stream gets its key and a copy of it is queued with
+	 * the requests it had so far, later requests are added with {@link #addRequest}.
+	 * @param clickstream the clickstream in session
+	 * @param requests requests made before the stream was recorded
+	 * @return false if the buffer is full
+	 */
+	public boolean startStream(Clickstream clickstream, List<ClickstreamRequest> requests) {
+		long key = streamKeys.incrementAndGet();
+		if (!offer(new Event(START, key, copy(clickstream), new ArrayList<ClickstreamRequest>(requests), null, null))) {
+			return false;
+		}
+		clickstream.setStreamKey(key);
+		return true;
+	}
+
+	public boolean addRequest(long streamKey, ClickstreamRequest request) {
+		return offer(new Event(REQUEST, streamKey, null, null, request, null));
+	}
+
+	/**
+	 * Queues the final state of a recorded clickstream
+	 * @param clickstream
+	 * @return false if the buffer is full
+	 */
+	public boolean endStream(Clickstream clickstream) {
+		return offer(new Event(END, clickstream.getStreamKey(), copy(clickstream), null, null, null));
+	}
+
+	public boolean add404(Clickstream404 clickstream404) {
+		return offer(new Event(NOT_FOUND, 0, null, null, null, clickstream404));
+	}
+
+	private boolean offer(Event event) {
+		int capacity = mask + 1;
+		for (;;) {
+			long t = tail.get();
+			if (t - head >= capacity) {
+				dropped.incrementAndGet();
+				return false;
+			}
+			if (tail.compareAndSet(t, t + 1)) {
+				ring.lazySet((int) (t & mask), event);
+				queued.incrementAndGet();
+				if (t - head >= capacity / 2) {
+					LockSupport.unpark(thread);
+				}
+				return true;
+			}
+		}
+	}
+
+	private Event poll() {
+		int i = (int) (head & mask);
+		Event event = ring.get(i);
+		if (event == null) {
+			// empty, or the slot is claimed and not published yet
+			return null;
+		}
+		ring.lazySet(i, null);
+		head = head + 1;
+		return event;
+	}
+
+	private void runWriter() {
+		List<Event> events = new ArrayList<Event>(batchSize);
+		while (running) {
+			try {
+				drain(events);
+				if (events.isEmpty()) {
+					LockSupport.parkNanos(this, interval);
+				} else {
+					write(events);
+					events.clear();
+				}
+			} catch (Throwable t) {
+				Logger.error(ClickstreamWriter.class, "Clickstream writer error: " + t.getMessage(), t);
+				events.clear();
+			}
+		}
+	}
+
+	private void drain(List<Event> events) {
+		Event event;
+		while (events.size() < batchSize && (event = poll()) != null) {
+			events.add(event);
+		}
+	}
+
+	/**
+	 * Stops the writer thread after writing the events in the buffer
+	 */
+	public void shutdown() {
+		running = false;
+		LockSupport.unpark(thread);
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(30));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		List<Event> events = new ArrayList<Event>(batchSize);
+		for (drain(events); !events.isEmpty(); drain(events)) {
+			write(events);
+			events.clear();
+		}
+	}
+
+	private void write(List<Event> events) {
+		List<ClickstreamRequest> requests = new ArrayList<ClickstreamRequest>();
+		List<Clickstream> ended = new ArrayList<Clickstream>();
+		List<Clickstream404> notFound = new ArrayList<Clickstream404>();
+		List<Long> started = new ArrayList<Long>();
+		Map<String, Host> hosts = new HashMap<String, Host>();
+		try {
+			HibernateUtil.startTransaction();
+			for (Event event : events) {
+				StreamState state;
+				switch (event.type) {
+				case START:
+					for (ClickstreamRequest request : event.requests) {
+						resolveIdentifier(request, hosts);
+					}
+					Clickstream stream = event.stream;
+					if (!event.requests.isEmpty() && !UtilMethods.isSet(stream.getFirstPageId())) {
+						stream.setFirstPageId(event.requests.get(0).getAssociatedIdentifier());
+					}
+					reverseDns(stream);
+					stream.setLastSaved(new java.util.Date());
+					HibernateUtil.saveOrUpdate(stream);
+					state = new StreamState(stream.getClickstreamId(), stream.getLastPageId());
+					streams.put(event.key, state);
+					started.add(event.key);
+					for (ClickstreamRequest request : event.requests) {
+						addRequest(state, request, requests);
+					}
+					break;
+				case REQUEST:
+					state = streams.get(event.key);
+					if (state == null) {
+						// the start of the stream was dropped or failed
+						orphans.incrementAndGet();
+						break;
+					}
+					resolveIdentifier(event.request, hosts);
+					addRequest(state, event.request, requests);
+					break;
+				case END:
+					state = streams.remove(event.key);
+					if (state == null) {
+						orphans.incrementAndGet();
+						break;
+					}
+					event.stream.setClickstreamId(state.clickstreamId);
+					if (UtilMethods.isSet(state.lastPageId)) {
+						event.stream.setLastPageId(state.lastPageId);
+					}
+					ended.add(event.stream);
+					break;
+				case NOT_FOUND:
+					notFound.add(event.notFound);
+					break;
+				}
+			}
+
+			insertRequests(requests);
+			for (Clickstream404 clickstream404 : notFound) {
+				ClickstreamFactory.save404(clickstream404);
+			}
+			updateEnded(ended);
+
+			HibernateUtil.commitTransaction();
+			written.addAndGet(events.size());
+		} catch (Exception e) {
+			Logger.error(ClickstreamWriter.class, "Unable to write " + events.size() + " clickstream events: " + e.getMessage(), e);
+			failed.addAndGet(events.size());
+			for (Long key : started) {
+				streams.remove(key);
+			}
+			try {
+				HibernateUtil.rollbackTransaction();
+			} catch (DotHibernateException e1) {
+				Logger.error(ClickstreamWriter.class, e1.getMessage(), e1);
+			}
+		} finally {
+			try {
+				HibernateUtil.closeSession();
+			} catch (DotHibernateException e) {
+				Logger.error(ClickstreamWriter.class, e.getMessage(), e);
+			}
+		}
+	}
+
+	private void addRequest(StreamState state, ClickstreamRequest request, List<ClickstreamRequest> requests) {
+		request.setClickstreamId(state.clickstreamId);
+		if (UtilMethods.isSet(request.getAssociatedIdentifier())) {
+			state.lastPageId = request.getAssociatedIdentifier();
+		}
+		requests.add(request);
+	}
+
+	/**
+	 * Looks up the identifier of the page when the request did not have it
+	 */
+	private void resolveIdentifier(ClickstreamRequest request, Map<String, Host> hosts) {
+		if (UtilMethods.isSet(request.getAssociatedIdentifier()) || !UtilMethods.isSet(request.getHostId())) {
+			return;
+		}
+		try {
+			Host host = hosts.get(request.getHostId());
+			if (host == null) {
+				host = APILocator.getHostAPI().find(request.getHostId(), APILocator.getUserAPI().getSystemUser(), false);
+				hosts.put(request.getHostId(), host);
+			}
+			if (host != null) {
+				String id = APILocator.getIdentifierAPI().find(host, request.getRequestURI()).getInode();
+				if (UtilMethods.isSet(id)) {
+					request.setAssociatedIdentifier(id);
+				}
+			}
+		} catch (Exception e) {
+			Logger.debug(ClickstreamWriter.class, "Unable to find the identifier of " + request.getRequestURI(), e);
+		}
+	}
+
+	private void reverseDns(Clickstream clickstream) {
+		if (!UtilMethods.isSet(clickstream.getRemoteHostname()) && UtilMethods.isSet(clickstream.getRemoteAddress())) {
+			String x = clickstream.getRemoteAddress();
+			try {
+				x = DNSUtil.reverseDns(clickstream.getRemoteAddress());
+			} catch (Exception e) {
+
+			}
+			if (!clickstream.getRemoteAddress().equals(x)) {
+				clickstream.setRemoteHostname(x);
+			}
+		}
+	}
+
+	private void insertRequests(List<ClickstreamRequest> requests) throws DotDataException {
+		if (requests.isEmpty()) {
+			return;
+		}
+		String columns = "clickstream_id, server_name, protocol, server_port, request_uri, request_order, query_string, language_id, timestampper, host_id, associated_identifier";
+		String values = "?,?,?,?,?,?,?,?,?,?,?";
+		String sql;
+		if (DbConnectionFactory.isPostgres()) {
+			sql = "insert into clickstream_request (clickstream_request_id, " + columns + ") values (nextval('clickstream_request_seq')," + values + ")";
+		} else if (DbConnectionFactory.isOracle()) {
+			sql = "insert into clickstream_request (clickstream_request_id, " + columns + ") values (clickstream_request_seq.nextval," + values + ")";
+		} else {
+			sql = "insert into clickstream_request (" + columns + ") values (" + values + ")";
+		}
+
+		DotConnect dc = new DotConnect();
+		dc.setSQL(sql);
+		for (ClickstreamRequest request : requests) {
+			dc.addParam(request.getClickstreamId());
+			dc.addParam(request.getServerName());
+			dc.addParam(request.getProtocol());
+			dc.addParam(request.getServerPort());
+			dc.addParam(request.getRequestURI());
+			dc.addParam(request.getRequestOrder());
+			dc.addParam(request.getQueryString());
+			dc.addParam(request.getLanguageId());
+			dc.addParam(request.getTimestamp());
+			dc.addParam(request.getHostId());
+			dc.addParam(request.getAssociatedIdentifier());
+			dc.addBatch();
+		}
+		dc.executeBatch();
+	}
+
+	/**
+	 * Updates the rows of the ended clickstreams and, as the DatabaseClickstreamLogger did,
+	 * the older clickstreams of the same long lived cookie that don't have a user yet.
+	 */
+	private void updateEnded(List<Clickstream> ended) throws Exception {
+		if (ended.isEmpty()) {
+			return;
+		}
+		List<Clickstream> withUser = new ArrayList<Clickstream>();
+		DotConnect dc = new DotConnect();
+		dc.setSQL("update clickstream set end_date = ?, last_page_id = ?, user_id = ?, number_of_requests = ? where clickstream_id = ?");
+		for (Clickstream clickstream : ended) {
+			if (!UtilMethods.isSet(clickstream.getUserId()) && UtilMethods.isSet(clickstream.getCookieId())) {
+				clickstream.setUserId(findCookieUser(clickstream.getCookieId()));
+			}
+			if (UtilMethods.isSet(clickstream.getUserId()) && UtilMethods.isSet(clickstream.getCookieId())) {
+				withUser.add(clickstream);
+			}
+			dc.addParam(clickstream.getLastRequest());
+			dc.addParam(clickstream.getLastPageId());
+			dc.addParam(clickstream.getUserId());
+			dc.addParam(clickstream.getNumberOfRequests());
+			dc.addParam(clickstream.getClickstreamId());
+			dc.addBatch();
+		}
+		dc.executeBatch();
+
+		if (withUser.isEmpty()) {
+			return;
+		}
+		dc.setSQL("update clickstream set user_id = ? where cookie_id = ? and user_id is null");
+		for (Clickstream clickstream : withUser) {
+			dc.addParam(clickstream.getUserId());
+			dc.addParam(clickstream.getCookieId());
+			dc.addBatch();
+		}
+		dc.executeBatch();
+	}
+
+	@SuppressWarnings("unchecked")
+	private String findCookieUser(String cookieId) throws Exception {
+		DotConnect dc = new DotConnect();
+		dc.setSQL("select user_id from clickstream where cookie_id = ? and user_id is not null");
+		dc.addParam(cookieId);
+		dc.setMaxRows(1);
+		List<Map<String, String>> results = dc.loadResults();
+		return results.isEmpty() ? null : results.get(0).get("user_id");
+	}
+
+	private Clickstream copy(Clickstream clickstream) {
+		Clickstream copy = new Clickstream();
+		copy.setStreamKey(clickstream.getStreamKey());
+		copy.setHostname(clickstream.getHostname());
+		copy.setUserId(clickstream.getUserId());
+		copy.setCookieId(clickstream.getCookieId());
+		copy.setRemoteAddress(clickstream.getRemoteAddress());
+		copy.setRemoteHostname(clickstream.getRemoteHostname());
+		copy.setInitialReferrer(clickstream.getInitialReferrer());
+		copy.setUserAgent(clickstream.getUserAgent());
+		copy.setStart(clickstream.getStart());
+		copy.setLastRequest(clickstream.getLastRequest());
+		copy.setBot(clickstream.isBot());
+		copy.setHostId(clickstream.getHostId());
+		copy.setFirstPageId(clickstream.getFirstPageId());
+		copy.setLastPageId(clickstream.getLastPageId());
+		copy.setOperatingSystem(clickstream.getOperatingSystem());
+		copy.setBrowserName(clickstream.getBrowserName());
+		copy.setBrowserVersion(clickstream.getBrowserVersion());
+		copy.setMobileDevice(clickstream.isMobileDevice());
+		copy.setNumberOfRequests(clickstream.getNumberOfRequests());
+		return copy;
+	}
+
+	public long getQueued() {
+		return queued.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public long getWritten() {
+		return written.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public long getOrphans() {
+		return orphans.get();
+	}
+
+	public long getBuffered() {
+		return tail.get() - head;
+	}
+
+	public int getBufferSize() {
+		return mask + 1;
+	}
+
+	public int getOpenStreams() {
+		return streams.size();
+	}
+
+}
@@ -133,6 +133,7 @@ public class CategoryCacheImpl extends CategoryCache {
 			cache.remove(categoryByKeyCacheGroup + object.getKey(), categoryByKeyCacheGroup);
 		}
 		cache.remove(primaryGroup + object.getCategoryId(),primaryGroup);
+		CacheLocator.getContentletCache().clearTranslatedQueries();
 	}
 
     /**
@@ -300,6 +301,7 @@ public class CategoryCacheImpl extends CategoryCache {
 		cache.flushGroup(categoryChildrenCacheGroup);
 		cache.flushGroup(categoryByKeyCacheGroup);
 		cache.flushGroup(categoryParentsCacheGroup);		
+		CacheLocator.getContentletCache().clearTranslatedQueries();
 	}
 	
 	@Override
@@ -39,7 +39,6 @@ import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.DotCacheException;
 import com.dotmarketing.cache.StructureCache;
 import com.dotmarketing.cms.factories.PublicCompanyFactory;
-import com.dotmarketing.common.db.DotConnect;
 import com.dotmarketing.common.reindex.ReindexThread;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
@@ -571,7 +570,6 @@ public class CMSMaintenanceAjax {
 	//			_bout = null;
 
 				/* users_roles */
-				DotConnect dc = new DotConnect();
 	//			dc.setSQL("select * from users_roles");
 	//			_list = dc.getResults();
 	//			_xstream = new XStream(new DomDriver());
@@ -605,70 +603,22 @@ public class CMSMaintenanceAjax {
 	//			_bout = null;
 
 				/* counter */
-				dc.setSQL("select * from counter");
-				_list = dc.getResults();
-				_xstream = new XStream(new DomDriver());
-				_writing = new File(backupTempFilePath + "/Counter.xml");
-				_bout = new BufferedOutputStream(new FileOutputStream(_writing));
-				_xstream.toXML(_list, _bout);
-				_bout.close();
-				_list = null;
-				_bout = null;
+				CMSMaintenanceFactory.exportTable("select * from counter", new File(backupTempFilePath + "/Counter.xml"));
 
 				/* counter */
-				dc.setSQL("select * from address");
-				_list = dc.getResults();
-				_xstream = new XStream(new DomDriver());
-				_writing = new File(backupTempFilePath + "/Address.xml");
-				_bout = new BufferedOutputStream(new FileOutputStream(_writing));
-				_xstream.toXML(_list, _bout);
-				_bout.close();
-				_list = null;
-				_bout = null;
+				CMSMaintenanceFactory.exportTable("select * from address", new File(backupTempFilePath + "/Address.xml"));
 
 				/* pollschoice */
-				dc.setSQL("select * from pollschoice");
-				_list = dc.getResults();
-				_xstream = new XStream(new DomDriver());
-				_writing = new File(backupTempFilePath + "/Pollschoice.xml");
-				_bout = new BufferedOutputStream(new FileOutputStream(_writing));
-				_xstream.toXML(_list, _bout);
-				_bout.close();
-				_list = null;
-				_bout = null;
+				CMSMaintenanceFactory.exportTable("select * from pollschoice", new File(backupTempFilePath + "/Pollschoice.xml"));
 
 				/* pollsdisplay */
-				dc.setSQL("select * from pollsdisplay");
-				_list = dc.getResults();
-				_xstream = new XStream(new DomDriver());
-				_writing = new File(backupTempFilePath + "/Pollsdisplay.xml");
-				_bout = new BufferedOutputStream(new FileOutputStream(_writing));
-				_xstream.toXML(_list, _bout);
-				_bout.close();
-				_list = null;
-				_bout = null;
+				CMSMaintenanceFactory.exportTable("select * from pollsdisplay", new File(backupTempFilePath + "/Pollsdisplay.xml"));
 
 				/* pollsquestion */
-				dc.setSQL("select * from pollsquestion");
-				_list = dc.getResults();
-				_xstream = new XStream(new DomDriver());
-				_writing = new File(backupTempFilePath + "/Pollsquestion.xml");
-				_bout = new BufferedOutputStream(new FileOutputStream(_writing));
-				_xstream.toXML(_list, _bout);
-				_bout.close();
-				_list = null;
-				_bout = null;
+				CMSMaintenanceFactory.exportTable("select * from pollsquestion", new File(backupTempFilePath + "/Pollsquestion.xml"));
 
 				/* pollsvote */
-				dc.setSQL("select * from pollsvote");
-				_list = dc.getResults();
-				_xstream = new XStream(new DomDriver());
-				_writing = new File(backupTempFilePath + "/Pollsvote.xml");
-				_bout = new BufferedOutputStream(new FileOutputStream(_writing));
-				_xstream.toXML(_list, _bout);
-				_bout.close();
-				_list = null;
-				_bout = null;
+				CMSMaintenanceFactory.exportTable("select * from pollsvote", new File(backupTempFilePath + "/Pollsvote.xml"));
 
 				/* image */
 				_list = ImageLocalManagerUtil.getImages();
@@ -696,15 +646,7 @@ public class CMSMaintenanceAjax {
 				 * the object is loaded from liferay and DotConnect is not used
 				 * http://jira.dotmarketing.net/browse/DOTCMS-1911
 				 */
-				dc.setSQL("select * from portlet");
-				_list = dc.getResults();
-				_xstream = new XStream(new DomDriver());
-				_writing = new File(backupTempFilePath + "/Portlet.xml");
-				_bout = new BufferedOutputStream(new FileOutputStream(_writing));
-				_xstream.toXML(_list, _bout);
-				_bout.close();
-				_list = null;
-				_bout = null;
+				CMSMaintenanceFactory.exportTable("select * from portlet", new File(backupTempFilePath + "/Portlet.xml"));
 
 				/* portlet_preferences */
 
@@ -1,21 +1,28 @@
 package com.dotmarketing.portlets.cmsmaintenance.factories;
 
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.List;
-import java.util.Map;
 
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.db.ResultRow;
+import com.dotmarketing.common.db.RowHandler;
 import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotHibernateException;
 import com.dotmarketing.portlets.cmsmaintenance.action.ViewCMSMaintenanceAction;
 import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.DomDriver;
 
 /**
  * This class is use to fix identifiers inconsistencies in db,
@@ -46,10 +53,19 @@ public class CMSMaintenanceFactory {
             
             dc.setSQL(minIdateSQL);
             dc.setMaxRows(1);
-        	List<Map<String, Object>> map =  dc.loadObjectResults();
-        	Date d = (Date) map.get(0).get("idate");
-        	if(d !=null)
-        		runDate.setTime(d);
+            final Date[] d = new Date[1];
+            dc.loadResults(new RowHandler() {
+                public boolean handle(ResultRow row) throws DotDataException {
+                    try {
+                        d[0] = (Date) row.getObject(1);
+                    } catch (SQLException e) {
+                        throw new DotDataException(e.getMessage(), e);
+                    }
+                    return false;
+                }
+            });
+        	if(d[0] !=null)
+        		runDate.setTime(d[0]);
         }
         catch(Exception e){
         	Logger.info(CMSMaintenanceFactory.class, "Can't get start date");
@@ -152,6 +168,41 @@ public class CMSMaintenanceFactory {
 
 	}
 
+	/**
+	 * Writes the rows of the query to the file as an xml list of maps, the same xml XStream
+	 * writes for the list returned by {@link DotConnect#loadResults()}. The rows are streamed
+	 * from the database to the file so big tables are never fully loaded in memory.
+	 * @param sql query of the rows to export
+	 * @param file xml file to write
+	 * @return number of rows exported
+	 * @throws DotDataException
+	 * @throws IOException
+	 */
+	public static int exportTable(String sql, java.io.File file) throws DotDataException, IOException {
+		final XStream xstream = new XStream(new DomDriver());
+		final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			out.write("<list>\n".getBytes("UTF-8"));
+			DotConnect dc = new DotConnect();
+			dc.setSQL(sql);
+			int count = dc.loadResults(new RowHandler() {
+				public boolean handle(ResultRow row) throws DotDataException {
+					xstream.toXML(row.toMap(), out);
+					try {
+						out.write('\n');
+					} catch (IOException e) {
+						throw new DotDataException(e.getMessage(), e);
+					}
+					return true;
+				}
+			});
+			out.write("</list>".getBytes("UTF-8"));
+			return count;
+		} finally {
+			out.close();
+		}
+	}
+
 	/**
 	 * This method get the File date from a dotmarketing file object
 	 * @param file dotmarketing File object
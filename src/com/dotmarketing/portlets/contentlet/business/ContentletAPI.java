@@ -7,6 +7,7 @@ import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import com.dotcms.content.business.DotMappingException;
 import com.dotmarketing.beans.Host;
@@ -271,6 +272,72 @@ public interface ContentletAPI {
 	 * @throws DotDataException 
 	 */
 	public List<ContentletSearch> searchIndex(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles) throws DotSecurityException, DotDataException;
+
+	/**
+	 * Streams the hits of a lucene query to the handler, scrolling the index in batches instead
+	 * of paging with an offset, so exports and operations over whole structures can walk any
+	 * number of hits at a constant cost per hit. Permissions are checked as in
+	 * {@link #searchIndex(String, int, int, String, User, boolean)}.
+	 * @param luceneQuery
+	 * @param sortBy indexName(previously known as dbColumnName) to order by. Can be null or empty string
+	 * @param offset hits to skip, they are still read from the index so it costs as much as reading them
+	 * @param limit 0 or less to handle all the hits
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @param handler gets every hit in order, returns false to stop
+	 * @return the number of hits handled
+	 * @throws DotSecurityException if user is null and respectFrontendRoles is false
+	 * @throws DotDataException
+	 */
+	public long scrollSearchIndex(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletSearchHandler handler) throws DotSecurityException, DotDataException;
+
+	/**
+	 * Same as {@link #scrollSearchIndex(String, String, int, int, User, boolean, ContentletSearchHandler)}
+	 * but the contentlets of the hits are loaded in batches of ES_SCROLL_BATCH_SIZE and passed
+	 * to the handler in the order of the hits
+	 * @param luceneQuery
+	 * @param sortBy indexName(previously known as dbColumnName) to order by. Can be null or empty string
+	 * @param offset hits to skip
+	 * @param limit 0 or less to handle all the hits
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @param handler gets every contentlet in order, returns false to stop
+	 * @return the number of contentlets handled
+	 * @throws DotSecurityException if user is null and respectFrontendRoles is false
+	 * @throws DotDataException
+	 */
+	public long scrollSearch(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletHandler handler) throws DotSecurityException, DotDataException;
+
+	/**
+	 * Same as {@link #searchIndex(String, int, int, String, User, boolean)} but returns as soon as the
+	 * search is sent to the index, so the searches of a page can run at the same time and be joined
+	 * when their results are needed. Permissions are resolved before returning.
+	 * @param luceneQuery
+	 * @param limit
+	 * @param offset
+	 * @param sortBy
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @return the hits once the search is done, get() throws the search failures wrapped in an ExecutionException
+	 * @throws DotSecurityException if user is null and respectFrontendRoles is false
+	 * @throws DotDataException
+	 */
+	public Future<List<ContentletSearch>> searchIndexAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles) throws DotSecurityException, DotDataException;
+
+	/**
+	 * Same as {@link #search(String, int, int, String, User, boolean)} but returns as soon as the
+	 * search is sent to the index. The contentlets are loaded by the thread that calls get().
+	 * @param luceneQuery
+	 * @param limit
+	 * @param offset
+	 * @param sortBy
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @return the contentlets once the search is done, get() throws the search failures wrapped in an ExecutionException
+	 * @throws DotSecurityException if user is null and respectFrontendRoles is false
+	 * @throws DotDataException
+	 */
+	public Future<List<Contentlet>> searchAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles) throws DotSecurityException, DotDataException;
 	
 	/**
 	 * Publishes all related HTMLPage
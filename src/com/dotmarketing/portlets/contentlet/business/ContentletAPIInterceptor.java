@@ -6,6 +6,7 @@ package com.dotmarketing.portlets.contentlet.business;
 import java.io.File;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Future;
 
 import com.dotcms.content.business.DotMappingException;
 import com.dotmarketing.beans.Host;
@@ -1128,6 +1129,78 @@ public class ContentletAPIInterceptor implements ContentletAPI, Interceptor {
 		return c;
 	}
 
+	/* (non-Javadoc)
+	 * @see com.dotmarketing.portlets.contentlet.business.ContentletAPI#scrollSearchIndex(java.lang.String, java.lang.String, int, int, com.liferay.portal.model.User, boolean, com.dotmarketing.portlets.contentlet.business.ContentletSearchHandler)
+	 */
+	public long scrollSearchIndex(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletSearchHandler handler) throws DotSecurityException, DotDataException {
+		for(ContentletAPIPreHook pre : preHooks){
+			boolean preResult = pre.scrollSearchIndex(luceneQuery, sortBy, offset, limit, user, respectFrontendRoles, handler);
+			if(!preResult){
+				Logger.error(this, "The following prehook failed " + pre.getClass().getName());
+				throw new DotRuntimeException("The following prehook failed " + pre.getClass().getName());
+			}
+		}
+		long c = conAPI.scrollSearchIndex(luceneQuery, sortBy, offset, limit, user, respectFrontendRoles, handler);
+		for(ContentletAPIPostHook post : postHooks){
+			post.scrollSearchIndex(luceneQuery, sortBy, offset, limit, user, respectFrontendRoles, handler, c);
+		}
+		return c;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.dotmarketing.portlets.contentlet.business.ContentletAPI#scrollSearch(java.lang.String, java.lang.String, int, int, com.liferay.portal.model.User, boolean, com.dotmarketing.portlets.contentlet.business.ContentletHandler)
+	 */
+	public long scrollSearch(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletHandler handler) throws DotSecurityException, DotDataException {
+		for(ContentletAPIPreHook pre : preHooks){
+			boolean preResult = pre.scrollSearch(luceneQuery, sortBy, offset, limit, user, respectFrontendRoles, handler);
+			if(!preResult){
+				Logger.error(this, "The following prehook failed " + pre.getClass().getName());
+				throw new DotRuntimeException("The following prehook failed " + pre.getClass().getName());
+			}
+		}
+		long c = conAPI.scrollSearch(luceneQuery, sortBy, offset, limit, user, respectFrontendRoles, handler);
+		for(ContentletAPIPostHook post : postHooks){
+			post.scrollSearch(luceneQuery, sortBy, offset, limit, user, respectFrontendRoles, handler, c);
+		}
+		return c;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.dotmarketing.portlets.contentlet.business.ContentletAPI#searchIndexAsync(java.lang.String, int, int, java.lang.String, com.liferay.portal.model.User, boolean)
+	 */
+	public Future<List<ContentletSearch>> searchIndexAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles) throws DotSecurityException, DotDataException {
+		for(ContentletAPIPreHook pre : preHooks){
+			boolean preResult = pre.searchIndexAsync(luceneQuery, limit, offset, sortBy, user, respectFrontendRoles);
+			if(!preResult){
+				Logger.error(this, "The following prehook failed " + pre.getClass().getName());
+				throw new DotRuntimeException("The following prehook failed " + pre.getClass().getName());
+			}
+		}
+		Future<List<ContentletSearch>> c = conAPI.searchIndexAsync(luceneQuery, limit, offset, sortBy, user, respectFrontendRoles);
+		for(ContentletAPIPostHook post : postHooks){
+			post.searchIndexAsync(luceneQuery, limit, offset, sortBy, user, respectFrontendRoles, c);
+		}
+		return c;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.dotmarketing.portlets.contentlet.business.ContentletAPI#searchAsync(java.lang.String, int, int, java.lang.String, com.liferay.portal.model.User, boolean)
+	 */
+	public Future<List<Contentlet>> searchAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles) throws DotSecurityException, DotDataException {
+		for(ContentletAPIPreHook pre : preHooks){
+			boolean preResult = pre.searchAsync(luceneQuery, limit, offset, sortBy, user, respectFrontendRoles);
+			if(!preResult){
+				Logger.error(this, "The following prehook failed " + pre.getClass().getName());
+				throw new DotRuntimeException("The following prehook failed " + pre.getClass().getName());
+			}
+		}
+		Future<List<Contentlet>> c = conAPI.searchAsync(luceneQuery, limit, offset, sortBy, user, respectFrontendRoles);
+		for(ContentletAPIPostHook post : postHooks){
+			post.searchAsync(luceneQuery, limit, offset, sortBy, user, respectFrontendRoles, c);
+		}
+		return c;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.dotmarketing.portlets.contentlet.business.ContentletAPI#isContentEqual(com.dotmarketing.portlets.contentlet.model.Contentlet, com.dotmarketing.portlets.contentlet.model.Contentlet, com.liferay.portal.model.User, boolean)
 	 */
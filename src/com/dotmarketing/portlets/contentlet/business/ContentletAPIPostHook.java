@@ -7,6 +7,7 @@ import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
@@ -201,6 +202,56 @@ public interface ContentletAPIPostHook {
 	 */
 
 	public void searchIndex(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles,List<ContentletSearch> returnValue);
+
+	/**
+	 * Streams the hits of a lucene query to the handler
+	 * @param luceneQuery
+	 * @param sortBy
+	 * @param offset
+	 * @param limit
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @param handler
+	 * @param returnValue - value returned by primary API Method
+	 */
+	public void scrollSearchIndex(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletSearchHandler handler, long returnValue);
+
+	/**
+	 * Streams the contentlets of a lucene query to the handler
+	 * @param luceneQuery
+	 * @param sortBy
+	 * @param offset
+	 * @param limit
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @param handler
+	 * @param returnValue - value returned by primary API Method
+	 */
+	public void scrollSearch(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletHandler handler, long returnValue);
+
+	/**
+	 * Sends a lucene query to the index without waiting for the hits
+	 * @param luceneQuery
+	 * @param limit
+	 * @param offset
+	 * @param sortBy
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @param returnValue - value returned by primary API Method
+	 */
+	public void searchIndexAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles, Future<List<ContentletSearch>> returnValue);
+
+	/**
+	 * Sends a lucene query to the index without waiting for the contentlets
+	 * @param luceneQuery
+	 * @param limit
+	 * @param offset
+	 * @param sortBy
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @param returnValue - value returned by primary API Method
+	 */
+	public void searchAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles, Future<List<Contentlet>> returnValue);
 	
 	/**
 	 * Publishes all related HTMLPage
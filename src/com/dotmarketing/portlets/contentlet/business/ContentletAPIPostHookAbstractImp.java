@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * @author Armando Siem
@@ -83,6 +84,18 @@ public abstract class ContentletAPIPostHookAbstractImp implements ContentletAPIP
 
 	public void searchIndex(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles,List<ContentletSearch> returnValue) {
 	}
+
+	public void scrollSearchIndex(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletSearchHandler handler, long returnValue) {
+	}
+
+	public void scrollSearch(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletHandler handler, long returnValue) {
+	}
+
+	public void searchIndexAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles, Future<List<ContentletSearch>> returnValue) {
+	}
+
+	public void searchAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles, Future<List<Contentlet>> returnValue) {
+	}
 	
 	public void publishRelatedHtmlPages(Contentlet contentlet) {
 	}
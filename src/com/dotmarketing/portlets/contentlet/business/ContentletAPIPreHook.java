@@ -201,6 +201,56 @@ public interface ContentletAPIPreHook {
 	 */
 
 	public boolean searchIndex(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles);
+
+	/**
+	 * Streams the hits of a lucene query to the handler
+	 * @param luceneQuery
+	 * @param sortBy
+	 * @param offset
+	 * @param limit
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @param handler
+	 * @return
+	 */
+	public boolean scrollSearchIndex(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletSearchHandler handler);
+
+	/**
+	 * Streams the contentlets of a lucene query to the handler
+	 * @param luceneQuery
+	 * @param sortBy
+	 * @param offset
+	 * @param limit
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @param handler
+	 * @return
+	 */
+	public boolean scrollSearch(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletHandler handler);
+
+	/**
+	 * Sends a lucene query to the index without waiting for the hits
+	 * @param luceneQuery
+	 * @param limit
+	 * @param offset
+	 * @param sortBy
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @return
+	 */
+	public boolean searchIndexAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles);
+
+	/**
+	 * Sends a lucene query to the index without waiting for the contentlets
+	 * @param luceneQuery
+	 * @param limit
+	 * @param offset
+	 * @param sortBy
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @return
+	 */
+	public boolean searchAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles);
 	
 	/**
 	 * Publishes all related HTMLPage
@@ -509,6 +509,22 @@ public abstract class ContentletAPIPreHookAbstractImp implements ContentletAPIPr
 		return true;
 	}
 
+	public boolean scrollSearchIndex(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletSearchHandler handler) {
+		return true;
+	}
+
+	public boolean scrollSearch(String luceneQuery, String sortBy, int offset, int limit, User user, boolean respectFrontendRoles, ContentletHandler handler) {
+		return true;
+	}
+
+	public boolean searchIndexAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles) {
+		return true;
+	}
+
+	public boolean searchAsync(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles) {
+		return true;
+	}
+
 	public boolean searchIndexCount(String luceneQuery, User user, boolean respectFrontendRoles) {
 		return true;
 	}
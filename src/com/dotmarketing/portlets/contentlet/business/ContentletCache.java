@@ -22,6 +22,11 @@ public abstract class ContentletCache implements Cachable {
     public abstract void addTranslatedQuery(String key, TranslatedQuery translatedQuery);
 
     public abstract TranslatedQuery getTranslatedQuery(String key);
+
+    /**
+     * Flushes the translated queries, they depend on the structures, fields and categories
+     */
+    public abstract void clearTranslatedQueries();
     
     public abstract String getMetadata(String key);
 
@@ -50,6 +50,11 @@ public class ContentletCacheImpl extends ContentletCache {
 			return (TranslatedQuery)o;	
 		} 
 	}
+
+	@Override
+	public void clearTranslatedQueries() {
+		cache.flushGroup(translatedQueryGroup);
+	}
 	
 	@Override
 	public void addMetadata(String key, String metadata) {
@@ -8,17 +8,20 @@ import com.dotmarketing.business.query.ValidationException;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
 import com.dotmarketing.portlets.files.model.File;
 import com.dotmarketing.portlets.folders.model.Folder;
 import com.dotmarketing.portlets.links.model.Link;
 import com.dotmarketing.portlets.structure.model.Field;
 import com.liferay.portal.model.User;
+import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.search.SearchHits;
 
 import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 public abstract class ContentletFactory {
 
@@ -85,6 +88,34 @@ public abstract class ContentletFactory {
 	 */
 	protected abstract List<Contentlet> findContentlets(List<String> inodes) throws DotDataException, DotSecurityException;
 
+	/**
+	 * Loads the contentlets of the passed in list of inodes along with their identifiers,
+	 * version info, categories, relationship trees and permissions, using a fixed number of
+	 * queries for the whole list. Used to index contentlets in bulk.
+	 * @param inodes
+	 * @return
+	 * @throws DotDataException
+	 * @throws DotSecurityException
+	 */
+	public abstract ContentletIndexBatch loadIndexBatch(List<String> inodes) throws DotDataException, DotSecurityException;
+
+	/**
+	 * Same as {@link #loadIndexBatch(List)} for contentlets that are already loaded
+	 * @param contentlets
+	 * @return
+	 * @throws DotDataException
+	 */
+	public abstract ContentletIndexBatch loadIndexBatchForContentlets(List<Contentlet> contentlets) throws DotDataException;
+
+	/**
+	 * Loads the version info of every language of the passed in identifiers, using in clauses
+	 * of a bounded size. Identifiers that don't exist anymore have no version info.
+	 * @param identifiers
+	 * @return
+	 * @throws DotDataException
+	 */
+	protected abstract List<ContentletVersionInfo> findContentletVersionInfos(List<String> identifiers) throws DotDataException;
+
 	/**
 	 * Returns all Contentlets for a specific structure
 	 * @param structureInode
@@ -129,7 +160,48 @@ public abstract class ContentletFactory {
 	 * @return
 	 */
 	protected abstract SearchHits indexSearch(String luceneQuery, int limit, int offset, String sortBy);
-	
+
+	/**
+	 * Same as {@link #indexSearch(String, int, int, String)} but the hits are also restricted
+	 * by the filter, usually the permissions filter, which elasticsearch caches apart from the query
+	 * @param luceneQuery
+	 * @param limit
+	 * @param offset
+	 * @param sortBy
+	 * @param filter can be null
+	 * @return
+	 */
+	protected abstract SearchHits indexSearch(String luceneQuery, int limit, int offset, String sortBy, FilterBuilder filter);
+
+	/**
+	 * Same as {@link #indexSearch(String, int, int, String, FilterBuilder)} but returns as soon
+	 * as the search is sent to the index, so several searches can be running at the same time.
+	 * @param luceneQuery
+	 * @param limit
+	 * @param offset
+	 * @param sortBy
+	 * @param filter can be null
+	 * @return the hits once the search is done
+	 * @throws DotDataException
+	 */
+	protected abstract Future<SearchHits> indexSearchAsync(String luceneQuery, int limit, int offset, String sortBy, FilterBuilder filter) throws DotDataException;
+
+	/**
+	 * Scrolls all the hits of the query, in batches of ES_SCROLL_BATCH_SIZE, passing them to
+	 * the handler in order. Unlike {@link #indexSearch(String, int, int, String, FilterBuilder)}
+	 * there is no cap on the number of hits and they don't have to fit in memory at once.
+	 * @param luceneQuery
+	 * @param sortBy can be null
+	 * @param offset hits to skip, they are still read from the index
+	 * @param limit 0 or less to handle all the hits
+	 * @param filter can be null
+	 * @param handler
+	 * @return the number of hits handled
+	 * @throws DotDataException
+	 * @throws DotSecurityException
+	 */
+	protected abstract long indexScroll(String luceneQuery, String sortBy, int offset, int limit, FilterBuilder filter, ContentletSearchHandler handler) throws DotDataException, DotSecurityException;
+
 	/**
 	 * Returns the contentlets on a given page.  You can pass -1 for languageId if you don't want to query to pull based
 	 * on languages or 0 if you want to get the default language
@@ -316,6 +388,8 @@ public abstract class ContentletFactory {
     protected abstract Object loadField(String inode, String fieldContentlet) throws DotDataException;
     
     protected abstract long indexCount(String query);
+
+    protected abstract long indexCount(String query, FilterBuilder filter);
     
     /**
      * Gets the top viewed contents identifier and numberOfViews for a particular structure for a specified date interval
@@ -0,0 +1,22 @@
+package com.dotmarketing.portlets.contentlet.business;
+
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+
+/**
+ * Callback used by {@link ContentletAPI#scrollSearch} to process the contentlets of a search
+ * one at a time, loaded from the database in batches while the hits are scrolled from the index.
+ */
+public interface ContentletHandler {
+
+	/**
+	 * Handles the current contentlet.
+	 * @param contentlet current contentlet
+	 * @return false to stop scrolling
+	 * @throws DotDataException
+	 * @throws DotSecurityException
+	 */
+	public boolean handle(Contentlet contentlet) throws DotDataException, DotSecurityException;
+
+}
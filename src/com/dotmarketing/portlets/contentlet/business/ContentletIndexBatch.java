@@ -0,0 +1,110 @@
+package com.dotmarketing.portlets.contentlet.business;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
+
+/**
+ * Data needed to index a list of contentlets, loaded by
+ * {@link ContentletFactory#loadIndexBatch(List)} with a fixed number of queries instead of
+ * a few queries per contentlet. The getters return null for anything that was not loaded
+ * so callers can fall back to the single contentlet lookups.
+ */
+public class ContentletIndexBatch {
+
+	private final List<Contentlet> contentlets;
+	private final Map<String, Identifier> identifiers = new HashMap<String, Identifier>();
+	private final Map<String, ContentletVersionInfo> versionInfos = new HashMap<String, ContentletVersionInfo>();
+	private final Map<String, List<String>> categories = new HashMap<String, List<String>>();
+	private final Map<String, List<Map<String, String>>> trees = new HashMap<String, List<Map<String, String>>>();
+
+	public ContentletIndexBatch(List<Contentlet> contentlets) {
+		this.contentlets = contentlets;
+	}
+
+	public List<Contentlet> getContentlets() {
+		return contentlets;
+	}
+
+	public Identifier getIdentifier(String identifier) {
+		return identifiers.get(identifier);
+	}
+
+	public void addIdentifier(Identifier identifier) {
+		identifiers.put(identifier.getId(), identifier);
+	}
+
+	public ContentletVersionInfo getContentletVersionInfo(String identifier, long languageId) {
+		return versionInfos.get(identifier + ":" + languageId);
+	}
+
+	public void addContentletVersionInfo(ContentletVersionInfo cvi) {
+		versionInfos.put(cvi.getIdentifier() + ":" + cvi.getLang(), cvi);
+	}
+
+	/**
+	 * Velocity var names of the categories of the contentlet
+	 * @param inode contentlet inode
+	 * @return
+	 */
+	public List<String> getCategories(String inode) {
+		return categories.get(inode);
+	}
+
+	public void addCategory(String inode, String velocityVarName) {
+		categoriesOf(inode).add(velocityVarName);
+	}
+
+	/**
+	 * Marks the categories of the contentlet as loaded even if it has none
+	 * @param inode contentlet inode
+	 */
+	public void setCategoriesLoaded(String inode) {
+		categoriesOf(inode);
+	}
+
+	/**
+	 * Tree rows where the identifier is either the parent or the child, by tree_order
+	 * @param identifier
+	 * @return
+	 */
+	public List<Map<String, String>> getTree(String identifier) {
+		return trees.get(identifier);
+	}
+
+	public void addTree(String identifier, Map<String, String> row) {
+		treeOf(identifier).add(row);
+	}
+
+	/**
+	 * Marks the tree of the identifier as loaded even if it has no rows
+	 * @param identifier
+	 */
+	public void setTreeLoaded(String identifier) {
+		treeOf(identifier);
+	}
+
+	private List<String> categoriesOf(String inode) {
+		List<String> list = categories.get(inode);
+		if (list == null) {
+			list = new ArrayList<String>();
+			categories.put(inode, list);
+		}
+		return list;
+	}
+
+	private List<Map<String, String>> treeOf(String identifier) {
+		List<Map<String, String>> list = trees.get(identifier);
+		if (list == null) {
+			list = new ArrayList<Map<String, String>>();
+			trees.put(identifier, list);
+		}
+		return list;
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.dotmarketing.portlets.contentlet.business;
+
+import com.dotmarketing.common.model.ContentletSearch;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
+
+/**
+ * Callback used by {@link ContentletAPI#scrollSearchIndex} to process the hits of a search
+ * one at a time while they are scrolled from the index, instead of building the whole
+ * result list in memory.
+ */
+public interface ContentletSearchHandler {
+
+	/**
+	 * Handles the current hit.
+	 * @param hit identifier and inode of the contentlet
+	 * @return false to stop scrolling
+	 * @throws DotDataException
+	 * @throws DotSecurityException
+	 */
+	public boolean handle(ContentletSearch hit) throws DotDataException, DotSecurityException;
+
+}
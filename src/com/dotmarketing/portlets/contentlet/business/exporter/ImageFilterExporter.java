@@ -5,7 +5,7 @@ import java.util.Map;
 
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.UserAPI;
-import com.dotmarketing.image.filter.ImageFilter;
+import com.dotmarketing.image.filter.ImageRenditionService;
 import com.dotmarketing.portlets.contentlet.business.BinaryContentExporter;
 import com.dotmarketing.portlets.contentlet.business.BinaryContentExporterException;
 import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
@@ -19,6 +19,8 @@ import com.dotmarketing.util.Logger;
  * You can chain filters so that you resize then crop to 
  * produce the resulting image
  * 
+ * the renditions are generated by the {@link ImageRenditionService}
+ * 
  * 
  */
 
@@ -40,24 +42,7 @@ public class ImageFilterExporter implements BinaryContentExporter {
 				filter= parameters.get("filters")[0].split(","); 
 			}
 
-			for(String s : filter){
-				String clazz =null;
-				try {
-					clazz ="com.dotmarketing.image.filter." + s + "ImageFilter";
-					Class<ImageFilter> iFilter = (Class<ImageFilter>) Class.forName( clazz );
-					ImageFilter i=	iFilter.newInstance();
-					file = i.runFilter(file,   parameters);
-				} catch (ClassNotFoundException e) {
-					Logger.error(ImageFilterExporter.class, "Unable to instanciate : " +  clazz );
-				} catch (InstantiationException e) {
-					Logger.error(ImageFilterExporter.class, "InstantiationException : " +  clazz );
-				} catch (IllegalAccessException e) {
-					Logger.error(ImageFilterExporter.class, "IllegalAccessException : " +  clazz );
-				}
-				catch (Exception e) {
-					Logger.error(ImageFilterExporter.class, "Exception in " +  clazz + " :" + e.getMessage() );
-				}
-			}
+			file = ImageRenditionService.getInstance().getRendition(file, filter, parameters);
 
 
 			data = new BinaryContentExporterData(file);
@@ -93,8 +93,8 @@ public class CascadePermissionsJob implements Job {
 		
 		JobDataMap map = jobContext.getJobDetail().getJobDataMap();
 
+		// the cascade removes from the cache only the permissions it changes
 		PermissionAPI permissionAPI = APILocator.getPermissionAPI();
-		permissionAPI.clearCache();
 		String permissionableId = (String) map.get("permissionableId");
 		String roleId = (String) map.get("roleId");
 		try {
@@ -111,7 +111,6 @@ public class CascadePermissionsJob implements Job {
 			permissionAPI.clearCache();
 			throw new DotRuntimeException(e.getMessage(), e);
 		}
-		permissionAPI.clearCache();
 	}
 	
 	@SuppressWarnings("unchecked")
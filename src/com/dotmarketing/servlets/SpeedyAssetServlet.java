@@ -5,7 +5,6 @@ import static com.dotmarketing.business.PermissionAPI.PERMISSION_READ;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
@@ -38,7 +37,6 @@ import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Constants;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
-import com.google.common.io.Files;
 import com.liferay.portal.PortalException;
 import com.liferay.portal.SystemException;
 import com.liferay.portal.model.User;
@@ -290,6 +288,19 @@ public class SpeedyAssetServlet extends HttpServlet {
             
             response.setHeader("Content-Disposition","filename=\"" + file.getFileName() + "\"");
 
+			long _lastModified = f.lastModified();
+			if(_lastModified < 0) {
+			    _lastModified = 0;
+			}
+			// we need to round the _lastmodified to get rid of the milliseconds.
+			_lastModified = _lastModified / 1000;
+			_lastModified = _lastModified * 1000;
+			Date _lastModifiedDate = new java.util.Date(_lastModified);
+
+			// only the file metadata is read, the content is streamed from disk below
+			long _fileLength = f.length();
+			String _eTag = "dot:" + inode + ":" + _lastModified + ":" + _fileLength;
+
 			/*
 			 * Setting the proper content headers
 			 */
@@ -315,20 +326,6 @@ public class SpeedyAssetServlet extends HttpServlet {
 					expiration.add(java.util.Calendar.DAY_OF_MONTH, _daysCache);
 					int seconds = (_daysCache * 24 * 60 * 60);
 
-					long _lastModified = f.lastModified();
-					if(_lastModified < 0) {
-					    _lastModified = 0;
-					}
-					// we need to round the _lastmodified to get rid of the milliseconds.
-					_lastModified = _lastModified / 1000;
-					_lastModified = _lastModified * 1000;
-					Date _lastModifiedDate = new java.util.Date(_lastModified);
-
-
-					long _fileLength = f.length();
-					String _eTag = "dot:" + inode + ":" + _lastModified + ":" + _fileLength;
-
-
 	                /* Setting cache friendly headers */
                     response.setHeader("Expires", httpDate.get().format(expiration.getTime()));
                     response.setHeader("Cache-Control", "public, max-age="+seconds);
@@ -342,15 +339,16 @@ public class SpeedyAssetServlet extends HttpServlet {
                      *
                     */
                     if(ifNoneMatch != null){
-                        if(_eTag.equals(ifNoneMatch) || ifNoneMatch.equals("*")){
+                        if(SpeedyAssetServletUtil.matchesETag(ifNoneMatch, _eTag)){
+                            response.setHeader("ETag", _eTag);
                             response.setStatus(HttpServletResponse.SC_NOT_MODIFIED );
                             f = null;
                             return;
                         }
                     }
 
-                    /* Using the If-Modified-Since Header */
-                     if(ifModifiedSince != null){
+                    /* Using the If-Modified-Since Header, If-None-Match takes precedence when both are sent */
+                     else if(ifModifiedSince != null){
 					    try{
 					        Date ifModifiedSinceDate = httpDate.get().parse(ifModifiedSince);
 
@@ -382,90 +380,79 @@ public class SpeedyAssetServlet extends HttpServlet {
 			ServletOutputStream out = null;
 			FileChannel from = null;
 			WritableByteChannel to = null;
-			RandomAccessFile input = null;
 			try {
-				out = response.getOutputStream();
-				from = new FileInputStream(f).getChannel();
-				to = Channels.newChannel(out);
-				//DOTCMS-5716
-				//32 MB at a time	
-				int maxTransferSize = (32 * 1024 * 1024) ;
-				long size = from.size();
-				long position = 0;
-				
-				boolean responseSent = false;
-				byte[] data = Files.toByteArray(f);
-	            //ServletOutputStream sos = response.getOutputStream();
-				//extract range header
-				String rangeHeader = request.getHeader("range");
+				response.setHeader("Accept-Ranges", "bytes");
+
+				//extract range header, a stale If-Range means the whole file has to be sent
+				String rangeHeader = request.getHeader("Range");
+				if(UtilMethods.isSet(rangeHeader) && !SpeedyAssetServletUtil.isRangeValid(request.getHeader("If-Range"), _eTag, _lastModified, httpDate.get())){
+					rangeHeader = null;
+				}
+
+				ArrayList<SpeedyAssetServletUtil.ByteRange> ranges = null;
 				if(UtilMethods.isSet(rangeHeader)){
-					 response.setHeader("Accept-Ranges", "bytes");
 					// Range header should match format "bytes=n-n,n-n,n-n...". If not, then return 416.
 					if (!rangeHeader.matches("^bytes=\\d*-\\d*(,\\d*-\\d*)*$")) {
-						response.setHeader("Content-Range", "bytes */" + data.length); // Required in 416.
+						response.setHeader("Content-Range", "bytes */" + _fileLength); // Required in 416.
 						response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
 						return;
 					}
 					//parse multiple range bytes
-					ArrayList<SpeedyAssetServletUtil.ByteRange> ranges = SpeedyAssetServletUtil.parseRange(rangeHeader, data.length);
-					if (ranges != null){
-						SpeedyAssetServletUtil.ByteRange full = new SpeedyAssetServletUtil.ByteRange(0, f.length() - 1, f.length());
-						if (ranges.isEmpty() || ranges.get(0).equals(full)) {
-							// Return full file.
-							input = new RandomAccessFile(f, "r");
-							SpeedyAssetServletUtil.ByteRange r = full;
-							response.setContentType(file.getMimeType());
-							response.setHeader("Content-Range", "bytes " + r.start + "-" + r.end + "/" + r.total);
-							response.setHeader("Content-Length", String.valueOf(r.length));
-							// Copy full range.
-							SpeedyAssetServletUtil.copy(input, out, r.start, r.length);
-						} else if (ranges.size() == 1){
-							SpeedyAssetServletUtil.ByteRange range = ranges.get(0);
-							input = new RandomAccessFile(f, "r");
-							// Check if Range is syntactically valid. If not, then return 416.
-							if (range.start > range.end) {
-								response.setHeader("Content-Range", "bytes */" + data.length); // Required in 416.
-								response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
-								return;
-							}
-							response.setContentType(file.getMimeType());
-							response.setHeader("Content-Range", "bytes " + range.start + "-" + range.end + "/" + range.total);
-							response.setHeader("Content-Length", String.valueOf(range.length));
-				            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT); // 206.
-							SpeedyAssetServletUtil.copy(input, out, range.start, range.length);
-						}else{
-							response.setContentType("multipart/byteranges; boundary=" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY);
-							response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-						    input = new RandomAccessFile(f, "r");
-							for (SpeedyAssetServletUtil.ByteRange r : ranges) {
-								if (r.start > r.end) {
-									response.setHeader("Content-Range", "bytes */" + data.length); // Required in 416.
-									response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
-									return;
-								}
-								// Add multipart boundary and header fields for every range.
-								out.println();
-								out.println("--" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY);
-								out.println("Content-Type: " + file.getMimeType());
-								out.println("Content-Range: bytes " + r.start + "-" + r.end + "/" + r.total);
-								out.println();
-
-								// Copy single part range of multi part range.
-								SpeedyAssetServletUtil.copy(input, out, r.start, r.length);
-							}
-							// End with multipart boundary.
-							out.println();
-							out.println("--" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY + "--");
+					ranges = SpeedyAssetServletUtil.parseRange(rangeHeader, _fileLength);
+					// Check if every Range is satisfiable before sending anything. If not, then return 416.
+					for (SpeedyAssetServletUtil.ByteRange r : ranges) {
+						if (r.start > r.end || r.start >= _fileLength) {
+							response.setHeader("Content-Range", "bytes */" + _fileLength); // Required in 416.
+							response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+							return;
 						}
-						responseSent = true;
-					}	
+					}
+					SpeedyAssetServletUtil.ByteRange full = new SpeedyAssetServletUtil.ByteRange(0, _fileLength - 1, _fileLength);
+					if (ranges.isEmpty() || (ranges.size() == 1 && ranges.get(0).equals(full))) {
+						// Return full file.
+						ranges = null;
+					}
+				}
+
+				boolean headOnly = "HEAD".equalsIgnoreCase(request.getMethod());
+				if (ranges == null) {
+					response.setHeader("Content-Length", String.valueOf(_fileLength));
+				} else if (ranges.size() == 1) {
+					SpeedyAssetServletUtil.ByteRange range = ranges.get(0);
+					response.setContentType(file.getMimeType());
+					response.setHeader("Content-Range", "bytes " + range.start + "-" + range.end + "/" + range.total);
+					response.setHeader("Content-Length", String.valueOf(range.length));
+					response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT); // 206.
+				} else {
+					response.setContentType("multipart/byteranges; boundary=" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY);
+					response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT); // 206.
 				}
-				if(!responseSent){
-					response.setContentLength(data.length);
-					response.setHeader("Content-Length", String.valueOf(f.length()));
-					while (position < size) {
-						position +=  from.transferTo(position, maxTransferSize, to);
+				if (headOnly) {
+					return;
+				}
+
+				out = response.getOutputStream();
+				from = new FileInputStream(f).getChannel();
+				to = Channels.newChannel(out);
+				if (ranges == null) {
+					SpeedyAssetServletUtil.copy(from, to, 0, _fileLength);
+				} else if (ranges.size() == 1) {
+					SpeedyAssetServletUtil.copy(from, to, ranges.get(0).start, ranges.get(0).length);
+				} else {
+					for (SpeedyAssetServletUtil.ByteRange r : ranges) {
+						// Add multipart boundary and header fields for every range.
+						out.println();
+						out.println("--" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY);
+						out.println("Content-Type: " + file.getMimeType());
+						out.println("Content-Range: bytes " + r.start + "-" + r.end + "/" + r.total);
+						out.println();
+
+						// Copy single part range of multi part range.
+						SpeedyAssetServletUtil.copy(from, to, r.start, r.length);
 					}
+					// End with multipart boundary.
+					out.println();
+					out.println("--" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY + "--");
 				}
 			} catch (Exception e) {
 				Logger.warn(this, e + " Error for = " + request.getRequestURI() + (request.getQueryString() != null?"?"+request.getQueryString():"") );
@@ -478,8 +465,6 @@ public class SpeedyAssetServlet extends HttpServlet {
 					from.close();
 				if(out != null)
 					out.close();
-				if(input !=null)
-					input.close();
 			}
 
 		} catch (Exception e) {
@@ -1,9 +1,11 @@
 package com.dotmarketing.servlets;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 
 /**
  * @see {@link http://programmaremobile.blogspot.com/2009/01/iphone-file-download-eng-ver.html}
@@ -14,6 +16,9 @@ public class SpeedyAssetServletUtil {
 	
 	protected static final String MULTIPART_BOUNDARY = "MULTIPART_BYTERANGES";
 	protected static final int DEFAULT_BUFFER_SIZE = 10240; // ..bytes = 10KB.
+	//DOTCMS-5716
+	//32 MB at a time
+	protected static final long MAX_TRANSFER_SIZE = 32 * 1024 * 1024;
 	
 	/**
      * Returns a substring of the given string value from the given begin index to the given end
@@ -32,10 +37,10 @@ public class SpeedyAssetServletUtil {
 	/**
 	 * Parse the range values of the given string
 	 * @param rangeHeader String containing the range format "bytes=n-n,n-n,n-n...".
-	 * @param dataLen length of the byte range
+	 * @param length length of the file
 	 * @return
 	 */
-	protected static ArrayList<ByteRange> parseRange(String rangeHeader, int length){
+	protected static ArrayList<ByteRange> parseRange(String rangeHeader, long length){
         ArrayList<ByteRange> ranges = null;
         if (rangeHeader != null && rangeHeader.startsWith("bytes")){            
             ranges = new ArrayList<ByteRange>(8);
@@ -46,7 +51,7 @@ public class SpeedyAssetServletUtil {
             long end = sublong(part, part.indexOf("-") + 1, part.length());
 
             if (start == -1) {
-                start = length - end;
+                start = Math.max(0, length - end);
                 end = length - 1;
             } else if (end == -1 || end > length - 1) {
                 end = length - 1;
@@ -60,39 +65,76 @@ public class SpeedyAssetServletUtil {
     } 
 	
     /**
-     * Copy the given byte range of the given input to the given output.
-     * @param input The input to copy the given range to the given output for.
-     * @param output The output to copy the given range from the given input for.
+     * Copy the given byte range of the given file to the given output. The bytes go from the
+     * file channel to the output with {@link FileChannel#transferTo}, so the file content is
+     * never loaded in the heap whatever its size.
+     * @param input The file to copy the given range from.
+     * @param output The output to copy the given range to.
      * @param start Start of the byte range.
      * @param length Length of the byte range.
      * @throws IOException If something fails at I/O level.
      */
-	protected static void copy(RandomAccessFile input, OutputStream output, long start, long length)throws IOException{
-		byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-		int read;
-
-		if (input.length() == length) {
-			// Write full range.
-			while ((read = input.read(buffer)) > 0) {
-				output.write(buffer, 0, read);
+	protected static void copy(FileChannel input, WritableByteChannel output, long start, long length)throws IOException{
+		long position = start;
+		long end = start + length;
+		while (position < end) {
+			long sent = input.transferTo(position, Math.min(MAX_TRANSFER_SIZE, end - position), output);
+			if (sent <= 0 && position >= input.size()) {
+				// the file was truncated while we were sending it
+				throw new IOException("Unexpected end of file at " + position + " of " + end);
 			}
-		} else {
-			// Write partial range.
-			input.seek(start);
-			long toRead = length;
+			position += sent;
+		}
+	}
 
-			while ((read = input.read(buffer)) > 0) {
-				if ((toRead -= read) > 0) {
-					output.write(buffer, 0, read);
-				} else {
-					output.write(buffer, 0, (int) toRead + read);
-					break;
-				}
+	/**
+	 * Returns true if the If-None-Match header value matches the given etag
+	 * @param ifNoneMatch comma separated list of etags or *
+	 * @param eTag
+	 * @return
+	 */
+	protected static boolean matchesETag(String ifNoneMatch, String eTag) {
+		if (ifNoneMatch == null || eTag == null) {
+			return false;
+		}
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if (tag.equals("*") || tag.equals(eTag) || tag.equals("\"" + eTag + "\"")) {
+				return true;
 			}
 		}
+		return false;
+	}
+
+	/**
+	 * Returns true if the Range header can be honored according to the If-Range header, that
+	 * is if there is no If-Range or if it holds the current etag or a date not older than the
+	 * last modification of the file. Otherwise the whole file must be sent.
+	 * @param ifRange If-Range header value
+	 * @param eTag current etag of the file
+	 * @param lastModified last modification of the file, rounded to seconds
+	 * @param httpDate formatter of the http dates
+	 * @return
+	 */
+	protected static boolean isRangeValid(String ifRange, String eTag, long lastModified, SimpleDateFormat httpDate) {
+		if (ifRange == null) {
+			return true;
+		}
+		ifRange = ifRange.trim();
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/") || ifRange.equals(eTag)) {
+			return !ifRange.startsWith("W/") && matchesETag(ifRange, eTag);
+		}
+		try {
+			Date since = httpDate.parse(ifRange);
+			return lastModified <= since.getTime();
+		} catch (Exception e) {
+			return false;
+		}
 	}
 
-    
    protected static class ByteRange {
 	   long start;
        long end;
@@ -0,0 +1,109 @@
+package com.dotmarketing.util;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Future over the result of another future, converted by {@link #convert(Object)}
+ * the first time it is requested. The conversion runs on the thread that calls get(),
+ * not on the thread that completed the source, so it can use the thread bound
+ * database session of the request. The converted value, or its failure, is kept
+ * and returned to any later get().
+ *
+ * @param <S> result of the source future
+ * @param <T> converted result
+ */
+public abstract class ConvertedFuture<S, T> implements Future<T> {
+
+	private final Future<S> source;
+	private boolean converted = false;
+	private T value;
+	private ExecutionException failure;
+
+	public ConvertedFuture(Future<S> source) {
+		this.source = source;
+	}
+
+	/**
+	 * Converts the result of the source future
+	 * @param result
+	 * @return
+	 * @throws Exception any exception is thrown by get() wrapped in an ExecutionException
+	 */
+	protected abstract T convert(S result) throws Exception;
+
+	/**
+	 * Called instead of {@link #convert(Object)} when the source future failed.
+	 * Rethrows the cause unless overridden.
+	 * @param cause
+	 * @return the result to use instead
+	 * @throws Exception
+	 */
+	protected T recover(Throwable cause) throws Exception {
+		throw new ExecutionException(cause);
+	}
+
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return source.cancel(mayInterruptIfRunning);
+	}
+
+	public boolean isCancelled() {
+		return source.isCancelled();
+	}
+
+	public boolean isDone() {
+		return source.isDone();
+	}
+
+	public synchronized T get() throws InterruptedException, ExecutionException {
+		if(!converted) {
+			S result;
+			try {
+				result = source.get();
+			}
+			catch (ExecutionException e) {
+				return done(e.getCause(), true);
+			}
+			return done(result, false);
+		}
+		return result();
+	}
+
+	public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if(!converted) {
+			S result;
+			try {
+				result = source.get(timeout, unit);
+			}
+			catch (ExecutionException e) {
+				return done(e.getCause(), true);
+			}
+			return done(result, false);
+		}
+		return result();
+	}
+
+	@SuppressWarnings("unchecked")
+	private T done(Object result, boolean failed) throws ExecutionException {
+		try {
+			value = failed ? recover((Throwable) result) : convert((S) result);
+		}
+		catch (ExecutionException e) {
+			failure = e;
+		}
+		catch (Exception e) {
+			failure = new ExecutionException(e);
+		}
+		converted = true;
+		return result();
+	}
+
+	private T result() throws ExecutionException {
+		if(failure != null)
+			throw failure;
+		return value;
+	}
+
+}
@@ -1164,10 +1164,10 @@ public class ImportExportUtil {
             out.println("Found :\t" + l.size() + " " + _className + "(s)");
             Logger.info(this, "Found :\t" + l.size() + " " + _className + "(s)");
             if(address){
+                DotConnect dc = new DotConnect();
+                dc.setSQL("insert into address values (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
                 for (int j = 0; j < l.size(); j++) {
                     HashMap<String, String> dcResults = (HashMap<String,String>)l.get(j);
-                    DotConnect dc = new DotConnect();
-                    dc.setSQL("insert into address values (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
                     dc.addParam(dcResults.get("addressid"));
                     dc.addParam(dcResults.get("companyid"));
                     dc.addParam(dcResults.get("userid"));
@@ -1187,43 +1187,47 @@ public class ImportExportUtil {
                     dc.addParam(dcResults.get("fax"));
                     dc.addParam(dcResults.get("cell"));
                     dc.addParam(UtilMethods.isSet(dcResults.get("priority")) ? Integer.parseInt(dcResults.get("priority")) : null);
-                    dc.getResults();
+                    dc.addBatch();
                 }
+                dc.executeBatch();
             }else if(counter){
+                DotConnect dc = new DotConnect();
+                dc.setSQL("insert into counter values (?,?)");
                 for (int j = 0; j < l.size(); j++) {
                     HashMap<String, String> dcResults = (HashMap<String,String>)l.get(j);
-                    DotConnect dc = new DotConnect();
-                    dc.setSQL("insert into counter values (?,?)");
                     dc.addParam(dcResults.get("name"));
                     dc.addParam(Integer.valueOf(dcResults.get("currentid")));
-                    dc.getResults();
+                    dc.addBatch();
                 }
+                dc.executeBatch();
             }else if(pollschoice){
+                DotConnect dc = new DotConnect();
+                dc.setSQL("insert into pollschoice values (?,?,?)");
                 for (int j = 0; j < l.size(); j++) {
                     HashMap<String, String> dcResults = (HashMap<String,String>)l.get(j);
-                    DotConnect dc = new DotConnect();
-                    dc.setSQL("insert into pollschoice values (?,?,?)");
                     dc.addParam(dcResults.get("choiceid"));
                     dc.addParam(dcResults.get("questionid"));
                     dc.addParam(dcResults.get("description"));
-                    dc.getResults();
+                    dc.addBatch();
                 }
+                dc.executeBatch();
             }else if(pollsdisplay){
+                DotConnect dc = new DotConnect();
+                dc.setSQL("insert into pollsdisplay values (?,?,?,?)");
                 for (int j = 0; j < l.size(); j++) {
                     HashMap<String, String> dcResults = (HashMap<String,String>)l.get(j);
-                    DotConnect dc = new DotConnect();
-                    dc.setSQL("insert into pollsdisplay values (?,?,?,?)");
                     dc.addParam(dcResults.get("layoutid"));
                     dc.addParam(dcResults.get("userid"));
                     dc.addParam(dcResults.get("portletid"));
                     dc.addParam(dcResults.get("questionid"));
-                    dc.getResults();
+                    dc.addBatch();
                 }
+                dc.executeBatch();
             }else if(pollsquestion){
+                DotConnect dc = new DotConnect();
+                dc.setSQL("insert into pollsquestion values (?,?,?,?,?,?,?,?,?,?,?,?)");
                 for (int j = 0; j < l.size(); j++) {
                     HashMap<String, String> dcResults = (HashMap<String,String>)l.get(j);
-                    DotConnect dc = new DotConnect();
-                    dc.setSQL("insert into pollsquestion values (?,?,?,?,?,?,?,?,?,?,?,?)");
                     dc.addParam(dcResults.get("questionid"));
                     dc.addParam(dcResults.get("portletid"));
                     if(UtilMethods.isSet(dcResults.get("groupid"))){
@@ -1256,13 +1260,14 @@ public class ImportExportUtil {
                     }else{
                         dc.addParam(new java.sql.Timestamp(0));
                     }
-                    dc.getResults();
+                    dc.addBatch();
                 }
+                dc.executeBatch();
             }else if(pollsvote){
+                DotConnect dc = new DotConnect();
+                dc.setSQL("insert into pollsvote values (?,?,?,?)");
                 for (int j = 0; j < l.size(); j++) {
                     HashMap<String, String> dcResults = (HashMap<String,String>)l.get(j);
-                    DotConnect dc = new DotConnect();
-                    dc.setSQL("insert into pollsvote values (?,?,?,?)");
                     dc.addParam(dcResults.get("questionid"));
                     dc.addParam(dcResults.get("userid"));
                     dc.addParam(dcResults.get("choiceid"));
@@ -1271,8 +1276,9 @@ public class ImportExportUtil {
                     }else{
                         dc.addParam(new java.sql.Timestamp(0));
                     }
-                    dc.getResults();
+                    dc.addBatch();
                 }
+                dc.executeBatch();
             }else if(image){
                 /*
                  * The changes in this part were made for Oracle databases. Oracle has problems when
@@ -1280,17 +1286,18 @@ public class ImportExportUtil {
                  * the object is loaded from liferay and DotConnect is not used
                  * http://jira.dotmarketing.net/browse/DOTCMS-1911
                  */
+                DotConnect dc = new DotConnect();
+                dc.setSQL("insert into image values (?,?)");
                 for (int j = 0; j < l.size(); j++) {
                     Image im = (Image)l.get(j);
-                    DotConnect dc = new DotConnect();
-                    dc.setSQL("insert into image values (?,?)");
                     if(!UtilMethods.isSet(im.getImageId()) && com.dotmarketing.db.DbConnectionFactory.getDBType().equals(com.dotmarketing.db.DbConnectionFactory.ORACLE)){
                         continue;
                     }
                     dc.addParam(im.getImageId());
                     dc.addParam(im.getText());
-                    dc.getResults();
+                    dc.addBatch();
                 }
+                dc.executeBatch();
             }else if(portlet){
                 for (int j = 0; j < l.size(); j++) {
                     HashMap<String, String> dcResults = (HashMap<String,String>)l.get(j);
@@ -1313,15 +1320,16 @@ public class ImportExportUtil {
                     dc.getResults();
                 }
             }else if(logsMappers){
+                DotConnect dc = new DotConnect();
+                dc.setSQL( "insert into log_mapper values (?,?,?)" );
                 for ( int j = 0; j < l.size(); j++ ) {
                     LogMapperRow logMapperRow = ( LogMapperRow ) l.get( j );
-                    DotConnect dc = new DotConnect();
-                    dc.setSQL( "insert into log_mapper values (?,?,?)" );
                     dc.addParam( logMapperRow.getEnabled() ? 1 : 0 );
                     dc.addParam( logMapperRow.getLog_name() );
                     dc.addParam( logMapperRow.getDescription() );
-                    dc.getResults();
+                    dc.addBatch();
                 }
+                dc.executeBatch();
             }else if(portletpreferences){
                 /*
                  * The changes in this part were made for Oracle databases. Oracle has problems when
@@ -1329,16 +1337,17 @@ public class ImportExportUtil {
                  * the object is loaded from liferay and DotConnect is not used
                  * http://jira.dotmarketing.net/browse/DOTCMS-1911
                  */
+                DotConnect dc = new DotConnect();
+                dc.setSQL("insert into portletpreferences values (?,?,?,?)");
                 for (int j = 0; j < l.size(); j++) {
                     PortletPreferences portletPreferences = (PortletPreferences)l.get(j);
-                    DotConnect dc = new DotConnect();
-                    dc.setSQL("insert into portletpreferences values (?,?,?,?)");
                     dc.addParam(portletPreferences.getPortletId());
                     dc.addParam(portletPreferences.getUserId());
                     dc.addParam(portletPreferences.getLayoutId());
                     dc.addParam(portletPreferences.getPreferences());
-                    dc.getResults();
+                    dc.addBatch();
                 }
+                dc.executeBatch();
             }else if (_importClass.equals(User.class)) {
                 for (int j = 0; j < l.size(); j++) {
                     User u = (User)l.get(j);
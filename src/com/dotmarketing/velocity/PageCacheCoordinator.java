@@ -0,0 +1,265 @@
+package com.dotmarketing.velocity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.dotmarketing.business.BlockDirectiveCacheObject;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.mbeans.PageCacheInfo;
+import com.dotmarketing.filters.compression.GZIPResponseWrapper;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+
+/**
+ * Makes sure a cached page is rendered by one request at a time. When a page is missing or
+ * expired in the {@link com.dotmarketing.business.BlockDirectiveCache} the first request
+ * renders it and the concurrent requests for the same key wait for that result instead of
+ * merging the template again.
+ *
+ * Pages are stored encoded with the response charset, gzipped and with a strong ETag so a
+ * cache hit is a byte copy (see {@link #write}).
+ *
+ * With PAGE_CACHE_STALE_WHILE_REVALIDATE=true the concurrent requests get the expired copy
+ * right away while the first request renders the new one. Rendering needs the request that
+ * asked for the page, so the refresh is done by that request thread and not in background.
+ */
+public class PageCacheCoordinator {
+
+	private static final PageCacheCoordinator instance = new PageCacheCoordinator();
+
+	private final ConcurrentHashMap<String, FutureTask<BlockDirectiveCacheObject>> inFlight = new ConcurrentHashMap<String, FutureTask<BlockDirectiveCacheObject>>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong renders = new AtomicLong();
+	private final AtomicLong coalescedWaits = new AtomicLong();
+	private final AtomicLong staleHits = new AtomicLong();
+	private final AtomicLong waitTimeouts = new AtomicLong();
+
+	private PageCacheCoordinator() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(new PageCacheInfo(this), new ObjectName("org.dotcms:type=PageCache"));
+		} catch (Exception e) {
+			Logger.debug(PageCacheCoordinator.class, "Unable to register PageCache MBean: " + e.getMessage(), e);
+		}
+	}
+
+	public static PageCacheCoordinator getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the cached page for the key or renders it with the renderer, which is only
+	 * called if no other request is already rendering the same key. The rendered page is
+	 * stored in the BlockDirectiveCache for ttl seconds.
+	 *
+	 * @param key page cache key
+	 * @param ttl page cache ttl in seconds
+	 * @param refresh true to ignore the cached copy
+	 * @param charset charset used to encode the page
+	 * @param renderer renders the page
+	 * @return the page
+	 * @throws Exception
+	 */
+	public BlockDirectiveCacheObject get(final String key, final int ttl, boolean refresh, final String charset, final Callable<String> renderer) throws Exception {
+		BlockDirectiveCacheObject cached = refresh ? null : CacheLocator.getBlockDirectiveCache().get(key);
+		if (cached != null && cached.getBody() != null && !isExpired(cached, ttl)) {
+			hits.incrementAndGet();
+			return cached;
+		}
+		misses.incrementAndGet();
+
+		final Callable<BlockDirectiveCacheObject> render = new Callable<BlockDirectiveCacheObject>() {
+			public BlockDirectiveCacheObject call() throws Exception {
+				renders.incrementAndGet();
+				return encode(renderer.call(), charset, ttl);
+			}
+		};
+		FutureTask<BlockDirectiveCacheObject> task = new FutureTask<BlockDirectiveCacheObject>(new Callable<BlockDirectiveCacheObject>() {
+			public BlockDirectiveCacheObject call() throws Exception {
+				BlockDirectiveCacheObject page = render.call();
+				CacheLocator.getBlockDirectiveCache().add(key, page);
+				return page;
+			}
+		});
+		FutureTask<BlockDirectiveCacheObject> running = inFlight.putIfAbsent(key, task);
+		if (running == null) {
+			try {
+				task.run();
+				return task.get();
+			} catch (ExecutionException e) {
+				throw unwrap(e);
+			} finally {
+				inFlight.remove(key, task);
+			}
+		}
+
+		if (cached != null && cached.getBody() != null && Config.getBooleanProperty("PAGE_CACHE_STALE_WHILE_REVALIDATE", false)) {
+			staleHits.incrementAndGet();
+			return cached;
+		}
+
+		coalescedWaits.incrementAndGet();
+		try {
+			return running.get(Config.getIntProperty("PAGE_CACHE_COALESCE_WAIT", 30000), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			waitTimeouts.incrementAndGet();
+			Logger.warn(PageCacheCoordinator.class, "Timed out waiting for page " + key + " to render, rendering it again");
+		} catch (ExecutionException e) {
+			Logger.debug(PageCacheCoordinator.class, "Concurrent render of " + key + " failed, rendering it again", e);
+		}
+		return render.call();
+	}
+
+	/**
+	 * Writes a cached page to the response. Answers 304 when If-None-Match has the page ETag
+	 * and sends the gzipped body when the client accepts it and the response goes through the
+	 * GZIPFilter, otherwise the plain body.
+	 */
+	public void write(HttpServletRequest request, HttpServletResponse response, BlockDirectiveCacheObject page) throws IOException {
+		response.setHeader("ETag", page.getEtag());
+		response.setHeader("Vary", "Accept-Encoding");
+		if (matches(request.getHeader("If-None-Match"), page.getEtag())) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		String ae = request.getHeader("Accept-Encoding");
+		// the gzipped bytes are only sent past the GZIPFilter wrapper, through it they would be
+		// compressed again, without it the response is not meant to be compressed
+		GZIPResponseWrapper gzipWrapper = findGZIPWrapper(response);
+		boolean gzip = gzipWrapper != null && page.getGzippedBody() != null && ae != null && ae.indexOf("gzip") != -1;
+		HttpServletResponse target = gzip ? (HttpServletResponse) gzipWrapper.getResponse() : response;
+		byte[] body = gzip ? page.getGzippedBody() : page.getBody();
+		try {
+			ServletOutputStream out = target.getOutputStream();
+			if (gzip) {
+				target.setHeader("Content-Encoding", "gzip");
+			}
+			target.setContentLength(body.length);
+			out.write(body);
+			out.close();
+		} catch (IllegalStateException e) {
+			// the writer is already in use (e.g. an include), fall back to characters
+			response.getWriter().write(new String(page.getBody(), response.getCharacterEncoding()));
+			response.getWriter().close();
+		}
+	}
+
+	/**
+	 * The GZIPFilter wrapper is usually hidden by the wrappers of the filters after it
+	 * (e.g. {@link com.dotmarketing.util.ServletResponseCharacterEncoding}), so the whole chain is walked.
+	 */
+	private GZIPResponseWrapper findGZIPWrapper(ServletResponse response) {
+		while (response instanceof ServletResponseWrapper) {
+			if (response instanceof GZIPResponseWrapper) {
+				return (GZIPResponseWrapper) response;
+			}
+			response = ((ServletResponseWrapper) response).getResponse();
+		}
+		return null;
+	}
+
+	private boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null || etag == null) {
+			return false;
+		}
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.equals(etag) || tag.equals("*")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private BlockDirectiveCacheObject encode(String page, String charset, int ttl) throws IOException {
+		byte[] body = page.getBytes(charset != null ? charset : UtilMethods.getCharsetConfiguration());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+		GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+		gzip.write(body);
+		gzip.close();
+
+		return new BlockDirectiveCacheObject(body, bytes.toByteArray(), etag(body), ttl);
+	}
+
+	private String etag(byte[] body) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(body);
+			StringBuilder sb = new StringBuilder(digest.length * 2 + 2);
+			sb.append('"');
+			for (byte b : digest) {
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return sb.append('"').toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private boolean isExpired(BlockDirectiveCacheObject cached, int ttl) {
+		return cached.getCreated() + (ttl * 1000L) <= System.currentTimeMillis();
+	}
+
+	private Exception unwrap(ExecutionException e) {
+		Throwable cause = e.getCause();
+		if (cause instanceof Exception) {
+			return (Exception) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return e;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getRenders() {
+		return renders.get();
+	}
+
+	public long getCoalescedWaits() {
+		return coalescedWaits.get();
+	}
+
+	public long getStaleHits() {
+		return staleHits.get();
+	}
+
+	public long getWaitTimeouts() {
+		return waitTimeouts.get();
+	}
+
+	public int getRendersInFlight() {
+		return inFlight.size();
+	}
+
+}
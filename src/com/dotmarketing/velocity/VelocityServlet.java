@@ -20,6 +20,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -47,6 +48,7 @@ import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.beans.UserProxy;
 import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.BlockDirectiveCacheObject;
 import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.PermissionAPI;
 import com.dotmarketing.business.portal.PortletAPI;
@@ -470,25 +472,35 @@ public abstract class VelocityServlet extends HttpServlet {
 		}
 
 		// Begin Page Caching
-		boolean buildCache = false;
 		String key = getPageCacheKey(request);
 		if (key != null) {
-
-			String cachedPage = CacheLocator.getBlockDirectiveCache().get(key, (int) page.getCacheTTL());
-
-			if (cachedPage == null || "refresh".equals(request.getParameter("dotcache"))
+			boolean refresh = "refresh".equals(request.getParameter("dotcache"))
 					|| "refresh".equals(request.getAttribute("dotcache"))
-					|| "refresh".equals(request.getSession().getAttribute("dotcache"))) {
-				// build cached response
-				buildCache = true;
-			} else {
-				// have cached response and are not refreshing, send it
-				response.getWriter().write(cachedPage);
-				return;
-			}
+					|| "refresh".equals(request.getSession().getAttribute("dotcache"));
+
+			final HttpServletRequest req = request;
+			final HttpServletResponse res = response;
+			final HTMLPage livePage = page;
+			final Identifier pageIdent = ident;
+			BlockDirectiveCacheObject cachedPage = PageCacheCoordinator.getInstance().get(key, (int) page.getCacheTTL(), refresh, response.getCharacterEncoding(), new Callable<String>() {
+				public String call() throws Exception {
+					StringWriter out = new StringWriter(4096);
+					mergeLivePage(req, res, pageIdent, out);
+					CacheLocator.getHTMLPageCache().remove(livePage);
+					return out.toString().trim();
+				}
+			});
+			PageCacheCoordinator.getInstance().write(request, response, cachedPage);
+			return;
 		}
 
-		Writer out = (buildCache) ? new StringWriter(4096) : new VelocityFilterWriter(response.getWriter());
+		Writer out = new VelocityFilterWriter(response.getWriter());
+		mergeLivePage(request, response, ident, out);
+		out.close();
+
+	}
+
+	private void mergeLivePage(HttpServletRequest request, HttpServletResponse response, Identifier ident, Writer out) throws Exception {
 
 		//get the context from the requst if possible
 		Context context = VelocityUtil.getWebContext(request, response);
@@ -496,8 +508,6 @@ public abstract class VelocityServlet extends HttpServlet {
 		request.setAttribute("velocityContext", context);
 		Logger.debug(VelocityServlet.class, "HTMLPage Identifier:" + ident.getInode());
 
-
-
 		try {
 
 			VelocityUtil.getEngine().getTemplate("/live/" + ident.getInode() + "." + VELOCITY_HTMLPAGE_EXTENSION).merge(context, out);
@@ -506,20 +516,6 @@ public abstract class VelocityServlet extends HttpServlet {
 			// out.append(e.getMessage());
 		}
 
-		context = null;
-		if (buildCache) {
-			String trimmedPage = out.toString().trim();
-			response.getWriter().write(trimmedPage);
-			response.getWriter().close();
-			synchronized (key) {
-				//CacheLocator.getBlockDirectiveCache().clearCache();
-				CacheLocator.getHTMLPageCache().remove(page);
-				CacheLocator.getBlockDirectiveCache().add(getPageCacheKey(request), trimmedPage, (int) page.getCacheTTL());
-			}
-		} else {
-			out.close();
-		}
-
 	}
 
 	@SuppressWarnings("unchecked")
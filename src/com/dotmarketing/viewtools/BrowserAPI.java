@@ -135,6 +135,7 @@ public class BrowserAPI {
 				} catch (Exception e1) {
 					Logger.error(this, "Could not load folders : ", e1);
 				}
+				loadPermissions(folders);
 				for (Folder folder : folders) {
 					List<Integer> permissions = new ArrayList<Integer>();
 					try {
@@ -178,6 +179,7 @@ public class BrowserAPI {
 				Logger.error(this, "Could not load HTMLPages : ", e1);
 			}
 
+			loadPermissions(pages);
 			for (HTMLPage page : pages) {
 				List<Integer> permissions = new ArrayList<Integer>();
 				try {
@@ -237,6 +239,13 @@ public class BrowserAPI {
 		WorkflowStep wfStep;
 		WorkflowScheme wfScheme = null;
 
+		List<Permissionable> filePermissionables = new ArrayList<Permissionable>(files.size());
+		for (Versionable file : files) {
+			if (file instanceof Permissionable)
+				filePermissionables.add((Permissionable) file);
+		}
+		loadPermissions(filePermissionables);
+
 		for (Versionable file : files) {
 
 			if (file == null)
@@ -421,6 +430,7 @@ public class BrowserAPI {
 				Logger.error(this, "Could not load links : ", e1);
 			}
 
+			loadPermissions(links);
 			for (Link link : links) {
 
 				List<Integer> permissions = new ArrayList<Integer>();
@@ -498,4 +508,16 @@ public class BrowserAPI {
 		return returnMap;
 	}
 
+	/**
+	 * Loads the permissions of the assets of the folder in a few queries,
+	 * instead of one per asset when they are checked one by one
+	 */
+	private void loadPermissions(List<? extends Permissionable> permissionables) {
+		try {
+			permissionAPI.addPermissionsToCache(permissionables);
+		} catch (DotDataException e) {
+			Logger.error(this, "Could not load permissions : ", e);
+		}
+	}
+
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package com.dotmarketing.viewtools.content;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
@@ -40,6 +42,8 @@ import com.liferay.portal.model.User;
  */
 public class ContentTool implements ViewTool {
 
+	private static final String PREFETCH_ATTRIBUTE = ContentTool.class.getName() + ".prefetched";
+
 	private ContentletAPI conAPI;
 	private UserWebAPI userAPI;
 
@@ -140,13 +144,97 @@ public class ContentTool implements ViewTool {
 	public PaginatedArrayList<ContentMap> pull(String query, int offset,int limit, String sort){
 	    PaginatedArrayList<ContentMap> ret = new PaginatedArrayList<ContentMap>();
 	    
-	    PaginatedArrayList<Contentlet> cons = ContentUtils.pull(addDefaultsToQuery(query), offset, limit, sort, user, tmDate);
+	    String q = addDefaultsToQuery(query);
+	    PaginatedArrayList<Contentlet> cons = tmDate == null ? joinPrefetched(q, offset, limit, sort) : null;
+	    if(cons == null)
+	    	cons = ContentUtils.pull(q, offset, limit, sort, user, tmDate);
 	    for(Contentlet cc : cons) {
 	    	ret.add(new ContentMap(cc,user,EDIT_OR_PREVIEW_MODE,currentHost,context));
 	    }
 		return ret;
 	}
 	
+	/**
+	 * Sends the search of a pull to the index without waiting for it, so the pulls of a page
+	 * run at the same time instead of one after the other. A later pull with the same query,
+	 * limit and sort in the same request, in the template or in any of its containers, 
+	 * uses the prefetched results.<br />
+	 * EXAMPLE:<br />
+	 * $dotcontent.prefetch('+structureName:newsItem',5,'modDate desc')<br />
+	 * $dotcontent.prefetch('+structureName:calendarEvent',5,'startDate')<br />
+	 * #foreach($con in $dotcontent.pull('+structureName:newsItem',5,'modDate desc'))<br />
+	 * 		$con.headline<br />
+	 * #end<br />
+	 * Does nothing when browsing with the time machine.
+	 * @param query - Lucene Query used to search for content - Will append live, working, deleted, and language if not passed
+	 * @param limit 0 is the dotCMS max limit which is 10000.
+	 * @param sort - Velocity variable name to sort by.  this is a string and can contain multiple values "sort1 acs, sort2 desc"
+	 */
+	public void prefetch(String query, int limit, String sort){
+		prefetch(query, -1, limit, sort);
+	}
+	
+	/**
+	 * Same as {@link #prefetch(String, int, String)} for a paginated pull
+	 * @param query - Lucene Query used to search for content - Will append live, working, deleted, and language if not passed
+	 * @param offset offset to start the results from 
+	 * @param limit 0 is the dotCMS max limit which is 10000.
+	 * @param sort - Velocity variable name to sort by.  this is a string and can contain multiple values "sort1 acs, sort2 desc"
+	 */
+	public void prefetch(String query, int offset, int limit, String sort){
+		if(tmDate != null){
+			return;
+		}
+		String q = addDefaultsToQuery(query);
+		String key = prefetchKey(q, offset, limit, sort);
+		Map<String, Future<List<Contentlet>>> prefetched = getPrefetched();
+		if(prefetched.containsKey(key)){
+			return;
+		}
+		try {
+			prefetched.put(key, conAPI.searchAsync(q, limit, offset, sort, user, true));
+		} catch (Exception e) {
+			Logger.error(this, e.getMessage());
+			Logger.debug(this, e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Waits for the results of a prefetched pull
+	 * @return null if the pull wasn't prefetched
+	 */
+	private PaginatedArrayList<Contentlet> joinPrefetched(String query, int offset, int limit, String sort){
+		Future<List<Contentlet>> future = getPrefetched().get(prefetchKey(query, offset, limit, sort));
+		if(future == null){
+			return null;
+		}
+		try {
+			return (PaginatedArrayList<Contentlet>) future.get();
+		} catch (Exception e) {
+			Logger.error(this, e.getMessage());
+			Logger.debug(this, e.getMessage(), e);
+			return new PaginatedArrayList<Contentlet>();
+		}
+	}
+	
+	private String prefetchKey(String query, int offset, int limit, String sort){
+		return query + " --- " + offset + ":" + limit + " --- " + sort;
+	}
+	
+	/**
+	 * The prefetched pulls are kept in the request as the template and every container
+	 * may get their own instance of the tool
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, Future<List<Contentlet>>> getPrefetched(){
+		Map<String, Future<List<Contentlet>>> prefetched = (Map<String, Future<List<Contentlet>>>) req.getAttribute(PREFETCH_ATTRIBUTE);
+		if(prefetched == null){
+			prefetched = new HashMap<String, Future<List<Contentlet>>>();
+			req.setAttribute(PREFETCH_ATTRIBUTE, prefetched);
+		}
+		return prefetched;
+	}
+	
 	/**
 	 * Will return a ContentMap object which can be used on dotCMS front end. 
 	 * This method is better then the old #pullcontent macro because it doesn't have to 
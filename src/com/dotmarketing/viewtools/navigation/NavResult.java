@@ -2,8 +2,10 @@ package com.dotmarketing.viewtools.navigation;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -52,6 +54,9 @@ public class NavResult implements Iterable<NavResult>, Permissionable, Serializa
     private User sysuser=null;
     private boolean checkPermissions;
     
+    // children allowed to each role set, see filterChildren
+    private transient Map<String,PermissionView> views;
+    
     public NavResult(String parent, String hostId, String folderId) {
         this.hostId=hostId;
         this.folderId=folderId;
@@ -142,7 +147,7 @@ public class NavResult implements Iterable<NavResult>, Permissionable, Serializa
     
     public List<NavResult> getChildren() throws Exception {
         if(children==null && hostId!=null && folderId!=null) {
-            // lazy loadinge children
+            // lazy loading children
             Host host=APILocator.getHostAPI().find(hostId, sysuser, true);
             Folder folder=APILocator.getFolderAPI().find(folderId, sysuser, true);
             Identifier ident=APILocator.getIdentifierAPI().find(folder);
@@ -153,10 +158,11 @@ public class NavResult implements Iterable<NavResult>, Permissionable, Serializa
         if(children!=null) {
             ArrayList<NavResult> list=new ArrayList<NavResult>();
             for(NavResult nn : children) {
-                if(nn.isFolder()) {
+                if(nn.isFolder() && nn.children==null) {
                     // for folders we avoid returning the same instance
                     // it could be changed elsewhere and we need it to
-                    // load its children lazily
+                    // load its children lazily. Folders of the navigation
+                    // tree already have their children and never change
                     NavResult ff=new NavResult(folderId,nn.hostId,nn.folderId);
                     ff.setTitle(nn.getTitle());
                     ff.setHref(nn.getHref());
@@ -172,21 +178,11 @@ public class NavResult implements Iterable<NavResult>, Permissionable, Serializa
             
             if(checkPermissions) {
                 // now filtering permissions
-                List<NavResult> allow=new ArrayList<NavResult>(list.size());
                 Context ctx=(VelocityContext) VelocityServlet.velocityCtx.get();
                 HttpServletRequest req=(HttpServletRequest) ctx.get("request");
                 User currentUser=WebAPILocator.getUserWebAPI().getLoggedInUser(req);
                 if(currentUser==null) currentUser=APILocator.getUserAPI().getAnonymousUser();
-                for(NavResult nv : list) {
-                    try {
-                    if(APILocator.getPermissionAPI().doesUserHavePermission(nv, PermissionAPI.PERMISSION_READ, currentUser)) {
-                        allow.add(nv);
-                    }
-                    }catch(Exception ex) {
-                        Logger.error(this, ex.getMessage(), ex);
-                    }
-                }
-                return allow;
+                return filterChildren(list, currentUser);
             }
             else
                 return list;
@@ -196,6 +192,79 @@ public class NavResult implements Iterable<NavResult>, Permissionable, Serializa
         }
     }
     
+    /**
+     * Filters the children the user can read. The result is kept for the roles
+     * of the user, as the owner of the navigation is always the system user, and
+     * given again to users with the same roles while the cached permissions of
+     * the children are the same instances used to get it.
+     */
+    private List<NavResult> filterChildren(List<NavResult> list, User user) throws DotDataException {
+        PermissionAPI permissionAPI=APILocator.getPermissionAPI();
+        // loads the permissions of all the children at once
+        permissionAPI.addPermissionsToCache(list);
+        List<Object> stamps=new ArrayList<Object>(list.size());
+        for(NavResult nv : list)
+            stamps.add(permissionAPI.getCachedPermissions(nv));
+        
+        String roleSetKey=permissionAPI.getRoleSetKey(user);
+        Map<String,PermissionView> views=getViews();
+        PermissionView view;
+        synchronized(views) {
+            view=views.get(roleSetKey);
+        }
+        if(view!=null && view.isValid(list, stamps))
+            return new ArrayList<NavResult>(view.allowed);
+        
+        List<NavResult> allow=new ArrayList<NavResult>(list.size());
+        for(NavResult nv : list) {
+            try {
+            if(permissionAPI.doesUserHavePermission(nv, PermissionAPI.PERMISSION_READ, user)) {
+                allow.add(nv);
+            }
+            }catch(Exception ex) {
+                Logger.error(this, ex.getMessage(), ex);
+            }
+        }
+        synchronized(views) {
+            if(views.size()>=Config.getIntProperty("NAV_PERMISSION_VIEWS_PER_FOLDER", 100))
+                views.clear();
+            views.put(roleSetKey, new PermissionView(list, stamps, allow));
+        }
+        return new ArrayList<NavResult>(allow);
+    }
+    
+    private synchronized Map<String,PermissionView> getViews() {
+        if(views==null)
+            views=new HashMap<String,PermissionView>();
+        return views;
+    }
+    
+    private static class PermissionView {
+        final List<String> permissionIds;
+        final List<Object> stamps;
+        final List<NavResult> allowed;
+        
+        PermissionView(List<NavResult> list, List<Object> stamps, List<NavResult> allowed) {
+            this.permissionIds=new ArrayList<String>(list.size());
+            for(NavResult nv : list)
+                permissionIds.add(nv.getPermissionId());
+            this.stamps=stamps;
+            this.allowed=allowed;
+        }
+        
+        boolean isValid(List<NavResult> list, List<Object> current) {
+            if(list.size()!=permissionIds.size())
+                return false;
+            for(int i=0;i<list.size();i++) {
+                // a null stamp are permissions that couldn't be cached
+                if(stamps.get(i)==null || stamps.get(i)!=current.get(i)
+                        || !UtilMethods.isSet(permissionIds.get(i)) || !permissionIds.get(i).equals(list.get(i).getPermissionId()))
+                    return false;
+            }
+            return true;
+        }
+    }
+    
     public String getParentPath() throws DotDataException, DotSecurityException {
         if(parent==null) return null; // no parent! I'm the root folder
         if(parent.equals(FolderAPI.SYSTEM_FOLDER)) return "/";
@@ -260,6 +329,40 @@ public class NavResult implements Iterable<NavResult>, Permissionable, Serializa
         this.permissionId = permissionId;
     }
 
+    /// navigation tree methods ///
+    
+    String getParentId() {
+        return parent;
+    }
+    
+    String getHostId() {
+        return hostId;
+    }
+    
+    String getFolderId() {
+        return folderId;
+    }
+    
+    List<NavResult> getChildrenNodes() {
+        return children!=null ? children : new ArrayList<NavResult>();
+    }
+    
+    /**
+     * Copy of this navigation with other children
+     */
+    NavResult copy(List<NavResult> children, List<String> childrenFolderIds) {
+        NavResult copy=new NavResult(parent,hostId,folderId);
+        copy.title=title;
+        copy.href=href;
+        copy.order=order;
+        copy.codeLink=codeLink;
+        copy.type=type;
+        copy.permissionId=permissionId;
+        copy.children=children;
+        copy.childrenFolderIds=childrenFolderIds;
+        return copy;
+    }
+
     
     /// Permissionable methods ///
     
@@ -66,7 +66,13 @@ public class NavTool implements ViewTool {
         if(folder==null || !UtilMethods.isSet(folder.getIdentifier()))
             return null;
         
-        NavResult result=navCache.getNav(host.getIdentifier(), folder.getInode());
+        NavTree tree=getNavTree(host);
+        NavResult result=tree!=null ? tree.getNav(folder.getInode()) : null;
+        if(result!=null)
+            return result;
+        
+        // not in the tree yet, loads the folder alone
+        result=navCache.getNav(host.getIdentifier(), folder.getInode());
         if(result==null) {
             String parentId;
             if(!folder.getInode().equals(FolderAPI.SYSTEM_FOLDER)) {
@@ -153,6 +159,29 @@ public class NavTool implements ViewTool {
         return result;
     }
     
+    /**
+     * Navigation tree of the host, loaded with a few queries for the whole host
+     * the first time it is needed. Changes in a folder only load that folder again
+     * (see {@link NavToolCacheImpl#removeNav(String, String)}).
+     */
+    protected static NavTree getNavTree(Host host) {
+        NavTree tree=navCache.getNavTree(host.getIdentifier());
+        if(tree==null) {
+            synchronized(NavTree.lock(host.getIdentifier())) {
+                tree=navCache.getNavTree(host.getIdentifier());
+                if(tree==null) {
+                    try {
+                        tree=NavTree.load(host);
+                        navCache.putNavTree(tree);
+                    } catch (Exception e) {
+                        Logger.warn(NavTool.class, "can't load the navigation tree of host "+host.getHostname()+": "+e.getMessage(), e);
+                    }
+                }
+            }
+        }
+        return tree;
+    }
+    
     public NavResult getNav() throws DotDataException, DotSecurityException {
     	return getNav((String)request.getAttribute("javax.servlet.forward.request_uri"));
     }
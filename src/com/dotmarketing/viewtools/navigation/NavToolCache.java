@@ -10,4 +10,6 @@ public interface NavToolCache extends Cachable {
     void removeNav(String hostid, String folderInode);
     void removeNavByPath(String hostid, String path);
     void removeNav(String folderInode);
+    NavTree getNavTree(String hostid);
+    void putNavTree(NavTree tree);
 }
@@ -7,6 +7,8 @@ import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotCacheAdministrator;
 import com.dotmarketing.business.DotCacheException;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotHibernateException;
 import com.dotmarketing.portlets.folders.business.FolderAPI;
 import com.dotmarketing.portlets.folders.model.Folder;
 import com.dotmarketing.util.Logger;
@@ -39,6 +41,10 @@ public class NavToolCacheImpl implements NavToolCache {
         return hostid+":"+folderInode;
     }
     
+    protected static String treeKey(String hostid) {
+        return hostid+":tree";
+    }
+    
     @Override
     public NavResult getNav(String hostid, String folderInode) {
         try {
@@ -54,6 +60,21 @@ public class NavToolCacheImpl implements NavToolCache {
         cache.put(key(hostid,folderInode), result, GROUP);
     }
 
+    @Override
+    public NavTree getNavTree(String hostid) {
+        try {
+            return (NavTree)cache.get(treeKey(hostid), GROUP);
+        } catch (DotCacheException e) {
+            Logger.warn(this, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    @Override
+    public void putNavTree(NavTree tree) {
+        cache.put(treeKey(tree.getHostId()), tree, GROUP);
+    }
+
     @Override
     public void removeNav(String folderInode) {
         Folder folder;
@@ -68,6 +89,7 @@ public class NavToolCacheImpl implements NavToolCache {
     
     @Override
     public void removeNav(String hostid, String folderInode) {
+        updateNavTree(hostid, folderInode);
         Folder folder;
         try {
             if(!folderInode.equals(FolderAPI.SYSTEM_FOLDER)) {
@@ -102,6 +124,35 @@ public class NavToolCacheImpl implements NavToolCache {
         
     }
 
+    /**
+     * Once the transaction commits, replaces the navigation tree of the host with
+     * one where only the folder is loaded again. The other servers drop their tree,
+     * as puts are local, and load it again the next time it is needed.
+     */
+    private void updateNavTree(final String hostid, final String folderInode) {
+        try {
+            HibernateUtil.addCommitListener("navtree:"+hostid+":"+folderInode, new Runnable() {
+                public void run() {
+                    synchronized(NavTree.lock(hostid)) {
+                        NavTree tree=getNavTree(hostid);
+                        cache.remove(treeKey(hostid), GROUP);
+                        if(tree!=null) {
+                            try {
+                                tree=tree.update(APILocator.getHostAPI().find(hostid, APILocator.getUserAPI().getSystemUser(), false), folderInode);
+                                putNavTree(tree);
+                            } catch (Exception e) {
+                                Logger.warn(NavToolCacheImpl.class, "can't update the navigation of folder "+folderInode+": "+e.getMessage(), e);
+                            }
+                        }
+                    }
+                }
+            });
+        } catch (DotHibernateException e) {
+            Logger.warn(this, e.getMessage(), e);
+            cache.remove(treeKey(hostid), GROUP);
+        }
+    }
+
     @Override
     public void removeNavByPath(String hostid, String path) {
         Folder folder;
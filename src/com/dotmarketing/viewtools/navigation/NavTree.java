@@ -0,0 +1,439 @@
+package com.dotmarketing.viewtools.navigation;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.fileassets.business.FileAsset;
+import com.dotmarketing.portlets.fileassets.business.FileAssetAPI;
+import com.dotmarketing.portlets.fileassets.business.IFileAsset;
+import com.dotmarketing.portlets.files.model.File;
+import com.dotmarketing.portlets.folders.business.FolderAPI;
+import com.dotmarketing.portlets.folders.model.Folder;
+import com.dotmarketing.portlets.htmlpages.model.HTMLPage;
+import com.dotmarketing.portlets.links.model.Link;
+import com.dotmarketing.portlets.links.model.Link.LinkType;
+import com.dotmarketing.portlets.structure.factories.StructureFactory;
+import com.dotmarketing.portlets.structure.model.Field;
+import com.dotmarketing.portlets.structure.model.Structure;
+import com.dotmarketing.util.AssetsComparator;
+import com.dotmarketing.util.UtilMethods;
+import com.liferay.portal.model.User;
+
+/**
+ * Navigation of every folder of a host. It is never modified once built: a change
+ * in a folder produces a new tree that shares the navigation of the other folders
+ * with this one, so readers always see a consistent tree without locking.
+ */
+public class NavTree implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String hostId;
+    private final Map<String, NavResult> folders;
+
+    private NavTree(String hostId, Map<String, NavResult> folders) {
+        this.hostId = hostId;
+        this.folders = folders;
+    }
+
+    public String getHostId() {
+        return hostId;
+    }
+
+    /**
+     * @param folderInode
+     * @return the navigation of the folder, null if the folder is not in the tree
+     */
+    public NavResult getNav(String folderInode) {
+        return folders.get(folderInode);
+    }
+
+    /**
+     * Lock to build or change the tree of the host
+     */
+    static String lock(String hostId) {
+        return ("navtree:" + hostId).intern();
+    }
+
+    /**
+     * Loads the navigation of all the folders of the host. Instead of the queries
+     * per folder of findMenuItems it runs a few queries for the whole host: the
+     * identifiers, the folders and the live pages, links, files and file assets
+     * shown on menu.
+     */
+    @SuppressWarnings("unchecked")
+    static NavTree load(Host host) throws DotDataException, DotSecurityException {
+        String hostId = host.getIdentifier();
+
+        // identifier -> {parent path, asset name}
+        Map<String, String[]> paths = new HashMap<String, String[]>();
+        DotConnect dc = new DotConnect();
+        dc.setSQL("select id, parent_path, asset_name from identifier where host_inode = ? and asset_type in ('folder','htmlpage','links','file_asset')");
+        dc.addParam(hostId);
+        for(Map<String, Object> row : dc.loadObjectResults()) {
+            paths.put((String) row.get("id"), new String[] {(String) row.get("parent_path"), (String) row.get("asset_name")});
+        }
+
+        HibernateUtil dh = new HibernateUtil(Folder.class);
+        dh.setSQLQuery("select {folder.*} from folder folder, inode folder_1_, identifier folder_2_ where folder_1_.type = 'folder' "
+                + "and folder.inode = folder_1_.inode and folder.identifier = folder_2_.id and folder_2_.host_inode = ?");
+        dh.setParam(hostId);
+        List<Folder> hostFolders = dh.list();
+
+        // folder path -> inode
+        Map<String, String> folderInodes = new HashMap<String, String>();
+        folderInodes.put("/", FolderAPI.SYSTEM_FOLDER);
+        for(Folder folder : hostFolders) {
+            String[] path = paths.get(folder.getIdentifier());
+            if(path != null)
+                folderInodes.put(path[0] + path[1] + "/", folder.getInode());
+        }
+
+        // folder inode -> menu items, added in the same order as findMenuItems
+        Map<String, List<Object>> items = new HashMap<String, List<Object>>();
+        for(Folder folder : hostFolders) {
+            if(folder.isShowOnMenu())
+                addItem(items, folderInodes, paths.get(folder.getIdentifier()), folder);
+        }
+        for(Link link : (List<Link>) loadMenuAssets(Link.class, "links", hostId)) {
+            addItem(items, folderInodes, paths.get(link.getIdentifier()), link);
+        }
+        for(HTMLPage page : (List<HTMLPage>) loadMenuAssets(HTMLPage.class, "htmlpage", hostId)) {
+            addItem(items, folderInodes, paths.get(page.getIdentifier()), page);
+        }
+        for(File file : (List<File>) loadMenuAssets(File.class, "file_asset", hostId)) {
+            addItem(items, folderInodes, paths.get(file.getIdentifier()), file);
+        }
+        for(FileAsset fileAsset : loadMenuFileAssets(hostId, paths)) {
+            List<Object> folderItems = items.get(fileAsset.getFolder());
+            if(folderItems == null) {
+                folderItems = new ArrayList<Object>();
+                items.put(fileAsset.getFolder(), folderItems);
+            }
+            folderItems.add(fileAsset);
+        }
+
+        // first the folders, so their children can point to them
+        Map<String, NavResult> nodes = new HashMap<String, NavResult>();
+        Folder systemFolder = APILocator.getFolderAPI().findSystemFolder();
+        nodes.put(FolderAPI.SYSTEM_FOLDER, folderNav(null, hostId, systemFolder, APILocator.getIdentifierAPI().find(systemFolder).getURI()));
+        for(Folder folder : hostFolders) {
+            String[] path = paths.get(folder.getIdentifier());
+            if(path != null && folderInodes.containsKey(path[0]))
+                nodes.put(folder.getInode(), folderNav(folderInodes.get(path[0]), hostId, folder, path[0] + path[1]));
+        }
+
+        // then their children, deepest folders first so the children lists point to the final nodes
+        List<NavResult> byDepth = new ArrayList<NavResult>(nodes.values());
+        Collections.sort(byDepth, new Comparator<NavResult>() {
+            public int compare(NavResult n1, NavResult n2) {
+                return depth(n2) - depth(n1);
+            }
+        });
+        Map<String, NavResult> tree = new HashMap<String, NavResult>();
+        for(NavResult nav : byDepth) {
+            List<Object> folderItems = items.get(nav.getFolderId());
+            if(folderItems == null)
+                folderItems = new ArrayList<Object>();
+            if(nav.getFolderId().equals(FolderAPI.SYSTEM_FOLDER)) {
+                // the root only shows the folders, as findSubFolders(host, true)
+                List<Object> rootFolders = new ArrayList<Object>();
+                for(Object item : folderItems)
+                    if(item instanceof Folder)
+                        rootFolders.add(item);
+                Collections.sort(rootFolders, new Comparator<Object>() {
+                    public int compare(Object o1, Object o2) {
+                        Folder f1 = (Folder) o1, f2 = (Folder) o2;
+                        if(f1.getSortOrder() != f2.getSortOrder())
+                            return f1.getSortOrder() < f2.getSortOrder() ? -1 : 1;
+                        return f1.getName().compareToIgnoreCase(f2.getName());
+                    }
+                });
+                folderItems = rootFolders;
+            }
+            else {
+                Collections.sort(folderItems, new AssetsComparator(1));
+            }
+            tree.put(nav.getFolderId(), withChildren(nav, folderItems, tree, paths));
+        }
+
+        return new NavTree(hostId, tree);
+    }
+
+    /**
+     * Returns a new tree with the navigation of the folder loaded again and the
+     * folders above it pointing to the new one. The navigation of any other folder
+     * is shared with this tree. If the path of the folder changed the whole tree
+     * is loaded again, as the links of everything under it changed too.
+     */
+    NavTree update(Host host, String folderInode) throws DotDataException, DotSecurityException {
+        User sysuser = APILocator.getUserAPI().getSystemUser();
+        FolderAPI fAPI = APILocator.getFolderAPI();
+        NavResult old = folders.get(folderInode);
+
+        Folder folder;
+        if(folderInode.equals(FolderAPI.SYSTEM_FOLDER)) {
+            folder = fAPI.findSystemFolder();
+        }
+        else {
+            try {
+                folder = fAPI.find(folderInode, sysuser, false);
+            }
+            catch(Exception ex) {
+                // it has been deleted
+                folder = null;
+            }
+        }
+
+        Map<String, NavResult> nodes = new HashMap<String, NavResult>(folders);
+        if(folder == null || !UtilMethods.isSet(folder.getIdentifier())) {
+            if(old == null)
+                return this;
+            // drop the folder and everything under it
+            Set<String> removed = new HashSet<String>();
+            removed.add(folderInode);
+            boolean found = true;
+            while(found) {
+                found = false;
+                for(Map.Entry<String, NavResult> entry : nodes.entrySet()) {
+                    if(!removed.contains(entry.getKey()) && removed.contains(entry.getValue().getParentId())) {
+                        removed.add(entry.getKey());
+                        found = true;
+                    }
+                }
+            }
+            nodes.keySet().removeAll(removed);
+            relink(nodes, old.getParentId(), folderInode);
+            return new NavTree(hostId, nodes);
+        }
+
+        Identifier ident = APILocator.getIdentifierAPI().find(folder);
+        if(old != null && !old.getHref().equals(ident.getURI()))
+            return load(host);
+
+        NavResult nav = loadFolder(host, folder, ident, nodes);
+        relink(nodes, nav.getParentId(), folder.isShowOnMenu() ? null : folderInode);
+        return new NavTree(hostId, nodes);
+    }
+
+    /**
+     * Loads the navigation of the folder with findMenuItems, as NavTool did for
+     * every folder, and of any folder under it not found in the tree yet
+     */
+    @SuppressWarnings("unchecked")
+    private static NavResult loadFolder(Host host, Folder folder, Identifier ident, Map<String, NavResult> nodes) throws DotDataException, DotSecurityException {
+        FolderAPI fAPI = APILocator.getFolderAPI();
+        User sysuser = APILocator.getUserAPI().getSystemUser();
+
+        String parentId;
+        List menuItems;
+        if(folder.getInode().equals(FolderAPI.SYSTEM_FOLDER)) {
+            parentId = null;
+            menuItems = fAPI.findSubFolders(host, true);
+        }
+        else {
+            parentId = ident.getParentPath().equals("/") ?
+                    FolderAPI.SYSTEM_FOLDER : fAPI.findFolderByPath(ident.getParentPath(), host, sysuser, false).getInode();
+            menuItems = fAPI.findMenuItems(folder, sysuser, true);
+        }
+
+        NavResult nav = folderNav(parentId, host.getIdentifier(), folder, ident.getURI());
+        // put it before loading the new folders under it, they look for their parent
+        nodes.put(folder.getInode(), nav);
+        for(Object item : menuItems) {
+            if(item instanceof Folder && !nodes.containsKey(((Folder) item).getInode())) {
+                Folder itemFolder = (Folder) item;
+                loadFolder(host, itemFolder, APILocator.getIdentifierAPI().find(itemFolder), nodes);
+            }
+        }
+        nav = withChildren(nav, menuItems, nodes, new HashMap<String, String[]>());
+        nodes.put(folder.getInode(), nav);
+        return nav;
+    }
+
+    /**
+     * Replaces the folder with a copy pointing to the current navigation of its
+     * child folders, then does the same with its parent up to the root
+     * @param dropped folder to leave out of the children lists
+     */
+    private static void relink(Map<String, NavResult> nodes, String folderInode, String dropped) {
+        while(folderInode != null) {
+            NavResult nav = nodes.get(folderInode);
+            if(nav == null)
+                return;
+            List<NavResult> children = new ArrayList<NavResult>();
+            List<String> childrenFolderIds = new ArrayList<String>();
+            for(NavResult child : nav.getChildrenNodes()) {
+                if(child.isFolder()) {
+                    NavResult current = nodes.get(child.getFolderId());
+                    if(current == null || child.getFolderId().equals(dropped))
+                        continue;
+                    children.add(current);
+                    childrenFolderIds.add(current.getFolderId());
+                }
+                else {
+                    children.add(child);
+                }
+            }
+            nodes.put(folderInode, nav.copy(Collections.unmodifiableList(children), Collections.unmodifiableList(childrenFolderIds)));
+            folderInode = nav.getParentId();
+        }
+    }
+
+    private static int depth(NavResult nav) {
+        if(nav.getFolderId().equals(FolderAPI.SYSTEM_FOLDER))
+            return 0;
+        int depth = 1;
+        for(char c : nav.getHref().toCharArray())
+            if(c == '/')
+                depth++;
+        return depth;
+    }
+
+    private static NavResult folderNav(String parentId, String hostId, Folder folder, String href) {
+        NavResult nav = new NavResult(parentId, hostId, folder.getInode());
+        nav.setTitle(folder.getTitle());
+        nav.setHref(href);
+        nav.setOrder(folder.getSortOrder());
+        nav.setType("folder");
+        nav.setPermissionId(folder.getPermissionId());
+        return nav;
+    }
+
+    private static NavResult withChildren(NavResult nav, List<?> menuItems, Map<String, NavResult> nodes, Map<String, String[]> paths) throws DotDataException {
+        String folderInode = nav.getFolderId();
+        String hostId = nav.getHostId();
+        List<NavResult> children = new ArrayList<NavResult>();
+        List<String> childrenFolderIds = new ArrayList<String>();
+        for(Object item : menuItems) {
+            if(item instanceof Folder) {
+                NavResult child = nodes.get(((Folder) item).getInode());
+                if(child != null) {
+                    children.add(child);
+                    childrenFolderIds.add(child.getFolderId());
+                }
+            }
+            else if(item instanceof HTMLPage) {
+                HTMLPage itemPage = (HTMLPage) item;
+                NavResult child = new NavResult(folderInode, hostId);
+                child.setTitle(itemPage.getTitle());
+                child.setHref(uri(paths, itemPage.getIdentifier()));
+                child.setOrder(itemPage.getSortOrder());
+                child.setType("htmlpage");
+                child.setPermissionId(itemPage.getPermissionId());
+                children.add(child);
+            }
+            else if(item instanceof Link) {
+                Link itemLink = (Link) item;
+                NavResult child = new NavResult(folderInode, hostId);
+                if(itemLink.getLinkType().equals(LinkType.CODE.toString())) {
+                    child.setCodeLink(itemLink.getLinkCode());
+                }
+                else {
+                    child.setHref(itemLink.getWorkingURL());
+                }
+                child.setTitle(itemLink.getTitle());
+                child.setOrder(itemLink.getSortOrder());
+                child.setType("link");
+                child.setPermissionId(itemLink.getPermissionId());
+                children.add(child);
+            }
+            else if(item instanceof IFileAsset) {
+                IFileAsset itemFile = (IFileAsset) item;
+                NavResult child = new NavResult(folderInode, hostId);
+                child.setTitle(itemFile.getFriendlyName());
+                child.setHref(uri(paths, itemFile.getPermissionId()));
+                child.setOrder(itemFile.getMenuOrder());
+                child.setType("file");
+                child.setPermissionId(itemFile.getPermissionId());
+                children.add(child);
+            }
+        }
+        return nav.copy(Collections.unmodifiableList(children), Collections.unmodifiableList(childrenFolderIds));
+    }
+
+    private static String uri(Map<String, String[]> paths, String identifier) throws DotDataException {
+        String[] path = paths.get(identifier);
+        return path != null ? path[0] + path[1] : APILocator.getIdentifierAPI().find(identifier).getURI();
+    }
+
+    private static void addItem(Map<String, List<Object>> items, Map<String, String> folderInodes, String[] path, Object item) {
+        if(path == null)
+            return;
+        String folderInode = folderInodes.get(path[0]);
+        if(folderInode == null)
+            return;
+        List<Object> folderItems = items.get(folderInode);
+        if(folderItems == null) {
+            folderItems = new ArrayList<Object>();
+            items.put(folderInode, folderItems);
+        }
+        folderItems.add(item);
+    }
+
+    /**
+     * Live and not deleted assets of the host shown on menu, the same
+     * conditions findMenuItems uses for a single folder
+     */
+    private static List<?> loadMenuAssets(Class<?> clazz, String tableName, String hostId) throws DotDataException {
+        String versionTable = UtilMethods.getVersionInfoTableName(tableName);
+        HibernateUtil dh = new HibernateUtil(clazz);
+        dh.setSQLQuery("select {" + tableName + ".*} from " + tableName + " " + tableName + ", inode " + tableName + "_1_, identifier " + tableName + "_2_, " + versionTable
+                + " where " + tableName + ".identifier = " + tableName + "_2_.id and " + tableName + "_1_.inode = " + tableName + ".inode and "
+                + versionTable + ".deleted = " + DbConnectionFactory.getDBFalse() + " and " + versionTable + ".live_inode = " + tableName + "_1_.inode and "
+                + tableName + "_1_.type = '" + tableName + "' and " + tableName + "_2_.host_inode = ? and "
+                + tableName + ".show_on_menu = " + DbConnectionFactory.getDBTrue());
+        dh.setParam(hostId);
+        return dh.list();
+    }
+
+    /**
+     * Live and not deleted file assets of the host shown on menu, one per identifier
+     * in the default language if it has one. Their paths are added to the given map.
+     */
+    private static List<FileAsset> loadMenuFileAssets(String hostId, Map<String, String[]> paths) throws DotDataException, DotSecurityException {
+        long defaultLanguage = APILocator.getLanguageAPI().getDefaultLanguage().getId();
+        Map<String, String> inodes = new HashMap<String, String>();
+        for(Structure structure : StructureFactory.getStructures()) {
+            if(structure.getStructureType() != Structure.STRUCTURE_TYPE_FILEASSET)
+                continue;
+            Field showOnMenu = structure.getFieldVar(FileAssetAPI.SHOW_ON_MENU);
+            if(showOnMenu == null || !UtilMethods.isSet(showOnMenu.getFieldContentlet()))
+                continue;
+            DotConnect dc = new DotConnect();
+            dc.setSQL("select contentlet.inode, contentlet.language_id, identifier.id, identifier.parent_path, identifier.asset_name "
+                    + "from contentlet, contentlet_version_info, identifier where contentlet.structure_inode = ? "
+                    + "and contentlet_version_info.live_inode = contentlet.inode and contentlet_version_info.deleted = " + DbConnectionFactory.getDBFalse()
+                    + " and contentlet.identifier = identifier.id and identifier.host_inode = ? and contentlet." + showOnMenu.getFieldContentlet() + " like '%true%'");
+            dc.addParam(structure.getInode());
+            dc.addParam(hostId);
+            for(Map<String, Object> row : dc.loadObjectResults()) {
+                String identifier = (String) row.get("id");
+                if(!inodes.containsKey(identifier) || Long.parseLong(row.get("language_id").toString()) == defaultLanguage)
+                    inodes.put(identifier, (String) row.get("inode"));
+                paths.put(identifier, new String[] {(String) row.get("parent_path"), (String) row.get("asset_name")});
+            }
+        }
+        if(inodes.isEmpty())
+            return new ArrayList<FileAsset>();
+        List<Contentlet> contentlets = APILocator.getContentletAPI().findContentlets(new ArrayList<String>(inodes.values()));
+        return APILocator.getFileAssetAPI().fromContentlets(contentlets);
+    }
+
+}
@@ -8,12 +8,14 @@ import com.dotcms.rest.ContentResourceTest;
 import com.dotcms.rest.RoleResourceTest;
 import com.dotcms.rest.WebResourceTest;
 import com.dotmarketing.business.PermissionAPITest;
+import com.dotmarketing.business.PermissionSpeedTest;
 import com.dotmarketing.business.RoleAPITest;
 import com.dotmarketing.portlets.categories.business.CategoryAPITest;
 import com.dotmarketing.portlets.containers.business.ContainerAPITest;
 import com.dotmarketing.portlets.contentlet.business.ContentletAPITest;
 import com.dotmarketing.portlets.contentlet.business.ContentletFactoryTest;
 import com.dotmarketing.portlets.contentlet.business.HostAPITest;
+import com.dotmarketing.portlets.contentlet.business.SearchByIdentifierSpeedTest;
 import com.dotmarketing.portlets.folder.business.FolderAPITest;
 import com.dotmarketing.portlets.htmlpages.business.HTMLPageAPITest;
 import com.dotmarketing.portlets.linkchecker.business.LinkCheckerAPITest;
@@ -24,6 +26,7 @@ import com.dotmarketing.portlets.structure.factories.FieldFactoryTest;
 import com.dotmarketing.portlets.structure.factories.StructureFactoryTest;
 import com.dotmarketing.portlets.templates.business.TemplateAPITest;
 import com.dotmarketing.portlets.workflows.model.WorkflowSearcherTest;
+import com.dotmarketing.servlets.SpeedyAssetServletSpeedTest;
 import com.dotmarketing.plugin.PluginMergerTest;
 import com.dotmarketing.webdav.WebDavTest;
 
@@ -55,6 +58,9 @@ import org.junit.runners.Suite;
     WebResourceTest.class,
     RoleResourceTest.class,
     ESIndexSpeedTest.class,
+    SpeedyAssetServletSpeedTest.class,
+    SearchByIdentifierSpeedTest.class,
+    PermissionSpeedTest.class,
     PluginMergerTest.class,
     WebDavTest.class,
     ContentResourceTest.class,
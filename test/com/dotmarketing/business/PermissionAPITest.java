@@ -6,6 +6,7 @@ import com.dotmarketing.beans.Permission;
 import com.dotmarketing.business.ajax.RoleAjax;
 import com.dotmarketing.cache.FieldsCache;
 import com.dotmarketing.cache.StructureCache;
+import com.dotmarketing.common.db.DotConnect;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotHibernateException;
 import com.dotmarketing.exception.DotSecurityException;
@@ -21,6 +22,7 @@ import com.dotmarketing.portlets.structure.model.Field;
 import com.dotmarketing.portlets.structure.model.Structure;
 import com.dotmarketing.portlets.templates.model.Template;
 import com.dotmarketing.util.Config;
+import com.dotmarketing.util.UUIDGenerator;
 import com.dotmarketing.util.UtilMethods;
 import com.liferay.portal.PortalException;
 import com.liferay.portal.SystemException;
@@ -159,6 +161,240 @@ public class PermissionAPITest extends TestBase {
 
     }
 
+    @Test
+    public void permissionMasksForRoleSets() throws DotDataException, DotSecurityException {
+        Map<String, String> parents=new HashMap<String, String>();
+        parents.put("maskParent", null);
+        parents.put("maskChild", "maskParent");
+        parents.put("maskOther", null);
+        RoleCache.RoleClosure closure=new RoleCache.RoleClosure(parents);
+
+        List<Permission> permissions=new ArrayList<Permission>();
+        permissions.add(new Permission("asset", "maskChild", PermissionAPI.PERMISSION_READ));
+        permissions.add(new Permission("asset", "maskChild", PermissionAPI.PERMISSION_EDIT));
+        permissions.add(new Permission("asset", "maskOther", PermissionAPI.PERMISSION_PUBLISH));
+        PermissionCache.PermissionMasks masks=PermissionCache.PermissionMasks.compile(permissions, permissions);
+        assertNotNull(masks);
+        assertTrue(masks.isCompiledFrom(permissions));
+        assertFalse(masks.isCompiledFrom(new ArrayList<Permission>(permissions)));
+
+        // the roles below an assigned role count, and more role sets than the masks keep are checked
+        // so the first ones are dropped and have to be computed again
+        List<String> none=Collections.emptyList();
+        int sets=Config.getIntProperty("PERMISSION_ROLE_SET_MASKS_PER_ASSET", 100)*2;
+        for(int pass=0;pass<2;pass++) {
+            for(int i=0;i<sets;i++) {
+                List<String> assigned=new ArrayList<String>();
+                assigned.add("maskUnrelated"+i);
+                if(i%2==0)
+                    assigned.add("maskParent");
+                if(i%3==0)
+                    assigned.add("maskOther");
+                RoleCache.UserRoleSet roles=new RoleCache.UserRoleSet(closure, assigned, "maskAdmin", none);
+                assertEquals(i%2==0, masks.matches(roles, PermissionAPI.PERMISSION_READ));
+                assertEquals(i%2==0, masks.matches(roles, PermissionAPI.PERMISSION_EDIT));
+                assertEquals(i%3==0, masks.matches(roles, PermissionAPI.PERMISSION_PUBLISH));
+                assertFalse(masks.matches(roles, PermissionAPI.PERMISSION_EDIT_PERMISSIONS));
+            }
+        }
+
+        // a permission that is not a bit permission can't be compiled
+        permissions.add(new Permission("asset", "maskOther", PermissionAPI.PERMISSION_READ, false));
+        assertNull(PermissionCache.PermissionMasks.compile(permissions, permissions));
+    }
+
+    @Test
+    public void doesUserHavePermissionAfterPermissionChange() throws DotDataException, DotSecurityException {
+        Role nrole=APILocator.getRoleAPI().loadRoleByKey("TestingRole5");
+        if(nrole==null || !UtilMethods.isSet(nrole.getId())) {
+            nrole=new Role();
+            nrole.setName("TestingRole5");
+            nrole.setRoleKey("TestingRole5");
+            nrole.setEditUsers(true);
+            nrole.setEditPermissions(true);
+            nrole.setEditLayouts(true);
+            nrole.setDescription("Testing Role 5");
+            APILocator.getRoleAPI().save(nrole);
+        }
+
+        User user=null;
+        try {
+            user=APILocator.getUserAPI().loadUserById("maskuser", sysuser, false);
+        }
+        catch(Exception ex) {
+            user=null;
+        }
+        finally {
+            if(user==null || !UtilMethods.isSet(user.getUserId())) {
+                user=APILocator.getUserAPI().createUser("maskuser", "maskuser@fake.org");
+                APILocator.getUserAPI().save(user, sysuser, false);
+                user=APILocator.getUserAPI().loadUserById("maskuser", sysuser, false);
+            }
+        }
+        if(!APILocator.getRoleAPI().doesUserHaveRole(user, nrole))
+            APILocator.getRoleAPI().addRoleToUser(nrole, user);
+
+        APILocator.getFolderAPI().createFolders("/fmask/", host, sysuser, false);
+        Folder f=APILocator.getFolderAPI().findFolderByPath("/fmask/", host, sysuser, false);
+        perm.permissionIndividually(host, f, sysuser, false);
+
+        // the masks checked for the user must not survive a change of the permissions
+        assertFalse(perm.doesUserHavePermission(f, PermissionAPI.PERMISSION_PUBLISH, user));
+
+        Permission p=new Permission();
+        p.setPermission(PermissionAPI.PERMISSION_READ|PermissionAPI.PERMISSION_PUBLISH);
+        p.setRoleId(nrole.getId());
+        p.setInode(f.getInode());
+        perm.save(p, f, sysuser, false);
+
+        assertTrue(perm.doesUserHavePermission(f, PermissionAPI.PERMISSION_PUBLISH, user));
+        assertTrue(perm.doesUserHavePermission(f, PermissionAPI.PERMISSION_READ, user));
+        assertFalse(perm.doesUserHavePermission(f, PermissionAPI.PERMISSION_EDIT, user));
+
+        perm.removePermissions(f);
+        assertFalse(perm.doesUserHavePermission(f, PermissionAPI.PERMISSION_PUBLISH, user));
+    }
+
+    @Test
+    public void addPermissionsToCacheInBulk() throws DotDataException, DotSecurityException {
+        APILocator.getFolderAPI().createFolders("/fbulk/a/", host, sysuser, false);
+        APILocator.getFolderAPI().createFolders("/fbulk/b/", host, sysuser, false);
+        APILocator.getFolderAPI().createFolders("/fbulk/c/", host, sysuser, false);
+        Folder parent=APILocator.getFolderAPI().findFolderByPath("/fbulk/", host, sysuser, false);
+        perm.permissionIndividually(host, parent, sysuser, false);
+
+        List<Folder> children=new ArrayList<Folder>();
+        children.add(APILocator.getFolderAPI().findFolderByPath("/fbulk/a/", host, sysuser, false));
+        children.add(APILocator.getFolderAPI().findFolderByPath("/fbulk/b/", host, sysuser, false));
+        children.add(APILocator.getFolderAPI().findFolderByPath("/fbulk/c/", host, sysuser, false));
+
+        // what the single load inherits, to compare with
+        Map<String, List<Permission>> expected=new HashMap<String, List<Permission>>();
+        for(Folder child : children)
+            expected.put(child.getPermissionId(), perm.getPermissions(child, true));
+
+        // a folder that is not stored must get neither a reference nor a cache entry
+        Folder ghost=new Folder();
+        ghost.setInode(UUIDGenerator.generateUuid());
+        ghost.setIdentifier(children.get(0).getIdentifier());
+        ghost.setHostId(host.getIdentifier());
+
+        List<Permissionable> permissionables=new ArrayList<Permissionable>(children);
+        permissionables.add(ghost);
+
+        // the references have to be created again by the bulk load
+        DotConnect dc=new DotConnect();
+        for(Folder child : children) {
+            dc.setSQL("delete from permission_reference where asset_id=?");
+            dc.addParam(child.getPermissionId());
+            dc.loadResult();
+        }
+        CacheLocator.getPermissionCache().clearCache();
+
+        perm.addPermissionsToCache(permissionables);
+
+        for(Folder child : children) {
+            List<Permission> cached=CacheLocator.getPermissionCache().getPermissionsFromCache(child.getPermissionId());
+            assertNotNull(cached);
+            assertEquals(expected.get(child.getPermissionId()).size(), cached.size());
+            for(Permission p : expected.get(child.getPermissionId())) {
+                boolean found=false;
+                for(Permission c : cached)
+                    found = found || (c.getRoleId().equals(p.getRoleId()) && c.getPermission()==p.getPermission());
+                assertTrue(found);
+            }
+
+            dc.setSQL("select reference_id from permission_reference where asset_id=?");
+            dc.addParam(child.getPermissionId());
+            List<Map<String, Object>> references=dc.loadObjectResults();
+            assertEquals(1, references.size());
+            assertEquals(parent.getPermissionId(), references.get(0).get("reference_id"));
+        }
+
+        assertNull(CacheLocator.getPermissionCache().getPermissionsFromCache(ghost.getPermissionId()));
+        dc.setSQL("select reference_id from permission_reference where asset_id=?");
+        dc.addParam(ghost.getPermissionId());
+        assertTrue(dc.loadObjectResults().isEmpty());
+
+        perm.removePermissions(parent);
+    }
+
+    @Test
+    public void cascadePermissionUnderResumes() throws DotDataException, DotSecurityException {
+        Role nrole=APILocator.getRoleAPI().loadRoleByKey("TestingRole6");
+        if(nrole==null || !UtilMethods.isSet(nrole.getId())) {
+            nrole=new Role();
+            nrole.setName("TestingRole6");
+            nrole.setRoleKey("TestingRole6");
+            nrole.setEditUsers(true);
+            nrole.setEditPermissions(true);
+            nrole.setEditLayouts(true);
+            nrole.setDescription("Testing Role 6");
+            APILocator.getRoleAPI().save(nrole);
+        }
+
+        APILocator.getFolderAPI().createFolders("/fcasc/a/", host, sysuser, false);
+        APILocator.getFolderAPI().createFolders("/fcasc/b/", host, sysuser, false);
+        APILocator.getFolderAPI().createFolders("/fcasc/c/", host, sysuser, false);
+        Folder parent=APILocator.getFolderAPI().findFolderByPath("/fcasc/", host, sysuser, false);
+        perm.permissionIndividually(host, parent, sysuser, false);
+
+        List<Folder> children=new ArrayList<Folder>();
+        for(String name : new String[] {"a", "b", "c"}) {
+            Folder child=APILocator.getFolderAPI().findFolderByPath("/fcasc/"+name+"/", host, sysuser, false);
+            perm.permissionIndividually(parent, child, sysuser, false);
+            children.add(child);
+        }
+
+        int permission=PermissionAPI.PERMISSION_READ | PermissionAPI.PERMISSION_WRITE;
+        perm.save(new Permission(Folder.class.getCanonicalName(), parent.getPermissionId(), nrole.getId(), permission, true), parent, sysuser, false);
+
+        perm.cascadePermissionUnder(parent, nrole);
+        assertNull(perm.getCascadePermissionsProgress(parent.getPermissionId(), nrole.getId()));
+
+        DotConnect dc=new DotConnect();
+        Map<String, String> rows=new HashMap<String, String>();
+        for(Folder child : children) {
+            assertTrue(perm.doesRoleHavePermission(child, PermissionAPI.PERMISSION_READ, nrole));
+            assertTrue(perm.doesRoleHavePermission(child, PermissionAPI.PERMISSION_WRITE, nrole));
+            dc.setSQL("select id from permission where inode_id=? and roleid=? and permission_type=?");
+            dc.addParam(child.getPermissionId());
+            dc.addParam(nrole.getId());
+            dc.addParam(PermissionAPI.INDIVIDUAL_PERMISSION_TYPE);
+            List<Map<String, Object>> found=dc.loadObjectResults();
+            assertEquals(1, found.size());
+            rows.put(child.getPermissionId(), found.get(0).get("id").toString());
+        }
+
+        // a cascade that stopped before getting to the last child
+        Folder last=children.get(children.size()-1);
+        dc.setSQL("delete from permission where inode_id=? and roleid=?");
+        dc.addParam(last.getPermissionId());
+        dc.addParam(nrole.getId());
+        dc.loadResult();
+        CacheLocator.getPermissionCache().remove(last.getPermissionId());
+        assertFalse(perm.doesRoleHavePermission(last, PermissionAPI.PERMISSION_READ, nrole));
+
+        // running it again only saves what is missing, the children already updated keep their rows
+        perm.cascadePermissionUnder(parent, nrole);
+        assertNull(perm.getCascadePermissionsProgress(parent.getPermissionId(), nrole.getId()));
+        for(Folder child : children) {
+            assertTrue(perm.doesRoleHavePermission(child, PermissionAPI.PERMISSION_READ, nrole));
+            assertTrue(perm.doesRoleHavePermission(child, PermissionAPI.PERMISSION_WRITE, nrole));
+            if(child != last) {
+                dc.setSQL("select id from permission where inode_id=? and roleid=? and permission_type=?");
+                dc.addParam(child.getPermissionId());
+                dc.addParam(nrole.getId());
+                dc.addParam(PermissionAPI.INDIVIDUAL_PERMISSION_TYPE);
+                assertEquals(rows.get(child.getPermissionId()), dc.loadObjectResults().get(0).get("id").toString());
+            }
+        }
+
+        for(Folder child : children)
+            perm.removePermissions(child);
+        perm.removePermissions(parent);
+    }
+
     @Test
     public void removePermissions() throws DotDataException, DotSecurityException {
         APILocator.getFolderAPI().createFolders("/f1/", host, sysuser, false);
@@ -0,0 +1,139 @@
+package com.dotmarketing.business;
+
+import com.dotcms.TestBase;
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.portlets.folders.model.Folder;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.UtilMethods;
+import com.liferay.portal.model.User;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PermissionSpeedTest extends TestBase {
+
+    private static final int ROLE_SETS=Config.getIntProperty("PERMISSION_ROLE_SET_MASKS_PER_ASSET", 100);
+
+    private static PermissionAPI perm;
+    private static Host host;
+    private static Folder folder;
+    private static User sysuser;
+    private static User user;
+
+    @BeforeClass
+    public static void createSpeedHost() throws Exception {
+        perm=APILocator.getPermissionAPI();
+        sysuser=APILocator.getUserAPI().getSystemUser();
+        host=new Host();
+        host.setHostname("speedhost.demo.dotcms.com");
+        host=APILocator.getHostAPI().save(host, sysuser, false);
+        perm.permissionIndividually(host.getParentPermissionable(), host, sysuser, false);
+
+        Role nrole=APILocator.getRoleAPI().loadRoleByKey("SpeedTestingRole");
+        if(nrole==null || !UtilMethods.isSet(nrole.getId())) {
+            nrole=new Role();
+            nrole.setName("SpeedTestingRole");
+            nrole.setRoleKey("SpeedTestingRole");
+            nrole.setEditUsers(true);
+            nrole.setEditPermissions(true);
+            nrole.setEditLayouts(true);
+            nrole.setDescription("Speed Testing Role");
+            APILocator.getRoleAPI().save(nrole);
+        }
+
+        try {
+            user=APILocator.getUserAPI().loadUserById("speeduser", sysuser, false);
+        }
+        catch(Exception ex) {
+            user=null;
+        }
+        finally {
+            if(user==null || !UtilMethods.isSet(user.getUserId())) {
+                user=APILocator.getUserAPI().createUser("speeduser", "speeduser@fake.org");
+                APILocator.getUserAPI().save(user, sysuser, false);
+                user=APILocator.getUserAPI().loadUserById("speeduser", sysuser, false);
+            }
+        }
+        if(!APILocator.getRoleAPI().doesUserHaveRole(user, nrole))
+            APILocator.getRoleAPI().addRoleToUser(nrole, user);
+
+        APILocator.getFolderAPI().createFolders("/fspeed/", host, sysuser, false);
+        folder=APILocator.getFolderAPI().findFolderByPath("/fspeed/", host, sysuser, false);
+        perm.permissionIndividually(host, folder, sysuser, false);
+
+        Permission p=new Permission();
+        p.setPermission(PermissionAPI.PERMISSION_READ);
+        p.setRoleId(nrole.getId());
+        p.setInode(folder.getInode());
+        perm.save(p, folder, sysuser, false);
+    }
+
+    @AfterClass
+    public static void deleteSpeedHost() throws Exception {
+        APILocator.getHostAPI().archive(host, sysuser, false);
+        APILocator.getHostAPI().delete(host, sysuser, false);
+    }
+
+    @Test
+    public void doesUserHavePermission100k() throws Exception {
+        for(int i=1;i<=100000;i++) {
+            assertTrue(perm.doesUserHavePermission(folder, PermissionAPI.PERMISSION_READ, user));
+            assertFalse(perm.doesUserHavePermission(folder, PermissionAPI.PERMISSION_PUBLISH, user));
+        }
+    }
+
+    @Test
+    public void permissionMasksRecentRoleSets1M() throws Exception {
+        checkPermissionMasks(ROLE_SETS/2, 1000000);
+    }
+
+    @Test
+    public void permissionMasksManyRoleSets1M() throws Exception {
+        // more role sets than the masks keep, so most of the checks compute the mask again
+        checkPermissionMasks(ROLE_SETS*10, 1000000);
+    }
+
+    /**
+     * An asset with 50 permissioned roles checked against role sets of 20 assigned roles
+     * below a 3 level role tree
+     */
+    private void checkPermissionMasks(int sets, int checks) {
+        Map<String, String> parents=new HashMap<String, String>();
+        for(int i=0;i<100;i++) {
+            parents.put("speedRoot"+i, null);
+            parents.put("speedParent"+i, "speedRoot"+i);
+            parents.put("speedChild"+i, "speedParent"+i);
+        }
+        RoleCache.RoleClosure closure=new RoleCache.RoleClosure(parents);
+
+        List<Permission> permissions=new ArrayList<Permission>();
+        for(int i=0;i<50;i++)
+            permissions.add(new Permission("asset", "speedChild"+(i*2), PermissionAPI.PERMISSION_READ));
+        PermissionCache.PermissionMasks masks=PermissionCache.PermissionMasks.compile(permissions, permissions);
+        assertNotNull(masks);
+
+        List<String> none=Collections.emptyList();
+        RoleCache.UserRoleSet[] roleSets=new RoleCache.UserRoleSet[sets];
+        boolean[] expected=new boolean[sets];
+        for(int i=0;i<sets;i++) {
+            List<String> assigned=new ArrayList<String>();
+            for(int j=0;j<20;j++)
+                assigned.add("speedUnrelated"+i+"_"+j);
+            // every other set gets a role above a permissioned one
+            if(i%2==0)
+                assigned.add("speedParent"+((i*2)%100));
+            roleSets[i]=new RoleCache.UserRoleSet(closure, assigned, "speedAdmin", none);
+            expected[i]=i%2==0;
+        }
+
+        for(int i=0;i<checks;i++) {
+            int s=i%sets;
+            assertEquals(expected[s], masks.matches(roleSets[s], PermissionAPI.PERMISSION_READ));
+        }
+    }
+}
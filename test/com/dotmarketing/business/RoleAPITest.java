@@ -8,6 +8,7 @@ import com.liferay.portal.model.User;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -258,6 +259,109 @@ public class RoleAPITest extends TestBase {
         assertEquals( userRoles.size(), 1 );
     }
 
+    /**
+     * Testing that moving a role below another parent updates the roles the users get through
+     * {@link RoleAPI#doesUserHaveRole(com.liferay.portal.model.User, String)} and the role closure kept in {@link RoleCache}
+     *
+     * @throws DotDataException
+     * @throws DotSecurityException
+     * @see RoleFactory
+     * @see RoleCache.RoleClosure
+     */
+    @Test
+    public void reparentRole () throws DotDataException, DotSecurityException {
+
+        RoleAPI roleAPI = APILocator.getRoleAPI();
+        UserAPI userAPI = APILocator.getUserAPI();
+        String time = String.valueOf( new Date().getTime() );
+
+        HibernateUtil.startTransaction();
+
+        //Two root roles and a child under the first one
+        Role rootRoleA = new Role();
+        rootRoleA.setName( "Test Root Role A_" + time );
+        rootRoleA.setRoleKey( "testRootRoleA_" + time );
+        rootRoleA.setEditUsers( true );
+        rootRoleA.setEditPermissions( true );
+        rootRoleA.setEditLayouts( true );
+        rootRoleA.setDescription( "Test Root Role A" );
+        roleAPI.save( rootRoleA );
+
+        Role rootRoleB = new Role();
+        rootRoleB.setName( "Test Root Role B_" + time );
+        rootRoleB.setRoleKey( "testRootRoleB_" + time );
+        rootRoleB.setEditUsers( true );
+        rootRoleB.setEditPermissions( true );
+        rootRoleB.setEditLayouts( true );
+        rootRoleB.setDescription( "Test Root Role B" );
+        roleAPI.save( rootRoleB );
+
+        Role childRole = new Role();
+        childRole.setName( "Test Moved Role_" + time );
+        childRole.setRoleKey( "testMovedRole_" + time );
+        childRole.setEditUsers( true );
+        childRole.setEditPermissions( true );
+        childRole.setEditLayouts( true );
+        childRole.setDescription( "Test Moved Role" );
+        childRole.setParent( rootRoleA.getId() );
+        roleAPI.save( childRole );
+
+        //A user for each root role
+        User userA = userAPI.createUser( "a" + time + "@test.com", "a" + time + "@test.com" );
+        userA.setFirstName( "Test" );
+        userA.setLastName( "User A" );
+        userAPI.save( userA, systemUser, false );
+        roleAPI.addRoleToUser( rootRoleA, userA );
+
+        User userB = userAPI.createUser( "b" + time + "@test.com", "b" + time + "@test.com" );
+        userB.setFirstName( "Test" );
+        userB.setLastName( "User B" );
+        userAPI.save( userB, systemUser, false );
+        roleAPI.addRoleToUser( rootRoleB, userB );
+
+        HibernateUtil.commitTransaction();
+
+        assertTrue( roleAPI.doesUserHaveRole( userA, childRole.getId() ) );
+        assertFalse( roleAPI.doesUserHaveRole( userB, childRole.getId() ) );
+
+        RoleCache.RoleClosure closure = CacheLocator.getRoleCache().getRoleClosure();
+        assertNotNull( closure );
+        assertTrue( Arrays.asList( closure.get( rootRoleA.getId() ) ).contains( childRole.getId() ) );
+        assertFalse( Arrays.asList( closure.get( rootRoleB.getId() ) ).contains( childRole.getId() ) );
+
+        //Move the child below the second root role
+        HibernateUtil.startTransaction();
+        childRole.setParent( rootRoleB.getId() );
+        roleAPI.save( childRole );
+        HibernateUtil.commitTransaction();
+
+        assertFalse( roleAPI.doesUserHaveRole( userA, childRole.getId() ) );
+        assertTrue( roleAPI.doesUserHaveRole( userB, childRole.getId() ) );
+        assertEquals( 2, roleAPI.loadRolesForUser( userA.getUserId(), true ).size() );//"Test Root Role A" + User role
+        assertEquals( 3, roleAPI.loadRolesForUser( userB.getUserId(), true ).size() );//"Test Root Role B" -> "Test Moved Role" + User role
+
+        //The closure updated on commit is the same one the database gives
+        RoleCache.RoleClosure updated = CacheLocator.getRoleCache().getRoleClosure();
+        assertNotNull( updated );
+        assertNotSame( closure, updated );
+        CacheLocator.getRoleCache().removeRoleClosure();
+        assertTrue( roleAPI.doesUserHaveRole( userB, childRole.getId() ) );
+        RoleCache.RoleClosure loaded = CacheLocator.getRoleCache().getRoleClosure();
+        assertNotNull( loaded );
+        for ( Role role : new Role[] { rootRoleA, rootRoleB, childRole } ) {
+            assertTrue( Arrays.equals( loaded.get( role.getId() ), updated.get( role.getId() ) ) );
+        }
+        assertFalse( Arrays.asList( loaded.get( rootRoleA.getId() ) ).contains( childRole.getId() ) );
+        assertTrue( Arrays.asList( loaded.get( rootRoleB.getId() ) ).contains( childRole.getId() ) );
+
+        //Clean up
+        HibernateUtil.startTransaction();
+        roleAPI.delete( childRole );
+        roleAPI.delete( rootRoleA );
+        roleAPI.delete( rootRoleB );
+        HibernateUtil.commitTransaction();
+    }
+
     /**
      * Verify if a given Roles was saved properly
      *
@@ -0,0 +1,135 @@
+package com.dotmarketing.portlets.contentlet.business;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.dotcms.TestBase;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.PermissionAPI;
+import com.dotmarketing.common.model.ContentletSearch;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.languagesmanager.model.Language;
+import com.dotmarketing.portlets.structure.factories.FieldFactory;
+import com.dotmarketing.portlets.structure.factories.StructureFactory;
+import com.dotmarketing.portlets.structure.model.Field;
+import com.dotmarketing.portlets.structure.model.Structure;
+import com.liferay.portal.model.User;
+
+/**
+ * Times searchByIdentifier over content translated to a different set of languages
+ * for every identifier, so the hits carry several versions of the same identifier and
+ * some identifiers have no version in the default language
+ */
+public class SearchByIdentifierSpeedTest extends TestBase {
+
+	private static final int IDENTIFIERS = 40;
+
+	private static final ContentletAPI contAPI = APILocator.getContentletAPI();
+	private static User user;
+	private static Structure st;
+	private static String query;
+	// identifier -> the language searchByIdentifier has to pick for it
+	private static Map<String, Long> anyLanguage = new HashMap<String, Long>();
+	private static Set<String> defaultLanguage = new LinkedHashSet<String>();
+
+	@BeforeClass
+	public static void before() throws Exception {
+		user=APILocator.getUserAPI().getSystemUser();
+
+		st=new Structure();
+		st.setStructureType(Structure.STRUCTURE_TYPE_CONTENT);
+		st.setName("JUNIT-test-searchByIdentifierSpeed"+System.currentTimeMillis());
+		st.setVelocityVarName("testSearchByIdentifierSpeed"+System.currentTimeMillis());
+		st.setHost(APILocator.getHostAPI().findDefaultHost(user, false).getIdentifier());
+		StructureFactory.saveStructure(st);
+
+		Field ff=new Field("title",Field.FieldType.TEXT,Field.DataType.TEXT,st,true,true,true,1,false,false,true);
+		FieldFactory.saveField(ff);
+
+		long defaultLanguageId=APILocator.getLanguageAPI().getDefaultLanguage().getId();
+		List<Language> languages=APILocator.getLanguageAPI().getLanguages();
+		for(int i=0;i<IDENTIFIERS;i++) {
+			// every identifier starts at a different language and is translated to the ones after it
+			String identifier=null;
+			for(int l=i%languages.size();l<languages.size();l++) {
+				Language ll=languages.get(l);
+				Contentlet con=new Contentlet();
+				con.setStructureInode(st.getInode());
+				if(identifier!=null) con.setIdentifier(identifier);
+				con.setStringProperty(ff.getVelocityVarName(), "speed text "+i+" "+ll.getId());
+				con.setLanguageId(ll.getId());
+				con=contAPI.checkin(con, user, false);
+				contAPI.isInodeIndexed(con.getInode());
+				if(identifier==null) {
+					identifier=con.getIdentifier();
+					anyLanguage.put(identifier, ll.getId());
+				}
+				if(ll.getId()==defaultLanguageId)
+					defaultLanguage.add(identifier);
+			}
+		}
+		query="+structureName:"+st.getVelocityVarName();
+	}
+
+	@AfterClass
+	public static void afterClass() throws Exception {
+		for(Contentlet con : contAPI.findByStructure(st, user, false, 0, 0)) {
+			contAPI.delete(con, user, false);
+		}
+		StructureFactory.deleteStructure(st);
+	}
+
+	@Test
+	public void searchByIdentifierAnyLanguage1k() throws Exception {
+		List<String> order=hitOrder();
+		List<Contentlet> found=search(true);
+		assertEquals(IDENTIFIERS, found.size());
+		for(int i=0;i<found.size();i++) {
+			Contentlet con=found.get(i);
+			assertEquals(order.get(i), con.getIdentifier());
+			assertEquals(anyLanguage.get(con.getIdentifier()).longValue(), con.getLanguageId());
+		}
+
+		for(int i=1;i<=1000;i++) {
+			assertEquals(IDENTIFIERS, search(true).size());
+		}
+	}
+
+	@Test
+	public void searchByIdentifierDefaultLanguage1k() throws Exception {
+		List<Contentlet> found=search(false);
+		assertEquals(defaultLanguage.size(), found.size());
+		for(Contentlet con : found) {
+			assertEquals(APILocator.getLanguageAPI().getDefaultLanguage().getId(), con.getLanguageId());
+		}
+
+		for(int i=1;i<=1000;i++) {
+			assertEquals(defaultLanguage.size(), search(false).size());
+		}
+	}
+
+	private List<Contentlet> search(boolean anyLanguage) throws Exception {
+		return contAPI.searchByIdentifier(query, 1000, 0, "modDate", user, false, PermissionAPI.PERMISSION_READ, anyLanguage);
+	}
+
+	/**
+	 * @return the identifiers of the index hits in the order they are first hit
+	 */
+	private List<String> hitOrder() throws Exception {
+		Set<String> order=new LinkedHashSet<String>();
+		for(ContentletSearch hit : contAPI.searchIndex(query, 1000, 0, "modDate", user, false)) {
+			order.add(hit.getIdentifier());
+		}
+		return new ArrayList<String>(order);
+	}
+}
@@ -7,6 +7,7 @@ import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.portlets.folders.model.Folder;
+import com.dotmarketing.util.InodeUtils;
 import com.liferay.portal.model.User;
 
 public class FolderAPITest {
@@ -42,5 +43,26 @@ public class FolderAPITest {
         Assert.assertEquals(ident2.getPath(),ident3.getParentPath());
         
     }
+    
+    @Test
+    public void createFolderOverMissingURI() throws Exception {
+        User user = APILocator.getUserAPI().getSystemUser();
+        Host demo = APILocator.getHostAPI().findByName("demo.dotcms.com", user, false);
+        String uri = "/folderTomb"+System.currentTimeMillis();
+        
+        // a lookup that finds nothing leaves a tombstone for the uri
+        Identifier missing = APILocator.getIdentifierAPI().find(demo, uri);
+        Assert.assertFalse(InodeUtils.isSet(missing.getId()));
+        Assert.assertTrue(APILocator.getIdentifierAPI().isURIMissing(demo.getIdentifier(), uri, null));
+        
+        // creating the identifier clears it
+        Folder ftest = APILocator.getFolderAPI().createFolders(uri, demo, user, false);
+        Identifier ident = APILocator.getIdentifierAPI().find(ftest);
+        Assert.assertEquals(uri, ident.getURI());
+        Assert.assertFalse(APILocator.getIdentifierAPI().isURIMissing(demo.getIdentifier(), uri, null));
+        
+        Identifier found = APILocator.getIdentifierAPI().find(demo, uri);
+        Assert.assertEquals(ident.getId(), found.getId());
+    }
 
 }
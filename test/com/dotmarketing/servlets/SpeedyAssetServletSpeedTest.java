@@ -0,0 +1,148 @@
+package com.dotmarketing.servlets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Times serving files through the channel copy of the speedy asset servlet and checks
+ * the heap it allocates per request doesn't grow with the size of the file
+ */
+public class SpeedyAssetServletSpeedTest {
+
+	private static final long SMALL = 1024 * 1024;
+	private static final long LARGE = 3 * SpeedyAssetServletUtil.MAX_TRANSFER_SIZE;
+
+	private static File small;
+	private static File large;
+
+	@BeforeClass
+	public static void before() throws IOException {
+		small = createFile(SMALL);
+		large = createFile(LARGE);
+	}
+
+	@AfterClass
+	public static void after() {
+		small.delete();
+		large.delete();
+	}
+
+	@Test
+	public void copySmallFile1k() throws Exception {
+		for(int i=1;i<=1000;i++) {
+			assertEquals(SMALL, serve(small, 0, SMALL));
+		}
+	}
+
+	@Test
+	public void copyLargeFile100() throws Exception {
+		for(int i=1;i<=100;i++) {
+			assertEquals(LARGE, serve(large, 0, LARGE));
+		}
+	}
+
+	@Test
+	public void copyRanges10k() throws Exception {
+		long part = LARGE / 10;
+		for(int i=1;i<=10000;i++) {
+			long start = (i % 10) * part;
+			assertEquals(1024, serve(large, start, 1024));
+		}
+	}
+
+	@Test
+	public void allocationPerRequest() throws Exception {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(!(bean instanceof com.sun.management.ThreadMXBean))
+			return;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		if(!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled())
+			return;
+		long id = Thread.currentThread().getId();
+
+		// warm up so the first request doesn't count the class loading
+		for(int i=0;i<20;i++) {
+			serve(small, 0, SMALL);
+			serve(large, 0, LARGE);
+		}
+
+		long before = threads.getThreadAllocatedBytes(id);
+		for(int i=0;i<20;i++)
+			serve(small, 0, SMALL);
+		long smallBytes = (threads.getThreadAllocatedBytes(id) - before) / 20;
+
+		before = threads.getThreadAllocatedBytes(id);
+		for(int i=0;i<20;i++)
+			serve(large, 0, LARGE);
+		long largeBytes = (threads.getThreadAllocatedBytes(id) - before) / 20;
+
+		// the large file is almost a hundred times bigger, the heap used to serve it must not be
+		assertTrue("small file: "+smallBytes+" bytes per request, large file: "+largeBytes,
+				largeBytes < smallBytes + 64 * 1024);
+	}
+
+	private static long serve(File file, long start, long length) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			DiscardChannel out = new DiscardChannel();
+			SpeedyAssetServletUtil.copy(in.getChannel(), out, start, length);
+			return out.written;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static File createFile(long size) throws IOException {
+		File file = File.createTempFile("speedyasset", ".bin");
+		file.deleteOnExit();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+			for(int i=0;i<chunk.capacity();i++)
+				chunk.put((byte) i);
+			for(long written=0;written<size;) {
+				chunk.clear();
+				chunk.limit((int) Math.min(chunk.capacity(), size - written));
+				written += channel.write(chunk);
+			}
+		} finally {
+			raf.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Stands for the response output, counts the bytes without keeping them
+	 */
+	private static class DiscardChannel implements WritableByteChannel {
+		private long written;
+
+		public int write(ByteBuffer src) {
+			int n = src.remaining();
+			src.position(src.limit());
+			written += n;
+			return n;
+		}
+
+		public boolean isOpen() {
+			return true;
+		}
+
+		public void close() {
+		}
+	}
+}